@@ -11,6 +11,43 @@
 -- Ket noi vao database capstone_project truoc khi chay script nay
 -- psql -U capstone_user -d capstone_project -h localhost -W
 
+-- ============================================
+-- EXTENSIONS
+-- ============================================
+
+-- Tim kiem nguoi dung: LIKE '%...%' / word_similarity (pg_trgm), bo dau tieng Viet (unaccent)
+CREATE EXTENSION IF NOT EXISTS pg_trgm;
+CREATE EXTENSION IF NOT EXISTS unaccent;
+
+-- unaccent() la STABLE, ban IMMUTABLE de dung trong index/trigger
+CREATE OR REPLACE FUNCTION f_unaccent(TEXT)
+RETURNS TEXT AS $$
+    SELECT public.unaccent('public.unaccent', $1)
+$$ LANGUAGE sql IMMUTABLE PARALLEL SAFE STRICT;
+
+CREATE OR REPLACE FUNCTION user_search_text(p_full_name TEXT, p_email TEXT, p_phone TEXT)
+RETURNS TEXT AS $$
+    SELECT lower(f_unaccent(concat_ws(' ', p_full_name, p_email, p_phone)))
+$$ LANGUAGE sql IMMUTABLE PARALLEL SAFE;
+
+-- Full-text search khong phan biet dau (bai viet kien thuc)
+DO $$ BEGIN
+    CREATE TEXT SEARCH CONFIGURATION vi_unaccent (COPY = simple);
+EXCEPTION
+    WHEN duplicate_object THEN null;
+END $$;
+
+ALTER TEXT SEARCH CONFIGURATION vi_unaccent
+    ALTER MAPPING FOR hword, hword_part, word WITH unaccent, simple;
+
+CREATE OR REPLACE FUNCTION knowledge_article_search_vector(p_title TEXT, p_tags TEXT, p_summary TEXT, p_content TEXT)
+RETURNS tsvector AS $$
+    SELECT setweight(to_tsvector('vi_unaccent', coalesce(p_title, '')), 'A')
+        || setweight(to_tsvector('vi_unaccent', replace(coalesce(p_tags, ''), ',', ' ')), 'A')
+        || setweight(to_tsvector('vi_unaccent', coalesce(p_summary, '')), 'B')
+        || setweight(to_tsvector('vi_unaccent', regexp_replace(coalesce(p_content, ''), '<[^>]+>', ' ', 'g')), 'C')
+$$ LANGUAGE sql STABLE;
+
 -- ============================================
 -- TAO CAC ENUM TYPES
 -- ============================================
@@ -184,11 +221,14 @@ CREATE TABLE IF NOT EXISTS users (
     password_reset_token_expiry     TIMESTAMP,
     created_at                      TIMESTAMP       NOT NULL DEFAULT CURRENT_TIMESTAMP,
     updated_at                      TIMESTAMP       NOT NULL DEFAULT CURRENT_TIMESTAMP,
-    last_login                      TIMESTAMP
+    last_login                      TIMESTAMP,
+    security_version                BIGINT          NOT NULL DEFAULT 0, -- Tang khi admin doi role/trang thai, principal cu phai load lai
+    search_text                     TEXT            -- Ho ten (bo dau) + email + phone, cap nhat boi trigger
 );
 
 CREATE INDEX IF NOT EXISTS idx_users_email ON users(email);
 CREATE INDEX IF NOT EXISTS idx_users_phone ON users(phone);
+CREATE INDEX IF NOT EXISTS idx_users_search_text_trgm ON users USING gin (search_text gin_trgm_ops);
 
 COMMENT ON TABLE users IS 'Bang luu thong tin tai khoan va bao mat nguoi dung';
 
@@ -399,6 +439,46 @@ CREATE INDEX IF NOT EXISTS idx_webcall_start_time ON web_call_logs(start_time);
 
 COMMENT ON TABLE web_call_logs IS 'Bang luu lich su cuoc goi Web-to-Web giua 2 user qua trinh duyet';
 
+CREATE TABLE IF NOT EXISTS recording_jobs (
+    id                  BIGSERIAL       PRIMARY KEY,
+    call_id             VARCHAR(100)    NOT NULL,
+    recording_url       VARCHAR(1000)   NOT NULL,
+    status              VARCHAR(20)     NOT NULL DEFAULT 'PENDING',
+    s3_key              VARCHAR(500),
+    attempts            INT             NOT NULL DEFAULT 0,
+    last_error          VARCHAR(1000),
+    next_attempt_at     TIMESTAMP,
+    created_at          TIMESTAMP       NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    updated_at          TIMESTAMP       NOT NULL DEFAULT CURRENT_TIMESTAMP,
+
+    CONSTRAINT uk_recording_job_call UNIQUE (call_id)
+);
+
+CREATE INDEX IF NOT EXISTS idx_recording_job_claim ON recording_jobs(status, next_attempt_at);
+
+COMMENT ON TABLE recording_jobs IS 'Hang doi xu ly file ghi am tu webhook Stringee';
+
+CREATE TABLE IF NOT EXISTS recording_objects (
+    id                  BIGSERIAL       PRIMARY KEY,
+    s3_key              VARCHAR(500)    NOT NULL,
+    filename            VARCHAR(255)    NOT NULL,
+    user_id             VARCHAR(100),
+    call_id             VARCHAR(100),
+    recording_type      VARCHAR(20),
+    content_type        VARCHAR(100),
+    size_bytes          BIGINT,
+    last_modified       TIMESTAMP       NOT NULL,
+
+    CONSTRAINT uk_recording_object_key UNIQUE (s3_key)
+);
+
+CREATE INDEX IF NOT EXISTS idx_recording_object_filename ON recording_objects(filename);
+CREATE INDEX IF NOT EXISTS idx_recording_object_user ON recording_objects(user_id, last_modified);
+CREATE INDEX IF NOT EXISTS idx_recording_object_call ON recording_objects(call_id);
+CREATE INDEX IF NOT EXISTS idx_recording_object_modified ON recording_objects(last_modified);
+
+COMMENT ON TABLE recording_objects IS 'Index metadata file ghi am tren S3 (folder voice/)';
+
 -- ============================================
 -- 5. QUAN LY TICKET (YEU CAU HO TRO)
 -- ============================================
@@ -437,6 +517,7 @@ CREATE INDEX IF NOT EXISTS idx_ticket_status ON tickets(status);
 CREATE INDEX IF NOT EXISTS idx_ticket_assigned ON tickets(assigned_to_id);
 CREATE INDEX IF NOT EXISTS idx_ticket_patient ON tickets(patient_id);
 CREATE INDEX IF NOT EXISTS idx_ticket_priority ON tickets(priority);
+CREATE INDEX IF NOT EXISTS idx_ticket_queue ON tickets(status, retry_count, priority, created_at);
 
 COMMENT ON TABLE tickets IS 'Bang luu yeu cau ho tro (khi AI khong giai quyet duoc)';
 
@@ -532,7 +613,9 @@ CREATE TABLE IF NOT EXISTS treatment_plans (
 );
 
 CREATE INDEX IF NOT EXISTS idx_plan_patient ON treatment_plans(patient_id);
-CREATE INDEX IF NOT EXISTS idx_plan_doctor ON treatment_plans(doctor_id);
+CREATE INDEX IF NOT EXISTS idx_plan_doctor_patient ON treatment_plans(doctor_id, patient_id, id);
+-- Keyset của roster bác sĩ theo (COALESCE(updated_at, created_at), id)
+CREATE INDEX IF NOT EXISTS idx_plan_doctor_updated ON treatment_plans(doctor_id, (COALESCE(updated_at, created_at)), id);
 CREATE INDEX IF NOT EXISTS idx_plan_status ON treatment_plans(status);
 
 COMMENT ON TABLE treatment_plans IS 'Bang luu ke hoach dieu tri (co ho tro AI)';
@@ -598,6 +681,7 @@ CREATE TABLE IF NOT EXISTS knowledge_articles (
     published_at        TIMESTAMP,
     created_at          TIMESTAMP       NOT NULL DEFAULT CURRENT_TIMESTAMP,
     updated_at          TIMESTAMP       NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    search_vector       tsvector,       -- title/tags (A), summary (B), content (C), cap nhat boi trigger
     
     CONSTRAINT fk_article_category 
         FOREIGN KEY (category_id) REFERENCES knowledge_categories(id) ON DELETE SET NULL,
@@ -609,9 +693,38 @@ CREATE TABLE IF NOT EXISTS knowledge_articles (
 
 CREATE INDEX IF NOT EXISTS idx_article_category ON knowledge_articles(category_id);
 CREATE INDEX IF NOT EXISTS idx_article_status ON knowledge_articles(status);
+CREATE INDEX IF NOT EXISTS idx_article_search_vector ON knowledge_articles USING gin (search_vector);
 
 COMMENT ON TABLE knowledge_articles IS 'Bang luu bai viet kien thuc y te';
 
+-- Bang KNOWLEDGE_ARTICLE_TAGS - Tag chuan hoa (trim, chu thuong), dong bo tu knowledge_articles.tags boi trigger
+CREATE TABLE IF NOT EXISTS knowledge_article_tags (
+    article_id          BIGINT          NOT NULL,
+    tag                 VARCHAR(100)    NOT NULL,
+
+    CONSTRAINT pk_knowledge_article_tags PRIMARY KEY (article_id, tag),
+    CONSTRAINT fk_article_tag_article
+        FOREIGN KEY (article_id) REFERENCES knowledge_articles(id) ON DELETE CASCADE
+);
+
+CREATE INDEX IF NOT EXISTS idx_article_tag_tag ON knowledge_article_tags(tag, article_id);
+
+-- Bang KNOWLEDGE_ARTICLE_RELATED - Do thi bai viet lien quan (tag chung x 2, +1 neu cung danh muc)
+CREATE TABLE IF NOT EXISTS knowledge_article_related (
+    article_id          BIGINT          NOT NULL,
+    related_id          BIGINT          NOT NULL,
+    score               INT             NOT NULL,
+
+    CONSTRAINT pk_knowledge_article_related PRIMARY KEY (article_id, related_id),
+    CONSTRAINT fk_article_related_article
+        FOREIGN KEY (article_id) REFERENCES knowledge_articles(id) ON DELETE CASCADE,
+    CONSTRAINT fk_article_related_related
+        FOREIGN KEY (related_id) REFERENCES knowledge_articles(id) ON DELETE CASCADE
+);
+
+CREATE INDEX IF NOT EXISTS idx_article_related_score ON knowledge_article_related(article_id, score DESC);
+CREATE INDEX IF NOT EXISTS idx_article_related_related ON knowledge_article_related(related_id);
+
 -- ============================================
 -- 8. THONG BAO & PHAN HOI
 -- ============================================
@@ -633,8 +746,9 @@ CREATE TABLE IF NOT EXISTS notifications (
         FOREIGN KEY (user_id) REFERENCES users(id) ON DELETE CASCADE
 );
 
-CREATE INDEX IF NOT EXISTS idx_notification_user ON notifications(user_id);
-CREATE INDEX IF NOT EXISTS idx_notification_read ON notifications(is_read);
+CREATE INDEX IF NOT EXISTS idx_notification_user_created ON notifications(user_id, created_at);
+CREATE INDEX IF NOT EXISTS idx_notification_user_read_created ON notifications(user_id, is_read, created_at);
+CREATE INDEX IF NOT EXISTS idx_notification_created ON notifications(created_at);
 
 COMMENT ON TABLE notifications IS 'Bang luu thong bao cho nguoi dung';
 
@@ -712,6 +826,86 @@ CREATE OR REPLACE TRIGGER update_knowledge_categories_updated_at BEFORE UPDATE O
 CREATE OR REPLACE TRIGGER update_knowledge_articles_updated_at BEFORE UPDATE ON knowledge_articles
     FOR EACH ROW EXECUTE FUNCTION update_updated_at_column();
 
+-- ============================================
+-- TRIGGER CHO users.search_text
+-- ============================================
+
+-- Doi email/phone: tinh lai tu ho ten hien tai trong user_info
+CREATE OR REPLACE FUNCTION refresh_users_search_text()
+RETURNS TRIGGER AS $$
+BEGIN
+    NEW.search_text = user_search_text(
+        (SELECT ui.full_name FROM user_info ui WHERE ui.user_id = NEW.id),
+        NEW.email, NEW.phone);
+    RETURN NEW;
+END;
+$$ LANGUAGE plpgsql;
+
+-- Doi ho ten: cap nhat dong users tuong ung
+CREATE OR REPLACE FUNCTION refresh_user_info_search_text()
+RETURNS TRIGGER AS $$
+BEGIN
+    UPDATE users u
+    SET search_text = user_search_text(NEW.full_name, u.email, u.phone)
+    WHERE u.id = NEW.user_id;
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE OR REPLACE TRIGGER users_search_text BEFORE INSERT OR UPDATE OF email, phone ON users
+    FOR EACH ROW EXECUTE FUNCTION refresh_users_search_text();
+
+CREATE OR REPLACE TRIGGER user_info_search_text AFTER INSERT OR UPDATE OF full_name ON user_info
+    FOR EACH ROW EXECUTE FUNCTION refresh_user_info_search_text();
+
+-- ============================================
+-- TRIGGER CHO knowledge_articles.search_vector
+-- ============================================
+
+CREATE OR REPLACE FUNCTION refresh_knowledge_article_search_vector()
+RETURNS TRIGGER AS $$
+BEGIN
+    NEW.search_vector = knowledge_article_search_vector(NEW.title, NEW.tags, NEW.summary, NEW.content);
+    RETURN NEW;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE OR REPLACE TRIGGER knowledge_articles_search_vector_insert BEFORE INSERT ON knowledge_articles
+    FOR EACH ROW EXECUTE FUNCTION refresh_knowledge_article_search_vector();
+
+-- Chi tinh lai khi noi dung doi
+CREATE OR REPLACE TRIGGER knowledge_articles_search_vector_update BEFORE UPDATE ON knowledge_articles
+    FOR EACH ROW
+    WHEN (OLD.title IS DISTINCT FROM NEW.title
+        OR OLD.tags IS DISTINCT FROM NEW.tags
+        OR OLD.summary IS DISTINCT FROM NEW.summary
+        OR OLD.content IS DISTINCT FROM NEW.content)
+    EXECUTE FUNCTION refresh_knowledge_article_search_vector();
+
+-- ============================================
+-- TRIGGER CHO knowledge_article_tags
+-- ============================================
+
+CREATE OR REPLACE FUNCTION sync_knowledge_article_tags()
+RETURNS TRIGGER AS $$
+BEGIN
+    DELETE FROM knowledge_article_tags WHERE article_id = NEW.id;
+    INSERT INTO knowledge_article_tags (article_id, tag)
+    SELECT DISTINCT NEW.id, left(lower(trim(t)), 100)
+    FROM unnest(string_to_array(NEW.tags, ',')) AS t
+    WHERE trim(t) <> '';
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE OR REPLACE TRIGGER knowledge_articles_tags_insert AFTER INSERT ON knowledge_articles
+    FOR EACH ROW EXECUTE FUNCTION sync_knowledge_article_tags();
+
+CREATE OR REPLACE TRIGGER knowledge_articles_tags_update AFTER UPDATE ON knowledge_articles
+    FOR EACH ROW
+    WHEN (OLD.tags IS DISTINCT FROM NEW.tags)
+    EXECUTE FUNCTION sync_knowledge_article_tags();
+
 -- ============================================
 -- DANH SACH BANG DA TAO (19 BANG)
 -- ============================================
@@ -0,0 +1,6 @@
+-- Migration: Thêm composite index cho hàng đợi ticket
+-- Date: 2026-10-17
+-- Description: Phục vụ truy vấn hàng đợi chính / retry và thống kê hàng đợi
+-- (status, retry_count, priority, created_at) thay vì load toàn bộ bảng tickets
+
+CREATE INDEX IF NOT EXISTS idx_ticket_queue ON tickets(status, retry_count, priority, created_at);
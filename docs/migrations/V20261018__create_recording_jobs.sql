@@ -0,0 +1,21 @@
+-- Migration: Tạo bảng recording_jobs
+-- Date: 2026-10-18
+-- Description: Hàng đợi bền vững cho pipeline xử lý file ghi âm từ webhook Stringee
+-- Unique call_id chặn xử lý trùng khi Stringee gửi lại webhook
+
+CREATE TABLE IF NOT EXISTS recording_jobs (
+    id                  BIGSERIAL       PRIMARY KEY,
+    call_id             VARCHAR(100)    NOT NULL,
+    recording_url       VARCHAR(1000)   NOT NULL,
+    status              VARCHAR(20)     NOT NULL DEFAULT 'PENDING',
+    s3_key              VARCHAR(500),
+    attempts            INT             NOT NULL DEFAULT 0,
+    last_error          VARCHAR(1000),
+    next_attempt_at     TIMESTAMP,
+    created_at          TIMESTAMP       NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    updated_at          TIMESTAMP       NOT NULL DEFAULT CURRENT_TIMESTAMP,
+
+    CONSTRAINT uk_recording_job_call UNIQUE (call_id)
+);
+
+CREATE INDEX IF NOT EXISTS idx_recording_job_claim ON recording_jobs(status, next_attempt_at);
@@ -0,0 +1,24 @@
+-- Migration: Tạo bảng recording_objects
+-- Date: 2026-10-19
+-- Description: Index metadata file ghi âm trên S3 (folder voice/) để tra cứu theo
+-- filename, user, call, khoảng thời gian thay vì listObjectsV2. Dữ liệu cũ được
+-- RecordingIndexReconciler backfill từ S3 sau khi ứng dụng khởi động.
+
+CREATE TABLE IF NOT EXISTS recording_objects (
+    id                  BIGSERIAL       PRIMARY KEY,
+    s3_key              VARCHAR(500)    NOT NULL,
+    filename            VARCHAR(255)    NOT NULL,
+    user_id             VARCHAR(100),
+    call_id             VARCHAR(100),
+    recording_type      VARCHAR(20),
+    content_type        VARCHAR(100),
+    size_bytes          BIGINT,
+    last_modified       TIMESTAMP       NOT NULL,
+
+    CONSTRAINT uk_recording_object_key UNIQUE (s3_key)
+);
+
+CREATE INDEX IF NOT EXISTS idx_recording_object_filename ON recording_objects(filename);
+CREATE INDEX IF NOT EXISTS idx_recording_object_user ON recording_objects(user_id, last_modified);
+CREATE INDEX IF NOT EXISTS idx_recording_object_call ON recording_objects(call_id);
+CREATE INDEX IF NOT EXISTS idx_recording_object_modified ON recording_objects(last_modified);
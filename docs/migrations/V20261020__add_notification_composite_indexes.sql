@@ -0,0 +1,12 @@
+-- Migration: Composite index cho bảng notifications
+-- Date: 2026-10-20
+-- Description: Các query dropdown/phân trang lọc theo user_id rồi sắp theo created_at
+-- (và is_read cho unread-count/unread). Index đơn cột user_id, is_read không dùng được
+-- cho cả lọc lẫn sắp xếp nên được thay bằng index composite.
+
+CREATE INDEX IF NOT EXISTS idx_notification_user_created ON notifications(user_id, created_at);
+CREATE INDEX IF NOT EXISTS idx_notification_user_read_created ON notifications(user_id, is_read, created_at);
+
+-- Đã được bao bởi các index composite ở trên
+DROP INDEX IF EXISTS idx_notification_user;
+DROP INDEX IF EXISTS idx_notification_read;
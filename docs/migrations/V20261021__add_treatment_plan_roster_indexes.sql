@@ -0,0 +1,13 @@
+-- Migration: Index cho danh sách bệnh nhân của bác sĩ
+-- Date: 2026-10-21
+-- Description: Roster lấy kế hoạch mới nhất của từng bệnh nhân (MAX(id) theo doctor_id, patient_id)
+-- và phân trang keyset theo (COALESCE(updated_at, created_at), id) trong phạm vi một bác sĩ.
+-- Index biểu thức phải dùng đúng biểu thức COALESCE của truy vấn roster thì mới seek được.
+
+CREATE INDEX IF NOT EXISTS idx_plan_doctor_patient ON treatment_plans(doctor_id, patient_id, id);
+-- Bản cũ của migration này tạo index trên (doctor_id, updated_at, id)
+DROP INDEX IF EXISTS idx_plan_doctor_updated;
+CREATE INDEX IF NOT EXISTS idx_plan_doctor_updated ON treatment_plans(doctor_id, (COALESCE(updated_at, created_at)), id);
+
+-- Đã được bao bởi idx_plan_doctor_patient
+DROP INDEX IF EXISTS idx_plan_doctor;
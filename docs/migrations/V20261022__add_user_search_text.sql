@@ -0,0 +1,57 @@
+-- Migration: Cột tìm kiếm chuẩn hóa + index trigram cho tìm kiếm người dùng
+-- Date: 2026-10-22
+-- Description: Tìm kiếm theo tên/email/số điện thoại dùng LIKE '%keyword%' nên không
+-- dùng được index B-tree. users.search_text chứa họ tên (bỏ dấu, chữ thường), email và
+-- số điện thoại, được trigger cập nhật khi users hoặc user_info thay đổi; index GIN
+-- gin_trgm_ops phục vụ LIKE '%...%' và word_similarity() để xếp hạng kết quả.
+
+CREATE EXTENSION IF NOT EXISTS pg_trgm;
+CREATE EXTENSION IF NOT EXISTS unaccent;
+
+-- unaccent() là STABLE nên không dùng trực tiếp trong index/generated column được
+CREATE OR REPLACE FUNCTION f_unaccent(TEXT)
+RETURNS TEXT AS $$
+    SELECT public.unaccent('public.unaccent', $1)
+$$ LANGUAGE sql IMMUTABLE PARALLEL SAFE STRICT;
+
+CREATE OR REPLACE FUNCTION user_search_text(p_full_name TEXT, p_email TEXT, p_phone TEXT)
+RETURNS TEXT AS $$
+    SELECT lower(f_unaccent(concat_ws(' ', p_full_name, p_email, p_phone)))
+$$ LANGUAGE sql IMMUTABLE PARALLEL SAFE;
+
+ALTER TABLE users ADD COLUMN IF NOT EXISTS search_text TEXT;
+
+-- Đổi email/số điện thoại: tính lại từ họ tên hiện tại trong user_info
+CREATE OR REPLACE FUNCTION refresh_users_search_text()
+RETURNS TRIGGER AS $$
+BEGIN
+    NEW.search_text = user_search_text(
+        (SELECT ui.full_name FROM user_info ui WHERE ui.user_id = NEW.id),
+        NEW.email, NEW.phone);
+    RETURN NEW;
+END;
+$$ LANGUAGE plpgsql;
+
+-- Đổi họ tên: cập nhật dòng users tương ứng
+CREATE OR REPLACE FUNCTION refresh_user_info_search_text()
+RETURNS TRIGGER AS $$
+BEGIN
+    UPDATE users u
+    SET search_text = user_search_text(NEW.full_name, u.email, u.phone)
+    WHERE u.id = NEW.user_id;
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE OR REPLACE TRIGGER users_search_text BEFORE INSERT OR UPDATE OF email, phone ON users
+    FOR EACH ROW EXECUTE FUNCTION refresh_users_search_text();
+
+CREATE OR REPLACE TRIGGER user_info_search_text AFTER INSERT OR UPDATE OF full_name ON user_info
+    FOR EACH ROW EXECUTE FUNCTION refresh_user_info_search_text();
+
+UPDATE users u
+SET search_text = user_search_text(
+    (SELECT ui.full_name FROM user_info ui WHERE ui.user_id = u.id), u.email, u.phone);
+
+CREATE INDEX IF NOT EXISTS idx_users_search_text_trgm ON users USING gin (search_text gin_trgm_ops);
+
@@ -0,0 +1,53 @@
+-- Migration: Full-text search cho bài viết kiến thức
+-- Date: 2026-10-23
+-- Description: Tìm kiếm bài viết dùng LIKE '%keyword%' trên toàn bộ cột content nên phải
+-- đọc hết mọi bài viết. search_vector (tsvector) gộp title/tags (A), summary (B), content (C),
+-- được trigger cập nhật khi các cột này thay đổi; index GIN phục vụ @@ và ts_rank_cd.
+-- Cấu hình vi_unaccent = simple + unaccent để tìm không phân biệt dấu tiếng Việt, đồng thời
+-- ts_headline vẫn đánh dấu được trên văn bản gốc có dấu.
+
+CREATE EXTENSION IF NOT EXISTS unaccent;
+
+DO $$ BEGIN
+    CREATE TEXT SEARCH CONFIGURATION vi_unaccent (COPY = simple);
+EXCEPTION
+    WHEN duplicate_object THEN null;
+END $$;
+
+ALTER TEXT SEARCH CONFIGURATION vi_unaccent
+    ALTER MAPPING FOR hword, hword_part, word WITH unaccent, simple;
+
+ALTER TABLE knowledge_articles ADD COLUMN IF NOT EXISTS search_vector tsvector;
+
+CREATE OR REPLACE FUNCTION knowledge_article_search_vector(p_title TEXT, p_tags TEXT, p_summary TEXT, p_content TEXT)
+RETURNS tsvector AS $$
+    SELECT setweight(to_tsvector('vi_unaccent', coalesce(p_title, '')), 'A')
+        || setweight(to_tsvector('vi_unaccent', replace(coalesce(p_tags, ''), ',', ' ')), 'A')
+        || setweight(to_tsvector('vi_unaccent', coalesce(p_summary, '')), 'B')
+        || setweight(to_tsvector('vi_unaccent', regexp_replace(coalesce(p_content, ''), '<[^>]+>', ' ', 'g')), 'C')
+$$ LANGUAGE sql STABLE;
+
+CREATE OR REPLACE FUNCTION refresh_knowledge_article_search_vector()
+RETURNS TRIGGER AS $$
+BEGIN
+    NEW.search_vector = knowledge_article_search_vector(NEW.title, NEW.tags, NEW.summary, NEW.content);
+    RETURN NEW;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE OR REPLACE TRIGGER knowledge_articles_search_vector_insert BEFORE INSERT ON knowledge_articles
+    FOR EACH ROW EXECUTE FUNCTION refresh_knowledge_article_search_vector();
+
+-- Chỉ tính lại khi nội dung đổi (cập nhật lượt xem, trạng thái... không re-index)
+CREATE OR REPLACE TRIGGER knowledge_articles_search_vector_update BEFORE UPDATE ON knowledge_articles
+    FOR EACH ROW
+    WHEN (OLD.title IS DISTINCT FROM NEW.title
+        OR OLD.tags IS DISTINCT FROM NEW.tags
+        OR OLD.summary IS DISTINCT FROM NEW.summary
+        OR OLD.content IS DISTINCT FROM NEW.content)
+    EXECUTE FUNCTION refresh_knowledge_article_search_vector();
+
+UPDATE knowledge_articles
+SET search_vector = knowledge_article_search_vector(title, tags, summary, content);
+
+CREATE INDEX IF NOT EXISTS idx_article_search_vector ON knowledge_articles USING gin (search_vector);
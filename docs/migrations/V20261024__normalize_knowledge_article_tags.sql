@@ -0,0 +1,72 @@
+-- Migration: Bảng tag chuẩn hóa + đồ thị bài viết liên quan
+-- Date: 2026-10-24
+-- Description: knowledge_articles.tags là chuỗi phân tách bằng dấu phẩy, lọc theo tag và
+-- tìm bài liên quan phải LIKE trên chuỗi này; danh sách tag dùng JSON_TABLE (chỉ MySQL).
+-- - knowledge_article_tags: một dòng mỗi (bài viết, tag), tag đã trim + chữ thường,
+--   được trigger đồng bộ từ cột tags (cột tags giữ nguyên cho giao diện)
+-- - knowledge_article_related: cặp bài viết liên quan kèm điểm (số tag chung x 2, +1 nếu
+--   cùng danh mục), ứng dụng tính lại cho bài viết vừa lưu
+
+CREATE TABLE IF NOT EXISTS knowledge_article_tags (
+    article_id          BIGINT          NOT NULL,
+    tag                 VARCHAR(100)    NOT NULL,
+
+    CONSTRAINT pk_knowledge_article_tags PRIMARY KEY (article_id, tag),
+    CONSTRAINT fk_article_tag_article
+        FOREIGN KEY (article_id) REFERENCES knowledge_articles(id) ON DELETE CASCADE
+);
+
+CREATE INDEX IF NOT EXISTS idx_article_tag_tag ON knowledge_article_tags(tag, article_id);
+
+CREATE TABLE IF NOT EXISTS knowledge_article_related (
+    article_id          BIGINT          NOT NULL,
+    related_id          BIGINT          NOT NULL,
+    score               INT             NOT NULL,
+
+    CONSTRAINT pk_knowledge_article_related PRIMARY KEY (article_id, related_id),
+    CONSTRAINT fk_article_related_article
+        FOREIGN KEY (article_id) REFERENCES knowledge_articles(id) ON DELETE CASCADE,
+    CONSTRAINT fk_article_related_related
+        FOREIGN KEY (related_id) REFERENCES knowledge_articles(id) ON DELETE CASCADE
+);
+
+CREATE INDEX IF NOT EXISTS idx_article_related_score ON knowledge_article_related(article_id, score DESC);
+CREATE INDEX IF NOT EXISTS idx_article_related_related ON knowledge_article_related(related_id);
+
+CREATE OR REPLACE FUNCTION sync_knowledge_article_tags()
+RETURNS TRIGGER AS $$
+BEGIN
+    DELETE FROM knowledge_article_tags WHERE article_id = NEW.id;
+    INSERT INTO knowledge_article_tags (article_id, tag)
+    SELECT DISTINCT NEW.id, left(lower(trim(t)), 100)
+    FROM unnest(string_to_array(NEW.tags, ',')) AS t
+    WHERE trim(t) <> '';
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE OR REPLACE TRIGGER knowledge_articles_tags_insert AFTER INSERT ON knowledge_articles
+    FOR EACH ROW EXECUTE FUNCTION sync_knowledge_article_tags();
+
+CREATE OR REPLACE TRIGGER knowledge_articles_tags_update AFTER UPDATE ON knowledge_articles
+    FOR EACH ROW
+    WHEN (OLD.tags IS DISTINCT FROM NEW.tags)
+    EXECUTE FUNCTION sync_knowledge_article_tags();
+
+-- Backfill tag
+INSERT INTO knowledge_article_tags (article_id, tag)
+SELECT DISTINCT a.id, left(lower(trim(t)), 100)
+FROM knowledge_articles a, unnest(string_to_array(a.tags, ',')) AS t
+WHERE trim(t) <> ''
+ON CONFLICT DO NOTHING;
+
+-- Backfill đồ thị liên quan (cả hai chiều)
+INSERT INTO knowledge_article_related (article_id, related_id, score)
+SELECT t1.article_id, t2.article_id,
+       COUNT(*) * 2 + CASE WHEN a1.category_id = a2.category_id THEN 1 ELSE 0 END
+FROM knowledge_article_tags t1
+JOIN knowledge_article_tags t2 ON t2.tag = t1.tag AND t2.article_id <> t1.article_id
+JOIN knowledge_articles a1 ON a1.id = t1.article_id
+JOIN knowledge_articles a2 ON a2.id = t2.article_id
+GROUP BY t1.article_id, t2.article_id, a1.category_id, a2.category_id
+ON CONFLICT DO NOTHING;
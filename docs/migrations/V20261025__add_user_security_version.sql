@@ -0,0 +1,11 @@
+-- Migration: Cột security_version cho bảng users
+-- Date: 2026-10-25
+-- Description: Tăng mỗi khi role/trạng thái/thông tin của user bị đổi bởi admin (tăng ngay trong
+-- database). Mọi node so sánh với version mà principal trong session mang theo để load lại user
+-- (PrincipalInvalidator); không so sánh thời gian nên không phụ thuộc đồng hồ của từng node.
+-- ddl-auto=update cũng tạo được cột này; file giữ lại cho môi trường chạy migration tay.
+
+ALTER TABLE users ADD COLUMN IF NOT EXISTS security_version BIGINT NOT NULL DEFAULT 0;
+
+-- Bản trước của migration này dùng mốc thời gian security_changed_at
+ALTER TABLE users DROP COLUMN IF EXISTS security_changed_at;
@@ -1,6 +1,7 @@
 package com.g4.capstoneproject.config;
 
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.scheduling.annotation.EnableAsync;
@@ -37,4 +38,28 @@ public class AsyncConfig {
                 executor.getCorePoolSize());
         return executor;
     }
+
+    /**
+     * Executor cho pipeline xử lý ghi âm Stringee
+     * Pool cố định, hàng đợi có giới hạn; RecordingPipelineService chỉ nhận thêm job
+     * khi còn chỗ nên AbortPolicy chỉ là chốt chặn cuối
+     */
+    @Bean(name = "recordingExecutor")
+    public ThreadPoolTaskExecutor recordingExecutor(
+            @Value("${recording.pipeline.concurrency:4}") int concurrency,
+            @Value("${recording.pipeline.queue-capacity:20}") int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(concurrency);
+        executor.setMaxPoolSize(concurrency);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("Recording-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.AbortPolicy());
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(60);
+        executor.initialize();
+
+        log.info("Initialized recording pipeline executor with concurrency: {}, queue capacity: {}",
+                concurrency, queueCapacity);
+        return executor;
+    }
 }
@@ -1,100 +1,87 @@
 package com.g4.capstoneproject.config;
 
 import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.CaffeineSpec;
 import org.springframework.cache.CacheManager;
 import org.springframework.cache.annotation.EnableCaching;
-import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.cache.caffeine.CaffeineCache;
+import org.springframework.cache.support.SimpleCacheManager;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.data.domain.Page;
 
-import java.util.concurrent.TimeUnit;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
 
 /**
  * Cache Configuration using Caffeine
- * Configures caching strategy for frequently accessed data
+ *
+ * Every cache is declared here by name; its Caffeine spec comes only from cache.spec.{name}
+ * in application.properties (CaffeineSpec syntax, e.g. maximumSize=500,expireAfterWrite=10m),
+ * and startup fails if one is missing. Caches are registered up front as separate CaffeineCache
+ * instances, so an unknown cache name fails fast, and Spring Boot binds hit/miss/eviction/load
+ * metrics for each of them (cache.gets, cache.evictions, cache.size... tagged with the cache name).
  */
 @Configuration
 @EnableCaching
 public class CacheConfig {
 
     /**
-     * Configure Caffeine Cache Manager with multiple caches
-     * Each cache has different TTL and size limits based on usage patterns
+     * Declared caches; each one needs cache.spec.{name} in application.properties
      */
-    @Bean
-    public CacheManager cacheManager() {
-        CaffeineCacheManager cacheManager = new CaffeineCacheManager(
-                "users", // User lookups (findByEmail, findById)
-                "dashboardStats", // Dashboard statistics
-                "knowledgeArticles", // Knowledge base articles
-                "prescriptions", // Patient prescriptions
-                "treatmentPlans", // Treatment plans
-                "patients", // Patient lists
-                "doctors" // Doctor lists
-        );
-
-        cacheManager.setCaffeine(caffeineCacheBuilder());
-        return cacheManager;
-    }
+    static final List<String> CACHE_NAMES = List.of(
+            "users", "dashboardStats", "knowledgeArticles", "prescriptions",
+            "treatmentPlans", "patients", "doctors", "doctorDashboardStats");
 
     /**
-     * Default Caffeine cache configuration
-     * - 30 minute expiration after write
-     * - Maximum 1000 entries
-     * - Record cache statistics for monitoring
-     */
-    private Caffeine<Object, Object> caffeineCacheBuilder() {
-        return Caffeine.newBuilder()
-                .expireAfterWrite(30, TimeUnit.MINUTES)
-                .maximumSize(1000)
-                .recordStats();
-    }
-
-    /**
-     * Specialized cache for dashboard statistics
-     * Shorter TTL since stats need to be more current
+     * Cache manager with one CaffeineCache per declared cache
      */
     @Bean
-    public Caffeine<Object, Object> dashboardStatsCacheBuilder() {
-        return Caffeine.newBuilder()
-                .expireAfterWrite(5, TimeUnit.MINUTES)
-                .maximumSize(50)
-                .recordStats();
-    }
+    public CacheManager cacheManager(Environment environment) {
+        List<CaffeineCache> caches = CACHE_NAMES.stream()
+                .map(name -> buildCache(name, environment.getRequiredProperty("cache.spec." + name)))
+                .toList();
 
-    /**
-     * Knowledge articles cache
-     * Longer TTL since articles change infrequently
-     */
-    @Bean
-    public Caffeine<Object, Object> knowledgeArticlesCacheBuilder() {
-        return Caffeine.newBuilder()
-                .expireAfterWrite(15, TimeUnit.MINUTES)
-                .maximumSize(500)
-                .recordStats();
+        SimpleCacheManager cacheManager = new SimpleCacheManager();
+        cacheManager.setCaches(caches);
+        return cacheManager;
     }
 
-    /**
-     * User cache configuration
-     * Medium TTL for user data
-     */
-    @Bean
-    public Caffeine<Object, Object> usersCacheBuilder() {
-        return Caffeine.newBuilder()
-                .expireAfterWrite(30, TimeUnit.MINUTES)
-                .maximumSize(500)
-                .recordStats();
+    private static CaffeineCache buildCache(String name, String spec) {
+        CaffeineSpec parsed;
+        try {
+            parsed = CaffeineSpec.parse(spec.contains("recordStats") ? spec : spec + ",recordStats");
+        } catch (IllegalArgumentException e) {
+            throw new IllegalStateException("Invalid cache.spec." + name + ": " + spec, e);
+        }
+        // @Cacheable caches have no CacheLoader, Caffeine cannot refresh them
+        if (spec.contains("refreshAfterWrite")) {
+            throw new IllegalStateException("cache.spec." + name + ": refreshAfterWrite is not supported, use expireAfterWrite");
+        }
+
+        Caffeine<Object, Object> builder = Caffeine.from(parsed);
+        if (spec.contains("maximumWeight")) {
+            builder.weigher(CacheConfig::weigh);
+        }
+        return new CaffeineCache(name, builder.build());
     }
 
     /**
-     * Prescription cache
-     * Medium TTL, larger size for high-traffic feature
+     * Weight of a cached value: number of elements for lists/pages/maps, 1 otherwise
      */
-    @Bean
-    public Caffeine<Object, Object> prescriptionsCacheBuilder() {
-        return Caffeine.newBuilder()
-                .expireAfterWrite(10, TimeUnit.MINUTES)
-                .maximumSize(1000)
-                .recordStats();
+    static int weigh(Object key, Object value) {
+        long size;
+        if (value instanceof Collection<?> collection) {
+            size = collection.size();
+        } else if (value instanceof Page<?> page) {
+            size = page.getNumberOfElements();
+        } else if (value instanceof Map<?, ?> map) {
+            size = map.size();
+        } else {
+            size = 1;
+        }
+        return (int) Math.min(Math.max(size, 1), Integer.MAX_VALUE);
     }
 }
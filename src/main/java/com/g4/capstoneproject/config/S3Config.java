@@ -10,8 +10,10 @@ import software.amazon.awssdk.core.retry.RetryPolicy;
 import software.amazon.awssdk.core.retry.backoff.BackoffStrategy;
 import software.amazon.awssdk.core.retry.conditions.RetryCondition;
 import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.s3.S3AsyncClient;
 import software.amazon.awssdk.services.s3.S3Client;
 import software.amazon.awssdk.services.s3.presigner.S3Presigner;
+import software.amazon.awssdk.transfer.s3.S3TransferManager;
 
 import java.time.Duration;
 
@@ -43,6 +45,11 @@ public class S3Config {
     @Value("${aws.s3.maxRetries:3}")
     private int maxRetries; // So lan thu lai toi da
 
+    // Kich thuoc moi part khi upload multipart (byte), cung la nguong bat dau multipart
+    // Bo nho dung cho moi upload streaming chi phu thuoc gia tri nay, khong phu thuoc kich thuoc file
+    @Value("${aws.s3.multipartPartSize:8388608}")
+    private long multipartPartSize;
+
     /**
      * Tao S3Client voi cau hinh retry va timeout
      * - Retry 3 lan khi gap loi mang hoac loi 5xx tu S3
@@ -73,6 +80,43 @@ public class S3Config {
                 .build();
     }
 
+    /**
+     * Tao S3AsyncClient ho tro multipart upload (Java-based)
+     * - File lon hon multipartPartSize duoc chia thanh nhieu part, moi part retry doc lap
+     * - Khong dat apiCallTimeout tong vi thoi gian upload streaming phu thuoc toc do nguon
+     */
+    @Bean
+    public S3AsyncClient s3AsyncClient() {
+        RetryPolicy retryPolicy = RetryPolicy.builder()
+                .numRetries(maxRetries)
+                .retryCondition(RetryCondition.defaultRetryCondition())
+                .backoffStrategy(BackoffStrategy.defaultStrategy())
+                .build();
+
+        return S3AsyncClient.builder()
+                .region(Region.of(region))
+                .credentialsProvider(StaticCredentialsProvider.create(
+                        AwsBasicCredentials.create(accessKey, secretKey)))
+                .overrideConfiguration(ClientOverrideConfiguration.builder()
+                        .retryPolicy(retryPolicy)
+                        .build())
+                .multipartEnabled(true)
+                .multipartConfiguration(config -> config
+                        .minimumPartSizeInBytes(multipartPartSize)
+                        .thresholdInBytes(multipartPartSize))
+                .build();
+    }
+
+    /**
+     * Tao S3TransferManager de upload streaming (vi du: recording tu Stringee)
+     */
+    @Bean
+    public S3TransferManager s3TransferManager(S3AsyncClient s3AsyncClient) {
+        return S3TransferManager.builder()
+                .s3Client(s3AsyncClient)
+                .build();
+    }
+
     /**
      * Tao S3Presigner de tao presigned URL
      * Presigner khong can retry vi chi tao URL, khong goi network
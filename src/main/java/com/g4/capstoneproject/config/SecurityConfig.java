@@ -1,5 +1,7 @@
 package com.g4.capstoneproject.config;
 
+import com.g4.capstoneproject.security.PrincipalInvalidator;
+import com.g4.capstoneproject.security.PrincipalRefreshFilter;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.config.annotation.method.configuration.EnableMethodSecurity;
@@ -8,6 +10,7 @@ import org.springframework.security.config.annotation.web.configuration.EnableWe
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.web.SecurityFilterChain;
+import org.springframework.security.web.access.intercept.AuthorizationFilter;
 import org.springframework.security.web.csrf.CookieCsrfTokenRepository;
 import org.springframework.security.web.csrf.CsrfTokenRequestAttributeHandler;
 
@@ -21,8 +24,11 @@ import org.springframework.security.web.csrf.CsrfTokenRequestAttributeHandler;
 public class SecurityConfig {
 
         @Bean
-        public SecurityFilterChain securityFilterChain(HttpSecurity http) throws Exception {
+        public SecurityFilterChain securityFilterChain(HttpSecurity http, PrincipalInvalidator principalInvalidator)
+                        throws Exception {
                 http
+                                // Làm mới principal trong session trước khi kiểm tra quyền (role có thể vừa đổi)
+                                .addFilterBefore(new PrincipalRefreshFilter(principalInvalidator), AuthorizationFilter.class)
                                 .authorizeHttpRequests(auth -> auth
                                                 // Public endpoints
                                                 .requestMatchers(
@@ -55,6 +61,9 @@ public class SecurityConfig {
                                                 .requestMatchers("/doctor/**").hasRole("DOCTOR")
                                                 .requestMatchers("/receptionist/**", "/api/receptionist/**").hasRole("RECEPTIONIST")
                                                 .requestMatchers("/admin/**", "/api/admin/**").hasRole("ADMIN")
+                                                // Actuator: health cho mọi user đã đăng nhập, metrics... chỉ ADMIN
+                                                .requestMatchers("/actuator/health/**").authenticated()
+                                                .requestMatchers("/actuator/**").hasRole("ADMIN")
                                                 .requestMatchers("/patient/**")
                                                 .hasAnyRole("PATIENT", "DOCTOR", "RECEPTIONIST", "ADMIN")
                                                 // Web Call - authenticated users only (all roles)
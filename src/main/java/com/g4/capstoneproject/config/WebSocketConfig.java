@@ -1,6 +1,9 @@
 package com.g4.capstoneproject.config;
 
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.messaging.simp.config.ChannelRegistration;
 import org.springframework.messaging.simp.config.MessageBrokerRegistry;
 import org.springframework.web.socket.config.annotation.EnableWebSocketMessageBroker;
 import org.springframework.web.socket.config.annotation.StompEndpointRegistry;
@@ -9,22 +12,85 @@ import org.springframework.web.socket.config.annotation.WebSocketMessageBrokerCo
 /**
  * WebSocket Configuration for Real-time Queue Updates
  * Configures STOMP protocol over WebSocket for bidirectional communication
+ *
+ * Broker mode (websocket.broker.mode):
+ * - simple: in-memory broker, subscribers pinned to this JVM (dev / single node)
+ * - relay: relay to an external STOMP broker (RabbitMQ, ActiveMQ Artemis...)
+ *   so /topic broadcasts and /user destinations fan out across all app nodes
  */
+@Slf4j
 @Configuration
 @EnableWebSocketMessageBroker
 public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
 
+    @Value("${websocket.broker.mode:simple}")
+    private String brokerMode;
+
+    // Cau hinh STOMP broker relay (chi dung khi mode = relay)
+    @Value("${websocket.broker.relay.host:localhost}")
+    private String relayHost;
+
+    @Value("${websocket.broker.relay.port:61613}")
+    private int relayPort;
+
+    @Value("${websocket.broker.relay.login:guest}")
+    private String relayLogin;
+
+    @Value("${websocket.broker.relay.passcode:guest}")
+    private String relayPasscode;
+
+    @Value("${websocket.broker.relay.virtual-host:}")
+    private String relayVirtualHost;
+
+    // Cau hinh thread pool cho inbound/outbound channel
+    @Value("${websocket.channel.inbound.core-pool-size:4}")
+    private int inboundCorePoolSize;
+
+    @Value("${websocket.channel.inbound.max-pool-size:16}")
+    private int inboundMaxPoolSize;
+
+    @Value("${websocket.channel.inbound.queue-capacity:1000}")
+    private int inboundQueueCapacity;
+
+    @Value("${websocket.channel.outbound.core-pool-size:4}")
+    private int outboundCorePoolSize;
+
+    @Value("${websocket.channel.outbound.max-pool-size:16}")
+    private int outboundMaxPoolSize;
+
+    @Value("${websocket.channel.outbound.queue-capacity:1000}")
+    private int outboundQueueCapacity;
+
     /**
      * Configure message broker options
-     * - Enable simple broker for /topic (pub/sub pattern)
+     * - Simple in-memory broker or external STOMP broker relay for /topic and /queue
      * - Set application destination prefix to /app (for client messages)
      */
     @Override
     public void configureMessageBroker(MessageBrokerRegistry config) {
-        // Enable a simple in-memory message broker
-        // Messages to destinations starting with "/topic" will be routed to all
-        // subscribers
-        config.enableSimpleBroker("/topic", "/queue");
+        if ("relay".equalsIgnoreCase(brokerMode)) {
+            // Relay to external STOMP broker, shared by every app node
+            var relay = config.enableStompBrokerRelay("/topic", "/queue")
+                    .setRelayHost(relayHost)
+                    .setRelayPort(relayPort)
+                    .setClientLogin(relayLogin)
+                    .setClientPasscode(relayPasscode)
+                    .setSystemLogin(relayLogin)
+                    .setSystemPasscode(relayPasscode)
+                    // /user messages for sessions connected to another node are re-broadcast here
+                    .setUserDestinationBroadcast("/topic/unresolved-user")
+                    // Share the user session registry so every node knows all connected users
+                    .setUserRegistryBroadcast("/topic/simp-user-registry");
+            if (!relayVirtualHost.isBlank()) {
+                relay.setVirtualHost(relayVirtualHost);
+            }
+            log.info("WebSocket using STOMP broker relay at {}:{}", relayHost, relayPort);
+        } else {
+            // Enable a simple in-memory message broker
+            // Messages to destinations starting with "/topic" will be routed to all
+            // subscribers
+            config.enableSimpleBroker("/topic", "/queue");
+        }
 
         // Prefix for messages bound for @MessageMapping annotated methods
         config.setApplicationDestinationPrefixes("/app");
@@ -33,6 +99,28 @@ public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
         config.setUserDestinationPrefix("/user");
     }
 
+    /**
+     * Thread pool for messages coming from WebSocket clients
+     */
+    @Override
+    public void configureClientInboundChannel(ChannelRegistration registration) {
+        registration.taskExecutor()
+                .corePoolSize(inboundCorePoolSize)
+                .maxPoolSize(inboundMaxPoolSize)
+                .queueCapacity(inboundQueueCapacity);
+    }
+
+    /**
+     * Thread pool for messages sent to WebSocket clients
+     */
+    @Override
+    public void configureClientOutboundChannel(ChannelRegistration registration) {
+        registration.taskExecutor()
+                .corePoolSize(outboundCorePoolSize)
+                .maxPoolSize(outboundMaxPoolSize)
+                .queueCapacity(outboundQueueCapacity);
+    }
+
     /**
      * Register STOMP endpoints
      * - /ws endpoint for WebSocket connection
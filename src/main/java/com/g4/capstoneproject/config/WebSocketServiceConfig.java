@@ -21,5 +21,7 @@ public class WebSocketServiceConfig {
     public void init() {
         // Wire the WebSocket controller into the TicketService
         ticketService.setWebSocketController(webSocketController);
+        // Relay mode: snapshots are read from the database, shared by every node
+        webSocketController.setSnapshotLoader(ticketService::getQueueSnapshot);
     }
 }
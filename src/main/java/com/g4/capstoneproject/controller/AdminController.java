@@ -34,14 +34,18 @@ public class AdminController {
     private final AdminService adminService;
     
     /**
-     * GET /api/admin/accounts - Lấy danh sách tất cả accounts
+     * GET /api/admin/accounts - Lấy danh sách accounts có phân trang
+     * Lọc tùy chọn theo role, active và keyword (tên, email, số điện thoại)
      */
     @GetMapping("/accounts")
     public ResponseEntity<Map<String, Object>> getAllAccounts(
             @RequestParam(defaultValue = "0") int page,
             @RequestParam(defaultValue = "10") int size,
             @RequestParam(defaultValue = "createdAt") String sortBy,
-            @RequestParam(defaultValue = "desc") String sortDir) {
+            @RequestParam(defaultValue = "desc") String sortDir,
+            @RequestParam(required = false) User.UserRole role,
+            @RequestParam(required = false) Boolean active,
+            @RequestParam(required = false) String keyword) {
         
         try {
             Sort sort = sortDir.equalsIgnoreCase("asc") 
@@ -49,7 +53,7 @@ public class AdminController {
                     : Sort.by(sortBy).descending();
             
             Pageable pageable = PageRequest.of(page, size, sort);
-            Page<AccountResponse> accountsPage = adminService.getAllAccounts(pageable);
+            Page<AccountResponse> accountsPage = adminService.queryAccounts(role, active, keyword, pageable);
             
             Map<String, Object> response = new HashMap<>();
             response.put("success", true);
@@ -1,6 +1,8 @@
 package com.g4.capstoneproject.controller;
 
 import com.g4.capstoneproject.dto.PrescriptionRequest;
+import com.g4.capstoneproject.dto.Ticket.TicketQueueRow;
+import com.g4.capstoneproject.dto.Ticket.TicketQueueStats;
 import com.g4.capstoneproject.dto.ValidationErrorResponse;
 import com.g4.capstoneproject.entity.Prescription;
 import com.g4.capstoneproject.entity.TreatmentPlan;
@@ -11,6 +13,7 @@ import com.g4.capstoneproject.service.TreatmentPlanService;
 import com.g4.capstoneproject.service.TicketService;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Page;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.BindingResult;
@@ -278,14 +281,37 @@ public class ApiController {
      */
     @GetMapping("/tickets/stats")
     public ResponseEntity<Map<String, Object>> getTicketStats() {
+        TicketQueueStats queueStats = ticketService.getQueueStatistics();
         Map<String, Object> stats = new HashMap<>();
-        stats.put("open", ticketService.getOpenCount());
-        stats.put("inProgress", ticketService.getInProgressCount());
-        stats.put("highPriority", ticketService.getHighPriorityCount());
-        stats.put("total", ticketService.getAllTickets().size());
+        stats.put("open", queueStats.getOpen());
+        stats.put("inProgress", queueStats.getInProgress());
+        stats.put("highPriority", queueStats.getHighPriority());
+        stats.put("total", queueStats.getTotal());
+        stats.put("queue", queueStats.getQueue());
+        stats.put("retry", queueStats.getRetry());
         return ResponseEntity.ok(stats);
     }
 
+    /**
+     * GET /api/tickets/queue - Hàng đợi chính (phân trang, projection, size tối đa 100)
+     */
+    @GetMapping("/tickets/queue")
+    public ResponseEntity<Page<TicketQueueRow>> getTicketQueue(
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "20") int size) {
+        return ResponseEntity.ok(ticketService.getQueueRows(page, size));
+    }
+
+    /**
+     * GET /api/tickets/retry-queue - Hàng đợi retry (phân trang, projection, size tối đa 100)
+     */
+    @GetMapping("/tickets/retry-queue")
+    public ResponseEntity<Page<TicketQueueRow>> getTicketRetryQueue(
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "20") int size) {
+        return ResponseEntity.ok(ticketService.getRetryQueueRows(page, size));
+    }
+
     // ==================== AI APIs (Mock) ====================
 
     /**
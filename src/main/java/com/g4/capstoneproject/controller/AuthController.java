@@ -4,7 +4,6 @@ import com.g4.capstoneproject.dto.AuthResponse;
 import com.g4.capstoneproject.dto.LoginRequest;
 import com.g4.capstoneproject.dto.RegisterRequest;
 import com.g4.capstoneproject.entity.User;
-import com.g4.capstoneproject.repository.UserRepository;
 import com.g4.capstoneproject.security.CustomUserDetails;
 import com.g4.capstoneproject.service.AuthService;
 import jakarta.servlet.http.HttpServletRequest;
@@ -37,7 +36,6 @@ import org.springframework.web.servlet.mvc.support.RedirectAttributes;
 public class AuthController {
 
     private final AuthService authService;
-    private final UserRepository userRepository;
 
     /**
      * POST /auth/register - Xử lý đăng ký
@@ -103,16 +101,11 @@ public class AuthController {
         session.setAttribute("userPhone", response.getPhone());
         session.setAttribute("userRole", response.getRole());
 
-        // Lấy User object để tạo CustomUserDetails
-        String username = response.getEmail() != null ? response.getEmail() : response.getPhone();
-        User user = userRepository.findByEmailOrPhoneNumber(username, username)
-                .orElseThrow(() -> new RuntimeException("User not found after successful login"));
-
-        // Tạo Spring Security Authentication với CustomUserDetails
-        CustomUserDetails userDetails = new CustomUserDetails(user);
+        // Tạo CustomUserDetails từ kết quả đăng nhập, không cần query lại user
+        CustomUserDetails userDetails = toPrincipal(response);
         Authentication authentication = new UsernamePasswordAuthenticationToken(
                 userDetails, // principal là CustomUserDetails object
-                user.getPassword(), // credentials
+                null, // không giữ credentials trong session
                 userDetails.getAuthorities());
 
         // Tạo SecurityContext và set authentication
@@ -125,7 +118,7 @@ public class AuthController {
         securityContextRepository.saveContext(securityContext, httpRequest, httpResponse);
 
         log.info("User logged in and SecurityContext persisted for: {} with role {}",
-                username, user.getRole());
+                userDetails.getUsername(), userDetails.getRole());
 
         // Điều hướng theo role
         if (response.getRole() == User.UserRole.PATIENT) {
@@ -219,16 +212,14 @@ public class AuthController {
             AuthResponse response = authService.processOAuthPostLogin(email, name, googleId);
 
             if (response.getSuccess()) {
-                // Lấy user từ database để tạo CustomUserDetails
-                User user = userRepository.findByEmail(email).orElse(null);
-                if (user != null) {
-                    // Tạo CustomUserDetails với role đúng
-                    CustomUserDetails userDetails = new CustomUserDetails(user);
+                if (response.getUserId() != null) {
+                    // Tạo CustomUserDetails với role đúng từ kết quả xử lý OAuth
+                    CustomUserDetails userDetails = toPrincipal(response);
 
                     // Tạo Authentication mới với authorities từ role
                     Authentication authentication = new UsernamePasswordAuthenticationToken(
                             userDetails,
-                            user.getPassword(),
+                            null,
                             userDetails.getAuthorities());
 
                     // Tạo SecurityContext và set authentication
@@ -241,7 +232,7 @@ public class AuthController {
                     securityContextRepository.saveContext(securityContext, httpRequest, httpResponse);
 
                     log.info("OAuth2 SecurityContext persisted for: {} with role {}",
-                            email, user.getRole());
+                            email, userDetails.getRole());
                 }
 
                 // Lưu thông tin user vào session
@@ -269,4 +260,13 @@ public class AuthController {
             return "redirect:/auth/login?error=oauth_processing_failed";
         }
     }
+
+    /**
+     * Snapshot principal từ kết quả đăng nhập (AuthService chỉ trả về thành công cho tài khoản hợp lệ)
+     */
+    private static CustomUserDetails toPrincipal(AuthResponse response) {
+        return new CustomUserDetails(response.getUserId(), response.getEmail(), response.getPhone(), null,
+                response.getRole(), response.getFullName(), true,
+                response.getSecurityVersion() != null ? response.getSecurityVersion() : 0L);
+    }
 }
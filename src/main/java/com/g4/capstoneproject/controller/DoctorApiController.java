@@ -3,6 +3,7 @@ package com.g4.capstoneproject.controller;
 import com.g4.capstoneproject.dto.Precription.PrescriptionCreateRequest;
 import com.g4.capstoneproject.dto.Precription.PrescriptionDetailResponse;
 import com.g4.capstoneproject.dto.Precription.PrescriptionResponse;
+import com.g4.capstoneproject.dto.Precription.PrescriptionSummary;
 import com.g4.capstoneproject.dto.Ticket.TicketDetailResponse;
 import com.g4.capstoneproject.dto.Ticket.TicketMessageRequest;
 import com.g4.capstoneproject.dto.Ticket.TicketResponse;
@@ -232,22 +233,22 @@ public class DoctorApiController {
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
         }
 
-        List<Prescription> prescriptions = prescriptionService.getPrescriptionsByDoctorId(doctor.getId());
+        List<PrescriptionSummary> prescriptions = prescriptionService.getPrescriptionsByDoctorId(doctor.getId());
 
         if (status != null) {
             prescriptions = prescriptions.stream()
-                    .filter(p -> p.getStatus() == status)
+                    .filter(p -> p.status() == status)
                     .collect(Collectors.toList());
         }
 
         if (patientId != null) {
             prescriptions = prescriptions.stream()
-                    .filter(p -> p.getPatient() != null && p.getPatient().getId().equals(patientId))
+                    .filter(p -> patientId.equals(p.patientId()))
                     .collect(Collectors.toList());
         }
 
         List<PrescriptionResponse> prescriptionResponses = prescriptions.stream()
-                .map(PrescriptionResponse::fromEntity)
+                .map(PrescriptionResponse::fromSummary)
                 .collect(Collectors.toList());
 
         Map<String, Object> response = new HashMap<>();
@@ -3,12 +3,16 @@ package com.g4.capstoneproject.controller;
 import com.g4.capstoneproject.dto.Precription.PrescriptionCreateRequest;
 import com.g4.capstoneproject.dto.Precription.PrescriptionDetailResponse;
 import com.g4.capstoneproject.dto.Precription.PrescriptionResponse;
+import com.g4.capstoneproject.dto.Precription.PrescriptionSummary;
 import com.g4.capstoneproject.dto.Ticket.TicketDetailResponse;
 import com.g4.capstoneproject.dto.Ticket.TicketMessageRequest;
 import com.g4.capstoneproject.dto.Ticket.TicketResponse;
 import com.g4.capstoneproject.dto.Ticket.TicketStatusUpdateRequest;
+import com.g4.capstoneproject.dto.doctor.DoctorDashboardStatsDTO;
+import com.g4.capstoneproject.dto.response.KnowledgeTagCountResponse;
 import com.g4.capstoneproject.dto.TreatmentPlanResponse;
 import com.g4.capstoneproject.dto.TreatmentPlanDetailResponse;
+import com.g4.capstoneproject.dto.TreatmentPlanSummary;
 import com.g4.capstoneproject.dto.HealthForecastResponse;
 import com.g4.capstoneproject.dto.HealthForecastDetailResponse;
 import com.g4.capstoneproject.entity.HealthForecast;
@@ -22,8 +26,14 @@ import com.g4.capstoneproject.repository.MedicalReportRepository;
 import com.g4.capstoneproject.repository.FamilyMedicalHistoryRepository;
 import com.g4.capstoneproject.repository.KnowledgeArticleRepository;
 import com.g4.capstoneproject.repository.KnowledgeCategoryRepository;
+import com.g4.capstoneproject.security.CurrentUserContext;
+import com.g4.capstoneproject.security.CustomUserDetails;
 import com.g4.capstoneproject.entity.KnowledgeArticle;
 import com.g4.capstoneproject.entity.KnowledgeCategory;
+import com.g4.capstoneproject.service.ArticleViewCounter;
+import com.g4.capstoneproject.service.DoctorDashboardService;
+import com.g4.capstoneproject.service.DoctorPatientRosterService;
+import com.g4.capstoneproject.service.KnowledgeArticleService;
 import com.g4.capstoneproject.service.PatientService;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
@@ -39,7 +49,6 @@ import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
-import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Controller;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.ui.Model;
@@ -69,6 +78,11 @@ public class DoctorController {
     private final HealthForecastService healthForecastService;
     private final TreatmentPlanService treatmentPlanService;
     private final PatientService patientService;
+    private final DoctorDashboardService doctorDashboardService;
+    private final DoctorPatientRosterService doctorPatientRosterService;
+    private final KnowledgeArticleService knowledgeArticleService;
+    private final ArticleViewCounter articleViewCounter;
+    private final CurrentUserContext currentUserContext;
     private final UserRepository userRepository;
     private final MedicalReportRepository medicalReportRepository;
     private final FamilyMedicalHistoryRepository familyMedicalHistoryRepository;
@@ -79,232 +93,90 @@ public class DoctorController {
      * Doctor Dashboard
      */
     @GetMapping("/dashboard")
-    public String dashboard(@AuthenticationPrincipal UserDetails userDetails, Model model) {
-        String username = userDetails.getUsername();
-        User doctor = userRepository.findByEmailOrPhoneNumber(username, username).orElse(null);
-
-        if (doctor != null) {
-            // Statistics
-            model.addAttribute("totalPrescriptions",
-                    prescriptionService.getPrescriptionsByDoctorId(doctor.getId()).size());
-            model.addAttribute("activeTreatmentPlans",
-                    treatmentPlanService.getTreatmentPlansByDoctorId(doctor.getId()).size());
-            model.addAttribute("pendingTickets", ticketService.getTicketsByAssignedUserId(doctor.getId()).size());
-
-            // Recent data
-            List<Prescription> recentPrescriptions = prescriptionService.getPrescriptionsByDoctorId(doctor.getId());
-            List<TreatmentPlan> activePlans = treatmentPlanService.getTreatmentPlansByDoctorId(doctor.getId());
-            List<Ticket> assignedTickets = ticketService.getTicketsByAssignedUserId(doctor.getId());
-
-            model.addAttribute("recentPrescriptions", recentPrescriptions);
-            model.addAttribute("activePlans", activePlans);
-            model.addAttribute("tickets", assignedTickets);
-        }
-
-        model.addAttribute("doctor", doctor);
+    public String dashboard(@AuthenticationPrincipal CustomUserDetails principal, Model model) {
+        Long doctorId = principal.getId();
+
+        // Statistics
+        model.addAttribute("totalPrescriptions",
+                prescriptionService.getPrescriptionsByDoctorId(doctorId).size());
+        model.addAttribute("activeTreatmentPlans",
+                treatmentPlanService.getTreatmentPlansByDoctorId(doctorId).size());
+        model.addAttribute("pendingTickets", ticketService.getTicketsByAssignedUserId(doctorId).size());
+
+        // Recent data
+        List<PrescriptionSummary> recentPrescriptions = prescriptionService.getPrescriptionsByDoctorId(doctorId);
+        List<TreatmentPlanSummary> activePlans = treatmentPlanService.getTreatmentPlansByDoctorId(doctorId);
+        List<Ticket> assignedTickets = ticketService.getTicketsByAssignedUserId(doctorId);
+
+        model.addAttribute("recentPrescriptions", recentPrescriptions);
+        model.addAttribute("activePlans", activePlans);
+        model.addAttribute("tickets", assignedTickets);
         return "doctor/dashboard";
     }
 
     /**
      * API: Get patients for dashboard with treatment plans
      * GET /doctor/api/patients
+     * Toàn bộ danh sách (dropdown chọn bệnh nhân); danh sách lớn dùng /api/patients/roster
      */
     @GetMapping("/api/patients")
     @ResponseBody
     public ResponseEntity<?> getDashboardPatients(
-            @AuthenticationPrincipal UserDetails userDetails) {
-        try {
-            String username = userDetails.getUsername();
-            User doctor = userRepository.findByEmailOrPhoneNumber(username, username).orElse(null);
-
-            if (doctor == null) {
-                return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
-                        .body(Map.of("error", "Doctor not found"));
-            }
-
-            List<Map<String, Object>> result = new java.util.ArrayList<>();
-            java.util.Set<Long> addedPatientIds = new java.util.HashSet<>();
-
-            // 1. Get patients from treatment plans (with treatment info)
-            List<TreatmentPlan> plans = treatmentPlanService.getTreatmentPlansByDoctorId(doctor.getId());
-            for (TreatmentPlan plan : plans) {
-                try {
-                    User patient = plan.getPatient();
-                    if (patient != null && !addedPatientIds.contains(patient.getId())) {
-                        Map<String, Object> data = new HashMap<>();
-                        data.put("id", patient.getId());
-                        data.put("fullName", patient.getFullName() != null ? patient.getFullName() : "N/A");
-                        data.put("email", patient.getEmail() != null ? patient.getEmail() : "N/A");
-                        data.put("phone", patient.getPhoneNumber() != null ? patient.getPhoneNumber() : "N/A");
-                        data.put("treatmentPlanId", plan.getId());
-                        data.put("diagnosis", plan.getDiagnosis() != null ? plan.getDiagnosis() : "N/A");
-                        data.put("status", plan.getStatus() != null ? plan.getStatus().name() : "DRAFT");
-                        data.put("startDate", plan.getStartDate());
-                        data.put("endDate", plan.getExpectedEndDate());
-                        data.put("lastUpdated", plan.getUpdatedAt());
-                        data.put("createdAt", plan.getCreatedAt());
-                        result.add(data);
-                        addedPatientIds.add(patient.getId());
-                    }
-                } catch (Exception e) {
-                    // Log and skip this patient if there's an error
-                    System.err.println("Error processing treatment plan " + plan.getId() + ": " + e.getMessage());
-                }
-            }
-
-            // 2. If no treatment plans found, get all patients assigned to doctor
-            if (result.isEmpty()) {
-                List<User> patients = patientService.getPatientsByDoctorId(doctor.getId());
-                for (User patient : patients) {
-                    try {
-                        if (!addedPatientIds.contains(patient.getId())) {
-                            Map<String, Object> data = new HashMap<>();
-                            data.put("id", patient.getId());
-                            data.put("fullName", patient.getFullName() != null ? patient.getFullName() : "N/A");
-                            data.put("email", patient.getEmail() != null ? patient.getEmail() : "N/A");
-                            data.put("phone", patient.getPhoneNumber() != null ? patient.getPhoneNumber() : "N/A");
-                            data.put("treatmentPlanId", null);
-                            data.put("diagnosis", null);
-                            data.put("status", "DRAFT"); // Default status for patients without treatment plan
-                            data.put("startDate", null);
-                            data.put("endDate", null);
-                            data.put("lastUpdated", patient.getUpdatedAt());
-                            data.put("createdAt", patient.getCreatedAt());
-                            result.add(data);
-                            addedPatientIds.add(patient.getId());
-                        }
-                    } catch (Exception e) {
-                        // Log and skip this patient if there's an error
-                        System.err.println("Error processing patient " + patient.getId() + ": " + e.getMessage());
-                    }
-                }
-            }
-
-            // 3. If still empty, get all active patients in the system (for testing/demo)
-            if (result.isEmpty()) {
-                List<User> allPatients = patientService.getAllActivePatients();
-                for (User patient : allPatients) {
-                    try {
-                        Map<String, Object> data = new HashMap<>();
-                        data.put("id", patient.getId());
-                        data.put("fullName", patient.getFullName() != null ? patient.getFullName() : "N/A");
-                        data.put("email", patient.getEmail() != null ? patient.getEmail() : "N/A");
-                        data.put("phone", patient.getPhoneNumber() != null ? patient.getPhoneNumber() : "N/A");
-                        data.put("treatmentPlanId", null);
-                        data.put("diagnosis", null);
-                        data.put("status", "DRAFT");
-                        data.put("startDate", null);
-                        data.put("endDate", null);
-                        data.put("lastUpdated", patient.getUpdatedAt());
-                        data.put("createdAt", patient.getCreatedAt());
-                        result.add(data);
-                    } catch (Exception e) {
-                        // Log and skip this patient if there's an error
-                        System.err.println("Error processing patient " + patient.getId() + ": " + e.getMessage());
-                    }
-                }
-            }
+            @AuthenticationPrincipal CustomUserDetails principal) {
+        Long doctorId = principal.getId();
 
-            return ResponseEntity.ok(result);
+        try {
+            return ResponseEntity.ok(doctorPatientRosterService.getAll(doctorId));
         } catch (Exception e) {
-            System.err.println("Error in getDashboardPatients: " + e.getMessage());
-            e.printStackTrace();
+            log.error("Error loading patients for doctor {}: {}", doctorId, e.getMessage(), e);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
                     .body(Map.of("error", "Failed to load patients: " + e.getMessage()));
         }
     }
 
     /**
-     * API: Get dashboard statistics
-     * GET /doctor/api/stats
+     * API: Danh sách bệnh nhân của bác sĩ, phân trang keyset
+     * GET /doctor/api/patients/roster?cursor=&size=20&q=&status=ACTIVE&sort=RECENT|NAME
      */
-    @GetMapping("/api/stats")
+    @GetMapping("/api/patients/roster")
     @ResponseBody
-    public ResponseEntity<Map<String, Object>> getDashboardStats(
-            @AuthenticationPrincipal UserDetails userDetails) {
-        String username = userDetails.getUsername();
-        User doctor = userRepository.findByEmailOrPhoneNumber(username, username).orElse(null);
-
-        if (doctor == null) {
-            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
-        }
-
-        Map<String, Object> stats = new HashMap<>();
+    public ResponseEntity<?> getPatientRoster(
+            @AuthenticationPrincipal CustomUserDetails principal,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int size,
+            @RequestParam(required = false) String q,
+            @RequestParam(required = false) TreatmentPlan.PlanStatus status,
+            @RequestParam(defaultValue = "RECENT") DoctorPatientRosterService.Sort sort) {
+        Long doctorId = principal.getId();
 
-        List<TreatmentPlan> plans = treatmentPlanService.getTreatmentPlansByDoctorId(doctor.getId());
-        List<Prescription> prescriptions = prescriptionService.getPrescriptionsByDoctorId(doctor.getId());
-        List<Ticket> tickets = ticketService.getTicketsByAssignedUserId(doctor.getId());
-
-        // Total patients count - from multiple sources
-        long totalPatients = 0;
-        if (!plans.isEmpty()) {
-            totalPatients = plans.stream()
-                    .map(p -> p.getPatient().getId())
-                    .distinct()
-                    .count();
-        } else {
-            // Fallback to patients assigned to doctor or all active patients
-            List<User> patients = patientService.getPatientsByDoctorId(doctor.getId());
-            if (patients.isEmpty()) {
-                patients = patientService.getAllActivePatients();
-            }
-            totalPatients = patients.size();
+        try {
+            return ResponseEntity.ok(doctorPatientRosterService.getPage(doctorId, cursor, size, q, status, sort));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
         }
+    }
 
-        // Count by status
-        long activeCount = plans.stream()
-                .filter(p -> p.getStatus() == TreatmentPlan.PlanStatus.ACTIVE)
-                .count();
-
-        long completedCount = plans.stream()
-                .filter(p -> p.getStatus() == TreatmentPlan.PlanStatus.COMPLETED)
-                .count();
-
-        long pendingCount = plans.stream()
-                .filter(p -> p.getStatus() == TreatmentPlan.PlanStatus.DRAFT)
-                .count();
-
-        // Urgent alerts (from tickets)
-        long urgentCount = tickets.stream()
-                .filter(t -> t.getPriority() == Ticket.Priority.URGENT && t.getStatus() == Ticket.Status.OPEN)
-                .count();
-
-        // Today's appointments (simplified - could be enhanced with actual appointment
-        // entity)
-        long todayAppointments = plans.stream()
-                .filter(p -> {
-                    LocalDate today = LocalDate.now();
-                    return p.getStartDate() != null && p.getStartDate().equals(today);
-                })
-                .count();
-
-        stats.put("totalPatients", totalPatients);
-        stats.put("activePatients", activeCount);
-        stats.put("completedPatients", completedCount);
-        stats.put("pendingPatients", pendingCount);
-        stats.put("urgentAlerts", urgentCount);
-        stats.put("todayAppointments", todayAppointments);
-        stats.put("totalPrescriptions", prescriptions.size());
-        stats.put("pendingTickets", tickets.stream().filter(t -> t.getStatus() == Ticket.Status.OPEN).count());
-
-        return ResponseEntity.ok(stats);
+    /**
+     * API: Get dashboard statistics
+     * GET /doctor/api/stats
+     */
+    @GetMapping("/api/stats")
+    @ResponseBody
+    public ResponseEntity<DoctorDashboardStatsDTO> getDashboardStats(
+            @AuthenticationPrincipal CustomUserDetails principal) {
+        return ResponseEntity.ok(doctorDashboardService.getStats(principal.getId()));
     }
 
     /**
      * Patients List
      */
     @GetMapping("/patients")
-    public String patients(@AuthenticationPrincipal UserDetails userDetails, Model model) {
-        String username = userDetails.getUsername();
-        User doctor = userRepository.findByEmailOrPhoneNumber(username, username).orElse(null);
-
-        if (doctor != null) {
-            // Get patients from treatment plans
-            List<TreatmentPlan> plans = treatmentPlanService.getTreatmentPlansByDoctorId(doctor.getId());
-            model.addAttribute("treatmentPlans", plans);
-        }
+    public String patients(@AuthenticationPrincipal CustomUserDetails principal, Model model) {
+        Long doctorId = principal.getId();
 
-        model.addAttribute("doctor", doctor);
+        // Get patients from treatment plans
+        List<TreatmentPlanSummary> plans = treatmentPlanService.getTreatmentPlansByDoctorId(doctorId);
+        model.addAttribute("treatmentPlans", plans);
         return "doctor/patients";
     }
 
@@ -313,11 +185,7 @@ public class DoctorController {
      * GET /doctor/patients/{id}
      */
     @GetMapping("/patients/{id}")
-    public String patientDetail(@PathVariable Long id,
-            @AuthenticationPrincipal UserDetails userDetails, Model model) {
-        String username = userDetails.getUsername();
-        User doctor = userRepository.findByEmailOrPhoneNumber(username, username).orElse(null);
-        model.addAttribute("doctor", doctor);
+    public String patientDetail(@PathVariable Long id, Model model) {
         model.addAttribute("patientId", id);
         return "doctor/patient-detail";
     }
@@ -331,25 +199,16 @@ public class DoctorController {
     @Transactional(readOnly = true)
     public ResponseEntity<?> getPatientDetail(
             @PathVariable Long id,
-            @AuthenticationPrincipal UserDetails userDetails) {
+            @AuthenticationPrincipal CustomUserDetails principal) {
 
         // Check authentication
-        if (userDetails == null) {
+        if (principal == null) {
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
                     .body(Map.of("error", "Unauthorized", "message", "User not authenticated"));
         }
 
         try {
-            String username = userDetails.getUsername();
-            log.info("Loading patient detail - PatientID: {}, RequestedBy: {}", id, username);
-
-            User doctor = userRepository.findByEmailOrPhoneNumber(username, username).orElse(null);
-
-            if (doctor == null) {
-                log.error("Doctor not found for username: {}", username);
-                return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
-                        .body(Map.of("error", "Unauthorized", "message", "Doctor not found"));
-            }
+            log.info("Loading patient detail - PatientID: {}, RequestedBy: {}", id, principal.getUsername());
 
             // Get patient
             User patient = userRepository.findById(id).orElse(null);
@@ -375,7 +234,7 @@ public class DoctorController {
             result.put("patient", patientInfo);
 
             // Treatment plans for this patient
-            List<TreatmentPlan> plans = null;
+            List<TreatmentPlanSummary> plans = null;
             try {
                 plans = treatmentPlanService.getTreatmentPlansByPatientId(id);
                 log.debug("Found {} treatment plans for patient {}", plans != null ? plans.size() : 0, id);
@@ -386,20 +245,14 @@ public class DoctorController {
 
             List<Map<String, Object>> treatmentPlans = plans.stream().map(plan -> {
                 Map<String, Object> planData = new HashMap<>();
-                planData.put("id", plan.getId());
-                planData.put("diagnosis", plan.getDiagnosis());
-                planData.put("treatmentGoal", plan.getTreatmentGoal());
-                planData.put("status", plan.getStatus() != null ? plan.getStatus().name() : "DRAFT");
-                planData.put("startDate", plan.getStartDate());
-                planData.put("expectedEndDate", plan.getExpectedEndDate());
-                planData.put("createdAt", plan.getCreatedAt());
-                // Safe access to lazy-loaded doctor
-                try {
-                    planData.put("doctorName", plan.getDoctor() != null ? plan.getDoctor().getFullName() : null);
-                } catch (Exception e) {
-                    log.warn("Could not load doctor name for treatment plan {}", plan.getId());
-                    planData.put("doctorName", null);
-                }
+                planData.put("id", plan.id());
+                planData.put("diagnosis", plan.diagnosis());
+                planData.put("treatmentGoal", plan.treatmentGoal());
+                planData.put("status", plan.status() != null ? plan.status().name() : "DRAFT");
+                planData.put("startDate", plan.startDate());
+                planData.put("expectedEndDate", plan.expectedEndDate());
+                planData.put("createdAt", plan.createdAt());
+                planData.put("doctorName", plan.doctorName());
                 return planData;
             }).collect(Collectors.toList());
             result.put("treatmentPlans", treatmentPlans);
@@ -464,7 +317,7 @@ public class DoctorController {
             Map<String, Object> stats = new HashMap<>();
             stats.put("totalTreatmentPlans", plans.size());
             stats.put("activeTreatmentPlans",
-                    plans.stream().filter(p -> p.getStatus() == TreatmentPlan.PlanStatus.ACTIVE).count());
+                    plans.stream().filter(p -> p.status() == TreatmentPlan.PlanStatus.ACTIVE).count());
             stats.put("totalPrescriptions", prescriptions.size());
             stats.put("totalVitalRecords", 0); // VitalSigns entity removed in schema v4.0
             stats.put("openTickets", tickets.stream().filter(t -> t.getStatus() == Ticket.Status.OPEN).count());
@@ -486,10 +339,7 @@ public class DoctorController {
      * Appointments (placeholder for future implementation)
      */
     @GetMapping("/appointments")
-    public String appointments(@AuthenticationPrincipal UserDetails userDetails, Model model) {
-        String username = userDetails.getUsername();
-        User doctor = userRepository.findByEmailOrPhoneNumber(username, username).orElse(null);
-        model.addAttribute("doctor", doctor);
+    public String appointments(Model model) {
         return "doctor/appointments";
     }
 
@@ -497,20 +347,15 @@ public class DoctorController {
      * Prescriptions Management
      */
     @GetMapping("/prescriptions")
-    public String prescriptions(@AuthenticationPrincipal UserDetails userDetails, Model model) {
-        String username = userDetails.getUsername();
-        User doctor = userRepository.findByEmailOrPhoneNumber(username, username).orElse(null);
-
-        if (doctor != null) {
-            List<Prescription> prescriptions = prescriptionService.getPrescriptionsByDoctorId(doctor.getId());
-            model.addAttribute("prescriptions", prescriptions);
-            model.addAttribute("totalCount", prescriptions.size());
-            model.addAttribute("activeCount", prescriptions.stream()
-                    .filter(p -> p.getStatus() == Prescription.PrescriptionStatus.ACTIVE)
-                    .count());
-        }
-
-        model.addAttribute("doctor", doctor);
+    public String prescriptions(@AuthenticationPrincipal CustomUserDetails principal, Model model) {
+        Long doctorId = principal.getId();
+
+        List<PrescriptionSummary> prescriptions = prescriptionService.getPrescriptionsByDoctorId(doctorId);
+        model.addAttribute("prescriptions", prescriptions);
+        model.addAttribute("totalCount", prescriptions.size());
+        model.addAttribute("activeCount", prescriptions.stream()
+                .filter(p -> p.status() == Prescription.PrescriptionStatus.ACTIVE)
+                .count());
         return "doctor/prescriptions";
     }
 
@@ -518,24 +363,17 @@ public class DoctorController {
      * Create New Prescription Form
      */
     @GetMapping("/prescriptions/create")
-    public String createPrescriptionForm(@RequestParam(required = false) Long patientId,
-            @AuthenticationPrincipal UserDetails userDetails,
-            Model model) {
-        String username = userDetails.getUsername();
-        User doctor = userRepository.findByEmailOrPhoneNumber(username, username).orElse(null);
-
-        if (doctor != null && patientId != null) {
+    public String createPrescriptionForm(@RequestParam(required = false) Long patientId, Model model) {
+        if (patientId != null) {
             User patient = userRepository.findById(patientId).orElse(null);
             model.addAttribute("patient", patient);
 
             // Get patient's active treatment plan
-            List<TreatmentPlan> plans = treatmentPlanService.getTreatmentPlansByPatientId(patientId);
+            List<TreatmentPlanSummary> plans = treatmentPlanService.getTreatmentPlansByPatientId(patientId);
             if (!plans.isEmpty()) {
                 model.addAttribute("activePlan", plans.get(0));
             }
         }
-
-        model.addAttribute("doctor", doctor);
         return "doctor/prescriptions/create";
     }
 
@@ -544,21 +382,16 @@ public class DoctorController {
      */
     @GetMapping("/prescriptions/edit/{id}")
     public String editPrescriptionForm(@PathVariable Long id,
-            @AuthenticationPrincipal UserDetails userDetails,
+            @AuthenticationPrincipal CustomUserDetails principal,
             Model model) {
-        String username = userDetails.getUsername();
-        User doctor = userRepository.findByEmailOrPhoneNumber(username, username).orElse(null);
-
-        if (doctor != null) {
-            Prescription prescription = prescriptionService.getPrescriptionById(id);
-            if (prescription != null && prescription.getDoctor().getId().equals(doctor.getId())) {
-                model.addAttribute("prescription", prescription);
-                model.addAttribute("patient", prescription.getPatient());
-                model.addAttribute("prescriptionId", id);
-            }
-        }
+        Long doctorId = principal.getId();
 
-        model.addAttribute("doctor", doctor);
+        Prescription prescription = prescriptionService.getPrescriptionById(id);
+        if (prescription != null && prescription.getDoctor().getId().equals(doctorId)) {
+            model.addAttribute("prescription", prescription);
+            model.addAttribute("patient", prescription.getPatient());
+            model.addAttribute("prescriptionId", id);
+        }
         return "doctor/prescriptions/edit";
     }
 
@@ -566,18 +399,13 @@ public class DoctorController {
      * Treatment Plans Management
      */
     @GetMapping("/treatments")
-    public String treatments(@AuthenticationPrincipal UserDetails userDetails, Model model) {
-        String username = userDetails.getUsername();
-        User doctor = userRepository.findByEmailOrPhoneNumber(username, username).orElse(null);
-
-        if (doctor != null) {
-            List<TreatmentPlan> plans = treatmentPlanService.getTreatmentPlansByDoctorId(doctor.getId());
-            model.addAttribute("treatmentPlans", plans);
-            model.addAttribute("totalCount", plans.size());
-            model.addAttribute("activeCount", treatmentPlanService.getActiveTreatmentPlans().size());
-        }
+    public String treatments(@AuthenticationPrincipal CustomUserDetails principal, Model model) {
+        Long doctorId = principal.getId();
 
-        model.addAttribute("doctor", doctor);
+        List<TreatmentPlanSummary> plans = treatmentPlanService.getTreatmentPlansByDoctorId(doctorId);
+        model.addAttribute("treatmentPlans", plans);
+        model.addAttribute("totalCount", plans.size());
+        model.addAttribute("activeCount", treatmentPlanService.getActiveTreatmentPlans().size());
         return "doctor/treatments";
     }
 
@@ -585,22 +413,15 @@ public class DoctorController {
      * Create New Treatment Plan Form
      */
     @GetMapping("/treatments/create")
-    public String createTreatmentPlanForm(@RequestParam(required = false) Long patientId,
-            @AuthenticationPrincipal UserDetails userDetails,
-            Model model) {
-        String username = userDetails.getUsername();
-        User doctor = userRepository.findByEmailOrPhoneNumber(username, username).orElse(null);
-
-        if (doctor != null && patientId != null) {
+    public String createTreatmentPlanForm(@RequestParam(required = false) Long patientId, Model model) {
+        if (patientId != null) {
             User patient = userRepository.findById(patientId).orElse(null);
             model.addAttribute("patient", patient);
 
             // Get patient's existing treatment plans
-            List<TreatmentPlan> existingPlans = treatmentPlanService.getTreatmentPlansByPatientId(patientId);
+            List<TreatmentPlanSummary> existingPlans = treatmentPlanService.getTreatmentPlansByPatientId(patientId);
             model.addAttribute("existingPlans", existingPlans);
         }
-
-        model.addAttribute("doctor", doctor);
         return "doctor/treatments/create";
     }
 
@@ -608,20 +429,15 @@ public class DoctorController {
      * Tickets Management
      */
     @GetMapping("/tickets")
-    public String tickets(@AuthenticationPrincipal UserDetails userDetails, Model model) {
-        String username = userDetails.getUsername();
-        User doctor = userRepository.findByEmailOrPhoneNumber(username, username).orElse(null);
-
-        if (doctor != null) {
-            List<Ticket> tickets = ticketService.getTicketsByAssignedUserId(doctor.getId());
-            model.addAttribute("tickets", tickets);
-            model.addAttribute("totalCount", tickets.size());
-            model.addAttribute("openCount", tickets.stream()
-                    .filter(t -> t.getStatus() == Ticket.Status.OPEN)
-                    .count());
-        }
-
-        model.addAttribute("doctor", doctor);
+    public String tickets(@AuthenticationPrincipal CustomUserDetails principal, Model model) {
+        Long doctorId = principal.getId();
+
+        List<Ticket> tickets = ticketService.getTicketsByAssignedUserId(doctorId);
+        model.addAttribute("tickets", tickets);
+        model.addAttribute("totalCount", tickets.size());
+        model.addAttribute("openCount", tickets.stream()
+                .filter(t -> t.getStatus() == Ticket.Status.OPEN)
+                .count());
         return "doctor/tickets";
     }
 
@@ -629,10 +445,7 @@ public class DoctorController {
      * Medical Records
      */
     @GetMapping("/medical-records")
-    public String medicalRecords(@AuthenticationPrincipal UserDetails userDetails, Model model) {
-        String username = userDetails.getUsername();
-        User doctor = userRepository.findByEmailOrPhoneNumber(username, username).orElse(null);
-        model.addAttribute("doctor", doctor);
+    public String medicalRecords(Model model) {
         return "doctor/medical-records";
     }
 
@@ -645,19 +458,14 @@ public class DoctorController {
     @GetMapping("/api/doctor/tickets")
     @ResponseBody
     public ResponseEntity<Map<String, Object>> getTickets(
-            @AuthenticationPrincipal UserDetails userDetails,
+            @AuthenticationPrincipal CustomUserDetails principal,
             @RequestParam(required = false) Ticket.Status status,
             @RequestParam(required = false) Ticket.Priority priority) {
 
-        String username = userDetails.getUsername();
-        User doctor = userRepository.findByEmailOrPhoneNumber(username, username).orElse(null);
-
-        if (doctor == null) {
-            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
-        }
+        Long doctorId = principal.getId();
 
         // Get tickets assigned to this doctor
-        List<Ticket> tickets = ticketService.getTicketsByAssignedUserId(doctor.getId());
+        List<Ticket> tickets = ticketService.getTicketsByAssignedUserId(doctorId);
 
         // Apply filters if provided
         if (status != null) {
@@ -692,14 +500,9 @@ public class DoctorController {
     @ResponseBody
     public ResponseEntity<TicketDetailResponse> getTicketDetail(
             @PathVariable Long id,
-            @AuthenticationPrincipal UserDetails userDetails) {
+            @AuthenticationPrincipal CustomUserDetails principal) {
 
-        String username = userDetails.getUsername();
-        User doctor = userRepository.findByEmailOrPhoneNumber(username, username).orElse(null);
-
-        if (doctor == null) {
-            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
-        }
+        Long doctorId = principal.getId();
 
         Ticket ticket = ticketService.getTicketById(id.toString());
 
@@ -708,7 +511,7 @@ public class DoctorController {
         }
 
         // Check if this ticket is assigned to the current doctor
-        if (ticket.getAssignedTo() == null || !ticket.getAssignedTo().getId().equals(doctor.getId())) {
+        if (ticket.getAssignedTo() == null || !ticket.getAssignedTo().getId().equals(doctorId)) {
             return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
         }
 
@@ -728,11 +531,9 @@ public class DoctorController {
     @ResponseBody
     public ResponseEntity<Map<String, Object>> updateTicketStatus(
             @PathVariable Long id,
-            @Valid @RequestBody TicketStatusUpdateRequest request,
-            @AuthenticationPrincipal UserDetails userDetails) {
+            @Valid @RequestBody TicketStatusUpdateRequest request) {
 
-        String username = userDetails.getUsername();
-        User doctor = userRepository.findByEmailOrPhoneNumber(username, username).orElse(null);
+        User doctor = currentUserContext.getUser().orElse(null);
 
         if (doctor == null) {
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
@@ -780,11 +581,9 @@ public class DoctorController {
     @ResponseBody
     public ResponseEntity<Map<String, Object>> addTicketMessage(
             @PathVariable Long id,
-            @Valid @RequestBody TicketMessageRequest request,
-            @AuthenticationPrincipal UserDetails userDetails) {
+            @Valid @RequestBody TicketMessageRequest request) {
 
-        String username = userDetails.getUsername();
-        User doctor = userRepository.findByEmailOrPhoneNumber(username, username).orElse(null);
+        User doctor = currentUserContext.getUser().orElse(null);
 
         if (doctor == null) {
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
@@ -830,38 +629,33 @@ public class DoctorController {
     @GetMapping("/api/doctor/prescriptions")
     @ResponseBody
     public ResponseEntity<Map<String, Object>> getPrescriptions(
-            @AuthenticationPrincipal UserDetails userDetails,
+            @AuthenticationPrincipal CustomUserDetails principal,
             @RequestParam(required = false) Prescription.PrescriptionStatus status,
             @RequestParam(required = false) Long patientId,
             @RequestParam(required = false) String startDate,
             @RequestParam(required = false) String endDate) {
 
-        String username = userDetails.getUsername();
-        User doctor = userRepository.findByEmailOrPhoneNumber(username, username).orElse(null);
-
-        if (doctor == null) {
-            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
-        }
+        Long doctorId = principal.getId();
 
         // Get prescriptions created by this doctor
-        List<Prescription> prescriptions = prescriptionService.getPrescriptionsByDoctorId(doctor.getId());
+        List<PrescriptionSummary> prescriptions = prescriptionService.getPrescriptionsByDoctorId(doctorId);
 
         // Apply filters if provided
         if (status != null) {
             prescriptions = prescriptions.stream()
-                    .filter(p -> p.getStatus() == status)
+                    .filter(p -> p.status() == status)
                     .collect(Collectors.toList());
         }
 
         if (patientId != null) {
             prescriptions = prescriptions.stream()
-                    .filter(p -> p.getPatient() != null && p.getPatient().getId().equals(patientId))
+                    .filter(p -> patientId.equals(p.patientId()))
                     .collect(Collectors.toList());
         }
 
         // Convert to DTOs
         List<PrescriptionResponse> prescriptionResponses = prescriptions.stream()
-                .map(PrescriptionResponse::fromEntity)
+                .map(PrescriptionResponse::fromSummary)
                 .collect(Collectors.toList());
 
         Map<String, Object> response = new HashMap<>();
@@ -879,14 +673,9 @@ public class DoctorController {
     @ResponseBody
     public ResponseEntity<PrescriptionDetailResponse> getPrescriptionDetail(
             @PathVariable Long id,
-            @AuthenticationPrincipal UserDetails userDetails) {
+            @AuthenticationPrincipal CustomUserDetails principal) {
 
-        String username = userDetails.getUsername();
-        User doctor = userRepository.findByEmailOrPhoneNumber(username, username).orElse(null);
-
-        if (doctor == null) {
-            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
-        }
+        Long doctorId = principal.getId();
 
         Prescription prescription = prescriptionService.getPrescriptionById(id);
 
@@ -895,7 +684,7 @@ public class DoctorController {
         }
 
         // Check if this prescription was created by the current doctor
-        if (prescription.getDoctor() == null || !prescription.getDoctor().getId().equals(doctor.getId())) {
+        if (prescription.getDoctor() == null || !prescription.getDoctor().getId().equals(doctorId)) {
             return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
         }
 
@@ -911,11 +700,9 @@ public class DoctorController {
     @PostMapping("/api/doctor/prescriptions")
     @ResponseBody
     public ResponseEntity<Map<String, Object>> createPrescription(
-            @Valid @RequestBody PrescriptionCreateRequest request,
-            @AuthenticationPrincipal UserDetails userDetails) {
+            @Valid @RequestBody PrescriptionCreateRequest request) {
 
-        String username = userDetails.getUsername();
-        User doctor = userRepository.findByEmailOrPhoneNumber(username, username).orElse(null);
+        User doctor = currentUserContext.getUser().orElse(null);
 
         if (doctor == null) {
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
@@ -949,11 +736,9 @@ public class DoctorController {
     @ResponseBody
     public ResponseEntity<Map<String, Object>> updatePrescription(
             @PathVariable Long id,
-            @Valid @RequestBody PrescriptionCreateRequest request,
-            @AuthenticationPrincipal UserDetails userDetails) {
+            @Valid @RequestBody PrescriptionCreateRequest request) {
 
-        String username = userDetails.getUsername();
-        User doctor = userRepository.findByEmailOrPhoneNumber(username, username).orElse(null);
+        User doctor = currentUserContext.getUser().orElse(null);
 
         if (doctor == null) {
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
@@ -990,14 +775,9 @@ public class DoctorController {
     @ResponseBody
     public ResponseEntity<Map<String, Object>> deletePrescription(
             @PathVariable Long id,
-            @AuthenticationPrincipal UserDetails userDetails) {
+            @AuthenticationPrincipal CustomUserDetails principal) {
 
-        String username = userDetails.getUsername();
-        User doctor = userRepository.findByEmailOrPhoneNumber(username, username).orElse(null);
-
-        if (doctor == null) {
-            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
-        }
+        Long doctorId = principal.getId();
 
         Prescription existingPrescription = prescriptionService.getPrescriptionById(id);
 
@@ -1007,7 +787,7 @@ public class DoctorController {
 
         // Check if this prescription was created by the current doctor
         if (existingPrescription.getDoctor() == null ||
-                !existingPrescription.getDoctor().getId().equals(doctor.getId())) {
+                !existingPrescription.getDoctor().getId().equals(doctorId)) {
             return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
         }
 
@@ -1033,15 +813,7 @@ public class DoctorController {
     @GetMapping("/api/doctor/prescriptions/patient/{patientId}/history")
     @ResponseBody
     public ResponseEntity<Map<String, Object>> getPatientPrescriptionHistory(
-            @PathVariable Long patientId,
-            @AuthenticationPrincipal UserDetails userDetails) {
-
-        String username = userDetails.getUsername();
-        User doctor = userRepository.findByEmailOrPhoneNumber(username, username).orElse(null);
-
-        if (doctor == null) {
-            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
-        }
+            @PathVariable Long patientId) {
 
         // Get prescription history
         List<Prescription> prescriptions = prescriptionService.getPrescriptionHistory(patientId);
@@ -1066,15 +838,7 @@ public class DoctorController {
     @ResponseBody
     public ResponseEntity<Map<String, Object>> checkMedicationUsage(
             @PathVariable Long patientId,
-            @PathVariable String medicineName,
-            @AuthenticationPrincipal UserDetails userDetails) {
-
-        String username = userDetails.getUsername();
-        User doctor = userRepository.findByEmailOrPhoneNumber(username, username).orElse(null);
-
-        if (doctor == null) {
-            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
-        }
+            @PathVariable String medicineName) {
 
         int usageCount = prescriptionService.checkMedicationUsageCount(patientId, medicineName);
 
@@ -1096,41 +860,32 @@ public class DoctorController {
     @GetMapping("/api/doctor/treatments")
     @ResponseBody
     public ResponseEntity<Map<String, Object>> getTreatmentPlans(
-            @AuthenticationPrincipal UserDetails userDetails,
+            @AuthenticationPrincipal CustomUserDetails principal,
             @RequestParam(required = false) TreatmentPlan.PlanStatus status,
             @RequestParam(required = false) Long patientId) {
 
-        String username = userDetails.getUsername();
-        User doctor = userRepository.findByEmailOrPhoneNumber(username, username).orElse(null);
-
-        if (doctor == null) {
-            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
-        }
+        Long doctorId = principal.getId();
 
         // Get treatment plans created by this doctor
-        List<TreatmentPlan> plans = treatmentPlanService.getTreatmentPlansByDoctorId(doctor.getId());
+        List<TreatmentPlanSummary> plans = treatmentPlanService.getTreatmentPlansByDoctorId(doctorId);
 
         // Apply filters if provided
         if (status != null) {
             plans = plans.stream()
-                    .filter(p -> p.getStatus() == status)
+                    .filter(p -> p.status() == status)
                     .collect(Collectors.toList());
         }
 
         if (patientId != null) {
             plans = plans.stream()
-                    .filter(p -> p.getPatient() != null && p.getPatient().getId().equals(patientId))
+                    .filter(p -> patientId.equals(p.patientId()))
                     .collect(Collectors.toList());
         }
 
         // Convert to DTOs
         // NOTE: CheckupSchedule entity removed in schema v4.0
         List<TreatmentPlanResponse> planResponses = plans.stream()
-                .map(plan -> {
-                    TreatmentPlanResponse response = TreatmentPlanResponse.fromEntity(plan);
-                    response.setCheckupCount(0); // CheckupSchedule removed
-                    return response;
-                })
+                .map(TreatmentPlanResponse::fromSummary)
                 .collect(Collectors.toList());
 
         Map<String, Object> response = new HashMap<>();
@@ -1148,14 +903,9 @@ public class DoctorController {
     @ResponseBody
     public ResponseEntity<TreatmentPlanDetailResponse> getTreatmentPlanDetail(
             @PathVariable Long id,
-            @AuthenticationPrincipal UserDetails userDetails) {
+            @AuthenticationPrincipal CustomUserDetails principal) {
 
-        String username = userDetails.getUsername();
-        User doctor = userRepository.findByEmailOrPhoneNumber(username, username).orElse(null);
-
-        if (doctor == null) {
-            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
-        }
+        Long doctorId = principal.getId();
 
         TreatmentPlan plan = treatmentPlanService.getTreatmentPlanById(id).orElse(null);
 
@@ -1164,7 +914,7 @@ public class DoctorController {
         }
 
         // Check if this treatment plan was created by the current doctor
-        if (plan.getDoctor() == null || !plan.getDoctor().getId().equals(doctor.getId())) {
+        if (plan.getDoctor() == null || !plan.getDoctor().getId().equals(doctorId)) {
             return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
         }
 
@@ -1183,14 +933,9 @@ public class DoctorController {
     public ResponseEntity<Map<String, Object>> updateTreatmentPlanStatus(
             @PathVariable Long id,
             @RequestParam TreatmentPlan.PlanStatus status,
-            @AuthenticationPrincipal UserDetails userDetails) {
-
-        String username = userDetails.getUsername();
-        User doctor = userRepository.findByEmailOrPhoneNumber(username, username).orElse(null);
+            @AuthenticationPrincipal CustomUserDetails principal) {
 
-        if (doctor == null) {
-            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
-        }
+        Long doctorId = principal.getId();
 
         TreatmentPlan plan = treatmentPlanService.getTreatmentPlanById(id).orElse(null);
 
@@ -1199,7 +944,7 @@ public class DoctorController {
         }
 
         // Check authorization
-        if (plan.getDoctor() == null || !plan.getDoctor().getId().equals(doctor.getId())) {
+        if (plan.getDoctor() == null || !plan.getDoctor().getId().equals(doctorId)) {
             return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
         }
 
@@ -1222,11 +967,9 @@ public class DoctorController {
     @PostMapping("/api/doctor/treatments")
     @ResponseBody
     public ResponseEntity<Map<String, Object>> createTreatmentPlan(
-            @RequestBody Map<String, Object> treatmentData,
-            @AuthenticationPrincipal UserDetails userDetails) {
+            @RequestBody Map<String, Object> treatmentData) {
 
-        String username = userDetails.getUsername();
-        User doctor = userRepository.findByEmailOrPhoneNumber(username, username).orElse(null);
+        User doctor = currentUserContext.getUser().orElse(null);
 
         if (doctor == null) {
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
@@ -1278,14 +1021,9 @@ public class DoctorController {
     public ResponseEntity<Map<String, Object>> updateTreatmentPlan(
             @PathVariable Long id,
             @RequestBody Map<String, Object> treatmentData,
-            @AuthenticationPrincipal UserDetails userDetails) {
+            @AuthenticationPrincipal CustomUserDetails principal) {
 
-        String username = userDetails.getUsername();
-        User doctor = userRepository.findByEmailOrPhoneNumber(username, username).orElse(null);
-
-        if (doctor == null) {
-            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
-        }
+        Long doctorId = principal.getId();
 
         TreatmentPlan existingPlan = treatmentPlanService.getTreatmentPlanById(id).orElse(null);
 
@@ -1294,7 +1032,7 @@ public class DoctorController {
         }
 
         // Check authorization
-        if (existingPlan.getDoctor() == null || !existingPlan.getDoctor().getId().equals(doctor.getId())) {
+        if (existingPlan.getDoctor() == null || !existingPlan.getDoctor().getId().equals(doctorId)) {
             return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
         }
 
@@ -1329,14 +1067,9 @@ public class DoctorController {
     @ResponseBody
     public ResponseEntity<Map<String, Object>> deleteTreatmentPlan(
             @PathVariable Long id,
-            @AuthenticationPrincipal UserDetails userDetails) {
+            @AuthenticationPrincipal CustomUserDetails principal) {
 
-        String username = userDetails.getUsername();
-        User doctor = userRepository.findByEmailOrPhoneNumber(username, username).orElse(null);
-
-        if (doctor == null) {
-            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
-        }
+        Long doctorId = principal.getId();
 
         TreatmentPlan existingPlan = treatmentPlanService.getTreatmentPlanById(id).orElse(null);
 
@@ -1345,7 +1078,7 @@ public class DoctorController {
         }
 
         // Check authorization
-        if (existingPlan.getDoctor() == null || !existingPlan.getDoctor().getId().equals(doctor.getId())) {
+        if (existingPlan.getDoctor() == null || !existingPlan.getDoctor().getId().equals(doctorId)) {
             return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
         }
 
@@ -1398,11 +1131,9 @@ public class DoctorController {
     @PostMapping("/api/doctor/health-forecast/reports")
     @ResponseBody
     public ResponseEntity<Map<String, Object>> createMedicalReport(
-            @AuthenticationPrincipal UserDetails userDetails,
             @RequestBody Map<String, Object> data) {
 
-        String username = userDetails.getUsername();
-        User doctor = userRepository.findByEmailOrPhoneNumber(username, username).orElse(null);
+        User doctor = currentUserContext.getUser().orElse(null);
 
         Long patientId = Long.valueOf(data.get("patientId").toString());
         User patient = userRepository.findById(patientId).orElse(null);
@@ -1482,11 +1213,9 @@ public class DoctorController {
     @PostMapping("/api/doctor/health-forecast/family-history")
     @ResponseBody
     public ResponseEntity<Map<String, Object>> createFamilyHistory(
-            @AuthenticationPrincipal UserDetails userDetails,
             @RequestBody Map<String, Object> data) {
 
-        String username = userDetails.getUsername();
-        User doctor = userRepository.findByEmailOrPhoneNumber(username, username).orElse(null);
+        User doctor = currentUserContext.getUser().orElse(null);
 
         Long patientId = Long.valueOf(data.get("patientId").toString());
         User patient = userRepository.findById(patientId).orElse(null);
@@ -1590,10 +1319,20 @@ public class DoctorController {
     @GetMapping("/api/doctor/knowledge/tags")
     @ResponseBody
     public ResponseEntity<List<String>> getKnowledgeTags() {
-        List<String> tags = knowledgeArticleRepository.findAllTags();
+        List<String> tags = knowledgeArticleService.getAllTags();
         return ResponseEntity.ok(tags);
     }
 
+    /**
+     * API: Get Tag Cloud (published article count per tag)
+     * GET /api/doctor/knowledge/tag-cloud
+     */
+    @GetMapping("/api/doctor/knowledge/tag-cloud")
+    @ResponseBody
+    public ResponseEntity<List<KnowledgeTagCountResponse>> getKnowledgeTagCloud() {
+        return ResponseEntity.ok(knowledgeArticleService.getTagCloud());
+    }
+
     /**
      * API: Get Articles with Search & Pagination
      * GET /api/doctor/knowledge/articles
@@ -1615,13 +1354,13 @@ public class DoctorController {
             articleStatus = KnowledgeArticle.ArticleStatus.valueOf(status);
         }
 
+        Map<Long, String> snippets = new HashMap<>();
         if (keyword != null && !keyword.trim().isEmpty()) {
-            if (categoryId != null) {
-                articlePage = knowledgeArticleRepository.searchByCategoryAndKeyword(categoryId, keyword.trim(),
-                        articleStatus, pageable);
-            } else {
-                articlePage = knowledgeArticleRepository.searchByKeyword(keyword.trim(), articleStatus, pageable);
-            }
+            // Full-text search, kết quả xếp theo độ liên quan
+            Page<KnowledgeArticleService.SearchHit> hits = knowledgeArticleService.search(keyword.trim(),
+                    articleStatus, categoryId, pageable);
+            hits.forEach(hit -> snippets.put(hit.getArticle().getId(), hit.getSnippet()));
+            articlePage = hits.map(KnowledgeArticleService.SearchHit::getArticle);
         } else if (categoryId != null) {
             if (articleStatus != null) {
                 articlePage = knowledgeArticleRepository.findByCategoryIdAndStatus(categoryId, articleStatus, pageable);
@@ -1634,7 +1373,14 @@ public class DoctorController {
             articlePage = knowledgeArticleRepository.findAll(pageable);
         }
 
-        List<Map<String, Object>> content = articlePage.getContent().stream().map(this::mapArticleToResponse)
+        List<Map<String, Object>> content = articlePage.getContent().stream()
+                .map(article -> {
+                    Map<String, Object> map = mapArticleToResponse(article);
+                    if (snippets.get(article.getId()) != null) {
+                        map.put("snippet", snippets.get(article.getId()));
+                    }
+                    return map;
+                })
                 .collect(Collectors.toList());
 
         Map<String, Object> response = new HashMap<>();
@@ -1659,8 +1405,8 @@ public class DoctorController {
             return ResponseEntity.notFound().build();
         }
 
-        // Increment views
-        knowledgeArticleRepository.incrementViews(id);
+        // Lượt xem được đếm trong bộ nhớ, ghi xuống database theo lô
+        articleViewCounter.record(id);
 
         Map<String, Object> response = mapArticleToResponse(article);
         response.put("content", article.getContent());
@@ -1675,11 +1421,9 @@ public class DoctorController {
     @PostMapping("/api/doctor/knowledge/articles")
     @ResponseBody
     public ResponseEntity<Map<String, Object>> createKnowledgeArticle(
-            @AuthenticationPrincipal UserDetails userDetails,
             @RequestBody Map<String, Object> data) {
 
-        String username = userDetails.getUsername();
-        User doctor = userRepository.findByEmailOrPhoneNumber(username, username).orElse(null);
+        User doctor = currentUserContext.getUser().orElse(null);
 
         KnowledgeCategory category = null;
         if (data.get("categoryId") != null && !data.get("categoryId").toString().isEmpty()) {
@@ -1706,6 +1450,7 @@ public class DoctorController {
                 .build();
 
         article = knowledgeArticleRepository.save(article);
+        knowledgeArticleService.onArticleChanged(article.getId());
 
         Map<String, Object> response = new HashMap<>();
         response.put("success", true);
@@ -1721,12 +1466,10 @@ public class DoctorController {
     @PutMapping("/api/doctor/knowledge/articles/{id}")
     @ResponseBody
     public ResponseEntity<Map<String, Object>> updateKnowledgeArticle(
-            @AuthenticationPrincipal UserDetails userDetails,
             @PathVariable Long id,
             @RequestBody Map<String, Object> data) {
 
-        String username = userDetails.getUsername();
-        User doctor = userRepository.findByEmailOrPhoneNumber(username, username).orElse(null);
+        User doctor = currentUserContext.getUser().orElse(null);
 
         KnowledgeArticle article = knowledgeArticleRepository.findById(id).orElse(null);
         if (article == null) {
@@ -1761,6 +1504,7 @@ public class DoctorController {
         }
 
         knowledgeArticleRepository.save(article);
+        knowledgeArticleService.onArticleChanged(id);
 
         Map<String, Object> response = new HashMap<>();
         response.put("success", true);
@@ -1776,6 +1520,7 @@ public class DoctorController {
     @ResponseBody
     public ResponseEntity<Map<String, Object>> deleteKnowledgeArticle(@PathVariable Long id) {
         knowledgeArticleRepository.deleteById(id);
+        knowledgeArticleService.onArticleChanged(id);
 
         Map<String, Object> response = new HashMap<>();
         response.put("success", true);
@@ -1794,7 +1539,7 @@ public class DoctorController {
         map.put("tags", article.getTags());
         map.put("status", article.getStatus().name());
         map.put("featured", article.getFeatured());
-        map.put("views", article.getViews());
+        map.put("views", articleViewCounter.currentViews(article.getId(), article.getViews()));
         map.put("createdAt", article.getCreatedAt());
         map.put("updatedAt", article.getUpdatedAt());
         map.put("publishedAt", article.getPublishedAt());
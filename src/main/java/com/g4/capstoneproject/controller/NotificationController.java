@@ -89,13 +89,7 @@ public class NotificationController {
         }
 
         try {
-            Pageable pageable = PageRequest.of(0, limit);
-            Page<Notification> notificationsPage = notificationService.getNotificationsByUser(user, pageable);
-
-            List<NotificationDTO> notifications = notificationsPage.getContent()
-                    .stream()
-                    .map(NotificationDTO::fromEntity)
-                    .collect(Collectors.toList());
+            List<NotificationDTO> notifications = notificationService.getRecentNotifications(user.getId(), limit);
 
             return ResponseEntity.ok(notifications);
         } catch (Exception e) {
@@ -248,11 +242,7 @@ public class NotificationController {
         }
 
         try {
-            List<Notification> notifications = notificationService.getUnreadNotifications(user.getId());
-
-            List<NotificationDTO> dtos = notifications.stream()
-                    .map(NotificationDTO::fromEntity)
-                    .collect(Collectors.toList());
+            List<NotificationDTO> dtos = notificationService.getUnreadNotificationDTOs(user.getId());
 
             return ResponseEntity.ok(dtos);
         } catch (Exception e) {
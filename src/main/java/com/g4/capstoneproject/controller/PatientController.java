@@ -13,12 +13,13 @@ import com.g4.capstoneproject.repository.PrescriptionRepository;
 import com.g4.capstoneproject.repository.TicketRepository;
 import com.g4.capstoneproject.repository.TreatmentPlanRepository;
 import com.g4.capstoneproject.repository.UserRepository;
+import com.g4.capstoneproject.security.CustomUserDetails;
 import com.g4.capstoneproject.service.PatientDocumentService;
 import com.g4.capstoneproject.service.ProfileService;
-import jakarta.servlet.http.HttpSession;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 
@@ -49,17 +50,14 @@ public class PatientController {
      * Cách hoạt động: Query từ database và chuyển đổi sang DTO để tránh lazy loading
      */
     @GetMapping("/prescriptions")
-    public ResponseEntity<Map<String, Object>> getMyPrescriptions(HttpSession session) {
+    public ResponseEntity<Map<String, Object>> getMyPrescriptions(@AuthenticationPrincipal CustomUserDetails principal) {
         try {
-            Long userId = (Long) session.getAttribute("userId");
-            if (userId == null) {
+            if (principal == null) {
                 return ResponseEntity.status(401).body(Map.of("success", false, "message", "Chưa đăng nhập"));
             }
+            Long userId = principal.getId();
             
-            User patient = userRepository.findById(userId).orElse(null);
-            if (patient == null) {
-                return ResponseEntity.status(404).body(Map.of("success", false, "message", "Không tìm thấy người dùng"));
-            }
+            User patient = userRepository.getReferenceById(userId);
             
             List<Prescription> prescriptions = prescriptionRepository.findByPatientOrderByPrescriptionDateDesc(patient);
             
@@ -88,12 +86,12 @@ public class PatientController {
     @GetMapping("/prescriptions/{id}")
     public ResponseEntity<Map<String, Object>> getPrescriptionDetail(
             @PathVariable Long id,
-            HttpSession session) {
+            @AuthenticationPrincipal CustomUserDetails principal) {
         try {
-            Long userId = (Long) session.getAttribute("userId");
-            if (userId == null) {
+            if (principal == null) {
                 return ResponseEntity.status(401).body(Map.of("success", false, "message", "Chưa đăng nhập"));
             }
+            Long userId = principal.getId();
             
             Prescription prescription = prescriptionRepository.findById(id).orElse(null);
             if (prescription == null) {
@@ -125,17 +123,14 @@ public class PatientController {
      * Cách hoạt động: Query từ database và chuyển đổi sang DTO để tránh lazy loading
      */
     @GetMapping("/treatments")
-    public ResponseEntity<Map<String, Object>> getMyTreatments(HttpSession session) {
+    public ResponseEntity<Map<String, Object>> getMyTreatments(@AuthenticationPrincipal CustomUserDetails principal) {
         try {
-            Long userId = (Long) session.getAttribute("userId");
-            if (userId == null) {
+            if (principal == null) {
                 return ResponseEntity.status(401).body(Map.of("success", false, "message", "Chưa đăng nhập"));
             }
+            Long userId = principal.getId();
             
-            User patient = userRepository.findById(userId).orElse(null);
-            if (patient == null) {
-                return ResponseEntity.status(404).body(Map.of("success", false, "message", "Không tìm thấy người dùng"));
-            }
+            User patient = userRepository.getReferenceById(userId);
             
             List<TreatmentPlan> treatments = treatmentPlanRepository.findByPatient(patient);
             
@@ -162,17 +157,14 @@ public class PatientController {
      * Cách hoạt động: Query từ database và chuyển đổi sang DTO để tránh lazy loading
      */
     @GetMapping("/tickets")
-    public ResponseEntity<Map<String, Object>> getMyTickets(HttpSession session) {
+    public ResponseEntity<Map<String, Object>> getMyTickets(@AuthenticationPrincipal CustomUserDetails principal) {
         try {
-            Long userId = (Long) session.getAttribute("userId");
-            if (userId == null) {
+            if (principal == null) {
                 return ResponseEntity.status(401).body(Map.of("success", false, "message", "Chưa đăng nhập"));
             }
+            Long userId = principal.getId();
             
-            User patient = userRepository.findById(userId).orElse(null);
-            if (patient == null) {
-                return ResponseEntity.status(404).body(Map.of("success", false, "message", "Không tìm thấy người dùng"));
-            }
+            User patient = userRepository.getReferenceById(userId);
             
             List<Ticket> tickets = ticketRepository.findByPatient(patient);
             
@@ -197,12 +189,12 @@ public class PatientController {
      * GET /api/patient/profile - Lấy thông tin cá nhân (API endpoint)
      */
     @GetMapping("/profile")
-    public ResponseEntity<Map<String, Object>> getMyProfile(HttpSession session) {
+    public ResponseEntity<Map<String, Object>> getMyProfile(@AuthenticationPrincipal CustomUserDetails principal) {
         try {
-            Long userId = (Long) session.getAttribute("userId");
-            if (userId == null) {
+            if (principal == null) {
                 return ResponseEntity.status(401).body(Map.of("success", false, "message", "Chưa đăng nhập"));
             }
+            Long userId = principal.getId();
             
             ProfileResponse profile = profileService.getProfile(userId)
                     .orElseThrow(() -> new IllegalArgumentException("Không tìm thấy người dùng"));
@@ -232,17 +224,14 @@ public class PatientController {
      * GET /api/patient/stats - Lấy thống kê tổng quan
      */
     @GetMapping("/stats")
-    public ResponseEntity<Map<String, Object>> getMyStats(HttpSession session) {
+    public ResponseEntity<Map<String, Object>> getMyStats(@AuthenticationPrincipal CustomUserDetails principal) {
         try {
-            Long userId = (Long) session.getAttribute("userId");
-            if (userId == null) {
+            if (principal == null) {
                 return ResponseEntity.status(401).body(Map.of("success", false, "message", "Chưa đăng nhập"));
             }
+            Long userId = principal.getId();
             
-            User patient = userRepository.findById(userId).orElse(null);
-            if (patient == null) {
-                return ResponseEntity.status(404).body(Map.of("success", false, "message", "Không tìm thấy người dùng"));
-            }
+            User patient = userRepository.getReferenceById(userId);
             
             long prescriptionCount = prescriptionRepository.countByPatient(patient);
             long treatmentCount = treatmentPlanRepository.countByPatient(patient);
@@ -272,9 +261,9 @@ public class PatientController {
      * GET /api/patient/treatment-plans - Alias cho /api/patient/treatments (để tương thích với frontend)
      */
     @GetMapping("/treatment-plans")
-    public ResponseEntity<Map<String, Object>> getMyTreatmentPlans(HttpSession session) {
+    public ResponseEntity<Map<String, Object>> getMyTreatmentPlans(@AuthenticationPrincipal CustomUserDetails principal) {
         // Delegate to getMyTreatments
-        return getMyTreatments(session);
+        return getMyTreatments(principal);
     }
     
     // ========== DOCUMENT MANAGEMENT ==========
@@ -283,12 +272,12 @@ public class PatientController {
      * GET /api/patient/documents - Lấy danh sách tài liệu của bệnh nhân
      */
     @GetMapping("/documents")
-    public ResponseEntity<Map<String, Object>> getMyDocuments(HttpSession session) {
+    public ResponseEntity<Map<String, Object>> getMyDocuments(@AuthenticationPrincipal CustomUserDetails principal) {
         try {
-            Long userId = (Long) session.getAttribute("userId");
-            if (userId == null) {
+            if (principal == null) {
                 return ResponseEntity.status(401).body(Map.of("success", false, "message", "Chưa đăng nhập"));
             }
+            Long userId = principal.getId();
             
             List<Map<String, Object>> documents = patientDocumentService.getPatientDocuments(userId);
             
@@ -310,12 +299,12 @@ public class PatientController {
     @GetMapping("/documents/{id}")
     public ResponseEntity<Map<String, Object>> getDocumentDetail(
             @PathVariable Long id,
-            HttpSession session) {
+            @AuthenticationPrincipal CustomUserDetails principal) {
         try {
-            Long userId = (Long) session.getAttribute("userId");
-            if (userId == null) {
+            if (principal == null) {
                 return ResponseEntity.status(401).body(Map.of("success", false, "message", "Chưa đăng nhập"));
             }
+            Long userId = principal.getId();
             
             var documentOpt = patientDocumentService.getDocumentById(id);
             if (documentOpt.isEmpty()) {
@@ -372,12 +361,12 @@ public class PatientController {
             @RequestParam("file") MultipartFile file,
             @RequestParam("documentType") String documentType,
             @RequestParam(value = "description", required = false) String description,
-            HttpSession session) {
+            @AuthenticationPrincipal CustomUserDetails principal) {
         try {
-            Long userId = (Long) session.getAttribute("userId");
-            if (userId == null) {
+            if (principal == null) {
                 return ResponseEntity.status(401).body(Map.of("success", false, "message", "Chua dang nhap"));
             }
+            Long userId = principal.getId();
             
             // Validate file khong rong
             if (file == null || file.isEmpty()) {
@@ -446,12 +435,12 @@ public class PatientController {
     @DeleteMapping("/documents/{id}")
     public ResponseEntity<Map<String, Object>> deleteDocument(
             @PathVariable Long id,
-            HttpSession session) {
+            @AuthenticationPrincipal CustomUserDetails principal) {
         try {
-            Long userId = (Long) session.getAttribute("userId");
-            if (userId == null) {
+            if (principal == null) {
                 return ResponseEntity.status(401).body(Map.of("success", false, "message", "Chưa đăng nhập"));
             }
+            Long userId = principal.getId();
             
             boolean deleted = patientDocumentService.deleteDocument(id, userId);
             
@@ -1,7 +1,10 @@
 package com.g4.capstoneproject.controller;
 
+import com.g4.capstoneproject.dto.user.PatientSummary;
+import com.g4.capstoneproject.dto.user.UserSearchRow;
 import com.g4.capstoneproject.entity.User;
 import com.g4.capstoneproject.service.PatientService;
+import com.g4.capstoneproject.service.UserSearchService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
@@ -24,6 +27,7 @@ import java.util.Map;
 public class PatientManagementController {
 
     private final PatientService patientService;
+    private final UserSearchService userSearchService;
 
     // ========== Patient Endpoints ==========
 
@@ -33,8 +37,8 @@ public class PatientManagementController {
      */
     @GetMapping
     @PreAuthorize("hasAnyRole('ADMIN', 'RECEPTIONIST', 'DOCTOR')")
-    public ResponseEntity<List<User>> getAllPatients() {
-        List<User> patients = patientService.getAllActivePatients();
+    public ResponseEntity<List<PatientSummary>> getAllPatients() {
+        List<PatientSummary> patients = patientService.getAllActivePatients();
         return ResponseEntity.ok(patients);
     }
 
@@ -87,13 +91,29 @@ public class PatientManagementController {
 
     /**
      * Search patients by keyword
-     * GET /api/patients/search?q=keyword
+     * GET /api/patients/search?q=keyword&limit=20
+     * At most limit results (default and maximum: user.search.max-results), echoed in X-Result-Limit
      */
     @GetMapping("/search")
     @PreAuthorize("hasAnyRole('ADMIN', 'RECEPTIONIST', 'DOCTOR')")
-    public ResponseEntity<List<User>> searchPatients(@RequestParam("q") String keyword) {
-        List<User> patients = patientService.searchPatients(keyword);
-        return ResponseEntity.ok(patients);
+    public ResponseEntity<List<PatientSummary>> searchPatients(@RequestParam("q") String keyword,
+                                                               @RequestParam(required = false) Integer limit) {
+        int applied = userSearchService.limitFor(limit);
+        List<PatientSummary> patients = patientService.searchPatients(keyword, applied);
+        return ResponseEntity.ok()
+                .header(UserSearchService.RESULT_LIMIT_HEADER, String.valueOf(applied))
+                .body(patients);
+    }
+
+    /**
+     * Autocomplete patients by name / email / phone prefix
+     * GET /api/patients/suggest?q=nguyen&limit=10
+     */
+    @GetMapping("/suggest")
+    @PreAuthorize("hasAnyRole('ADMIN', 'RECEPTIONIST', 'DOCTOR')")
+    public ResponseEntity<List<UserSearchRow>> suggestPatients(@RequestParam("q") String query,
+                                                               @RequestParam(defaultValue = "10") int limit) {
+        return ResponseEntity.ok(userSearchService.suggest(query, User.UserRole.PATIENT, limit));
     }
 
     /**
@@ -102,8 +122,8 @@ public class PatientManagementController {
      */
     @GetMapping("/by-doctor/{doctorId}")
     @PreAuthorize("hasAnyRole('ADMIN', 'DOCTOR')")
-    public ResponseEntity<List<User>> getPatientsByDoctor(@PathVariable Long doctorId) {
-        List<User> patients = patientService.getPatientsByDoctorId(doctorId);
+    public ResponseEntity<List<PatientSummary>> getPatientsByDoctor(@PathVariable Long doctorId) {
+        List<PatientSummary> patients = patientService.getPatientsByDoctorId(doctorId);
         return ResponseEntity.ok(patients);
     }
 
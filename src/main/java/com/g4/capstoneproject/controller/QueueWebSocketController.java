@@ -1,19 +1,39 @@
 package com.g4.capstoneproject.controller;
 
+import com.g4.capstoneproject.dto.QueueBatchMessage;
+import com.g4.capstoneproject.dto.QueueSnapshotMessage;
 import com.g4.capstoneproject.dto.QueueUpdateMessage;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.messaging.handler.annotation.MessageMapping;
-import org.springframework.messaging.handler.annotation.SendTo;
 import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.simp.annotation.SubscribeMapping;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.Supplier;
+
 /**
  * WebSocket Controller for Queue Management
  * Handles real-time queue updates via WebSocket/STOMP protocol
+ *
+ * Queue deltas are not sent immediately: they are collected for a short window,
+ * superseded updates for the same ticket are dropped, and one QueueBatchMessage
+ * is published to /topic/queue per tick. Each batch carries a sequence number;
+ * late subscribers load a snapshot from /app/queue/snapshot and apply only newer batches.
+ * Sequences are per node (source), so several nodes can publish through a broker relay.
+ * A node only folds its own batches into the in-memory snapshot, so in relay mode
+ * (websocket.broker.mode=relay) snapshots are loaded from the database instead.
  */
 @Slf4j
 @RestController
@@ -21,37 +41,72 @@ import org.springframework.web.bind.annotation.RestController;
 @RequiredArgsConstructor
 public class QueueWebSocketController {
 
+    private static final String QUEUE_TOPIC = "/topic/queue";
+
     private final SimpMessagingTemplate messagingTemplate;
 
+    /**
+     * Id of this app node, stamped on every batch and snapshot
+     */
+    private final String nodeId = UUID.randomUUID().toString().substring(0, 8);
+
+    /**
+     * Pending deltas of the current tick, keyed by ticketId|queueType|action (insertion ordered)
+     */
+    private final Map<String, QueueUpdateMessage> pending = new LinkedHashMap<>();
+
+    /**
+     * Current queue state per ticket, as of {@link #sequence}
+     */
+    private final Map<String, QueueUpdateMessage> snapshot = new LinkedHashMap<>();
+
+    private long sequence = 0;
+
+    @Value("${websocket.broker.mode:simple}")
+    private String brokerMode;
+
+    /**
+     * Loads the queue state from the database (wired by WebSocketServiceConfig)
+     */
+    private Supplier<List<QueueUpdateMessage>> snapshotLoader;
+
     /**
      * Broadcast queue update to all connected clients
      * Endpoint: POST /api/queue/broadcast
      */
     @PostMapping("/broadcast")
     public void broadcastQueueUpdate(@RequestBody QueueUpdateMessage message) {
-        log.info("Broadcasting queue update: action={}, ticketId={}, queueType={}",
-                message.getAction(), message.getTicketId(), message.getQueueType());
+        enqueue(message);
+    }
 
-        // Send to all subscribers of /topic/queue
-        messagingTemplate.convertAndSend("/topic/queue", message);
+    /**
+     * Current queue snapshot for clients that cannot use STOMP subscribe
+     * Endpoint: GET /api/queue/snapshot
+     */
+    @GetMapping("/snapshot")
+    public QueueSnapshotMessage getQueueSnapshot() {
+        return currentSnapshot();
     }
 
     /**
      * Handle incoming queue update messages from clients
      * Client sends to: /app/queue/update
-     * Server broadcasts to: /topic/queue
+     * Server broadcasts to: /topic/queue (in the next batch)
      */
     @MessageMapping("/queue/update")
-    @SendTo("/topic/queue")
-    public QueueUpdateMessage handleQueueUpdate(QueueUpdateMessage message) {
-        log.info("Received queue update from client: action={}, ticketId={}",
+    public void handleQueueUpdate(QueueUpdateMessage message) {
+        log.debug("Received queue update from client: action={}, ticketId={}",
                 message.getAction(), message.getTicketId());
+        enqueue(message);
+    }
 
-        // Add server timestamp
-        message.setTimestamp(System.currentTimeMillis());
-
-        // Broadcast to all connected clients
-        return message;
+    /**
+     * Snapshot for late subscribers
+     * Client subscribes to: /app/queue/snapshot (reply is sent to that subscriber only)
+     */
+    @SubscribeMapping("/queue/snapshot")
+    public QueueSnapshotMessage subscribeSnapshot() {
+        return currentSnapshot();
     }
 
     /**
@@ -59,7 +114,7 @@ public class QueueWebSocketController {
      * Sends to: /user/{username}/queue/private
      */
     public void notifyUser(String username, QueueUpdateMessage message) {
-        log.info("Sending private message to user: {}, ticketId={}", username, message.getTicketId());
+        log.debug("Sending private message to user: {}, ticketId={}", username, message.getTicketId());
         messagingTemplate.convertAndSendToUser(username, "/queue/private", message);
     }
 
@@ -68,9 +123,7 @@ public class QueueWebSocketController {
      * Used when receptionist calls a patient
      */
     public void broadcastTicketCall(String ticketId, String patientName) {
-        QueueUpdateMessage message = QueueUpdateMessage.called(ticketId, patientName);
-        log.info("Broadcasting ticket call: ticketId={}, patient={}", ticketId, patientName);
-        messagingTemplate.convertAndSend("/topic/queue", message);
+        enqueue(QueueUpdateMessage.called(ticketId, patientName));
     }
 
     /**
@@ -78,19 +131,14 @@ public class QueueWebSocketController {
      */
     public void broadcastTicketAdded(String ticketId, QueueUpdateMessage.QueueType queueType,
             String patientName, String priority, Integer position) {
-        QueueUpdateMessage message = QueueUpdateMessage.added(ticketId, queueType, patientName, priority, position);
-        log.info("Broadcasting ticket added: ticketId={}, queueType={}, position={}",
-                ticketId, queueType, position);
-        messagingTemplate.convertAndSend("/topic/queue", message);
+        enqueue(QueueUpdateMessage.added(ticketId, queueType, patientName, priority, position));
     }
 
     /**
      * Broadcast ticket removal
      */
     public void broadcastTicketRemoved(String ticketId, QueueUpdateMessage.QueueType queueType) {
-        QueueUpdateMessage message = QueueUpdateMessage.removed(ticketId, queueType);
-        log.info("Broadcasting ticket removed: ticketId={}, queueType={}", ticketId, queueType);
-        messagingTemplate.convertAndSend("/topic/queue", message);
+        enqueue(QueueUpdateMessage.removed(ticketId, queueType));
     }
 
     /**
@@ -98,18 +146,141 @@ public class QueueWebSocketController {
      */
     public void broadcastTicketUpdated(String ticketId, QueueUpdateMessage.QueueType queueType,
             String status, Integer retryCount, Integer position) {
-        QueueUpdateMessage message = QueueUpdateMessage.updated(ticketId, queueType, status, retryCount, position);
-        log.info("Broadcasting ticket updated: ticketId={}, status={}, position={}",
-                ticketId, status, position);
-        messagingTemplate.convertAndSend("/topic/queue", message);
+        enqueue(QueueUpdateMessage.updated(ticketId, queueType, status, retryCount, position));
     }
 
     /**
      * Broadcast ticket completion
      */
     public void broadcastTicketCompleted(String ticketId) {
-        QueueUpdateMessage message = QueueUpdateMessage.completed(ticketId);
-        log.info("Broadcasting ticket completed: ticketId={}", ticketId);
-        messagingTemplate.convertAndSend("/topic/queue", message);
+        enqueue(QueueUpdateMessage.completed(ticketId));
+    }
+
+    /**
+     * Publish pending deltas as one batch
+     * Interval configurable via queue.broadcast.flush-interval-ms
+     */
+    @Scheduled(fixedDelayString = "${queue.broadcast.flush-interval-ms:250}")
+    public void flushPendingUpdates() {
+        QueueBatchMessage batch;
+        synchronized (this) {
+            if (pending.isEmpty()) {
+                return;
+            }
+            List<QueueUpdateMessage> updates = new ArrayList<>(pending.values());
+            pending.clear();
+            updates.forEach(this::applyToSnapshot);
+            batch = QueueBatchMessage.builder()
+                    .source(nodeId)
+                    .sequence(++sequence)
+                    .timestamp(System.currentTimeMillis())
+                    .updates(updates)
+                    .build();
+        }
+
+        log.debug("Broadcasting queue batch: sequence={}, updates={}", batch.getSequence(), batch.getUpdates().size());
+        messagingTemplate.convertAndSend(QUEUE_TOPIC, batch);
+    }
+
+    /**
+     * Replace the snapshot with the queue state loaded from the database
+     * Called at startup; pending deltas are applied on top at the next flush
+     */
+    public synchronized void resetSnapshot(List<QueueUpdateMessage> tickets) {
+        snapshot.clear();
+        tickets.forEach(ticket -> snapshot.put(ticket.getTicketId(), ticket));
+        log.info("Queue snapshot loaded with {} tickets", snapshot.size());
+    }
+
+    /**
+     * Add a delta to the current tick
+     * A newer delta with the same ticket, queue and action replaces the older one;
+     * REMOVE/COMPLETE drop every pending delta of that ticket, whatever its queue
+     */
+    private synchronized void enqueue(QueueUpdateMessage message) {
+        if (message.getTicketId() == null || message.getAction() == null) {
+            log.warn("Ignoring queue update without ticketId or action");
+            return;
+        }
+        if (message.getTimestamp() == null) {
+            message.setTimestamp(System.currentTimeMillis());
+        }
+        if (isTerminal(message.getAction())) {
+            String prefix = message.getTicketId() + "|";
+            pending.keySet().removeIf(key -> key.startsWith(prefix));
+        }
+        String key = message.getTicketId() + "|" + message.getQueueType() + "|" + message.getAction();
+        pending.remove(key);
+        pending.put(key, message);
+    }
+
+    /**
+     * Set the database loader used for snapshots in relay mode (to avoid circular dependency)
+     */
+    public void setSnapshotLoader(Supplier<List<QueueUpdateMessage>> snapshotLoader) {
+        this.snapshotLoader = snapshotLoader;
+    }
+
+    private QueueSnapshotMessage currentSnapshot() {
+        if ("relay".equalsIgnoreCase(brokerMode) && snapshotLoader != null) {
+            // Sequence is read before the load: batches after it are re-applied, which is idempotent
+            long asOf;
+            synchronized (this) {
+                asOf = sequence;
+            }
+            return QueueSnapshotMessage.builder()
+                    .source(nodeId)
+                    .sequence(asOf)
+                    .timestamp(System.currentTimeMillis())
+                    .tickets(snapshotLoader.get())
+                    .build();
+        }
+        synchronized (this) {
+            return QueueSnapshotMessage.builder()
+                    .source(nodeId)
+                    .sequence(sequence)
+                    .timestamp(System.currentTimeMillis())
+                    .tickets(new ArrayList<>(snapshot.values()))
+                    .build();
+        }
+    }
+
+    /**
+     * Fold a delta into the per-ticket snapshot
+     */
+    private void applyToSnapshot(QueueUpdateMessage message) {
+        String ticketId = message.getTicketId();
+        QueueUpdateMessage current = snapshot.get(ticketId);
+        switch (message.getAction()) {
+            case ADD -> snapshot.put(ticketId, message);
+            // Like the client, REMOVE drops the ticket whatever its queue: coalescing may have
+            // dropped the earlier REMOVE of the queue the snapshot still shows
+            case REMOVE, COMPLETE -> snapshot.remove(ticketId);
+            case UPDATE, CALL -> {
+                if (current != null) {
+                    snapshot.put(ticketId, merge(current, message));
+                }
+            }
+        }
+    }
+
+    private static QueueUpdateMessage merge(QueueUpdateMessage current, QueueUpdateMessage update) {
+        return QueueUpdateMessage.builder()
+                .ticketId(current.getTicketId())
+                .action(QueueUpdateMessage.Action.ADD)
+                .queueType(update.getQueueType() != null ? update.getQueueType() : current.getQueueType())
+                .timestamp(update.getTimestamp())
+                .patientName(current.getPatientName())
+                .patientPhone(current.getPatientPhone())
+                .priority(current.getPriority())
+                .status(update.getStatus() != null ? update.getStatus() : current.getStatus())
+                .retryCount(update.getRetryCount() != null ? update.getRetryCount() : current.getRetryCount())
+                .queuePosition(update.getQueuePosition() != null ? update.getQueuePosition() : current.getQueuePosition())
+                .message(current.getMessage())
+                .build();
+    }
+
+    private static boolean isTerminal(QueueUpdateMessage.Action action) {
+        return action == QueueUpdateMessage.Action.REMOVE || action == QueueUpdateMessage.Action.COMPLETE;
     }
 }
@@ -1,5 +1,6 @@
 package com.g4.capstoneproject.controller;
 
+import com.g4.capstoneproject.service.RecordingPipelineService;
 import com.g4.capstoneproject.service.S3Service;
 import com.g4.capstoneproject.service.StringeeService;
 import org.slf4j.Logger;
@@ -31,6 +32,9 @@ public class StringeeController {
     @Autowired
     private S3Service s3Service;
 
+    @Autowired
+    private RecordingPipelineService recordingPipelineService;
+
     /**
      * API để thực hiện cuộc gọi ra cho khách hàng
      * 
@@ -260,21 +264,8 @@ public class StringeeController {
             return;
         }
         
-        try {
-            // Tự động download và upload file ghi âm lên S3 vào folder voice/
-            String s3Key = s3Service.uploadFileFromUrl(recordingUrl, callId, "audio/mpeg");
-            logger.info("✅ Đã lưu file ghi âm vào S3: {}", s3Key);
-            
-            // Tạo pre-signed URL để truy cập file (hiệu lực 7 ngày)
-            String presignedUrl = s3Service.generatePresignedUrl(s3Key, 7 * 24 * 3600);
-            logger.info("Pre-signed URL: {}", presignedUrl);
-            
-            // TODO: Lưu thông tin vào database (callId, s3Key, presignedUrl)
-            // TODO: Gửi file cho AI phân tích nội dung cuộc gọi
-            
-        } catch (Exception e) {
-            logger.error("❌ Lỗi khi lưu file ghi âm từ Stringee vào S3: {}", e.getMessage(), e);
-        }
+        // Chỉ ghi job rồi trả 200 ngay; tải file, lưu S3 và cập nhật DB do RecordingPipelineService xử lý
+        recordingPipelineService.enqueue(callId, recordingUrl);
     }
 
     /**
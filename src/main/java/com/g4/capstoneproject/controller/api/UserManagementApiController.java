@@ -3,6 +3,7 @@ package com.g4.capstoneproject.controller.api;
 import com.g4.capstoneproject.dto.user.*;
 import com.g4.capstoneproject.entity.User.UserRole;
 import com.g4.capstoneproject.service.UserManagementService;
+import com.g4.capstoneproject.service.UserSearchService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.tags.Tag;
@@ -34,6 +35,7 @@ import java.util.Map;
 public class UserManagementApiController {
 
     private final UserManagementService userManagementService;
+    private final UserSearchService userSearchService;
 
     // ==================== CRUD Endpoints ====================
 
@@ -60,12 +62,32 @@ public class UserManagementApiController {
      */
     @GetMapping("/search")
     @PreAuthorize("hasAnyRole('ADMIN', 'RECEPTIONIST')")
-    @Operation(summary = "Tìm kiếm người dùng", description = "Tìm kiếm theo tên, email, hoặc số điện thoại")
+    @Operation(summary = "Tìm kiếm người dùng", description = "Tìm kiếm theo tên, email, hoặc số điện thoại. "
+            + "Trả về tối đa limit kết quả (mặc định và tối đa: user.search.max-results); header "
+            + UserSearchService.RESULT_LIMIT_HEADER + " cho biết giới hạn đã áp dụng")
     public ResponseEntity<List<UserResponse>> searchUsers(
-            @Parameter(description = "Từ khóa tìm kiếm") @RequestParam String keyword) {
+            @Parameter(description = "Từ khóa tìm kiếm") @RequestParam String keyword,
+            @Parameter(description = "Số kết quả tối đa") @RequestParam(required = false) Integer limit) {
 
-        List<UserResponse> users = userManagementService.searchUsers(keyword);
-        return ResponseEntity.ok(users);
+        int applied = userSearchService.limitFor(limit);
+        List<UserResponse> users = userManagementService.searchUsers(keyword, applied);
+        return ResponseEntity.ok()
+                .header(UserSearchService.RESULT_LIMIT_HEADER, String.valueOf(applied))
+                .body(users);
+    }
+
+    /**
+     * Gợi ý người dùng (autocomplete)
+     */
+    @GetMapping("/suggest")
+    @PreAuthorize("hasAnyRole('ADMIN', 'RECEPTIONIST')")
+    @Operation(summary = "Gợi ý người dùng", description = "Autocomplete theo tiền tố họ tên (không dấu), email hoặc số điện thoại")
+    public ResponseEntity<List<UserSearchRow>> suggestUsers(
+            @Parameter(description = "Tiền tố tìm kiếm") @RequestParam("q") String query,
+            @Parameter(description = "Lọc theo vai trò") @RequestParam(required = false) UserRole role,
+            @Parameter(description = "Số gợi ý tối đa") @RequestParam(defaultValue = "10") int limit) {
+
+        return ResponseEntity.ok(userSearchService.suggest(query, role, limit));
     }
 
     /**
@@ -1,14 +1,15 @@
 package com.g4.capstoneproject.controller.api;
 
+import com.g4.capstoneproject.dto.TranscriptionJobDTO;
 import com.g4.capstoneproject.dto.WebCallDTO;
 import com.g4.capstoneproject.entity.User;
 import com.g4.capstoneproject.entity.WebCallLog;
 import com.g4.capstoneproject.entity.WebCallLog.WebCallStatus;
 import com.g4.capstoneproject.repository.UserRepository;
 import com.g4.capstoneproject.service.GeminiASRService;
-import com.g4.capstoneproject.service.WhisperASRService;
 import com.g4.capstoneproject.service.S3Service;
 import com.g4.capstoneproject.service.StringeeService;
+import com.g4.capstoneproject.service.TranscriptionJobService;
 import com.g4.capstoneproject.service.WebCallService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -20,6 +21,7 @@ import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.io.IOException;
 import java.util.List;
 import java.util.Map;
 
@@ -48,8 +50,8 @@ public class WebCallApiController {
     private GeminiASRService geminiASRService;
     
     @Autowired
-    private WhisperASRService whisperASRService;
-    
+    private TranscriptionJobService transcriptionJobService;
+        
     /**
      * Lấy thông tin user hiện đang đăng nhập
      */
@@ -238,7 +240,7 @@ public class WebCallApiController {
             
             // Upload file lên S3 với folder structure mới: voice/calls/{callId}/{type}_{timestamp}.webm
             String s3Key = s3Service.uploadRecordingFile(file, String.valueOf(callId), "user_" + user.getId(), recordingType);
-            String presignedUrl = s3Service.generatePresignedUrl(s3Key, 7 * 24 * 3600);
+            String presignedUrl = s3Service.generatePresignedUrlUncached(s3Key, 7 * 24 * 3600);
             
             // Lưu thông tin vào database
             WebCallLog call = webCallService.saveRecording(callId, recordingType, s3Key, presignedUrl);
@@ -273,7 +275,7 @@ public class WebCallApiController {
             
             // Generate presigned URL nếu không được cung cấp
             if (presignedUrl == null || presignedUrl.isEmpty()) {
-                presignedUrl = s3Service.generatePresignedUrl(s3Key, 7 * 24 * 3600);
+                presignedUrl = s3Service.generatePresignedUrlUncached(s3Key, 7 * 24 * 3600);
             }
             
             // Lưu thông tin vào database
@@ -414,11 +416,9 @@ public class WebCallApiController {
     /**
      * Transcribe cuộc gọi - chuyển đổi audio thành text
      * 
-     * Luồng xử lý:
-     * 1. Tìm file recording trên S3 theo filename
-     * 2. Kiểm tra transcript đã tồn tại chưa
-     * 3. Nếu có -> trả về nội dung transcript
-     * 4. Nếu chưa -> download audio từ S3, gọi OpenAI API, lưu transcript lên S3
+     * Nếu transcript đã có trên S3 trả về 200 ngay. Ngược lại đưa recording vào hàng đợi
+     * transcription (ưu tiên INTERACTIVE) và trả về 202 kèm jobId, không giữ request chờ;
+     * client theo dõi qua GET /api/web-call/transcribe-jobs/{jobId}/result.
      * 
      * @param filename Tên file recording (vd: call_user_3_to_user_1_xxx.webm)
      */
@@ -427,88 +427,162 @@ public class WebCallApiController {
             @RequestBody Map<String, String> request,
             @AuthenticationPrincipal UserDetails userDetails) {
         try {
-            // Lấy s3Key hoặc recordingKey/filename từ request
-            String s3Key = request.get("s3Key");
-            String recordingKey = request.get("recordingKey");
-            String filename = request.get("filename");
+            ResponseEntity<?> resolved = resolveRecordingKey(request);
+            if (!resolved.getStatusCode().is2xxSuccessful()) {
+                return resolved;
+            }
+            String actualRecordingKey = (String) resolved.getBody();
+            logger.info("Using S3 key for transcription: {}", actualRecordingKey);
             
-            // Xác định actualRecordingKey
-            String actualRecordingKey;
-            
-            if (s3Key != null && !s3Key.isEmpty()) {
-                // Web call - dùng s3Key trực tiếp
-                actualRecordingKey = s3Key;
-            } else {
-                // AI call - extract filename và tìm trên S3
-                if (filename == null && recordingKey != null) {
-                    // recordingKey có thể là "recordings/filename" hoặc full path
-                    filename = recordingKey;
-                    if (filename.contains("/")) {
-                        filename = filename.substring(filename.lastIndexOf("/") + 1);
-                    }
-                }
-                
-                if (filename == null || filename.isEmpty()) {
-                    return ResponseEntity.badRequest()
-                        .body(Map.of("error", "s3Key, filename hoặc recordingKey là bắt buộc"));
-                }
-                
-                logger.info("Transcribe request for filename: {}", filename);
-                
-                // Tìm file recording trên S3
-                actualRecordingKey = s3Service.findRecordingKeyByFilename(filename);
-                if (actualRecordingKey == null) {
-                    return ResponseEntity.status(HttpStatus.NOT_FOUND)
-                        .body(Map.of("error", "Không tìm thấy file recording: " + filename));
-                }
+            ResponseEntity<?> existing = existingTranscript(actualRecordingKey);
+            if (existing != null) {
+                return existing;
             }
             
-            logger.info("Using S3 key for transcription: {}", actualRecordingKey);
+            TranscriptionJobDTO job = transcriptionJobService.submit(actualRecordingKey,
+                    TranscriptionJobService.Priority.INTERACTIVE);
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(job);
             
-            // Tạo transcript key từ recording key
-            String transcriptKey = "transcripts/" + 
-                actualRecordingKey.substring(actualRecordingKey.lastIndexOf("/") + 1)
-                    .replaceAll("\\.(webm|mp3|wav|ogg|m4a)$", ".txt");
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .body(Map.of("error", e.getMessage()));
+        } catch (Exception e) {
+            logger.error("Error transcribing recording", e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                .body(Map.of("error", "Lỗi khi transcribe: " + e.getMessage()));
+        }
+    }
+    
+    /**
+     * Tạo job transcription (không chờ kết quả)
+     * 
+     * Request body: { "s3Key" | "recordingKey" | "filename": ..., "priority": "INTERACTIVE|BACKFILL" }
+     * Response 202: trạng thái job (jobId, status, queuePosition...)
+     */
+    @PostMapping("/transcribe-jobs")
+    public ResponseEntity<?> submitTranscriptionJob(@RequestBody Map<String, String> request) {
+        try {
+            ResponseEntity<?> resolved = resolveRecordingKey(request);
+            if (!resolved.getStatusCode().is2xxSuccessful()) {
+                return resolved;
+            }
+            TranscriptionJobService.Priority priority = "BACKFILL".equalsIgnoreCase(request.get("priority"))
+                    ? TranscriptionJobService.Priority.BACKFILL
+                    : TranscriptionJobService.Priority.INTERACTIVE;
             
-            // Kiểm tra transcript đã tồn tại chưa
-            if (s3Service.doesFileExist(transcriptKey)) {
-                logger.info("Transcript đã tồn tại: {}", transcriptKey);
-                String transcript = s3Service.downloadTextContent(transcriptKey);
+            TranscriptionJobDTO job = transcriptionJobService.submit((String) resolved.getBody(), priority);
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(job);
+            
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .body(Map.of("error", e.getMessage()));
+        } catch (Exception e) {
+            logger.error("Error submitting transcription job", e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                .body(Map.of("error", "Lỗi khi tạo job transcribe: " + e.getMessage()));
+        }
+    }
+    
+    /**
+     * Trạng thái job transcription
+     */
+    @GetMapping("/transcribe-jobs/{jobId}")
+    public ResponseEntity<?> getTranscriptionJob(@PathVariable String jobId) {
+        return transcriptionJobService.getJob(jobId)
+            .<ResponseEntity<?>>map(ResponseEntity::ok)
+            .orElseGet(() -> ResponseEntity.status(HttpStatus.NOT_FOUND)
+                .body(Map.of("error", "Không tìm thấy job: " + jobId)));
+    }
+    
+    /**
+     * Kết quả job transcription
+     * 200 khi đã xong, 202 khi đang chờ/chạy, 500 khi thất bại,
+     * 410 khi job đã hết hạn mà transcript không còn (client submit lại)
+     */
+    @GetMapping("/transcribe-jobs/{jobId}/result")
+    public ResponseEntity<?> getTranscriptionResult(@PathVariable String jobId) {
+        TranscriptionJobDTO job = transcriptionJobService.getJob(jobId).orElse(null);
+        if (job == null) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                .body(Map.of("error", "Không tìm thấy job: " + jobId));
+        }
+        switch (job.getStatus()) {
+            case "COMPLETED":
                 return ResponseEntity.ok(Map.of(
                     "success", true,
-                    "transcript", transcript,
-                    "transcriptKey", transcriptKey,
-                    "cached", true
+                    "transcript", job.getTranscript(),
+                    "transcriptKey", job.getTranscriptKey(),
+                    "cached", Boolean.TRUE.equals(job.getCached())
                 ));
+            case "FAILED":
+                return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(Map.of("error", "Lỗi khi transcribe: " + job.getError()));
+            case "EXPIRED":
+                ResponseEntity<?> existing = existingTranscript(job.getRecordingKey());
+                return existing != null ? existing : ResponseEntity.status(HttpStatus.GONE)
+                    .body(Map.of("error", "Job đã hết hạn, vui lòng transcribe lại", "status", job.getStatus()));
+            default:
+                return ResponseEntity.status(HttpStatus.ACCEPTED).body(job);
+        }
+    }
+    
+    /**
+     * Transcript đã lưu trên S3 của recording (200), hoặc null nếu chưa có / không đọc được
+     */
+    private ResponseEntity<?> existingTranscript(String recordingKey) {
+        String transcriptKey = TranscriptionJobService.transcriptKeyOf(recordingKey);
+        try {
+            if (!s3Service.doesFileExist(transcriptKey)) {
+                return null;
             }
-            
-            // Download audio từ S3
-            logger.info("Downloading audio from S3: {}", actualRecordingKey);
-            byte[] audioBytes = s3Service.downloadFileBytes(actualRecordingKey);
-            
-            // Xác định filename để gửi đến ASR service
-            String audioFilename = actualRecordingKey.substring(actualRecordingKey.lastIndexOf("/") + 1);
-            
-            // Gọi self-hosted Whisper ASR Service để transcribe
-            logger.info("Calling self-hosted Whisper ASR to transcribe {} bytes ({})", audioBytes.length, audioFilename);
-            String transcript = whisperASRService.transcribeBytes(audioBytes, audioFilename, "vi");
-            
-            // Lưu transcript lên S3
-            logger.info("Saving transcript to S3: {}", transcriptKey);
-            s3Service.uploadTextContent(transcript, transcriptKey);
-            
             return ResponseEntity.ok(Map.of(
                 "success", true,
-                "transcript", transcript,
+                "transcript", s3Service.downloadTextContent(transcriptKey),
                 "transcriptKey", transcriptKey,
-                "cached", false
+                "cached", true
             ));
-            
-        } catch (Exception e) {
-            logger.error("Error transcribing recording", e);
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
-                .body(Map.of("error", "Lỗi khi transcribe: " + e.getMessage()));
+        } catch (IOException e) {
+            logger.warn("Could not read transcript {}: {}", transcriptKey, e.getMessage());
+            return null;
+        }
+    }
+    
+    /**
+     * Xác định S3 key của recording từ request
+     * - s3Key: web call, dùng trực tiếp
+     * - recordingKey/filename: AI call, tìm theo tên file
+     * Trả về 200 với key trong body, hoặc response lỗi (400/404)
+     */
+    private ResponseEntity<?> resolveRecordingKey(Map<String, String> request) {
+        String s3Key = request.get("s3Key");
+        String recordingKey = request.get("recordingKey");
+        String filename = request.get("filename");
+        
+        if (s3Key != null && !s3Key.isEmpty()) {
+            return ResponseEntity.ok(s3Key);
+        }
+        
+        if (filename == null && recordingKey != null) {
+            // recordingKey có thể là "recordings/filename" hoặc full path
+            filename = recordingKey;
+            if (filename.contains("/")) {
+                filename = filename.substring(filename.lastIndexOf("/") + 1);
+            }
+        }
+        
+        if (filename == null || filename.isEmpty()) {
+            return ResponseEntity.badRequest()
+                .body(Map.of("error", "s3Key, filename hoặc recordingKey là bắt buộc"));
+        }
+        
+        logger.info("Transcribe request for filename: {}", filename);
+        
+        String actualRecordingKey = s3Service.findRecordingKeyByFilename(filename);
+        if (actualRecordingKey == null) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                .body(Map.of("error", "Không tìm thấy file recording: " + filename));
         }
+        return ResponseEntity.ok(actualRecordingKey);
     }
     
     /**
@@ -0,0 +1,19 @@
+package com.g4.capstoneproject.dto;
+
+import com.g4.capstoneproject.entity.User;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Số tài khoản theo (role, isActive), kết quả của một câu GROUP BY
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class AccountCountRow {
+
+    private User.UserRole role;
+    private Boolean isActive;
+    private long count;
+}
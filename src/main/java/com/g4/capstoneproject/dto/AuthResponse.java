@@ -20,6 +20,8 @@ public class AuthResponse {
     private String email;
     private String phone;
     private User.UserRole role;
+    // users.security_version của user đăng nhập, mang theo vào principal
+    private Long securityVersion;
     private String message;
     private Boolean success;
 }
@@ -48,6 +48,24 @@ public class NotificationDTO {
                 .build();
     }
     
+    /**
+     * Copy of a (cached) DTO with timeAgo recomputed for the current time
+     */
+    public static NotificationDTO copyOf(NotificationDTO dto) {
+        return NotificationDTO.builder()
+                .id(dto.getId())
+                .notificationType(dto.getNotificationType())
+                .title(dto.getTitle())
+                .content(dto.getContent())
+                .referenceId(dto.getReferenceId())
+                .referenceType(dto.getReferenceType())
+                .isRead(dto.getIsRead())
+                .createdAt(dto.getCreatedAt())
+                .readAt(dto.getReadAt())
+                .timeAgo(calculateTimeAgo(dto.getCreatedAt()))
+                .build();
+    }
+    
     /**
      * Calculate "time ago" string from LocalDateTime
      */
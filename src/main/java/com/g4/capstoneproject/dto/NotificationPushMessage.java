@@ -0,0 +1,47 @@
+package com.g4.capstoneproject.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Message đẩy tới client qua /user/queue/notifications
+ * Mỗi message mang số thông báo chưa đọc hiện tại để client cập nhật badge
+ * mà không cần gọi /api/notifications/unread-count
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class NotificationPushMessage {
+
+    /**
+     * Loại sự kiện
+     */
+    public enum Event {
+        CREATED, // Thông báo mới
+        READ, // Một thông báo được đánh dấu đã đọc
+        READ_ALL, // Tất cả thông báo được đánh dấu đã đọc
+        DELETED // Thông báo bị xóa
+    }
+
+    private Event event;
+
+    /**
+     * Thông báo liên quan (chỉ có khi CREATED)
+     */
+    private NotificationDTO notification;
+
+    /**
+     * ID thông báo bị đọc/xóa (READ, DELETED)
+     */
+    private Long notificationId;
+
+    /**
+     * Số thông báo chưa đọc sau sự kiện
+     */
+    private Long unreadCount;
+
+    private Long timestamp;
+}
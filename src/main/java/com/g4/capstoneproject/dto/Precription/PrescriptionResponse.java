@@ -70,4 +70,25 @@ public class PrescriptionResponse {
                                                 : 0)
                                 .build();
         }
+
+        /**
+         * Convert cached PrescriptionSummary to PrescriptionResponse DTO
+         */
+        public static PrescriptionResponse fromSummary(PrescriptionSummary prescription) {
+                return PrescriptionResponse.builder()
+                                .id(prescription.id())
+                                .prescriptionDate(prescription.prescriptionDate())
+                                .diagnosis(prescription.diagnosis())
+                                .notes(prescription.notes())
+                                .status(prescription.status())
+                                .patientId(prescription.patientId())
+                                .patientName(prescription.patientName())
+                                .patientPhone(prescription.patientPhone())
+                                .doctorId(prescription.doctorId())
+                                .doctorName(prescription.doctorName())
+                                .createdAt(prescription.createdAt())
+                                .updatedAt(prescription.updatedAt())
+                                .medicationCount(prescription.medicationCount())
+                                .build();
+        }
 }
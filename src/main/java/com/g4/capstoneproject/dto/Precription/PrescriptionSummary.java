@@ -0,0 +1,26 @@
+package com.g4.capstoneproject.dto.Precription;
+
+import com.g4.capstoneproject.entity.Prescription;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * Một đơn thuốc trong danh sách theo bệnh nhân/bác sĩ (bất biến, được cache thay cho entity)
+ * Được tạo trực tiếp bởi JPQL constructor expression, kèm tên bệnh nhân/bác sĩ và số thuốc
+ */
+public record PrescriptionSummary(
+        Long id,
+        LocalDate prescriptionDate,
+        String diagnosis,
+        String notes,
+        Prescription.PrescriptionStatus status,
+        Long patientId,
+        String patientName,
+        String patientPhone,
+        Long doctorId,
+        String doctorName,
+        Integer medicationCount,
+        LocalDateTime createdAt,
+        LocalDateTime updatedAt) {
+}
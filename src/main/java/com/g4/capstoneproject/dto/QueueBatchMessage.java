@@ -0,0 +1,31 @@
+package com.g4.capstoneproject.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * DTO for batched Queue Updates via WebSocket
+ * One message per broadcast tick, carrying every coalesced delta of that tick
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class QueueBatchMessage {
+
+    /**
+     * Id of the app node that published the batch (several nodes share /topic/queue behind a broker relay)
+     */
+    private String source;
+
+    /**
+     * Monotonic sequence number per source, increases by one per published batch
+     */
+    private Long sequence;
+    private Long timestamp;
+    private List<QueueUpdateMessage> updates;
+}
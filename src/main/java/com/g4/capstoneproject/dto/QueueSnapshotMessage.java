@@ -0,0 +1,25 @@
+package com.g4.capstoneproject.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * DTO for Queue Snapshot via WebSocket
+ * Current queue state as of a batch sequence number, used by late subscribers to resync.
+ * Batches from the same source with sequence <= this sequence are already reflected in the snapshot.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class QueueSnapshotMessage {
+
+    private String source;
+    private Long sequence;
+    private Long timestamp;
+    private List<QueueUpdateMessage> tickets;
+}
@@ -0,0 +1,30 @@
+package com.g4.capstoneproject.dto.Ticket;
+
+import com.g4.capstoneproject.entity.Ticket;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Projection gọn cho một dòng trong hàng đợi / hàng đợi retry
+ * Được tạo trực tiếp bởi JPQL constructor expression, không load entity Ticket và các User EAGER
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class TicketQueueRow {
+
+    private Long id;
+    private String title;
+    private Ticket.Priority priority;
+    private Ticket.Status status;
+    private Integer retryCount;
+    private LocalDateTime createdAt;
+    private LocalDateTime updatedAt;
+
+    // Patient info
+    private Long patientId;
+    private String patientName;
+}
@@ -0,0 +1,21 @@
+package com.g4.capstoneproject.dto.Ticket;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Thống kê hàng đợi ticket, tính bằng một câu truy vấn aggregate
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class TicketQueueStats {
+
+    private long total;
+    private long open;
+    private long inProgress;
+    private long highPriority;
+    private long queue; // OPEN, chưa retry
+    private long retry; // OPEN, retryCount > 0
+}
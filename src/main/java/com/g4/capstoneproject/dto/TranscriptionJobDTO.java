@@ -0,0 +1,53 @@
+package com.g4.capstoneproject.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * DTO trạng thái job chuyển giọng nói thành văn bản
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class TranscriptionJobDTO {
+
+    private String jobId;
+    private String recordingKey;
+    private String transcriptKey;
+
+    /**
+     * INTERACTIVE (người dùng đang chờ) hoặc BACKFILL (xử lý nền)
+     */
+    private String priority;
+
+    /**
+     * QUEUED, RUNNING, COMPLETED, FAILED, EXPIRED (đã xong nhưng quá thời gian giữ kết quả)
+     */
+    private String status;
+
+    /**
+     * Chỉ có khi status = COMPLETED
+     */
+    private String transcript;
+
+    /**
+     * true nếu transcript đã có sẵn trên S3, không gọi ASR
+     */
+    private Boolean cached;
+
+    private String error;
+
+    /**
+     * Số job đứng trước trong hàng đợi (chỉ khi QUEUED)
+     */
+    private Integer queuePosition;
+
+    private LocalDateTime submittedAt;
+    private LocalDateTime startedAt;
+    private LocalDateTime completedAt;
+}
@@ -54,4 +54,24 @@ public class TreatmentPlanResponse {
                 .checkupCount(0) // CheckupSchedule entity removed in schema v4.0
                 .build();
     }
+
+    /**
+     * Convert cached summary to DTO
+     */
+    public static TreatmentPlanResponse fromSummary(TreatmentPlanSummary plan) {
+        return TreatmentPlanResponse.builder()
+                .id(plan.id())
+                .patientName(plan.patientName() != null ? plan.patientName() : "N/A")
+                .patientPhone(plan.patientPhone() != null ? plan.patientPhone() : "")
+                .doctorName(plan.doctorName() != null ? plan.doctorName() : "N/A")
+                .diagnosis(plan.diagnosis())
+                .treatmentGoal(plan.treatmentGoal())
+                .startDate(plan.startDate())
+                .expectedEndDate(plan.expectedEndDate())
+                .status(plan.status())
+                .aiSuggested(plan.aiSuggested())
+                .itemCount(plan.itemCount() != null ? plan.itemCount() : 0)
+                .checkupCount(0) // CheckupSchedule entity removed in schema v4.0
+                .build();
+    }
 }
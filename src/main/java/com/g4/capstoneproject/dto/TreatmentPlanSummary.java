@@ -0,0 +1,28 @@
+package com.g4.capstoneproject.dto;
+
+import com.g4.capstoneproject.entity.TreatmentPlan;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * Một treatment plan trong danh sách theo bệnh nhân/bác sĩ (bất biến, được cache thay cho entity)
+ * Được tạo trực tiếp bởi JPQL constructor expression, tên bệnh nhân/bác sĩ và số item
+ * được lấy ngay trong câu truy vấn nên không cần session để đọc
+ */
+public record TreatmentPlanSummary(
+        Long id,
+        Long patientId,
+        String patientName,
+        String patientPhone,
+        Long doctorId,
+        String doctorName,
+        String diagnosis,
+        String treatmentGoal,
+        LocalDate startDate,
+        LocalDate expectedEndDate,
+        TreatmentPlan.PlanStatus status,
+        Boolean aiSuggested,
+        Integer itemCount,
+        LocalDateTime createdAt) {
+}
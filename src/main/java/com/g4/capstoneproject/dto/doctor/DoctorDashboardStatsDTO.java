@@ -0,0 +1,25 @@
+package com.g4.capstoneproject.dto.doctor;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Số liệu dashboard bác sĩ (GET /doctor/api/stats)
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class DoctorDashboardStatsDTO {
+
+    private long totalPatients;
+    private long activePatients;
+    private long completedPatients;
+    private long pendingPatients;
+    private long urgentAlerts;
+    private long todayAppointments;
+    private long totalPrescriptions;
+    private long pendingTickets;
+}
@@ -0,0 +1,27 @@
+package com.g4.capstoneproject.dto.doctor;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Một trang danh sách bệnh nhân của bác sĩ (keyset pagination)
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class DoctorPatientPage {
+
+    private List<DoctorPatientRow> items;
+
+    /**
+     * Truyền lại qua ?cursor= để lấy trang kế tiếp, null nếu đã hết
+     */
+    private String nextCursor;
+
+    private boolean hasMore;
+}
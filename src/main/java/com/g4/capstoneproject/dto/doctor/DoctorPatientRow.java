@@ -0,0 +1,51 @@
+package com.g4.capstoneproject.dto.doctor;
+
+import com.g4.capstoneproject.entity.TreatmentPlan;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * Một bệnh nhân trong danh sách của bác sĩ, kèm kế hoạch điều trị mới nhất
+ * Được tạo trực tiếp bởi JPQL constructor expression (treatment_plans + users + user_info)
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class DoctorPatientRow {
+
+    private Long id; // patient ID
+    private String fullName;
+    private String email;
+    private String phone;
+
+    // Kế hoạch điều trị mới nhất của bệnh nhân với bác sĩ này
+    private Long treatmentPlanId;
+    private String diagnosis;
+    private String status;
+    private LocalDate startDate;
+    private LocalDate endDate;
+    private LocalDateTime lastUpdated;
+    private LocalDateTime createdAt;
+
+    public DoctorPatientRow(Long id, String fullName, String email, String phone,
+                            Long treatmentPlanId, String diagnosis, TreatmentPlan.PlanStatus status,
+                            LocalDate startDate, LocalDate endDate,
+                            LocalDateTime lastUpdated, LocalDateTime createdAt) {
+        this(id, fullName, email, phone, treatmentPlanId, diagnosis,
+                status != null ? status.name() : TreatmentPlan.PlanStatus.DRAFT.name(),
+                startDate, endDate, lastUpdated, createdAt);
+    }
+
+    /**
+     * Bệnh nhân chưa có kế hoạch điều trị
+     */
+    public DoctorPatientRow(Long id, String fullName, String email, String phone,
+                            LocalDateTime lastUpdated, LocalDateTime createdAt) {
+        this(id, fullName, email, phone, null, null, TreatmentPlan.PlanStatus.DRAFT.name(),
+                null, null, lastUpdated, createdAt);
+    }
+}
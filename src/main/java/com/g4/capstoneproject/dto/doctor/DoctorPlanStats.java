@@ -0,0 +1,21 @@
+package com.g4.capstoneproject.dto.doctor;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Thống kê kế hoạch điều trị của một bác sĩ, tính bằng một câu truy vấn aggregate
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class DoctorPlanStats {
+
+    private long totalPlans;
+    private long distinctPatients;
+    private long active;
+    private long completed;
+    private long draft;
+    private long startingToday; // startDate = hôm nay
+}
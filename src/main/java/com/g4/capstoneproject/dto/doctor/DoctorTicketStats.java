@@ -0,0 +1,17 @@
+package com.g4.capstoneproject.dto.doctor;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Thống kê ticket được giao cho một bác sĩ, tính bằng một câu truy vấn aggregate
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class DoctorTicketStats {
+
+    private long open;
+    private long urgentOpen;
+}
@@ -24,6 +24,7 @@ public class KnowledgeArticleResponse {
     private LocalDateTime publishedAt;
     private LocalDateTime createdAt;
     private LocalDateTime updatedAt;
+    private String snippet; // Search results only: excerpt with <mark> highlights
 
     public static KnowledgeArticleResponse fromEntity(KnowledgeArticle article) {
         if (article == null)
@@ -0,0 +1,12 @@
+package com.g4.capstoneproject.dto.response;
+
+import lombok.*;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class KnowledgeTagCountResponse {
+    private String tag;
+    private long count; // Published articles carrying this tag
+}
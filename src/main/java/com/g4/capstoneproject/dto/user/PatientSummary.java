@@ -0,0 +1,31 @@
+package com.g4.capstoneproject.dto.user;
+
+import com.g4.capstoneproject.entity.Gender;
+import com.g4.capstoneproject.entity.User;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * Thông tin một bệnh nhân trong danh sách (bất biến, được cache thay cho entity User)
+ * Được tạo trực tiếp bởi JPQL constructor expression (users + user_info)
+ */
+public record PatientSummary(
+        Long id,
+        String email,
+        String phoneNumber,
+        String fullName,
+        LocalDate dateOfBirth,
+        Gender gender,
+        String address,
+        Boolean isActive,
+        LocalDateTime createdAt) {
+
+    /**
+     * Từ entity đã nạp sẵn userInfo
+     */
+    public static PatientSummary from(User user) {
+        return new PatientSummary(user.getId(), user.getEmail(), user.getPhoneNumber(), user.getFullName(),
+                user.getDateOfBirth(), user.getGender(), user.getAddress(), user.getIsActive(), user.getCreatedAt());
+    }
+}
@@ -0,0 +1,25 @@
+package com.g4.capstoneproject.dto.user;
+
+import com.g4.capstoneproject.entity.User.UserRole;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Thông tin tối thiểu của một người dùng cho autocomplete
+ * (nạp vào prefix index trong bộ nhớ, không kèm entity)
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class UserSearchRow {
+
+    private Long id;
+    private String fullName;
+    private String email;
+    private String phone;
+    private UserRole role;
+    private Boolean isActive;
+}
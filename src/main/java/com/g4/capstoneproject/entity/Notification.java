@@ -11,8 +11,8 @@ import java.time.LocalDateTime;
  */
 @Entity
 @Table(name = "notifications", indexes = {
-    @Index(name = "idx_notification_user", columnList = "user_id"),
-    @Index(name = "idx_notification_read", columnList = "is_read"),
+    @Index(name = "idx_notification_user_created", columnList = "user_id, created_at"),
+    @Index(name = "idx_notification_user_read_created", columnList = "user_id, is_read, created_at"),
     @Index(name = "idx_notification_created", columnList = "created_at")
 })
 @Data
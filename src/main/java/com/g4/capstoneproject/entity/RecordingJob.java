@@ -0,0 +1,83 @@
+package com.g4.capstoneproject.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+import org.hibernate.annotations.CreationTimestamp;
+import org.hibernate.annotations.UpdateTimestamp;
+
+import java.time.LocalDateTime;
+
+/**
+ * Entity RecordingJob - Job xử lý file ghi âm từ webhook Stringee
+ * Mỗi call_id chỉ có một job (idempotency khi Stringee gửi lại webhook)
+ */
+@Entity
+@Table(name = "recording_jobs", uniqueConstraints = {
+    @UniqueConstraint(name = "uk_recording_job_call", columnNames = "call_id")
+}, indexes = {
+    @Index(name = "idx_recording_job_claim", columnList = "status, next_attempt_at")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class RecordingJob {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    /**
+     * Stringee Call ID
+     */
+    @Column(name = "call_id", nullable = false, length = 100)
+    private String callId;
+
+    /**
+     * URL file ghi âm phía Stringee
+     */
+    @Column(name = "recording_url", nullable = false, length = 1000)
+    private String recordingUrl;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "status", nullable = false, length = 20)
+    @Builder.Default
+    private Status status = Status.PENDING;
+
+    /**
+     * S3 Key sau khi lưu file (có giá trị từ stage STORED trở đi)
+     */
+    @Column(name = "s3_key", length = 500)
+    private String s3Key;
+
+    @Builder.Default
+    @Column(name = "attempts", nullable = false)
+    private Integer attempts = 0;
+
+    @Column(name = "last_error", length = 1000)
+    private String lastError;
+
+    /**
+     * Thời điểm sớm nhất job được lấy ra xử lý (backoff khi retry)
+     */
+    @Column(name = "next_attempt_at")
+    private LocalDateTime nextAttemptAt;
+
+    @CreationTimestamp
+    @Column(name = "created_at", updatable = false)
+    private LocalDateTime createdAt;
+
+    @UpdateTimestamp
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+
+    /**
+     * Trạng thái job
+     */
+    public enum Status {
+        PENDING,        // Chờ worker lấy
+        PROCESSING,     // Worker đang xử lý
+        COMPLETED,      // Đã lưu S3 và cập nhật cuộc gọi
+        FAILED          // Hết số lần thử
+    }
+}
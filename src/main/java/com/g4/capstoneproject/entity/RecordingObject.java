@@ -0,0 +1,67 @@
+package com.g4.capstoneproject.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.Instant;
+
+/**
+ * Entity RecordingObject - Index metadata của file ghi âm trên S3 (folder voice/)
+ * Ghi khi upload và được đối soát định kỳ với S3, để tra cứu theo filename,
+ * user, cuộc gọi, khoảng thời gian mà không cần listObjectsV2
+ */
+@Entity
+@Table(name = "recording_objects", uniqueConstraints = {
+    @UniqueConstraint(name = "uk_recording_object_key", columnNames = "s3_key")
+}, indexes = {
+    @Index(name = "idx_recording_object_filename", columnList = "filename"),
+    @Index(name = "idx_recording_object_user", columnList = "user_id, last_modified"),
+    @Index(name = "idx_recording_object_call", columnList = "call_id"),
+    @Index(name = "idx_recording_object_modified", columnList = "last_modified")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class RecordingObject {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "s3_key", nullable = false, length = 500)
+    private String s3Key;
+
+    /**
+     * Phần cuối của key (tên file)
+     */
+    @Column(name = "filename", nullable = false, length = 255)
+    private String filename;
+
+    /**
+     * User sở hữu (folder voice/{userId}/ hoặc user upload), có thể null
+     */
+    @Column(name = "user_id", length = 100)
+    private String userId;
+
+    /**
+     * Call ID (Stringee hoặc web call), có thể null
+     */
+    @Column(name = "call_id", length = 100)
+    private String callId;
+
+    /**
+     * caller, receiver, combined, stringee...
+     */
+    @Column(name = "recording_type", length = 20)
+    private String recordingType;
+
+    @Column(name = "content_type", length = 100)
+    private String contentType;
+
+    @Column(name = "size_bytes")
+    private Long sizeBytes;
+
+    @Column(name = "last_modified", nullable = false)
+    private Instant lastModified;
+}
@@ -15,7 +15,8 @@ import java.time.LocalDateTime;
         @Index(name = "idx_ticket_status", columnList = "status"),
         @Index(name = "idx_ticket_assigned", columnList = "assigned_to_id"),
         @Index(name = "idx_ticket_patient", columnList = "patient_id"),
-        @Index(name = "idx_ticket_priority", columnList = "priority")
+        @Index(name = "idx_ticket_priority", columnList = "priority"),
+        @Index(name = "idx_ticket_queue", columnList = "status, retry_count, priority, created_at")
 })
 @Data
 @NoArgsConstructor
@@ -12,11 +12,14 @@ import java.util.List;
 
 /**
  * Entity TreatmentPlan - Kế hoạch điều trị (được hỗ trợ bởi AI)
+ *
+ * Index keyset của roster (doctor_id, COALESCE(updated_at, created_at), id) là index biểu thức,
+ * @Index không khai báo được: tạo bằng migration V20261021 (chạy tay)
  */
 @Entity
 @Table(name = "treatment_plans", indexes = {
     @Index(name = "idx_plan_patient", columnList = "patient_id"),
-    @Index(name = "idx_plan_doctor", columnList = "doctor_id"),
+    @Index(name = "idx_plan_doctor_patient", columnList = "doctor_id, patient_id, id"),
     @Index(name = "idx_plan_status", columnList = "status")
 })
 @Data
@@ -97,6 +97,14 @@ public class User {
     @Column(name = "last_login")
     private LocalDateTime lastLogin;
     
+    /**
+     * Tăng mỗi khi role/trạng thái/thông tin bị đổi bởi người khác (admin); principal trong
+     * session mang version lúc được tạo, nhỏ hơn giá trị này thì phải load lại (PrincipalInvalidator)
+     * Null ở bản ghi cũ được coi là 0
+     */
+    @Column(name = "security_version")
+    private Long securityVersion;
+    
     /**
      * Enum cho vai trò người dùng
      */
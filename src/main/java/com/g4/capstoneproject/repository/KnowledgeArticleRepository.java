@@ -11,6 +11,7 @@ import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -39,36 +40,98 @@ public interface KnowledgeArticleRepository extends JpaRepository<KnowledgeArtic
                         "ORDER BY a.publishedAt DESC")
         Page<KnowledgeArticle> findPublishedArticles(Pageable pageable);
 
-        // Full-text search in title and content (with optional status)
+        // Full-text search trên search_vector (index GIN), xếp hạng bằng ts_rank_cd
+        // query: chuỗi to_tsquery đã làm sạch; status rỗng / categoryId 0 = không lọc
+        // ts_headline chỉ chạy trên các dòng của trang hiện tại
+        @Query(value = "SELECT hit.id AS id, hit.score AS score, " +
+                        "ts_headline('vi_unaccent', regexp_replace(a.content, '<[^>]+>', ' ', 'g'), hit.q, " +
+                        "'StartSel=<mark>, StopSel=</mark>, MaxFragments=2, MaxWords=30, MinWords=10, FragmentDelimiter= ... ') AS snippet " +
+                        "FROM (SELECT a2.id AS id, CAST(ts_rank_cd(a2.search_vector, q) AS double precision) AS score, q " +
+                        "FROM knowledge_articles a2, to_tsquery('vi_unaccent', :query) q " +
+                        "WHERE a2.search_vector @@ q " +
+                        "AND (:status = '' OR CAST(a2.status AS TEXT) = :status) " +
+                        "AND (:categoryId = 0 OR a2.category_id = :categoryId) " +
+                        "ORDER BY score DESC, a2.id DESC LIMIT :limit OFFSET :offset) hit " +
+                        "JOIN knowledge_articles a ON a.id = hit.id " +
+                        "ORDER BY hit.score DESC, hit.id DESC", nativeQuery = true)
+        List<ArticleSearchHit> searchRanked(
+                        @Param("query") String query,
+                        @Param("status") String status,
+                        @Param("categoryId") Long categoryId,
+                        @Param("limit") int limit,
+                        @Param("offset") long offset);
+
+        // Tổng số kết quả của searchRanked
+        @Query(value = "SELECT COUNT(*) FROM knowledge_articles a " +
+                        "WHERE a.search_vector @@ to_tsquery('vi_unaccent', :query) " +
+                        "AND (:status = '' OR CAST(a.status AS TEXT) = :status) " +
+                        "AND (:categoryId = 0 OR a.category_id = :categoryId)", nativeQuery = true)
+        long countSearchRanked(
+                        @Param("query") String query,
+                        @Param("status") String status,
+                        @Param("categoryId") Long categoryId);
+
+        // Tìm kiếm LIKE trên title/content khi chưa có search_vector (không xếp hạng)
+        // pattern: đã escape ký tự LIKE và lower-case; status/categoryId null = không lọc
         @Query("SELECT a FROM KnowledgeArticle a " +
-                        "WHERE (a.title LIKE CONCAT('%', :keyword, '%') OR a.content LIKE CONCAT('%', :keyword, '%')) "
-                        +
+                        "WHERE (LOWER(a.title) LIKE :pattern OR LOWER(a.content) LIKE :pattern) " +
                         "AND (:status IS NULL OR a.status = :status) " +
+                        "AND (:categoryId IS NULL OR a.category.id = :categoryId) " +
                         "ORDER BY a.createdAt DESC")
         Page<KnowledgeArticle> searchByKeyword(
-                        @Param("keyword") String keyword,
+                        @Param("pattern") String pattern,
                         @Param("status") ArticleStatus status,
+                        @Param("categoryId") Long categoryId,
                         Pageable pageable);
 
-        // Search with category filter (with optional status)
+        /**
+         * Database đã có cột knowledge_articles.search_vector và cấu hình vi_unaccent hay chưa
+         * (migration V20261023 chạy tay, ddl-auto=update không tạo được)
+         */
+        @Query(value = "SELECT EXISTS (SELECT 1 FROM information_schema.columns " +
+                        "WHERE table_schema = current_schema() AND table_name = 'knowledge_articles' " +
+                        "AND column_name = 'search_vector') " +
+                        "AND EXISTS (SELECT 1 FROM pg_ts_config WHERE cfgname = 'vi_unaccent')", nativeQuery = true)
+        boolean hasFullTextSupport();
+
+        /**
+         * Database đã có bảng knowledge_article_tags và knowledge_article_related hay chưa
+         * (migration V20261024 chạy tay)
+         */
+        @Query(value = "SELECT (SELECT COUNT(*) FROM information_schema.tables " +
+                        "WHERE table_schema = current_schema() " +
+                        "AND table_name IN ('knowledge_article_tags', 'knowledge_article_related')) = 2",
+                        nativeQuery = true)
+        boolean hasTagTableSupport();
+
+        // Load articles theo ID kèm category và tác giả (kết quả tìm kiếm)
         @Query("SELECT a FROM KnowledgeArticle a " +
-                        "WHERE a.category.id = :categoryId " +
-                        "AND (a.title LIKE CONCAT('%', :keyword, '%') OR a.content LIKE CONCAT('%', :keyword, '%')) " +
-                        "AND (:status IS NULL OR a.status = :status) " +
-                        "ORDER BY a.createdAt DESC")
-        Page<KnowledgeArticle> searchByCategoryAndKeyword(
-                        @Param("categoryId") Long categoryId,
-                        @Param("keyword") String keyword,
-                        @Param("status") ArticleStatus status,
+                        "LEFT JOIN FETCH a.category " +
+                        "LEFT JOIN FETCH a.createdBy u LEFT JOIN FETCH u.userInfo " +
+                        "WHERE a.id IN :ids")
+        List<KnowledgeArticle> findAllByIdWithDetails(@Param("ids") Collection<Long> ids);
+
+        // Find articles by tag (bảng knowledge_article_tags, tag đã trim + chữ thường)
+        @Query(value = "SELECT a.* FROM knowledge_articles a " +
+                        "JOIN knowledge_article_tags t ON t.article_id = a.id " +
+                        "WHERE t.tag = :tag AND CAST(a.status AS TEXT) = :status " +
+                        "ORDER BY a.created_at DESC",
+                        countQuery = "SELECT COUNT(*) FROM knowledge_articles a " +
+                                        "JOIN knowledge_article_tags t ON t.article_id = a.id " +
+                                        "WHERE t.tag = :tag AND CAST(a.status AS TEXT) = :status",
+                        nativeQuery = true)
+        Page<KnowledgeArticle> findByTag(
+                        @Param("tag") String tag,
+                        @Param("status") String status,
                         Pageable pageable);
 
-        // Find articles by tag
+        // Find articles by tag trên cột tags (khi chưa có knowledge_article_tags)
         @Query("SELECT a FROM KnowledgeArticle a " +
                         "WHERE a.status = :status " +
-                        "AND a.tags LIKE CONCAT('%', :tag, '%') " +
+                        "AND LOWER(a.tags) LIKE :pattern " +
                         "ORDER BY a.createdAt DESC")
-        Page<KnowledgeArticle> findByTag(
-                        @Param("tag") String tag,
+        Page<KnowledgeArticle> findByTagLike(
+                        @Param("pattern") String pattern,
                         @Param("status") ArticleStatus status,
                         Pageable pageable);
 
@@ -84,11 +147,15 @@ public interface KnowledgeArticleRepository extends JpaRepository<KnowledgeArtic
                         "ORDER BY a.publishedAt DESC")
         List<KnowledgeArticle> findRecentPublished(Pageable pageable);
 
-        // Increment view count
+        // Cộng dồn lượt xem cho nhiều bài viết trong một câu UPDATE
+        // ids/deltas: danh sách phân tách bằng dấu phẩy, cùng thứ tự
         @Modifying
         @Transactional
-        @Query("UPDATE KnowledgeArticle a SET a.views = a.views + 1 WHERE a.id = :id")
-        void incrementViews(@Param("id") Long id);
+        @Query(value = "UPDATE knowledge_articles a SET views = a.views + d.delta " +
+                        "FROM unnest(CAST(string_to_array(:ids, ',') AS bigint[]), " +
+                        "CAST(string_to_array(:deltas, ',') AS int[])) AS d(id, delta) " +
+                        "WHERE a.id = d.id", nativeQuery = true)
+        int addViews(@Param("ids") String ids, @Param("deltas") String deltas);
 
         // Count articles by status
         long countByStatus(ArticleStatus status);
@@ -100,25 +167,24 @@ public interface KnowledgeArticleRepository extends JpaRepository<KnowledgeArtic
         long countByCreatedById(Long authorId);
 
         // Get all unique tags
-        @Query(value = "SELECT DISTINCT TRIM(value) as tag FROM knowledge_articles " +
-                        "CROSS JOIN JSON_TABLE(CONCAT('[\"', REPLACE(tags, ',', '\",\"'), '\"]'), '$[*]' " +
-                        "COLUMNS(value VARCHAR(100) PATH '$')) AS jt " +
-                        "WHERE tags IS NOT NULL AND tags != '' " +
-                        "ORDER BY tag", nativeQuery = true)
+        @Query(value = "SELECT DISTINCT tag FROM knowledge_article_tags ORDER BY tag", nativeQuery = true)
         List<String> findAllTags();
 
-        // Alternative: Get tags using string manipulation (if MySQL version doesn't
-        // support JSON_TABLE)
-        @Query(value = "SELECT DISTINCT SUBSTRING_INDEX(SUBSTRING_INDEX(a.tags, ',', numbers.n), ',', -1) as tag " +
-                        "FROM knowledge_articles a " +
-                        "INNER JOIN (SELECT 1 n UNION SELECT 2 UNION SELECT 3 UNION SELECT 4 UNION SELECT 5 " +
-                        "UNION SELECT 6 UNION SELECT 7 UNION SELECT 8 UNION SELECT 9 UNION SELECT 10) numbers " +
-                        "ON CHAR_LENGTH(a.tags) - CHAR_LENGTH(REPLACE(a.tags, ',', '')) >= numbers.n - 1 " +
-                        "WHERE a.tags IS NOT NULL AND a.tags != '' " +
-                        "ORDER BY tag", nativeQuery = true)
-        List<String> findAllTagsAlternative();
-
-        // Find related articles by tags
+        // Số bài viết đã xuất bản theo tag (tag cloud)
+        @Query(value = "SELECT t.tag AS tag, COUNT(*) AS count FROM knowledge_article_tags t " +
+                        "JOIN knowledge_articles a ON a.id = t.article_id " +
+                        "WHERE CAST(a.status AS TEXT) = 'PUBLISHED' " +
+                        "GROUP BY t.tag ORDER BY count DESC, t.tag", nativeQuery = true)
+        List<TagCount> findPublishedTagCounts();
+
+        // Cột tags (chuỗi phân tách bằng dấu phẩy) của các bài viết; status null = mọi trạng thái
+        // Dùng khi chưa có knowledge_article_tags, tách tag trong ứng dụng
+        @Query("SELECT a.tags FROM KnowledgeArticle a " +
+                        "WHERE a.tags IS NOT NULL AND a.tags <> '' " +
+                        "AND (:status IS NULL OR a.status = :status)")
+        List<String> findTagColumns(@Param("status") ArticleStatus status);
+
+        // Find related articles by tags (khi chưa có knowledge_article_related)
         @Query("SELECT a FROM KnowledgeArticle a " +
                         "WHERE a.id != :articleId " +
                         "AND a.status = 'PUBLISHED' " +
@@ -132,4 +198,68 @@ public interface KnowledgeArticleRepository extends JpaRepository<KnowledgeArtic
                         @Param("tag2") String tag2,
                         @Param("tag3") String tag3,
                         Pageable pageable);
+
+        // Related articles từ đồ thị knowledge_article_related (chỉ bài đã xuất bản)
+        @Query(value = "SELECT r.related_id FROM knowledge_article_related r " +
+                        "JOIN knowledge_articles a ON a.id = r.related_id " +
+                        "WHERE r.article_id = :articleId AND CAST(a.status AS TEXT) = 'PUBLISHED' " +
+                        "ORDER BY r.score DESC, a.views DESC, r.related_id DESC " +
+                        "LIMIT :limit", nativeQuery = true)
+        List<Long> findRelatedIds(@Param("articleId") Long articleId, @Param("limit") int limit);
+
+        // Mọi bài lân cận của một bài viết (không lọc trạng thái), dùng để xóa cache related
+        @Query(value = "SELECT related_id FROM knowledge_article_related WHERE article_id = :articleId",
+                        nativeQuery = true)
+        List<Long> findNeighbourIds(@Param("articleId") Long articleId);
+
+        // Xóa mọi cạnh của một bài viết trong đồ thị liên quan
+        @Modifying
+        @Transactional
+        @Query(value = "DELETE FROM knowledge_article_related " +
+                        "WHERE article_id = :articleId OR related_id = :articleId", nativeQuery = true)
+        int deleteRelatedEdges(@Param("articleId") Long articleId);
+
+        // Tính cạnh từ bài viết tới các bài có tag chung: số tag chung x 2, +1 nếu cùng danh mục
+        @Modifying
+        @Transactional
+        @Query(value = "INSERT INTO knowledge_article_related (article_id, related_id, score) " +
+                        "SELECT :articleId, t2.article_id, " +
+                        "COUNT(*) * 2 + CASE WHEN a1.category_id = a2.category_id THEN 1 ELSE 0 END " +
+                        "FROM knowledge_article_tags t1 " +
+                        "JOIN knowledge_article_tags t2 ON t2.tag = t1.tag AND t2.article_id <> t1.article_id " +
+                        "JOIN knowledge_articles a1 ON a1.id = t1.article_id " +
+                        "JOIN knowledge_articles a2 ON a2.id = t2.article_id " +
+                        "WHERE t1.article_id = :articleId " +
+                        "GROUP BY t2.article_id, a1.category_id, a2.category_id " +
+                        "ON CONFLICT (article_id, related_id) DO UPDATE SET score = EXCLUDED.score", nativeQuery = true)
+        int insertRelatedEdges(@Param("articleId") Long articleId);
+
+        // Cạnh chiều ngược lại (điểm đối xứng)
+        @Modifying
+        @Transactional
+        @Query(value = "INSERT INTO knowledge_article_related (article_id, related_id, score) " +
+                        "SELECT r.related_id, r.article_id, r.score FROM knowledge_article_related r " +
+                        "WHERE r.article_id = :articleId " +
+                        "ON CONFLICT (article_id, related_id) DO UPDATE SET score = EXCLUDED.score", nativeQuery = true)
+        int insertReverseRelatedEdges(@Param("articleId") Long articleId);
+
+        /**
+         * Tag và số bài viết mang tag đó
+         */
+        interface TagCount {
+                String getTag();
+
+                Long getCount();
+        }
+
+        /**
+         * Một kết quả full-text search: id bài viết, điểm liên quan và đoạn trích có thẻ &lt;mark&gt;
+         */
+        interface ArticleSearchHit {
+                Long getId();
+
+                Double getScore();
+
+                String getSnippet();
+        }
 }
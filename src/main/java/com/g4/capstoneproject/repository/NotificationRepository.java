@@ -9,7 +9,10 @@ import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
 /**
@@ -43,6 +46,13 @@ public interface NotificationRepository extends JpaRepository<Notification, Long
      */
     Page<Notification> findByUserIdOrderByCreatedAtDesc(Long userId, Pageable pageable);
     
+    /**
+     * Thông báo mới nhất của user, không kèm count query như Page
+     * Dùng index (user_id, created_at)
+     */
+    @Query("SELECT n FROM Notification n WHERE n.user.id = :userId ORDER BY n.createdAt DESC, n.id DESC")
+    List<Notification> findRecentByUserId(@Param("userId") Long userId, Pageable pageable);
+    
     /**
      * Đánh dấu tất cả đã đọc
      */
@@ -63,9 +73,23 @@ public interface NotificationRepository extends JpaRepository<Notification, Long
     long countByUserIdAndIsReadFalse(Long userId);
     
     /**
-     * Xóa thông báo cũ
+     * Lô thông báo hết hạn tiếp theo theo keyset (createdAt, id), cũ nhất trước
+     * Dùng index created_at, không quét lại các dòng đã xóa ở lô trước
+     */
+    @Query("SELECT n FROM Notification n WHERE n.notificationType = :type AND n.createdAt < :before " +
+           "AND (n.createdAt > :afterCreatedAt OR (n.createdAt = :afterCreatedAt AND n.id > :afterId)) " +
+           "ORDER BY n.createdAt ASC, n.id ASC")
+    List<Notification> findExpiredBatch(@Param("type") Notification.NotificationType type,
+                                        @Param("before") LocalDateTime before,
+                                        @Param("afterCreatedAt") LocalDateTime afterCreatedAt,
+                                        @Param("afterId") Long afterId,
+                                        Pageable pageable);
+    
+    /**
+     * Xóa một lô thông báo theo ID (mỗi lô một transaction ngắn)
      */
     @Modifying
-    @Query("DELETE FROM Notification n WHERE n.createdAt < :beforeDate")
-    void deleteOldNotifications(@Param("beforeDate") java.time.LocalDateTime beforeDate);
+    @Transactional
+    @Query("DELETE FROM Notification n WHERE n.id IN :ids")
+    int deleteByIdIn(@Param("ids") Collection<Long> ids);
 }
@@ -1,5 +1,6 @@
 package com.g4.capstoneproject.repository;
 
+import com.g4.capstoneproject.dto.Precription.PrescriptionSummary;
 import com.g4.capstoneproject.entity.Prescription;
 import com.g4.capstoneproject.entity.User;
 import org.springframework.data.domain.Page;
@@ -18,6 +19,15 @@ import java.util.List;
 @Repository
 public interface PrescriptionRepository extends JpaRepository<Prescription, Long> {
 
+    /**
+     * Dòng tóm tắt đơn thuốc kèm tên bệnh nhân/bác sĩ và số thuốc
+     */
+    String SUMMARY_SELECT = "SELECT new com.g4.capstoneproject.dto.Precription.PrescriptionSummary(" +
+            "rx.id, rx.prescriptionDate, rx.diagnosis, rx.notes, rx.status, " +
+            "p.id, pi.fullName, p.phoneNumber, d.id, di.fullName, SIZE(rx.details), rx.createdAt, rx.updatedAt) " +
+            "FROM Prescription rx JOIN rx.patient p LEFT JOIN p.userInfo pi " +
+            "JOIN rx.doctor d LEFT JOIN d.userInfo di ";
+
     /**
      * Tìm đơn thuốc theo bệnh nhân
      */
@@ -38,6 +48,18 @@ public interface PrescriptionRepository extends JpaRepository<Prescription, Long
      */
     List<Prescription> findByDoctorId(Long doctorId);
 
+    /**
+     * Tóm tắt đơn thuốc của bệnh nhân
+     */
+    @Query(SUMMARY_SELECT + "WHERE p.id = :patientId ORDER BY rx.id")
+    List<PrescriptionSummary> findSummariesByPatientId(@Param("patientId") Long patientId);
+
+    /**
+     * Tóm tắt đơn thuốc của bác sĩ
+     */
+    @Query(SUMMARY_SELECT + "WHERE d.id = :doctorId ORDER BY rx.id")
+    List<PrescriptionSummary> findSummariesByDoctorId(@Param("doctorId") Long doctorId);
+
     /**
      * Tìm đơn thuốc theo trạng thái
      */
@@ -0,0 +1,79 @@
+package com.g4.capstoneproject.repository;
+
+import com.g4.capstoneproject.entity.RecordingJob;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Repository cho RecordingJob entity
+ */
+@Repository
+public interface RecordingJobRepository extends JpaRepository<RecordingJob, Long> {
+
+    /**
+     * Tìm job theo Stringee Call ID
+     */
+    Optional<RecordingJob> findByCallId(String callId);
+
+    /**
+     * ID các job đến hạn xử lý, cũ nhất trước
+     */
+    @Query("SELECT j.id FROM RecordingJob j WHERE j.status = 'PENDING' " +
+           "AND (j.nextAttemptAt IS NULL OR j.nextAttemptAt <= :now) ORDER BY j.createdAt ASC")
+    List<Long> findDueJobIds(@Param("now") LocalDateTime now, Pageable pageable);
+
+    /**
+     * Nhận job (PENDING -> PROCESSING), trả về 0 nếu node khác đã nhận trước
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE RecordingJob j SET j.status = 'PROCESSING', j.attempts = j.attempts + 1, j.updatedAt = :now " +
+           "WHERE j.id = :id AND j.status = 'PENDING'")
+    int claim(@Param("id") Long id, @Param("now") LocalDateTime now);
+
+    /**
+     * Trả các job PROCESSING bị treo (node chết giữa chừng) còn lượt thử về PENDING
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE RecordingJob j SET j.status = 'PENDING', j.updatedAt = :now " +
+           "WHERE j.status = 'PROCESSING' AND j.updatedAt < :staleBefore AND j.attempts < :maxAttempts")
+    int releaseStale(@Param("staleBefore") LocalDateTime staleBefore,
+                     @Param("maxAttempts") int maxAttempts,
+                     @Param("now") LocalDateTime now);
+
+    /**
+     * Đánh dấu FAILED các job PROCESSING bị treo đã hết lượt thử (mỗi lần claim tính một lượt)
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE RecordingJob j SET j.status = 'FAILED', j.lastError = :error, j.updatedAt = :now " +
+           "WHERE j.status = 'PROCESSING' AND j.updatedAt < :staleBefore AND j.attempts >= :maxAttempts")
+    int failStale(@Param("staleBefore") LocalDateTime staleBefore,
+                  @Param("maxAttempts") int maxAttempts,
+                  @Param("error") String error,
+                  @Param("now") LocalDateTime now);
+
+    /**
+     * Heartbeat của worker: cập nhật updatedAt các job đang chạy để không bị coi là treo
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE RecordingJob j SET j.updatedAt = :now WHERE j.id IN :ids AND j.status = 'PROCESSING'")
+    int heartbeat(@Param("ids") Collection<Long> ids, @Param("now") LocalDateTime now);
+
+    /**
+     * Đếm job theo trạng thái
+     */
+    long countByStatus(RecordingJob.Status status);
+}
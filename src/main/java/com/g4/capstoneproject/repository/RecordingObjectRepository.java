@@ -0,0 +1,76 @@
+package com.g4.capstoneproject.repository;
+
+import com.g4.capstoneproject.entity.RecordingObject;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Repository cho RecordingObject entity
+ */
+@Repository
+public interface RecordingObjectRepository extends JpaRepository<RecordingObject, Long> {
+
+    /**
+     * Tìm theo S3 key
+     */
+    Optional<RecordingObject> findByS3Key(String s3Key);
+
+    /**
+     * Tìm file mới nhất theo tên file
+     */
+    Optional<RecordingObject> findFirstByFilenameOrderByLastModifiedDesc(String filename);
+
+    /**
+     * Recordings mới nhất
+     */
+    List<RecordingObject> findAllByOrderByLastModifiedDesc(Pageable pageable);
+
+    /**
+     * Recordings của user có key bắt đầu bằng prefix, mới nhất trước
+     */
+    List<RecordingObject> findByUserIdAndS3KeyStartingWithOrderByLastModifiedDesc(String userId, String prefix,
+                                                                                  Pageable pageable);
+
+    /**
+     * Recordings của cuộc gọi
+     */
+    List<RecordingObject> findByCallIdOrderByLastModifiedAsc(String callId);
+
+    /**
+     * Recordings trong khoảng thời gian [from, to)
+     */
+    @Query("SELECT r FROM RecordingObject r WHERE r.lastModified >= :from AND r.lastModified < :to ORDER BY r.lastModified DESC")
+    List<RecordingObject> findByLastModifiedRange(@Param("from") Instant from, @Param("to") Instant to, Pageable pageable);
+
+    /**
+     * Toàn bộ S3 key đã index (dùng khi đối soát)
+     */
+    @Query("SELECT r.s3Key FROM RecordingObject r")
+    List<String> findAllKeys();
+
+    /**
+     * Xóa theo S3 key
+     */
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM RecordingObject r WHERE r.s3Key = :s3Key")
+    int deleteByS3Key(@Param("s3Key") String s3Key);
+
+    /**
+     * Xóa các key không còn trên S3
+     */
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM RecordingObject r WHERE r.s3Key IN :keys")
+    int deleteByS3KeyIn(@Param("keys") Collection<String> keys);
+}
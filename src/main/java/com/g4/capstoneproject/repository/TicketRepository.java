@@ -1,5 +1,8 @@
 package com.g4.capstoneproject.repository;
 
+import com.g4.capstoneproject.dto.Ticket.TicketQueueRow;
+import com.g4.capstoneproject.dto.Ticket.TicketQueueStats;
+import com.g4.capstoneproject.dto.doctor.DoctorTicketStats;
 import com.g4.capstoneproject.entity.Ticket;
 import com.g4.capstoneproject.entity.User;
 import org.springframework.data.domain.Page;
@@ -17,6 +20,15 @@ import java.util.List;
  */
 @Repository
 public interface TicketRepository extends JpaRepository<Ticket, Long> {
+
+    /**
+     * Thứ hạng ưu tiên (URGENT trước). priority lưu dạng STRING nên không sắp xếp trực tiếp được
+     * priority NULL (ticket cũ) rơi vào ELSE và xếp như MEDIUM, giống ReceptionQueueIndex.QueueEntry
+     */
+    String PRIORITY_RANK = "CASE t.priority WHEN 'URGENT' THEN 0 WHEN 'HIGH' THEN 1 WHEN 'LOW' THEN 3 ELSE 2 END";
+
+    // Cùng thứ hạng cho alias 'me' (ticket mốc trong countMainQueueAhead)
+    String ME_PRIORITY_RANK = "CASE me.priority WHEN 'URGENT' THEN 0 WHEN 'HIGH' THEN 1 WHEN 'LOW' THEN 3 ELSE 2 END";
     
     /**
      * Tìm ticket theo bệnh nhân
@@ -66,9 +78,102 @@ public interface TicketRepository extends JpaRepository<Ticket, Long> {
     /**
      * Tìm ticket đang mở và chưa gán
      */
-    @Query("SELECT t FROM Ticket t WHERE t.assignedTo IS NULL AND t.status = 'OPEN' ORDER BY t.priority DESC, t.createdAt ASC")
+    @Query("SELECT t FROM Ticket t WHERE t.assignedTo IS NULL AND t.status = 'OPEN' ORDER BY " + PRIORITY_RANK + ", t.createdAt ASC")
     List<Ticket> findUnassignedOpenTickets();
     
+    /**
+     * Lấy (id, priority, createdAt) của các ticket trong hàng đợi chính
+     * Dùng để nạp ReceptionQueueIndex mà không load entity
+     */
+    @Query("SELECT t.id, t.priority, t.createdAt FROM Ticket t WHERE t.status = 'OPEN' AND (t.retryCount IS NULL OR t.retryCount = 0)")
+    List<Object[]> findMainQueueEntries();
+
+    /**
+     * ID các ticket trong hàng đợi chính theo thứ tự của ReceptionQueueIndex
+     */
+    @Query("SELECT t.id FROM Ticket t WHERE t.status = 'OPEN' AND (t.retryCount IS NULL OR t.retryCount = 0) " +
+            "ORDER BY " + PRIORITY_RANK + ", t.createdAt ASC, t.id ASC")
+    List<Long> findMainQueueIds(Pageable pageable);
+
+    /**
+     * Ticket có đang nằm trong hàng đợi chính không
+     */
+    @Query("SELECT COUNT(t) > 0 FROM Ticket t WHERE t.id = :ticketId AND t.status = 'OPEN' " +
+            "AND (t.retryCount IS NULL OR t.retryCount = 0)")
+    boolean isInMainQueue(@Param("ticketId") Long ticketId);
+
+    /**
+     * Số ticket đứng trước ticket cho trước trong hàng đợi chính (priority, createdAt, id)
+     */
+    @Query("SELECT COUNT(t) FROM Ticket t, Ticket me WHERE me.id = :ticketId " +
+            "AND t.status = 'OPEN' AND (t.retryCount IS NULL OR t.retryCount = 0) " +
+            "AND (" + PRIORITY_RANK + " < " + ME_PRIORITY_RANK +
+            " OR (" + PRIORITY_RANK + " = " + ME_PRIORITY_RANK + " AND (t.createdAt < me.createdAt " +
+            "OR (t.createdAt = me.createdAt AND t.id < me.id))))")
+    long countMainQueueAhead(@Param("ticketId") Long ticketId);
+
+    /**
+     * Số ticket trong hàng đợi chính
+     */
+    @Query("SELECT COUNT(t) FROM Ticket t WHERE t.status = 'OPEN' AND (t.retryCount IS NULL OR t.retryCount = 0)")
+    long countMainQueue();
+
+    /**
+     * Tìm ticket trong hàng đợi retry (OPEN, retryCount > 0), mới cập nhật trước
+     */
+    @Query("SELECT t FROM Ticket t WHERE t.status = 'OPEN' AND t.retryCount > 0 ORDER BY t.updatedAt DESC")
+    List<Ticket> findRetryQueue();
+
+    /**
+     * Phân trang hàng đợi chính dưới dạng projection
+     */
+    @Query(value = "SELECT new com.g4.capstoneproject.dto.Ticket.TicketQueueRow(" +
+            "t.id, t.title, t.priority, t.status, t.retryCount, t.createdAt, t.updatedAt, p.id, pi.fullName) " +
+            "FROM Ticket t LEFT JOIN t.patient p LEFT JOIN p.userInfo pi " +
+            "WHERE t.status = 'OPEN' AND (t.retryCount IS NULL OR t.retryCount = 0) " +
+            "ORDER BY " + PRIORITY_RANK + ", t.createdAt ASC, t.id ASC",
+            countQuery = "SELECT COUNT(t) FROM Ticket t WHERE t.status = 'OPEN' AND (t.retryCount IS NULL OR t.retryCount = 0)")
+    Page<TicketQueueRow> findMainQueueRows(Pageable pageable);
+
+    /**
+     * Phân trang hàng đợi retry dưới dạng projection
+     */
+    @Query(value = "SELECT new com.g4.capstoneproject.dto.Ticket.TicketQueueRow(" +
+            "t.id, t.title, t.priority, t.status, t.retryCount, t.createdAt, t.updatedAt, p.id, pi.fullName) " +
+            "FROM Ticket t LEFT JOIN t.patient p LEFT JOIN p.userInfo pi " +
+            "WHERE t.status = 'OPEN' AND t.retryCount > 0 " +
+            "ORDER BY t.updatedAt DESC",
+            countQuery = "SELECT COUNT(t) FROM Ticket t WHERE t.status = 'OPEN' AND t.retryCount > 0")
+    Page<TicketQueueRow> findRetryQueueRows(Pageable pageable);
+
+    /**
+     * Đếm ticket trong hàng đợi retry
+     */
+    @Query("SELECT COUNT(t) FROM Ticket t WHERE t.status = 'OPEN' AND t.retryCount > 0")
+    long countRetryQueue();
+
+    /**
+     * Thống kê hàng đợi trong một lần quét
+     */
+    @Query("SELECT new com.g4.capstoneproject.dto.Ticket.TicketQueueStats(" +
+            "COUNT(t), " +
+            "COALESCE(SUM(CASE WHEN t.status = 'OPEN' THEN 1L ELSE 0L END), 0L), " +
+            "COALESCE(SUM(CASE WHEN t.status = 'IN_PROGRESS' THEN 1L ELSE 0L END), 0L), " +
+            "COALESCE(SUM(CASE WHEN t.priority = 'HIGH' THEN 1L ELSE 0L END), 0L), " +
+            "COALESCE(SUM(CASE WHEN t.status = 'OPEN' AND (t.retryCount IS NULL OR t.retryCount = 0) THEN 1L ELSE 0L END), 0L), " +
+            "COALESCE(SUM(CASE WHEN t.status = 'OPEN' AND t.retryCount > 0 THEN 1L ELSE 0L END), 0L)) " +
+            "FROM Ticket t")
+    TicketQueueStats getQueueStats();
+
+    /**
+     * Thống kê ticket được giao cho một user (dashboard bác sĩ)
+     */
+    @Query("SELECT new com.g4.capstoneproject.dto.doctor.DoctorTicketStats(" +
+            "COALESCE(SUM(CASE WHEN t.status = 'OPEN' THEN 1L ELSE 0L END), 0L), " +
+            "COALESCE(SUM(CASE WHEN t.status = 'OPEN' AND t.priority = 'URGENT' THEN 1L ELSE 0L END), 0L)) " +
+            "FROM Ticket t WHERE t.assignedTo.id = :userId")
+    DoctorTicketStats getAssigneeStats(@Param("userId") Long userId);
+
     /**
      * Tìm ticket khẩn cấp
      */
@@ -89,6 +194,11 @@ public interface TicketRepository extends JpaRepository<Ticket, Long> {
      * Đếm ticket theo trạng thái
      */
     long countByStatus(Ticket.Status status);
+
+    /**
+     * Đếm ticket theo mức độ ưu tiên
+     */
+    long countByPriority(Ticket.Priority priority);
     
     /**
      * Đếm ticket của bệnh nhân
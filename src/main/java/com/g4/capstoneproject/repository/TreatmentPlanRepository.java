@@ -1,5 +1,8 @@
 package com.g4.capstoneproject.repository;
 
+import com.g4.capstoneproject.dto.TreatmentPlanSummary;
+import com.g4.capstoneproject.dto.doctor.DoctorPatientRow;
+import com.g4.capstoneproject.dto.doctor.DoctorPlanStats;
 import com.g4.capstoneproject.entity.TreatmentPlan;
 import com.g4.capstoneproject.entity.User;
 import org.springframework.data.domain.Page;
@@ -10,6 +13,8 @@ import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
 /**
@@ -18,6 +23,37 @@ import java.util.List;
 @Repository
 public interface TreatmentPlanRepository extends JpaRepository<TreatmentPlan, Long> {
     
+    /**
+     * Thời điểm cập nhật của kế hoạch, kế hoạch chưa từng sửa (updatedAt null) lấy createdAt
+     */
+    String ROSTER_LAST_UPDATED = "COALESCE(tp.updatedAt, tp.createdAt)";
+
+    /**
+     * Danh sách bệnh nhân của bác sĩ: mỗi bệnh nhân một dòng với kế hoạch mới nhất
+     */
+    String ROSTER_SELECT = "SELECT new com.g4.capstoneproject.dto.doctor.DoctorPatientRow(" +
+            "u.id, COALESCE(ui.fullName, 'N/A'), COALESCE(u.email, 'N/A'), COALESCE(u.phoneNumber, 'N/A'), " +
+            "tp.id, COALESCE(tp.diagnosis, 'N/A'), tp.status, tp.startDate, tp.expectedEndDate, " + ROSTER_LAST_UPDATED + ", tp.createdAt) " +
+            "FROM TreatmentPlan tp JOIN tp.patient u LEFT JOIN u.userInfo ui " +
+            "WHERE tp.doctor.id = :doctorId " +
+            "AND tp.id = (SELECT MAX(tp2.id) FROM TreatmentPlan tp2 WHERE tp2.doctor.id = :doctorId AND tp2.patient.id = u.id) ";
+    
+    /**
+     * Bộ lọc roster: trạng thái kế hoạch mới nhất + từ khóa (keyword rỗng = không lọc)
+     */
+    String ROSTER_FILTER = "AND tp.status IN :statuses " +
+            "AND (:keyword = '' OR LOWER(COALESCE(ui.fullName, '')) LIKE :keyword " +
+            "OR LOWER(COALESCE(u.email, '')) LIKE :keyword OR COALESCE(u.phoneNumber, '') LIKE :keyword) ";
+    
+    /**
+     * Dòng tóm tắt treatment plan kèm tên bệnh nhân/bác sĩ và số item
+     */
+    String SUMMARY_SELECT = "SELECT new com.g4.capstoneproject.dto.TreatmentPlanSummary(" +
+            "tp.id, p.id, pi.fullName, p.phoneNumber, d.id, di.fullName, tp.diagnosis, tp.treatmentGoal, " +
+            "tp.startDate, tp.expectedEndDate, tp.status, tp.aiSuggested, SIZE(tp.items), tp.createdAt) " +
+            "FROM TreatmentPlan tp JOIN tp.patient p LEFT JOIN p.userInfo pi " +
+            "JOIN tp.doctor d LEFT JOIN d.userInfo di ";
+    
     /**
      * Tìm kế hoạch theo bệnh nhân
      */
@@ -38,6 +74,18 @@ public interface TreatmentPlanRepository extends JpaRepository<TreatmentPlan, Lo
      */
     List<TreatmentPlan> findByDoctorId(Long doctorId);
     
+    /**
+     * Tóm tắt kế hoạch của bệnh nhân
+     */
+    @Query(SUMMARY_SELECT + "WHERE p.id = :patientId ORDER BY tp.id")
+    List<TreatmentPlanSummary> findSummariesByPatientId(@Param("patientId") Long patientId);
+    
+    /**
+     * Tóm tắt kế hoạch của bác sĩ
+     */
+    @Query(SUMMARY_SELECT + "WHERE d.id = :doctorId ORDER BY tp.id")
+    List<TreatmentPlanSummary> findSummariesByDoctorId(@Param("doctorId") Long doctorId);
+    
     /**
      * Tìm kế hoạch theo trạng thái
      */
@@ -75,6 +123,53 @@ public interface TreatmentPlanRepository extends JpaRepository<TreatmentPlan, Lo
      */
     long countByPatientId(Long patientId);
     
+    /**
+     * Toàn bộ bệnh nhân của bác sĩ (không phân trang), mới cập nhật trước
+     */
+    @Query(ROSTER_SELECT + "ORDER BY " + ROSTER_LAST_UPDATED + " DESC, tp.id DESC")
+    List<DoctorPatientRow> findRosterByDoctorId(@Param("doctorId") Long doctorId);
+    
+    /**
+     * Roster theo keyset (COALESCE(updatedAt, createdAt), id) giảm dần: các dòng đứng sau cursor
+     */
+    @Query(ROSTER_SELECT + ROSTER_FILTER +
+            "AND (" + ROSTER_LAST_UPDATED + " < :afterUpdatedAt " +
+            "OR (" + ROSTER_LAST_UPDATED + " = :afterUpdatedAt AND tp.id < :afterId)) " +
+            "ORDER BY " + ROSTER_LAST_UPDATED + " DESC, tp.id DESC")
+    List<DoctorPatientRow> findRosterPageByRecent(@Param("doctorId") Long doctorId,
+                                                  @Param("statuses") Collection<TreatmentPlan.PlanStatus> statuses,
+                                                  @Param("keyword") String keyword,
+                                                  @Param("afterUpdatedAt") LocalDateTime afterUpdatedAt,
+                                                  @Param("afterId") Long afterId,
+                                                  Pageable pageable);
+    
+    /**
+     * Roster theo keyset (fullName, patient id) tăng dần: các dòng đứng sau cursor
+     */
+    @Query(ROSTER_SELECT + ROSTER_FILTER +
+            "AND (COALESCE(ui.fullName, 'N/A') > :afterName " +
+            "OR (COALESCE(ui.fullName, 'N/A') = :afterName AND u.id > :afterId)) " +
+            "ORDER BY COALESCE(ui.fullName, 'N/A') ASC, u.id ASC")
+    List<DoctorPatientRow> findRosterPageByName(@Param("doctorId") Long doctorId,
+                                                @Param("statuses") Collection<TreatmentPlan.PlanStatus> statuses,
+                                                @Param("keyword") String keyword,
+                                                @Param("afterName") String afterName,
+                                                @Param("afterId") Long afterId,
+                                                Pageable pageable);
+    
+    /**
+     * Thống kê kế hoạch của bác sĩ trong một lần quét (dashboard bác sĩ)
+     */
+    @Query("SELECT new com.g4.capstoneproject.dto.doctor.DoctorPlanStats(" +
+            "COUNT(tp), " +
+            "COUNT(DISTINCT tp.patient.id), " +
+            "COALESCE(SUM(CASE WHEN tp.status = 'ACTIVE' THEN 1L ELSE 0L END), 0L), " +
+            "COALESCE(SUM(CASE WHEN tp.status = 'COMPLETED' THEN 1L ELSE 0L END), 0L), " +
+            "COALESCE(SUM(CASE WHEN tp.status = 'DRAFT' THEN 1L ELSE 0L END), 0L), " +
+            "COALESCE(SUM(CASE WHEN tp.startDate = :today THEN 1L ELSE 0L END), 0L)) " +
+            "FROM TreatmentPlan tp WHERE tp.doctor.id = :doctorId")
+    DoctorPlanStats getDoctorStats(@Param("doctorId") Long doctorId, @Param("today") LocalDate today);
+    
     /**
      * Đếm kế hoạch của bệnh nhân (dùng entity)
      */
@@ -1,11 +1,21 @@
 package com.g4.capstoneproject.repository;
 
+import com.g4.capstoneproject.dto.AccountCountRow;
+import com.g4.capstoneproject.dto.doctor.DoctorPatientRow;
+import com.g4.capstoneproject.dto.user.PatientSummary;
+import com.g4.capstoneproject.dto.user.UserSearchRow;
 import com.g4.capstoneproject.entity.User;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -36,6 +46,18 @@ public interface UserRepository extends JpaRepository<User, Long> {
         @Query("SELECT u FROM User u LEFT JOIN FETCH u.userInfo WHERE u.email = :emailOrPhone OR u.phoneNumber = :emailOrPhone")
         Optional<User> findByEmailOrPhoneNumberWithUserInfo(@Param("emailOrPhone") String emailOrPhone);
 
+        /**
+         * Tìm user theo email với userInfo được load
+         */
+        @Query("SELECT u FROM User u LEFT JOIN FETCH u.userInfo WHERE u.email = :email")
+        Optional<User> findByEmailWithUserInfo(@Param("email") String email);
+
+        /**
+         * Tìm user theo số điện thoại với userInfo được load
+         */
+        @Query("SELECT u FROM User u LEFT JOIN FETCH u.userInfo WHERE u.phoneNumber = :phoneNumber")
+        Optional<User> findByPhoneNumberWithUserInfo(@Param("phoneNumber") String phoneNumber);
+
         /**
          * Tìm user theo Google ID (cho OAuth)
          */
@@ -76,6 +98,46 @@ public interface UserRepository extends JpaRepository<User, Long> {
          */
         List<User> findByRoleAndIsActiveTrue(User.UserRole role);
 
+        /**
+         * Đếm users đang hoạt động theo role
+         */
+        long countByRoleAndIsActiveTrue(User.UserRole role);
+
+        /**
+         * Bệnh nhân đang hoạt động dưới dạng roster row (chưa có kế hoạch điều trị), mới đăng ký trước
+         */
+        @Query("SELECT new com.g4.capstoneproject.dto.doctor.DoctorPatientRow(" +
+                        "u.id, COALESCE(ui.fullName, 'N/A'), COALESCE(u.email, 'N/A'), COALESCE(u.phoneNumber, 'N/A'), " +
+                        "u.updatedAt, u.createdAt) " +
+                        "FROM User u LEFT JOIN u.userInfo ui " +
+                        "WHERE u.role = 'PATIENT' AND u.isActive = true ORDER BY u.createdAt DESC, u.id DESC")
+        List<DoctorPatientRow> findActivePatientRows(Pageable pageable);
+
+        /**
+         * Danh sách tài khoản cho admin, lọc và phân trang trong database
+         * roles/actives: các giá trị được chấp nhận; keyword rỗng = không lọc,
+         * ngược lại là pattern LIKE đã lower-case (tên, email, số điện thoại)
+         */
+        @Query(value = "SELECT u FROM User u LEFT JOIN FETCH u.userInfo ui " +
+                        "WHERE u.role IN :roles AND u.isActive IN :actives " +
+                        "AND (:keyword = '' OR LOWER(COALESCE(ui.fullName, '')) LIKE :keyword " +
+                        "OR LOWER(COALESCE(u.email, '')) LIKE :keyword OR COALESCE(u.phoneNumber, '') LIKE :keyword)",
+                        countQuery = "SELECT COUNT(u) FROM User u LEFT JOIN u.userInfo ui " +
+                                        "WHERE u.role IN :roles AND u.isActive IN :actives " +
+                                        "AND (:keyword = '' OR LOWER(COALESCE(ui.fullName, '')) LIKE :keyword " +
+                                        "OR LOWER(COALESCE(u.email, '')) LIKE :keyword OR COALESCE(u.phoneNumber, '') LIKE :keyword)")
+        Page<User> findAccounts(@Param("roles") Collection<User.UserRole> roles,
+                        @Param("actives") Collection<Boolean> actives,
+                        @Param("keyword") String keyword,
+                        Pageable pageable);
+
+        /**
+         * Số tài khoản theo role và trạng thái, một lần quét bảng users
+         */
+        @Query("SELECT new com.g4.capstoneproject.dto.AccountCountRow(u.role, u.isActive, COUNT(u)) " +
+                        "FROM User u GROUP BY u.role, u.isActive")
+        List<AccountCountRow> countByRoleAndActive();
+
         /**
          * Tìm tất cả bệnh nhân
          */
@@ -95,11 +157,70 @@ public interface UserRepository extends JpaRepository<User, Long> {
         List<User> findAllActiveReceptionists();
 
         /**
-         * Tìm kiếm user theo tên (từ UserInfo) hoặc email
-         * Sử dụng LEFT JOIN để truy vấn vào bảng user_info
+         * Tìm kiếm người dùng trên cột search_text (họ tên bỏ dấu + email + số điện thoại),
+         * dùng index trigram idx_users_search_text_trgm
+         * Xếp hạng: search_text bắt đầu bằng từ khóa trước, sau đó theo word_similarity
+         *
+         * @param term Từ khóa đã escape ký tự LIKE, được bỏ dấu và lower-case trong SQL
+         * @return ID người dùng theo thứ hạng, tối đa limit dòng
+         */
+        @Query(value = "SELECT u.id FROM users u " +
+                        "WHERE CAST(u.role AS TEXT) IN (:roles) " +
+                        "AND u.search_text LIKE '%' || lower(f_unaccent(:term)) || '%' " +
+                        "ORDER BY (u.search_text LIKE lower(f_unaccent(:term)) || '%') DESC, " +
+                        "word_similarity(lower(f_unaccent(:term)), u.search_text) DESC, u.id " +
+                        "LIMIT :limit", nativeQuery = true)
+        List<Long> searchRankedIds(@Param("roles") Collection<String> roles,
+                        @Param("term") String term,
+                        @Param("limit") int limit);
+
+        /**
+         * Database đã có cột users.search_text, hàm f_unaccent và extension pg_trgm hay chưa
+         * (migration V20261022 chạy tay, ddl-auto=update không tạo được)
+         */
+        @Query(value = "SELECT EXISTS (SELECT 1 FROM information_schema.columns " +
+                        "WHERE table_schema = current_schema() AND table_name = 'users' AND column_name = 'search_text') " +
+                        "AND EXISTS (SELECT 1 FROM pg_proc WHERE proname = 'f_unaccent') " +
+                        "AND EXISTS (SELECT 1 FROM pg_extension WHERE extname = 'pg_trgm')", nativeQuery = true)
+        boolean hasSearchTextSupport();
+
+        /**
+         * Tăng security_version của user (principal cũ trên mọi node phải load lại)
+         * Tăng ngay trong database nên không phụ thuộc đồng hồ của node nào
+         * Transaction riêng: được gọi sau khi transaction thay đổi user đã commit
          */
-        @Query("SELECT u FROM User u LEFT JOIN u.userInfo ui WHERE ui.fullName LIKE %:keyword% OR u.email LIKE %:keyword%")
-        List<User> searchByKeyword(@Param("keyword") String keyword);
+        @Modifying
+        @Transactional(propagation = Propagation.REQUIRES_NEW)
+        @Query("UPDATE User u SET u.securityVersion = COALESCE(u.securityVersion, 0) + 1 WHERE u.id = :userId")
+        int incrementSecurityVersion(@Param("userId") Long userId);
+
+        /**
+         * security_version hiện tại của user, empty nếu user không tồn tại hoặc chưa từng bị thay đổi
+         */
+        @Query("SELECT u.securityVersion FROM User u WHERE u.id = :userId")
+        Optional<Long> findSecurityVersion(@Param("userId") Long userId);
+
+        /**
+         * Tìm users theo danh sách ID kèm thông tin cá nhân
+         */
+        @Query("SELECT u FROM User u LEFT JOIN FETCH u.userInfo WHERE u.id IN :ids")
+        List<User> findAllByIdWithUserInfo(@Param("ids") Collection<Long> ids);
+
+        /**
+         * Toàn bộ người dùng dạng rút gọn để dựng prefix index autocomplete
+         */
+        @Query("SELECT new com.g4.capstoneproject.dto.user.UserSearchRow(" +
+                        "u.id, ui.fullName, u.email, u.phoneNumber, u.role, u.isActive) " +
+                        "FROM User u LEFT JOIN u.userInfo ui")
+        List<UserSearchRow> findAllSearchRows();
+
+        /**
+         * Dòng autocomplete của một người dùng (cập nhật prefix index sau khi user thay đổi)
+         */
+        @Query("SELECT new com.g4.capstoneproject.dto.user.UserSearchRow(" +
+                        "u.id, ui.fullName, u.email, u.phoneNumber, u.role, u.isActive) " +
+                        "FROM User u LEFT JOIN u.userInfo ui WHERE u.id = :id")
+        Optional<UserSearchRow> findSearchRowById(@Param("id") Long id);
 
         /**
          * Tìm user kèm theo thông tin cá nhân (eager fetch)
@@ -120,12 +241,38 @@ public interface UserRepository extends JpaRepository<User, Long> {
         List<User> findAllActivePatientsWithUserInfo();
 
         /**
-         * Tìm bệnh nhân theo ID bác sĩ (từ treatment plans)
+         * Dòng tóm tắt bệnh nhân kèm thông tin cá nhân
          */
-        @Query("SELECT DISTINCT u FROM User u " +
-                        "JOIN TreatmentPlan tp ON tp.patient.id = u.id " +
-                        "WHERE tp.doctor.id = :doctorId AND u.role = 'PATIENT'")
-        List<User> findPatientsByDoctorId(@Param("doctorId") Long doctorId);
+        String PATIENT_SUMMARY_SELECT = "SELECT new com.g4.capstoneproject.dto.user.PatientSummary(" +
+                        "u.id, u.email, u.phoneNumber, ui.fullName, ui.dateOfBirth, ui.gender, ui.address, " +
+                        "u.isActive, u.createdAt) " +
+                        "FROM User u LEFT JOIN u.userInfo ui WHERE u.role = 'PATIENT' ";
+
+        /**
+         * Tóm tắt tất cả bệnh nhân
+         */
+        @Query(PATIENT_SUMMARY_SELECT + "ORDER BY u.id")
+        List<PatientSummary> findPatientSummaries();
+
+        /**
+         * Tóm tắt bệnh nhân đang hoạt động
+         */
+        @Query(PATIENT_SUMMARY_SELECT + "AND u.isActive = true ORDER BY u.id")
+        List<PatientSummary> findActivePatientSummaries();
+
+        /**
+         * Tóm tắt một bệnh nhân
+         */
+        @Query(PATIENT_SUMMARY_SELECT + "AND u.id = :id")
+        Optional<PatientSummary> findPatientSummaryById(@Param("id") Long id);
+
+        /**
+         * Tóm tắt bệnh nhân của bác sĩ (từ treatment plans)
+         */
+        @Query(PATIENT_SUMMARY_SELECT +
+                        "AND u.id IN (SELECT tp.patient.id FROM TreatmentPlan tp WHERE tp.doctor.id = :doctorId) " +
+                        "ORDER BY u.id")
+        List<PatientSummary> findPatientSummariesByDoctorId(@Param("doctorId") Long doctorId);
 
         /**
          * Tìm bệnh nhân đang được điều trị bởi bác sĩ
@@ -135,13 +282,6 @@ public interface UserRepository extends JpaRepository<User, Long> {
                         "WHERE tp.doctor.id = :doctorId AND tp.status = 'ACTIVE' AND u.role = 'PATIENT'")
         List<User> findActivePatientsOfDoctor(@Param("doctorId") Long doctorId);
 
-        /**
-         * Tìm kiếm bệnh nhân theo keyword (tên, email, số điện thoại)
-         */
-        @Query("SELECT u FROM User u LEFT JOIN u.userInfo ui " +
-                        "WHERE u.role = 'PATIENT' AND (ui.fullName LIKE %:keyword% OR u.email LIKE %:keyword% OR u.phoneNumber LIKE %:keyword%)")
-        List<User> searchPatients(@Param("keyword") String keyword);
-
         /**
          * Đếm số bệnh nhân của một bác sĩ
          */
@@ -150,14 +290,6 @@ public interface UserRepository extends JpaRepository<User, Long> {
                         "WHERE tp.doctor.id = :doctorId AND u.role = 'PATIENT'")
         long countPatientsByDoctorId(@Param("doctorId") Long doctorId);
 
-        /**
-         * Tìm kiếm người dùng theo keyword (tên, email, số điện thoại)
-         * Dùng cho quản lý người dùng
-         */
-        @Query("SELECT DISTINCT u FROM User u LEFT JOIN FETCH u.userInfo ui " +
-                        "WHERE ui.fullName LIKE %:keyword% OR u.email LIKE %:keyword% OR u.phoneNumber LIKE %:keyword%")
-        List<User> searchUsers(@Param("keyword") String keyword);
-
         /**
          * Lấy danh sách các năm có bệnh nhân đăng ký
          * Trả về danh sách năm, sắp xếp giảm dần (năm mới nhất trước)
@@ -103,4 +103,10 @@ public interface WebCallLogRepository extends JpaRepository<WebCallLog, Long> {
      */
     @Query("SELECT w FROM WebCallLog w WHERE (w.caller.id = :userId1 AND w.receiver.id = :userId2) OR (w.caller.id = :userId2 AND w.receiver.id = :userId1) ORDER BY w.createdAt DESC")
     List<WebCallLog> findCallsBetweenUsers(@Param("userId1") Long userId1, @Param("userId2") Long userId2);
+
+    /**
+     * Tìm cuộc gọi có file ghi âm (combined, caller hoặc receiver) theo S3 key
+     */
+    @Query("SELECT w FROM WebCallLog w WHERE w.recordingS3Key = :s3Key OR w.recordingCallerS3Key = :s3Key OR w.recordingReceiverS3Key = :s3Key")
+    List<WebCallLog> findByAnyRecordingKey(@Param("s3Key") String s3Key);
 }
@@ -0,0 +1,108 @@
+package com.g4.capstoneproject.security;
+
+import com.g4.capstoneproject.entity.User;
+import com.g4.capstoneproject.repository.UserRepository;
+import com.g4.capstoneproject.service.S3Service;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.annotation.RequestScope;
+
+import java.util.Optional;
+
+/**
+ * Người dùng đang đăng nhập trong request hiện tại
+ *
+ * Bean request-scoped: user (kèm userInfo) chỉ được load một lần ở lần truy cập đầu
+ * tiên và dùng chung cho mọi thành phần trong cùng request (GlobalModelAttributes,
+ * controller...). URL avatar pre-signed cũng chỉ tính một lần.
+ */
+@Slf4j
+@Component
+@RequestScope
+@RequiredArgsConstructor
+public class CurrentUserContext {
+
+    private static final long AVATAR_URL_SECONDS = 7 * 24 * 3600;
+
+    private final UserRepository userRepository;
+    private final S3Service s3Service;
+
+    private boolean userResolved;
+    private User user;
+
+    private boolean avatarResolved;
+    private String avatarUrl;
+
+    /**
+     * User đang đăng nhập, empty nếu chưa đăng nhập
+     */
+    public Optional<User> getUser() {
+        if (!userResolved) {
+            user = loadUser();
+            userResolved = true;
+        }
+        return Optional.ofNullable(user);
+    }
+
+    /**
+     * User đang đăng nhập nếu có đúng vai trò role
+     */
+    public Optional<User> getUserWithRole(User.UserRole role) {
+        return getUser().filter(current -> current.getRole() == role);
+    }
+
+    /**
+     * URL pre-signed của avatar, null nếu chưa đăng nhập hoặc chưa có avatar
+     */
+    public String getAvatarUrl() {
+        if (!avatarResolved) {
+            avatarUrl = getUser().map(this::presignAvatar).orElse(null);
+            avatarResolved = true;
+        }
+        return avatarUrl;
+    }
+
+    private User loadUser() {
+        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+        if (auth == null || !auth.isAuthenticated() || auth instanceof AnonymousAuthenticationToken) {
+            return null;
+        }
+
+        try {
+            Object principal = auth.getPrincipal();
+            if (principal instanceof CustomUserDetails details) {
+                return userRepository.findByIdWithUserInfo(details.getId()).orElse(null);
+            }
+            String username = principal instanceof UserDetails details ? details.getUsername()
+                    : principal instanceof String name ? name : null;
+            if (username != null) {
+                return userRepository.findByEmailOrPhoneNumberWithUserInfo(username).orElse(null);
+            }
+        } catch (Exception e) {
+            log.warn("Could not load current user: {}", e.getMessage());
+        }
+        return null;
+    }
+
+    private String presignAvatar(User current) {
+        if (current.getUserInfo() == null) {
+            return null;
+        }
+        String avatarKey = current.getUserInfo().getAvatarUrl();
+        if (avatarKey == null || avatarKey.isEmpty()) {
+            return null;
+        }
+
+        try {
+            return s3Service.generatePresignedUrl(avatarKey, AVATAR_URL_SECONDS);
+        } catch (Exception e) {
+            log.warn("Could not generate presigned URL for avatar: {}", avatarKey, e);
+            return null;
+        }
+    }
+}
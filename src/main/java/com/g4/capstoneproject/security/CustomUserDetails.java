@@ -1,40 +1,78 @@
 package com.g4.capstoneproject.security;
 
 import com.g4.capstoneproject.entity.User;
-import lombok.RequiredArgsConstructor;
+import org.springframework.security.core.CredentialsContainer;
 import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
 
 import java.util.Collection;
-import java.util.Collections;
+import java.util.List;
 
 /**
  * Custom UserDetails implementation for Spring Security
- * Wraps the User entity to provide authentication information
+ * Immutable snapshot of the user taken at login (id, role, display name, active flag),
+ * stored in the session and injected with @AuthenticationPrincipal so controllers
+ * do not need to look the user up again. Refreshed by PrincipalRefreshFilter after
+ * an admin changes the user.
  */
-@RequiredArgsConstructor
-public class CustomUserDetails implements UserDetails {
+public class CustomUserDetails implements UserDetails, CredentialsContainer {
 
-    private final User user;
+    private final Long id;
+    private final String email;
+    private final String phoneNumber;
+    private final User.UserRole role;
+    private final String fullName;
+    private final boolean active;
+    private final long securityVersion;
+    private final List<GrantedAuthority> authorities;
+    private String password;
+
+    /**
+     * Snapshot from a User entity; userInfo must be loaded for the display name
+     */
+    public CustomUserDetails(User user) {
+        this(user.getId(), user.getEmail(), user.getPhoneNumber(), user.getPassword(), user.getRole(),
+                user.getFullName(), Boolean.TRUE.equals(user.getIsActive()),
+                user.getSecurityVersion() != null ? user.getSecurityVersion() : 0L);
+    }
+
+    public CustomUserDetails(Long id, String email, String phoneNumber, String password,
+                             User.UserRole role, String fullName, boolean active, long securityVersion) {
+        this.id = id;
+        this.email = email;
+        this.phoneNumber = phoneNumber;
+        this.password = password;
+        this.role = role;
+        this.fullName = fullName;
+        this.active = active;
+        this.securityVersion = securityVersion;
+        // Return role with ROLE_ prefix as required by Spring Security
+        this.authorities = List.of(new SimpleGrantedAuthority("ROLE_" + role.name()));
+    }
 
     @Override
     public Collection<? extends GrantedAuthority> getAuthorities() {
-        // Return role with ROLE_ prefix as required by Spring Security
-        return Collections.singletonList(
-            new SimpleGrantedAuthority("ROLE_" + user.getRole().name())
-        );
+        return authorities;
     }
 
     @Override
     public String getPassword() {
-        return user.getPassword();
+        return password;
+    }
+
+    /**
+     * Password hash is only needed while authenticating, not in the session
+     */
+    @Override
+    public void eraseCredentials() {
+        password = null;
     }
 
     @Override
     public String getUsername() {
         // Use email as username, fallback to phone if email is null
-        return user.getEmail() != null ? user.getEmail() : user.getPhoneNumber();
+        return email != null ? email : phoneNumber;
     }
 
     @Override
@@ -44,7 +82,7 @@ public class CustomUserDetails implements UserDetails {
 
     @Override
     public boolean isAccountNonLocked() {
-        return user.getIsActive();
+        return active;
     }
 
     @Override
@@ -54,34 +92,49 @@ public class CustomUserDetails implements UserDetails {
 
     @Override
     public boolean isEnabled() {
-        return user.getIsActive();
-    }
-
-    /**
-     * Get the underlying User entity
-     */
-    public User getUser() {
-        return user;
+        return active;
     }
 
     /**
      * Get user ID
      */
     public Long getId() {
-        return user.getId();
+        return id;
+    }
+
+    public String getEmail() {
+        return email;
+    }
+
+    public String getPhoneNumber() {
+        return phoneNumber;
     }
 
     /**
      * Get full name
      */
     public String getFullName() {
-        return user.getFullName();
+        return fullName;
+    }
+
+    /**
+     * Display name: full name, fallback to username
+     */
+    public String getDisplayName() {
+        return fullName != null && !fullName.isBlank() ? fullName : getUsername();
     }
 
     /**
      * Get role
      */
     public User.UserRole getRole() {
-        return user.getRole();
+        return role;
+    }
+
+    /**
+     * users.security_version read together with the snapshot, compared against PrincipalInvalidator
+     */
+    public long getSecurityVersion() {
+        return securityVersion;
     }
 }
@@ -9,9 +9,11 @@ import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
 
+import java.util.Optional;
+
 /**
  * Custom UserDetailsService for Spring Security
- * Loads user from database and wraps in CustomUserDetails
+ * Loads user (with userInfo) from database and snapshots it into CustomUserDetails
  */
 @Service
 @RequiredArgsConstructor
@@ -24,8 +26,11 @@ public class CustomUserDetailsService implements UserDetailsService {
     public UserDetails loadUserByUsername(String username) throws UsernameNotFoundException {
         log.debug("Loading user by username: {}", username);
 
-        // Try to find user by email or phone number
-        User user = userRepository.findByEmailOrPhoneNumber(username, username)
+        // Email always contains '@', phone numbers never do: query a single indexed column
+        Optional<User> found = username.contains("@")
+                ? userRepository.findByEmailWithUserInfo(username)
+                : userRepository.findByPhoneNumberWithUserInfo(username);
+        User user = found
                 .orElseThrow(() -> {
                     log.warn("User not found: {}", username);
                     return new UsernameNotFoundException("User not found: " + username);
@@ -39,7 +44,7 @@ public class CustomUserDetailsService implements UserDetailsService {
 
         log.debug("User loaded successfully: {} with role {}", username, user.getRole());
 
-        // Wrap User entity in CustomUserDetails
+        // Snapshot the user into CustomUserDetails (kept in the session after login)
         return new CustomUserDetails(user);
     }
 }
@@ -0,0 +1,100 @@
+package com.g4.capstoneproject.security;
+
+import com.g4.capstoneproject.repository.UserRepository;
+import com.g4.capstoneproject.service.TransactionCallbacks;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Optional;
+
+/**
+ * Theo dõi người dùng bị thay đổi sau khi đăng nhập
+ *
+ * Principal (CustomUserDetails) là snapshot lưu trong session, mang theo users.security_version
+ * đọc cùng dòng với role/trạng thái. Khi admin đổi role, trạng thái hoặc thông tin của user,
+ * service gọi invalidate(userId): version được tăng trong database; PrincipalRefreshFilter thấy
+ * version của snapshot nhỏ hơn sẽ load lại user (hoặc đăng xuất nếu user bị khóa).
+ *
+ * Chỉ so sánh version, không so sánh thời gian, nên lệch đồng hồ giữa các node không làm mất
+ * thay đổi. Mỗi node giữ bản sao version trong cache có giới hạn (security.principal.cache-size),
+ * hết hạn sau security.principal.check-interval-ms: node đã ghi thay đổi đọc lại ngay, các node
+ * khác chậm tối đa một chu kỳ.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class PrincipalInvalidator {
+
+    // Ghi version thất bại: mọi principal của user trên node này bị coi là cũ tới khi entry hết hạn
+    private static final long FORCE_RELOAD = Long.MAX_VALUE;
+
+    private final UserRepository userRepository;
+
+    @Value("${security.principal.check-interval-ms:10000}")
+    private long checkIntervalMs;
+
+    @Value("${security.principal.cache-size:10000}")
+    private long cacheSize;
+
+    /**
+     * userId -> security_version (0 nếu chưa từng bị thay đổi)
+     */
+    private LoadingCache<Long, Long> versions;
+
+    @PostConstruct
+    void init() {
+        versions = Caffeine.newBuilder()
+                .maximumSize(cacheSize)
+                .expireAfterWrite(Duration.ofMillis(checkIntervalMs))
+                .build(userId -> userRepository.findSecurityVersion(userId).orElse(0L));
+    }
+
+    /**
+     * Đánh dấu principal của user đã cũ
+     * Trong transaction: chỉ đánh dấu sau commit, để lần load lại đọc được dữ liệu mới
+     */
+    public void invalidate(Long userId) {
+        if (userId == null) {
+            return;
+        }
+        TransactionCallbacks.afterCommit(() -> markChanged(userId));
+    }
+
+    /**
+     * Snapshot mang version cũ hơn version hiện tại của user
+     */
+    public boolean isStale(CustomUserDetails principal) {
+        return principal.getSecurityVersion() < versions.get(principal.getId());
+    }
+
+    /**
+     * Tạo snapshot mới từ database
+     *
+     * @return empty nếu user không còn tồn tại hoặc đã bị vô hiệu hóa
+     */
+    public Optional<CustomUserDetails> reload(Long userId) {
+        return userRepository.findByIdWithUserInfo(userId)
+                .filter(user -> Boolean.TRUE.equals(user.getIsActive()))
+                .map(CustomUserDetails::new);
+    }
+
+    private void markChanged(Long userId) {
+        try {
+            userRepository.incrementSecurityVersion(userId);
+            // Node này đọc lại version mới ở lần kiểm tra tiếp theo
+            versions.invalidate(userId);
+            log.debug("Principal invalidated for user {}", userId);
+        } catch (Exception e) {
+            // Node này vẫn load lại (mỗi request, tới khi entry hết hạn);
+            // các node khác giữ principal cũ tới khi session hết hạn
+            versions.put(userId, FORCE_RELOAD);
+            log.warn("Could not store principal invalidation for user {}: {}", userId, e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package com.g4.capstoneproject.security;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpSession;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.web.context.HttpSessionSecurityContextRepository;
+import org.springframework.security.web.context.SecurityContextRepository;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.Optional;
+
+/**
+ * Làm mới principal trong session khi user bị thay đổi
+ *
+ * Đa số request chỉ tốn một lần tra cache trong PrincipalInvalidator (nạp lại từ database
+ * mỗi security.principal.check-interval-ms). Khi snapshot đã cũ:
+ * - user còn hoạt động: load lại một lần, thay Authentication và lưu lại vào session
+ * - user bị xóa/vô hiệu hóa: xóa SecurityContext và hủy session (request đi tiếp như anonymous)
+ */
+@Slf4j
+@RequiredArgsConstructor
+public class PrincipalRefreshFilter extends OncePerRequestFilter {
+
+    private final PrincipalInvalidator principalInvalidator;
+    private final SecurityContextRepository securityContextRepository = new HttpSessionSecurityContextRepository();
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+        if (auth != null && auth.getPrincipal() instanceof CustomUserDetails principal
+                && principalInvalidator.isStale(principal)) {
+            refresh(principal, auth, request, response);
+        }
+        filterChain.doFilter(request, response);
+    }
+
+    private void refresh(CustomUserDetails principal, Authentication current,
+                         HttpServletRequest request, HttpServletResponse response) {
+        Optional<CustomUserDetails> reloaded = principalInvalidator.reload(principal.getId());
+        if (reloaded.isEmpty()) {
+            log.info("User {} no longer active, ending session", principal.getId());
+            SecurityContextHolder.clearContext();
+            HttpSession session = request.getSession(false);
+            if (session != null) {
+                session.invalidate();
+            }
+            return;
+        }
+
+        CustomUserDetails details = reloaded.get();
+        details.eraseCredentials();
+        UsernamePasswordAuthenticationToken authentication =
+                new UsernamePasswordAuthenticationToken(details, null, details.getAuthorities());
+        authentication.setDetails(current.getDetails());
+
+        SecurityContext context = SecurityContextHolder.createEmptyContext();
+        context.setAuthentication(authentication);
+        SecurityContextHolder.setContext(context);
+        securityContextRepository.saveContext(context, request, response);
+        log.debug("Principal refreshed for user {} with role {}", details.getId(), details.getRole());
+    }
+}
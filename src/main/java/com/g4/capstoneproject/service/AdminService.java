@@ -1,5 +1,6 @@
 package com.g4.capstoneproject.service;
 
+import com.g4.capstoneproject.dto.AccountCountRow;
 import com.g4.capstoneproject.dto.AccountResponse;
 import com.g4.capstoneproject.dto.AssignRoleRequest;
 import com.g4.capstoneproject.dto.CreateAccountRequest;
@@ -7,18 +8,24 @@ import com.g4.capstoneproject.dto.UpdateAccountRequest;
 import com.g4.capstoneproject.entity.User;
 import com.g4.capstoneproject.entity.UserInfo;
 import com.g4.capstoneproject.repository.UserRepository;
+import com.g4.capstoneproject.security.PrincipalInvalidator;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.cache.annotation.Cacheable;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collection;
+import java.util.EnumSet;
 import java.util.HashMap;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
-import java.util.stream.Collectors;
+import java.util.Set;
 
 /**
  * Service xử lý quản lý tài khoản cho Admin
@@ -28,8 +35,18 @@ import java.util.stream.Collectors;
 @Slf4j
 public class AdminService {
     
+    /**
+     * Key của thống kê tài khoản trong cache dashboardStats
+     */
+    public static final String ACCOUNT_STATS_KEY = "'accountStats'";
+    
+    private static final Set<Boolean> ANY_STATUS = Set.of(true, false);
+    private static final Sort DEFAULT_LIST_SORT = Sort.by("id");
+    
     private final UserRepository userRepository;
     private final PasswordEncoder passwordEncoder;
+    private final PrincipalInvalidator principalInvalidator;
+    private final CacheInvalidator cacheInvalidator;
     
     /**
      * Lấy danh sách tất cả accounts (không bao gồm bệnh nhân)
@@ -37,13 +54,7 @@ public class AdminService {
     @Transactional(readOnly = true)
     public List<AccountResponse> getAllNonPatientAccounts() {
         try {
-            List<User> users = userRepository.findAll().stream()
-                    .filter(user -> user.getRole() != User.UserRole.PATIENT)
-                    .collect(Collectors.toList());
-            
-            return users.stream()
-                    .map(AccountResponse::fromUser)
-                    .collect(Collectors.toList());
+            return listAccounts(EnumSet.complementOf(EnumSet.of(User.UserRole.PATIENT)), ANY_STATUS, "");
         } catch (Exception e) {
             log.error("Error fetching non-patient accounts", e);
             throw new RuntimeException("Không thể lấy danh sách tài khoản");
@@ -64,27 +75,32 @@ public class AdminService {
         }
     }
     
+    /**
+     * Lấy danh sách accounts có phân trang, lọc theo role, trạng thái và từ khóa
+     * Tham số null (hoặc keyword rỗng) nghĩa là không lọc theo tiêu chí đó
+     */
+    @Transactional(readOnly = true)
+    public Page<AccountResponse> queryAccounts(User.UserRole role, Boolean active, String keyword, Pageable pageable) {
+        try {
+            return userRepository.findAccounts(
+                            role != null ? EnumSet.of(role) : EnumSet.allOf(User.UserRole.class),
+                            active != null ? Set.of(active) : ANY_STATUS,
+                            keywordPattern(keyword),
+                            pageable)
+                    .map(AccountResponse::fromUser);
+        } catch (Exception e) {
+            log.error("Error querying accounts (role={}, active={}, keyword={})", role, active, keyword, e);
+            throw new RuntimeException("Không thể lấy danh sách tài khoản");
+        }
+    }
+    
     /**
      * Tìm kiếm accounts theo từ khóa
      */
     @Transactional(readOnly = true)
     public List<AccountResponse> searchAccounts(String keyword) {
         try {
-            List<User> users = userRepository.findAll().stream()
-                    .filter(user -> {
-                        String fullName = user.getFullName() != null ? user.getFullName().toLowerCase() : "";
-                        String email = user.getEmail() != null ? user.getEmail().toLowerCase() : "";
-                        String phone = user.getPhoneNumber() != null ? user.getPhoneNumber() : "";
-                        
-                        return fullName.contains(keyword.toLowerCase()) 
-                                || email.contains(keyword.toLowerCase())
-                                || phone.contains(keyword);
-                    })
-                    .collect(Collectors.toList());
-            
-            return users.stream()
-                    .map(AccountResponse::fromUser)
-                    .collect(Collectors.toList());
+            return listAccounts(EnumSet.allOf(User.UserRole.class), ANY_STATUS, keywordPattern(keyword));
         } catch (Exception e) {
             log.error("Error searching accounts with keyword: {}", keyword, e);
             throw new RuntimeException("Không thể tìm kiếm tài khoản");
@@ -97,13 +113,7 @@ public class AdminService {
     @Transactional(readOnly = true)
     public List<AccountResponse> filterAccountsByRole(User.UserRole role) {
         try {
-            List<User> users = userRepository.findAll().stream()
-                    .filter(user -> user.getRole() == role)
-                    .collect(Collectors.toList());
-            
-            return users.stream()
-                    .map(AccountResponse::fromUser)
-                    .collect(Collectors.toList());
+            return listAccounts(EnumSet.of(role), ANY_STATUS, "");
         } catch (Exception e) {
             log.error("Error filtering accounts by role: {}", role, e);
             throw new RuntimeException("Không thể lọc tài khoản theo vai trò");
@@ -134,6 +144,10 @@ public class AdminService {
             User.UserRole oldRole = user.getRole();
             user.setRole(request.getRole());
             user = userRepository.save(user);
+            principalInvalidator.invalidate(user.getId());
+            // Đổi sang hoặc từ PATIENT đều làm thay đổi danh sách bệnh nhân
+            cacheInvalidator.userChanged(user.getId(),
+                    oldRole == User.UserRole.PATIENT || request.getRole() == User.UserRole.PATIENT, true);
             
             log.info("Role updated for user {} (ID: {}, FullName: {}): {} -> {}", 
                     user.getEmail() != null ? user.getEmail() : user.getPhoneNumber(),
@@ -183,6 +197,8 @@ public class AdminService {
             // Toggle isActive status
             user.setIsActive(!user.getIsActive());
             user = userRepository.save(user);
+            principalInvalidator.invalidate(user.getId());
+            cacheInvalidator.userChanged(user.getId(), user.getRole() == User.UserRole.PATIENT, true);
             
             log.info("Account status toggled for user {} (ID: {}, FullName: {}): isActive = {} -> {}", 
                     user.getEmail() != null ? user.getEmail() : user.getPhoneNumber(),
@@ -203,22 +219,28 @@ public class AdminService {
     
     /**
      * Lấy thống kê số lượng accounts theo role
+     * Một câu GROUP BY role, is_active; kết quả được cache trong dashboardStats
+     * và bị xóa (sau commit, qua CacheInvalidator) khi có tài khoản mới, đổi role hoặc đổi trạng thái
      */
+    @Cacheable(value = "dashboardStats", key = ACCOUNT_STATS_KEY)
     @Transactional(readOnly = true)
     public Map<String, Long> getAccountStatistics() {
         try {
-            List<User> allUsers = userRepository.findAll();
-            
             Map<String, Long> stats = new HashMap<>();
-            stats.put("total", (long) allUsers.size());
-            stats.put("admin", allUsers.stream().filter(u -> u.getRole() == User.UserRole.ADMIN).count());
-            stats.put("doctor", allUsers.stream().filter(u -> u.getRole() == User.UserRole.DOCTOR).count());
-            stats.put("receptionist", allUsers.stream().filter(u -> u.getRole() == User.UserRole.RECEPTIONIST).count());
-            stats.put("patient", allUsers.stream().filter(u -> u.getRole() == User.UserRole.PATIENT).count());
-            stats.put("active", allUsers.stream().filter(User::getIsActive).count());
-            stats.put("disabled", allUsers.stream().filter(u -> !u.getIsActive()).count());
-            
-            return stats;
+            stats.put("total", 0L);
+            for (User.UserRole role : User.UserRole.values()) {
+                stats.put(role.name().toLowerCase(Locale.ROOT), 0L);
+            }
+            stats.put("active", 0L);
+            stats.put("disabled", 0L);
+            
+            for (AccountCountRow row : userRepository.countByRoleAndActive()) {
+                stats.merge("total", row.getCount(), Long::sum);
+                stats.merge(row.getRole().name().toLowerCase(Locale.ROOT), row.getCount(), Long::sum);
+                stats.merge(Boolean.TRUE.equals(row.getIsActive()) ? "active" : "disabled", row.getCount(), Long::sum);
+            }
+            
+            return Map.copyOf(stats);
         } catch (Exception e) {
             log.error("Error fetching account statistics", e);
             throw new RuntimeException("Không thể lấy thống kê tài khoản");
@@ -289,6 +311,7 @@ public class AdminService {
             
             user.setUserInfo(userInfo);
             user = userRepository.save(user);
+            cacheInvalidator.usersAdded(List.of(user.getId()), user.getRole() == User.UserRole.PATIENT);
             
             log.info("Account created successfully by admin: {} (ID: {}) with role {} - FullName: {}", 
                     user.getEmail() != null ? user.getEmail() : user.getPhoneNumber(),
@@ -369,6 +392,9 @@ public class AdminService {
             }
             
             user = userRepository.save(user);
+            principalInvalidator.invalidate(user.getId());
+            // Role và trạng thái không đổi khi edit: thống kê tài khoản giữ nguyên
+            cacheInvalidator.userChanged(user.getId(), user.getRole() == User.UserRole.PATIENT, false);
             
             log.info("Account updated successfully by admin: {} (ID: {}) - FullName: {} -> {}", 
                     user.getEmail() != null ? user.getEmail() : user.getPhoneNumber(),
@@ -386,4 +412,22 @@ public class AdminService {
             throw new RuntimeException("Không thể cập nhật tài khoản");
         }
     }
+    
+    /**
+     * Danh sách accounts không phân trang (các API cũ), vẫn lọc trong database
+     */
+    private List<AccountResponse> listAccounts(Collection<User.UserRole> roles, Collection<Boolean> actives, String keyword) {
+        return userRepository.findAccounts(roles, actives, keyword, Pageable.unpaged(DEFAULT_LIST_SORT))
+                .map(AccountResponse::fromUser)
+                .getContent();
+    }
+    
+    /**
+     * Pattern LIKE cho findAccounts, chuỗi rỗng khi không tìm theo từ khóa
+     * % và _ trong từ khóa được escape để khớp đúng ký tự
+     */
+    private static String keywordPattern(String keyword) {
+        return keyword == null || keyword.isBlank()
+                ? "" : "%" + UserSearchService.escapeLike(keyword.trim().toLowerCase(Locale.ROOT)) + "%";
+    }
 }
@@ -0,0 +1,114 @@
+package com.g4.capstoneproject.service;
+
+import com.g4.capstoneproject.repository.KnowledgeArticleRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+
+/**
+ * Đếm lượt xem bài viết kiểu write-behind
+ *
+ * Mỗi lượt xem chỉ cộng vào LongAdder của bài viết trong bộ nhớ; delta được ghi xuống
+ * database bằng một câu UPDATE gộp theo chu kỳ knowledge.views.flush-interval-ms và khi
+ * ứng dụng dừng. Số hiển thị = views trong database + delta chưa ghi (currentViews).
+ * Lượt xem chưa flush sẽ mất nếu process bị kill đột ngột.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class ArticleViewCounter {
+
+    private final KnowledgeArticleRepository articleRepository;
+    private final MeterRegistry meterRegistry;
+
+    /**
+     * Delta chưa ghi theo articleId. Entry không bị xóa sau flush (sumThenReset) để
+     * không mất lượt xem đang được cộng đồng thời; số bài viết nhỏ nên map không phình.
+     */
+    private final Map<Long, LongAdder> pending = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    void registerMetrics() {
+        Gauge.builder("knowledge.views.pending", pending, map -> map.values().stream().mapToLong(LongAdder::sum).sum())
+                .description("Article views counted in memory, not yet written to the database")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Ghi nhận một lượt xem
+     */
+    public void record(Long articleId) {
+        pending.computeIfAbsent(articleId, id -> new LongAdder()).increment();
+    }
+
+    /**
+     * Lượt xem hiện tại: giá trị đã lưu cộng delta chưa flush
+     */
+    public int currentViews(Long articleId, Integer persistedViews) {
+        LongAdder delta = pending.get(articleId);
+        long views = (persistedViews != null ? persistedViews : 0) + (delta != null ? delta.sum() : 0);
+        return (int) Math.min(views, Integer.MAX_VALUE);
+    }
+
+    @Scheduled(fixedDelayString = "${knowledge.views.flush-interval-ms:10000}")
+    public void flushBySchedule() {
+        flush();
+    }
+
+    @PreDestroy
+    void flushOnShutdown() {
+        flush();
+    }
+
+    /**
+     * Ghi toàn bộ delta xuống database trong một câu UPDATE
+     * Lỗi khi ghi: delta được cộng trả lại để lần flush sau thử lại
+     *
+     * @return Tổng số lượt xem đã ghi
+     */
+    public synchronized long flush() {
+        // Sắp theo id để các node ghi theo cùng thứ tự khóa dòng
+        Map<Long, Long> deltas = new TreeMap<>();
+        pending.forEach((id, adder) -> {
+            long delta = adder.sumThenReset();
+            if (delta > 0) {
+                deltas.put(id, delta);
+            }
+        });
+        if (deltas.isEmpty()) {
+            return 0;
+        }
+
+        List<Long> ids = new ArrayList<>(deltas.keySet());
+        Timer.Sample sample = Timer.start(meterRegistry);
+        try {
+            articleRepository.addViews(
+                    ids.stream().map(String::valueOf).collect(Collectors.joining(",")),
+                    ids.stream().map(id -> String.valueOf(deltas.get(id))).collect(Collectors.joining(",")));
+            long total = deltas.values().stream().mapToLong(Long::longValue).sum();
+            meterRegistry.counter("knowledge.views.flushed").increment(total);
+            log.debug("Flushed {} article views for {} articles", total, ids.size());
+            return total;
+        } catch (Exception e) {
+            deltas.forEach((id, delta) -> pending.computeIfAbsent(id, key -> new LongAdder()).add(delta));
+            log.warn("Article view flush failed, {} articles kept for retry: {}", ids.size(), e.getMessage());
+            return 0;
+        } finally {
+            sample.stop(meterRegistry.timer("knowledge.views.flush"));
+        }
+    }
+}
@@ -0,0 +1,149 @@
+package com.g4.capstoneproject.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.springframework.core.io.InputStreamResource;
+import org.springframework.core.io.InputStreamSource;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.io.UncheckedIOException;
+import java.net.http.HttpRequest;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Tạo request body cho các ASR provider mà không copy toàn bộ audio vào heap
+ * - Multipart (Whisper self-hosted): part file đọc thẳng từ InputStream
+ * - JSON Base64 (Gemini, Google Speech): audio được encode Base64 theo từng khối
+ *   trong lúc HttpClient gửi body
+ */
+final class AsrRequestBodies {
+
+    /**
+     * Placeholder đánh dấu vị trí audio Base64 trong JSON
+     */
+    static final String AUDIO_PLACEHOLDER = "__AUDIO_BASE64__";
+
+    // Khối đọc phải là bội số của 3 để Base64 từng khối nối lại vẫn đúng
+    private static final int ENCODE_CHUNK_BYTES = 3 * 16 * 1024;
+
+    private AsrRequestBodies() {
+    }
+
+    /**
+     * Part file cho multipart request, RestTemplate đọc stream khi ghi body
+     *
+     * @param audio Nguồn audio (MultipartFile, S3 stream...)
+     * @param filename Tên file gửi kèm part
+     * @param contentLength Kích thước audio, -1 nếu không biết
+     */
+    static InputStreamResource multipartFile(InputStreamSource audio, String filename, long contentLength) throws IOException {
+        return new InputStreamResource(audio.getInputStream()) {
+            @Override
+            public String getFilename() {
+                return filename;
+            }
+
+            @Override
+            public long contentLength() {
+                return contentLength;
+            }
+        };
+    }
+
+    /**
+     * Body JSON chứa audio Base64, encode dần trong lúc gửi
+     *
+     * @param objectMapper Dùng để serialize phần JSON còn lại
+     * @param json JSON request, field audio mang giá trị {@link #AUDIO_PLACEHOLDER}
+     * @param audio Nguồn audio
+     * @param audioLength Kích thước audio (byte), -1 nếu không biết (gửi chunked)
+     */
+    static HttpRequest.BodyPublisher base64Json(ObjectMapper objectMapper, ObjectNode json,
+                                                InputStreamSource audio, long audioLength) throws IOException {
+        String serialized = objectMapper.writeValueAsString(json);
+        int at = serialized.indexOf(AUDIO_PLACEHOLDER);
+        if (at < 0) {
+            throw new IllegalArgumentException("JSON không chứa placeholder audio");
+        }
+        byte[] prefix = serialized.substring(0, at).getBytes(StandardCharsets.UTF_8);
+        byte[] suffix = serialized.substring(at + AUDIO_PLACEHOLDER.length()).getBytes(StandardCharsets.UTF_8);
+
+        HttpRequest.BodyPublisher stream = HttpRequest.BodyPublishers.ofInputStream(() -> {
+            try {
+                return new SequenceInputStream(Collections.enumeration(List.of(
+                        new ByteArrayInputStream(prefix),
+                        new Base64EncodingInputStream(audio.getInputStream()),
+                        new ByteArrayInputStream(suffix))));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        if (audioLength < 0) {
+            return stream;
+        }
+        long encodedLength = 4 * ((audioLength + 2) / 3);
+        return HttpRequest.BodyPublishers.fromPublisher(stream, prefix.length + encodedLength + suffix.length);
+    }
+
+    /**
+     * InputStream trả về Base64 của stream nguồn, đọc nguồn theo từng khối
+     */
+    private static final class Base64EncodingInputStream extends InputStream {
+
+        private final InputStream source;
+        private final Base64.Encoder encoder = Base64.getEncoder();
+        private byte[] encoded = new byte[0];
+        private int position;
+        private boolean finished;
+
+        private Base64EncodingInputStream(InputStream source) {
+            this.source = source;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (!fill()) {
+                return -1;
+            }
+            return encoded[position++] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            if (length == 0) {
+                return 0;
+            }
+            if (!fill()) {
+                return -1;
+            }
+            int count = Math.min(length, encoded.length - position);
+            System.arraycopy(encoded, position, buffer, offset, count);
+            position += count;
+            return count;
+        }
+
+        private boolean fill() throws IOException {
+            while (position >= encoded.length) {
+                if (finished) {
+                    return false;
+                }
+                byte[] chunk = source.readNBytes(ENCODE_CHUNK_BYTES);
+                finished = chunk.length < ENCODE_CHUNK_BYTES;
+                encoded = encoder.encode(chunk);
+                position = 0;
+            }
+            return true;
+        }
+
+        @Override
+        public void close() throws IOException {
+            source.close();
+        }
+    }
+}
@@ -9,12 +9,12 @@ import com.g4.capstoneproject.repository.UserRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.cache.annotation.CacheEvict;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
+import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 
@@ -29,15 +29,15 @@ public class AuthService {
     private final UserRepository userRepository;
     private final PasswordEncoder passwordEncoder;
     private final AsyncEmailService asyncEmailService;
+    private final CacheInvalidator cacheInvalidator;
 
     @Value("${email.verification.base-url:http://localhost:8080}")
     private String baseUrl;
 
     /**
      * Đăng ký người dùng mới
-     * Clears user-related caches after registration
+     * Clears (after commit) the account stats and the user/patient lists the new patient joins
      */
-    @CacheEvict(value = { "users", "patients" }, allEntries = true)
     @Transactional
     public AuthResponse register(RegisterRequest request) {
         try {
@@ -106,6 +106,7 @@ public class AuthService {
 
             user.setUserInfo(userInfo);
             user = userRepository.save(user);
+            cacheInvalidator.usersAdded(List.of(user.getId()), true);
 
             // Gửi email xác thực nếu có email
             if (user.getEmail() != null && !user.getEmail().isEmpty()) {
@@ -188,6 +189,7 @@ public class AuthService {
                     .email(user.getEmail())
                     .phone(user.getPhoneNumber())
                     .role(user.getRole())
+                    .securityVersion(user.getSecurityVersion())
                     .message("Đăng nhập thành công!")
                     .build();
 
@@ -202,9 +204,8 @@ public class AuthService {
 
     /**
      * Xử lý đăng nhập/đăng ký qua Google OAuth
-     * Clears user-related caches after OAuth registration/update
+     * Clears (after commit) the account stats and user lists of a new user, or the cached entries of a returning one
      */
-    @CacheEvict(value = { "users", "patients" }, allEntries = true)
     @Transactional
     public AuthResponse processOAuthPostLogin(String email, String name, String googleId) {
         try {
@@ -230,6 +231,7 @@ public class AuthService {
 
                 newUser.setUserInfo(userInfo);
                 newUser = userRepository.save(newUser);
+                cacheInvalidator.usersAdded(List.of(newUser.getId()), true);
 
                 log.info("New user registered via Google OAuth: {}", email);
 
@@ -240,6 +242,7 @@ public class AuthService {
                         .email(newUser.getEmail())
                         .phone(newUser.getPhoneNumber())
                         .role(newUser.getRole())
+                        .securityVersion(newUser.getSecurityVersion())
                         .message("Đăng ký và đăng nhập thành công qua Google!")
                         .build();
             } else {
@@ -255,6 +258,7 @@ public class AuthService {
                 // Cập nhật last login
                 user.setLastLogin(LocalDateTime.now());
                 userRepository.save(user);
+                cacheInvalidator.userLoginChanged(user.getId());
 
                 log.info("User logged in via Google OAuth: {}", email);
 
@@ -265,6 +269,7 @@ public class AuthService {
                         .email(user.getEmail())
                         .phone(user.getPhoneNumber())
                         .role(user.getRole())
+                        .securityVersion(user.getSecurityVersion())
                         .message("Đăng nhập thành công qua Google!")
                         .build();
             }
@@ -298,9 +303,8 @@ public class AuthService {
 
     /**
      * Xác thực email với token
-     * Clears user cache after email verification
+     * Clears the cached entries of the verified user (the search index is untouched)
      */
-    @CacheEvict(value = "users", allEntries = true)
     @Transactional
     public boolean verifyEmail(String token) {
         try {
@@ -326,6 +330,7 @@ public class AuthService {
             user.setEmailVerificationTokenExpiry(null);
 
             userRepository.save(user);
+            cacheInvalidator.userLoginChanged(user.getId());
 
             // Gửi welcome email
             log.info("Sending welcome email asynchronously to: {}", user.getEmail());
@@ -430,9 +435,8 @@ public class AuthService {
 
     /**
      * Đặt lại mật khẩu với token
-     * Clears user cache after password reset
+     * Clears the cached entries of the user (the search index is untouched)
      */
-    @CacheEvict(value = "users", allEntries = true)
     @Transactional
     public AuthResponse resetPassword(String token, String newPassword) {
         try {
@@ -464,6 +468,7 @@ public class AuthService {
             user.setPasswordResetTokenExpiry(null);
 
             userRepository.save(user);
+            cacheInvalidator.userLoginChanged(user.getId());
 
             log.info("Password reset successfully for user: {}", user.getEmail());
             return AuthResponse.builder()
@@ -0,0 +1,325 @@
+package com.g4.capstoneproject.service;
+
+import com.g4.capstoneproject.dto.Precription.PrescriptionSummary;
+import com.g4.capstoneproject.dto.TreatmentPlanSummary;
+import com.g4.capstoneproject.dto.response.KnowledgeArticleResponse;
+import com.g4.capstoneproject.dto.user.PatientSummary;
+import com.g4.capstoneproject.dto.user.UserResponse;
+import com.g4.capstoneproject.entity.KnowledgeArticle;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.caffeine.CaffeineCache;
+import org.springframework.data.domain.Page;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.Objects;
+import java.util.function.BiPredicate;
+import java.util.function.Predicate;
+
+/**
+ * Xóa cache theo đúng các key bị ảnh hưởng bởi một thay đổi dữ liệu
+ *
+ * Thay cho @CacheEvict(allEntries = true): mỗi loại thay đổi (user, treatment plan, đơn thuốc,
+ * bài viết) được ánh xạ sang các key cụ thể ('patient-{id}', 'doctor-{id}', id...) và các danh
+ * sách đang cache có chứa bản ghi đó. Danh sách mà bản ghi có thể mới gia nhập (vd. 'all' khi
+ * có bệnh nhân mới) được xóa theo key/prefix.
+ *
+ * Trong transaction, việc xóa chạy sau commit để request đồng thời không nạp lại dữ liệu cũ.
+ */
+@Component
+@RequiredArgsConstructor
+public class CacheInvalidator {
+
+    private static final String USERS = "users";
+    private static final String PATIENTS = "patients";
+    private static final String TREATMENT_PLANS = "treatmentPlans";
+    private static final String PRESCRIPTIONS = "prescriptions";
+    private static final String KNOWLEDGE_ARTICLES = "knowledgeArticles";
+    private static final String DASHBOARD_STATS = "dashboardStats";
+
+    // Thống kê tài khoản theo role/trạng thái (AdminService.ACCOUNT_STATS_KEY)
+    private static final String ACCOUNT_STATS = "accountStats";
+
+    // Danh sách bài viết theo trang/giới hạn, key = prefix + tham số
+    private static final String[] ARTICLE_LIST_PREFIXES =
+            { "category-", "published-", "recent-", "most-viewed-", "featured-" };
+
+    private final CacheManager cacheManager;
+    private final MeterRegistry meterRegistry;
+    private final UserSearchIndex userSearchIndex;
+
+    // ==================== Users / patients ====================
+
+    /**
+     * User đã tồn tại bị thay đổi (thông tin, role, trạng thái, xóa/khôi phục)
+     *
+     * @param patientListsAffected user là (hoặc vừa thôi là) bệnh nhân và có thể vào/ra
+     *                             danh sách 'all'/'active'
+     * @param accountStatsAffected role hoặc trạng thái kích hoạt đã đổi (thống kê tài khoản theo
+     *                             role/trạng thái thay đổi)
+     */
+    public void userChanged(Long userId, boolean patientListsAffected, boolean accountStatsAffected) {
+        TransactionCallbacks.afterCommit(() -> {
+            if (accountStatsAffected) {
+                evict(DASHBOARD_STATS, ACCOUNT_STATS);
+            }
+            evict(USERS, userId, "all");
+            evict(PATIENTS, userId);
+            if (patientListsAffected) {
+                evict(PATIENTS, "all", "active");
+            }
+            // Danh sách bệnh nhân theo bác sĩ ('doctor-{id}') đang chứa user này
+            evictContaining(PATIENTS, userId);
+            // Danh sách đơn thuốc/treatment plan hiển thị tên, số điện thoại của user: danh sách của
+            // chính user và của bác sĩ/bệnh nhân phía bên kia ('doctor-{D}' chứa bệnh nhân này...)
+            evictInvolving(PRESCRIPTIONS, userId);
+            evictInvolving(TREATMENT_PLANS, userId);
+            // Autocomplete: nạp lại dòng của user (tên, email, role, trạng thái có thể đã đổi)
+            userSearchIndex.userChanged(userId);
+        });
+    }
+
+    /**
+     * User chỉ đổi thông tin đăng nhập (lastLogin, xác thực email, mật khẩu, googleId):
+     * chỉ bản ghi UserResponse của user và danh sách 'all' hiển thị chúng
+     */
+    public void userLoginChanged(Long userId) {
+        TransactionCallbacks.afterCommit(() -> evict(USERS, userId, "all"));
+    }
+
+    /**
+     * Có user mới (đăng ký, admin tạo, import): chỉ danh sách tổng và thống kê tài khoản bị ảnh hưởng
+     */
+    public void usersAdded(Collection<Long> userIds, boolean patients) {
+        TransactionCallbacks.afterCommit(() -> {
+            evict(DASHBOARD_STATS, ACCOUNT_STATS);
+            evict(USERS, "all");
+            if (patients) {
+                evict(PATIENTS, "all", "active");
+            }
+            userIds.forEach(userSearchIndex::userChanged);
+        });
+    }
+
+    // ==================== Treatment plans ====================
+
+    /**
+     * Treatment plan được tạo/sửa/xóa
+     * Kéo theo danh sách bệnh nhân của bác sĩ (lấy từ treatment plan)
+     */
+    public void treatmentPlanChanged(Long patientId, Long doctorId) {
+        TransactionCallbacks.afterCommit(() -> {
+            evict(TREATMENT_PLANS, keyOf("patient-", patientId), keyOf("doctor-", doctorId));
+            evict(PATIENTS, keyOf("doctor-", doctorId));
+        });
+    }
+
+    // ==================== Prescriptions ====================
+
+    /**
+     * Đơn thuốc được tạo/sửa/xóa
+     */
+    public void prescriptionChanged(Long patientId, Long doctorId) {
+        TransactionCallbacks.afterCommit(() -> evict(PRESCRIPTIONS, keyOf("patient-", patientId), keyOf("doctor-", doctorId)));
+    }
+
+    // ==================== Knowledge articles ====================
+
+    /**
+     * Bài viết được tạo/sửa/xóa
+     *
+     * Danh sách đang chứa bài viết luôn bị xóa (nội dung thay đổi). Danh sách có thể đổi
+     * thành viên (bài viết vào/ra, các trang sau bị dịch) chỉ bị xóa khi danh mục, trạng thái
+     * published hoặc featured thay đổi.
+     *
+     * @param before     Trạng thái trước khi sửa, null nếu bài viết mới
+     * @param after      Trạng thái sau khi sửa, null nếu bài viết đã bị xóa
+     * @param relatedIds Bài viết lân cận trong đồ thị related sau khi tính lại,
+     *                   null khi không có đồ thị (mọi danh sách related bị xóa)
+     */
+    public void articleChanged(Long articleId, ArticleState before, ArticleState after, Collection<Long> relatedIds) {
+        ArticleState was = before != null ? before : ArticleState.NONE;
+        ArticleState is = after != null ? after : ArticleState.NONE;
+        boolean created = before == null;
+        boolean deleted = after == null;
+
+        TransactionCallbacks.afterCommit(() -> {
+            evictArticle(articleId, relatedIds);
+
+            if (created || deleted || !Objects.equals(was.categoryId(), is.categoryId())) {
+                evictPrefix(KNOWLEDGE_ARTICLES, "category-" + was.categoryId() + "-");
+                evictPrefix(KNOWLEDGE_ARTICLES, "category-" + is.categoryId() + "-");
+            }
+            boolean publishedChanged = was.published() != is.published();
+            if (publishedChanged) {
+                evictPrefix(KNOWLEDGE_ARTICLES, "published-");
+                evictPrefix(KNOWLEDGE_ARTICLES, "recent-");
+                evictPrefix(KNOWLEDGE_ARTICLES, "most-viewed-");
+            }
+            if (was.listedAsFeatured() != is.listedAsFeatured()) {
+                evictPrefix(KNOWLEDGE_ARTICLES, "featured-");
+            }
+            boolean tagsChanged = !Objects.equals(was.tags(), is.tags());
+            if (tagsChanged) {
+                evict(KNOWLEDGE_ARTICLES, "tags");
+            }
+            if (publishedChanged || (tagsChanged && (was.published() || is.published()))) {
+                evict(KNOWLEDGE_ARTICLES, "tag-cloud");
+            }
+        });
+    }
+
+    /**
+     * Bài viết bị thay đổi ở nơi không biết trạng thái trước (vd. API của bác sĩ ghi thẳng repository):
+     * mọi danh sách có thể đổi thành viên đều bị xóa
+     */
+    public void articleChanged(Long articleId, Collection<Long> relatedIds) {
+        TransactionCallbacks.afterCommit(() -> {
+            evictArticle(articleId, relatedIds);
+            for (String prefix : ARTICLE_LIST_PREFIXES) {
+                evictPrefix(KNOWLEDGE_ARTICLES, prefix);
+            }
+            evict(KNOWLEDGE_ARTICLES, "tags", "tag-cloud");
+        });
+    }
+
+    /**
+     * Danh sách đang hiển thị bài viết (tiêu đề, tóm tắt...) và danh sách related của bài viết
+     * cùng các bài lân cận (lân cận cũ đã chứa bài viết trong danh sách của chúng)
+     */
+    private void evictArticle(Long articleId, Collection<Long> relatedIds) {
+        evictContaining(KNOWLEDGE_ARTICLES, articleId);
+        if (relatedIds == null) {
+            evictPrefix(KNOWLEDGE_ARTICLES, "related-");
+            return;
+        }
+        evictPrefix(KNOWLEDGE_ARTICLES, "related-" + articleId + "-");
+        for (Long neighbour : relatedIds) {
+            evictPrefix(KNOWLEDGE_ARTICLES, "related-" + neighbour + "-");
+        }
+    }
+
+    /**
+     * Các thuộc tính của bài viết quyết định bài viết nằm trong danh sách cache nào
+     */
+    public record ArticleState(Long categoryId, boolean published, boolean featured, String tags) {
+
+        static final ArticleState NONE = new ArticleState(null, false, false, null);
+
+        public static ArticleState of(KnowledgeArticle article) {
+            return new ArticleState(
+                    article.getCategory() != null ? article.getCategory().getId() : null,
+                    article.getStatus() == KnowledgeArticle.ArticleStatus.PUBLISHED,
+                    Boolean.TRUE.equals(article.getFeatured()),
+                    article.getTags());
+        }
+
+        boolean listedAsFeatured() {
+            return published && featured;
+        }
+    }
+
+    // ==================== Primitives ====================
+
+    private static String keyOf(String prefix, Long id) {
+        return id != null ? prefix + id : null;
+    }
+
+    private void evict(String cacheName, Object... keys) {
+        Cache cache = cacheManager.getCache(cacheName);
+        if (cache == null) {
+            return;
+        }
+        for (Object key : keys) {
+            if (key != null) {
+                cache.evict(key);
+            }
+        }
+        count(cacheName, "key");
+    }
+
+    /**
+     * Xóa các key dạng chuỗi bắt đầu bằng prefix (vd. mọi trang 'category-5-*')
+     */
+    private void evictPrefix(String cacheName, String prefix) {
+        evictIf(cacheName, (key, value) -> key instanceof String name && name.startsWith(prefix));
+        count(cacheName, "prefix");
+    }
+
+    /**
+     * Xóa các danh sách (List/Page) đang cache có chứa bản ghi với id cho trước
+     */
+    private void evictContaining(String cacheName, Long id) {
+        evictIf(cacheName, (key, value) -> containsId(value, id));
+        count(cacheName, "contains");
+    }
+
+    /**
+     * Xóa các danh sách đơn thuốc/treatment plan có phần tử thuộc về user (là bệnh nhân hoặc bác sĩ)
+     */
+    private void evictInvolving(String cacheName, Long userId) {
+        evictIf(cacheName, (key, value) -> anyElement(value, element -> involves(element, userId)));
+        count(cacheName, "contains");
+    }
+
+    private void evictIf(String cacheName, BiPredicate<Object, Object> predicate) {
+        if (cacheManager.getCache(cacheName) instanceof CaffeineCache cache) {
+            cache.getNativeCache().asMap().entrySet()
+                    .removeIf(entry -> predicate.test(entry.getKey(), entry.getValue()));
+        }
+    }
+
+    private static boolean containsId(Object value, Long id) {
+        return anyElement(value, element -> Objects.equals(idOf(element), id));
+    }
+
+    private static boolean anyElement(Object value, Predicate<Object> predicate) {
+        Iterable<?> elements;
+        if (value instanceof Collection<?> collection) {
+            elements = collection;
+        } else if (value instanceof Page<?> page) {
+            elements = page.getContent();
+        } else {
+            return false;
+        }
+        for (Object element : elements) {
+            if (predicate.test(element)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean involves(Object element, Long userId) {
+        if (element instanceof TreatmentPlanSummary plan) {
+            return userId.equals(plan.patientId()) || userId.equals(plan.doctorId());
+        }
+        if (element instanceof PrescriptionSummary prescription) {
+            return userId.equals(prescription.patientId()) || userId.equals(prescription.doctorId());
+        }
+        return false;
+    }
+
+    /**
+     * Id của phần tử trong các danh sách đang được cache
+     */
+    private static Object idOf(Object element) {
+        if (element instanceof PatientSummary patient) {
+            return patient.id();
+        }
+        if (element instanceof UserResponse user) {
+            return user.getId();
+        }
+        if (element instanceof KnowledgeArticleResponse article) {
+            return article.getId();
+        }
+        return null;
+    }
+
+    private void count(String cacheName, String kind) {
+        meterRegistry.counter("cache.invalidations", "cache", cacheName, "kind", kind).increment();
+    }
+}
@@ -0,0 +1,57 @@
+package com.g4.capstoneproject.service;
+
+import com.g4.capstoneproject.dto.doctor.DoctorDashboardStatsDTO;
+import com.g4.capstoneproject.dto.doctor.DoctorPlanStats;
+import com.g4.capstoneproject.dto.doctor.DoctorTicketStats;
+import com.g4.capstoneproject.entity.User;
+import com.g4.capstoneproject.repository.PrescriptionRepository;
+import com.g4.capstoneproject.repository.TicketRepository;
+import com.g4.capstoneproject.repository.TreatmentPlanRepository;
+import com.g4.capstoneproject.repository.UserRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+
+/**
+ * Số liệu dashboard bác sĩ
+ * Mỗi nguồn (kế hoạch điều trị, đơn thuốc, ticket) chỉ một câu truy vấn aggregate,
+ * không load entity; kết quả cache theo bác sĩ trong thời gian ngắn (doctorDashboardStats)
+ */
+@Service
+@RequiredArgsConstructor
+public class DoctorDashboardService {
+
+    private final TreatmentPlanRepository treatmentPlanRepository;
+    private final PrescriptionRepository prescriptionRepository;
+    private final TicketRepository ticketRepository;
+    private final UserRepository userRepository;
+
+    /**
+     * Thống kê dashboard của bác sĩ
+     */
+    @Cacheable(value = "doctorDashboardStats", key = "#doctorId")
+    @Transactional(readOnly = true)
+    public DoctorDashboardStatsDTO getStats(Long doctorId) {
+        DoctorPlanStats plans = treatmentPlanRepository.getDoctorStats(doctorId, LocalDate.now());
+        DoctorTicketStats tickets = ticketRepository.getAssigneeStats(doctorId);
+
+        // Bác sĩ chưa có kế hoạch điều trị: hiển thị tổng số bệnh nhân đang hoạt động
+        long totalPatients = plans.getTotalPlans() > 0
+                ? plans.getDistinctPatients()
+                : userRepository.countByRoleAndIsActiveTrue(User.UserRole.PATIENT);
+
+        return DoctorDashboardStatsDTO.builder()
+                .totalPatients(totalPatients)
+                .activePatients(plans.getActive())
+                .completedPatients(plans.getCompleted())
+                .pendingPatients(plans.getDraft())
+                .urgentAlerts(tickets.getUrgentOpen())
+                .todayAppointments(plans.getStartingToday())
+                .totalPrescriptions(prescriptionRepository.countByDoctorId(doctorId))
+                .pendingTickets(tickets.getOpen())
+                .build();
+    }
+}
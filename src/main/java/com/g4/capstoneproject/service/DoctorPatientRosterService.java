@@ -0,0 +1,139 @@
+package com.g4.capstoneproject.service;
+
+import com.g4.capstoneproject.dto.doctor.DoctorPatientPage;
+import com.g4.capstoneproject.dto.doctor.DoctorPatientRow;
+import com.g4.capstoneproject.entity.TreatmentPlan;
+import com.g4.capstoneproject.repository.TreatmentPlanRepository;
+import com.g4.capstoneproject.repository.UserRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Danh sách bệnh nhân của bác sĩ
+ * Đọc bằng projection (treatment_plans + users + user_info) trong một câu truy vấn,
+ * phân trang keyset, tìm kiếm và sắp xếp phía database
+ */
+@Service
+@RequiredArgsConstructor
+@Transactional(readOnly = true)
+public class DoctorPatientRosterService {
+
+    public static final int MAX_PAGE_SIZE = 100;
+
+    private static final LocalDateTime RECENT_START = LocalDateTime.of(9999, 12, 31, 23, 59);
+    private static final String NAME_START = "";
+
+    private final TreatmentPlanRepository treatmentPlanRepository;
+    private final UserRepository userRepository;
+
+    /**
+     * Thứ tự sắp xếp roster
+     */
+    public enum Sort {
+        RECENT, // kế hoạch cập nhật gần nhất trước
+        NAME // theo họ tên A-Z
+    }
+
+    /**
+     * Một trang roster
+     *
+     * @param cursor nextCursor của trang trước, null/rỗng cho trang đầu
+     * @param keyword tìm theo họ tên, email, số điện thoại
+     * @param status lọc theo trạng thái kế hoạch mới nhất, null = tất cả
+     * @throws IllegalArgumentException nếu cursor không hợp lệ
+     */
+    public DoctorPatientPage getPage(Long doctorId, String cursor, int size, String keyword,
+                                     TreatmentPlan.PlanStatus status, Sort sort) {
+        int pageSize = Math.max(1, Math.min(size, MAX_PAGE_SIZE));
+        PageRequest limit = PageRequest.of(0, pageSize + 1);
+        Set<TreatmentPlan.PlanStatus> statuses = status != null
+                ? EnumSet.of(status) : EnumSet.allOf(TreatmentPlan.PlanStatus.class);
+        String pattern = keyword == null || keyword.isBlank()
+                ? "" : "%" + UserSearchService.escapeLike(keyword.trim().toLowerCase(Locale.ROOT)) + "%";
+        String[] position = decodeCursor(cursor);
+
+        // Kiểm tra cursor trước khi truy vấn: cursor hỏng là lỗi của client (400)
+        String afterValue;
+        long afterId;
+        LocalDateTime afterUpdatedAt = null;
+        try {
+            afterValue = position != null ? position[0] : null;
+            afterId = position != null ? Long.parseLong(position[1]) : 0L;
+            if (sort != Sort.NAME && afterValue != null) {
+                afterUpdatedAt = LocalDateTime.parse(afterValue);
+            }
+        } catch (NumberFormatException | DateTimeParseException e) {
+            throw new IllegalArgumentException("Cursor không hợp lệ", e);
+        }
+
+        List<DoctorPatientRow> rows;
+        if (sort == Sort.NAME) {
+            rows = treatmentPlanRepository.findRosterPageByName(doctorId, statuses, pattern,
+                    afterValue != null ? afterValue : NAME_START, afterId, limit);
+        } else {
+            rows = treatmentPlanRepository.findRosterPageByRecent(doctorId, statuses, pattern,
+                    afterUpdatedAt != null ? afterUpdatedAt : RECENT_START,
+                    position != null ? afterId : Long.MAX_VALUE, limit);
+        }
+
+        boolean hasMore = rows.size() > pageSize;
+        List<DoctorPatientRow> items = hasMore ? rows.subList(0, pageSize) : rows;
+        String nextCursor = null;
+        if (hasMore) {
+            DoctorPatientRow last = items.get(items.size() - 1);
+            nextCursor = sort == Sort.NAME
+                    ? encodeCursor(last.getFullName(), last.getId())
+                    : encodeCursor(last.getLastUpdated().toString(), last.getTreatmentPlanId());
+        }
+        return DoctorPatientPage.builder()
+                .items(List.copyOf(items))
+                .nextCursor(nextCursor)
+                .hasMore(hasMore)
+                .build();
+    }
+
+    /**
+     * Toàn bộ bệnh nhân của bác sĩ (dùng cho dropdown chọn bệnh nhân)
+     * Bác sĩ chưa có kế hoạch điều trị nào: tối đa MAX_PAGE_SIZE bệnh nhân đang hoạt động,
+     * mới đăng ký trước (để vẫn tạo được kế hoạch đầu tiên mà không tải cả bảng users)
+     */
+    public List<DoctorPatientRow> getAll(Long doctorId) {
+        List<DoctorPatientRow> rows = treatmentPlanRepository.findRosterByDoctorId(doctorId);
+        return rows.isEmpty() ? userRepository.findActivePatientRows(PageRequest.of(0, MAX_PAGE_SIZE)) : rows;
+    }
+
+    private static String encodeCursor(String value, Long id) {
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString((id + "|" + value).getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @return [giá trị sort, id] hoặc null cho trang đầu
+     */
+    private static String[] decodeCursor(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return null;
+        }
+        try {
+            String decoded = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separator = decoded.indexOf('|');
+            if (separator < 0) {
+                throw new IllegalArgumentException("Cursor không hợp lệ");
+            }
+            return new String[]{decoded.substring(separator + 1), decoded.substring(0, separator)};
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Cursor không hợp lệ", e);
+        }
+    }
+}
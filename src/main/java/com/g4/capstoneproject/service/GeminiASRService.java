@@ -2,9 +2,13 @@ package com.g4.capstoneproject.service;
 
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.InputStreamSource;
 import org.springframework.stereotype.Service;
 
 import java.io.IOException;
@@ -13,14 +17,13 @@ import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
 import java.time.Duration;
-import java.util.Base64;
 
 /**
  * Service để thực hiện Speech-to-Text sử dụng Gemini API
  * 
  * Luồng xử lý:
- * 1. Nhận audio bytes (webm format)
- * 2. Encode thành base64
+ * 1. Nhận audio (bytes hoặc stream, webm format)
+ * 2. Encode thành base64 theo từng khối trong lúc gửi request
  * 3. Gửi request đến Gemini API
  * 4. Parse response và trả về transcript text
  */
@@ -56,17 +59,25 @@ public class GeminiASRService {
      * @throws IOException Nếu có lỗi khi gọi API
      */
     public String transcribe(byte[] audioBytes, String mimeType) throws IOException {
+        return transcribe(new ByteArrayResource(audioBytes), audioBytes.length, mimeType);
+    }
+    
+    /**
+     * Transcribe audio từ stream (MultipartFile, S3...) sử dụng Gemini API
+     * Audio được encode Base64 dần trong lúc gửi, không giữ bản copy trong heap
+     * 
+     * @param audio Nguồn audio
+     * @param audioLength Kích thước audio (byte), -1 nếu không biết
+     * @param mimeType MIME type của audio (vd: audio/webm)
+     * @return Transcript text
+     * @throws IOException Nếu có lỗi khi gọi API
+     */
+    public String transcribe(InputStreamSource audio, long audioLength, String mimeType) throws IOException {
         if (apiKey == null || apiKey.isEmpty()) {
             throw new IllegalStateException("Gemini API key chưa được cấu hình. Vui lòng thêm gemini.api.key vào application.properties");
         }
         
-        logger.info("Bắt đầu transcribe audio: {} bytes, mimeType: {}", audioBytes.length, mimeType);
-        
-        // Encode audio thành base64
-        String base64Audio = Base64.getEncoder().encodeToString(audioBytes);
-        
-        // Tạo request body
-        String requestBody = buildRequestBody(base64Audio, mimeType);
+        logger.info("Bắt đầu transcribe audio: {} bytes, mimeType: {}", audioLength, mimeType);
         
         // Gọi API
         String url = GEMINI_API_URL + "?key=" + apiKey;
@@ -75,7 +86,7 @@ public class GeminiASRService {
                 .uri(URI.create(url))
                 .header("Content-Type", "application/json")
                 .timeout(Duration.ofSeconds(HTTP_TIMEOUT_SECONDS))
-                .POST(HttpRequest.BodyPublishers.ofString(requestBody))
+                .POST(AsrRequestBodies.base64Json(objectMapper, buildRequestBody(mimeType), audio, audioLength))
                 .build();
         
         try {
@@ -102,33 +113,22 @@ public class GeminiASRService {
     
     /**
      * Build request body cho Gemini API
+     * Field inline_data.data giữ placeholder, audio Base64 được chèn khi gửi
      */
-    private String buildRequestBody(String base64Audio, String mimeType) {
+    private ObjectNode buildRequestBody(String mimeType) {
         // Gemini API format for audio transcription
-        return """
-            {
-              "contents": [
-                {
-                  "role": "user",
-                  "parts": [
-                    {
-                      "inline_data": {
-                        "mime_type": "%s",
-                        "data": "%s"
-                      }
-                    },
-                    {
-                      "text": "Hãy chuyển đổi đoạn audio này thành văn bản tiếng Việt. Chỉ trả về nội dung transcript, không thêm giải thích hay chú thích nào khác. Nếu audio không có tiếng nói hoặc không nghe rõ, trả về '[Không có nội dung]'."
-                    }
-                  ]
-                }
-              ],
-              "generationConfig": {
-                "temperature": 0.1,
-                "maxOutputTokens": 8192
-              }
-            }
-            """.formatted(mimeType, base64Audio);
+        ObjectNode body = objectMapper.createObjectNode();
+        ObjectNode content = body.putArray("contents").addObject();
+        content.put("role", "user");
+        ArrayNode parts = content.putArray("parts");
+        ObjectNode inlineData = parts.addObject().putObject("inline_data");
+        inlineData.put("mime_type", mimeType);
+        inlineData.put("data", AsrRequestBodies.AUDIO_PLACEHOLDER);
+        parts.addObject().put("text", "Hãy chuyển đổi đoạn audio này thành văn bản tiếng Việt. Chỉ trả về nội dung transcript, không thêm giải thích hay chú thích nào khác. Nếu audio không có tiếng nói hoặc không nghe rõ, trả về '[Không có nội dung]'.");
+        ObjectNode generationConfig = body.putObject("generationConfig");
+        generationConfig.put("temperature", 0.1);
+        generationConfig.put("maxOutputTokens", 8192);
+        return body;
     }
     
     /**
@@ -2,9 +2,12 @@ package com.g4.capstoneproject.service;
 
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.InputStreamSource;
 import org.springframework.stereotype.Service;
 
 import java.io.IOException;
@@ -13,7 +16,6 @@ import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
 import java.time.Duration;
-import java.util.Base64;
 
 /**
  * Service để thực hiện Speech-to-Text sử dụng Google Cloud Speech-to-Text API
@@ -52,21 +54,29 @@ public class GoogleSpeechService {
      * @throws IOException Nếu có lỗi khi gọi API
      */
     public String transcribe(byte[] audioBytes, String mimeType) throws IOException {
+        return transcribe(new ByteArrayResource(audioBytes), audioBytes.length, mimeType);
+    }
+    
+    /**
+     * Transcribe audio từ stream (MultipartFile, S3...) sử dụng Google Cloud Speech-to-Text API
+     * Audio được encode Base64 dần trong lúc gửi, không giữ bản copy trong heap
+     * 
+     * @param audio Nguồn audio
+     * @param audioLength Kích thước audio (byte), -1 nếu không biết
+     * @param mimeType MIME type của audio (vd: audio/webm)
+     * @return Transcript text
+     * @throws IOException Nếu có lỗi khi gọi API
+     */
+    public String transcribe(InputStreamSource audio, long audioLength, String mimeType) throws IOException {
         if (apiKey == null || apiKey.isEmpty()) {
             throw new IllegalStateException("Google Speech API key chưa được cấu hình");
         }
         
-        logger.info("Bắt đầu transcribe audio với Google Speech: {} bytes, mimeType: {}", audioBytes.length, mimeType);
-        
-        // Encode audio thành base64
-        String base64Audio = Base64.getEncoder().encodeToString(audioBytes);
+        logger.info("Bắt đầu transcribe audio với Google Speech: {} bytes, mimeType: {}", audioLength, mimeType);
         
         // Xác định encoding dựa trên MIME type
         String encoding = getEncoding(mimeType);
         
-        // Tạo request body
-        String requestBody = buildRequestBody(base64Audio, encoding);
-        
         // Gọi API
         String url = SPEECH_API_URL + "?key=" + apiKey;
         
@@ -74,7 +84,7 @@ public class GoogleSpeechService {
                 .uri(URI.create(url))
                 .header("Content-Type", "application/json")
                 .timeout(Duration.ofSeconds(HTTP_TIMEOUT_SECONDS))
-                .POST(HttpRequest.BodyPublishers.ofString(requestBody))
+                .POST(AsrRequestBodies.base64Json(objectMapper, buildRequestBody(encoding), audio, audioLength))
                 .build();
         
         try {
@@ -117,24 +127,20 @@ public class GoogleSpeechService {
     
     /**
      * Build request body cho Google Speech API
+     * Field audio.content giữ placeholder, audio Base64 được chèn khi gửi
      */
-    private String buildRequestBody(String base64Audio, String encoding) {
+    private ObjectNode buildRequestBody(String encoding) {
         // Sử dụng model chirp cho chất lượng tốt nhất
-        return """
-            {
-              "config": {
-                "encoding": "%s",
-                "sampleRateHertz": 48000,
-                "languageCode": "vi-VN",
-                "model": "default",
-                "enableAutomaticPunctuation": true,
-                "enableWordTimeOffsets": false
-              },
-              "audio": {
-                "content": "%s"
-              }
-            }
-            """.formatted(encoding, base64Audio);
+        ObjectNode body = objectMapper.createObjectNode();
+        ObjectNode config = body.putObject("config");
+        config.put("encoding", encoding);
+        config.put("sampleRateHertz", 48000);
+        config.put("languageCode", "vi-VN");
+        config.put("model", "default");
+        config.put("enableAutomaticPunctuation", true);
+        config.put("enableWordTimeOffsets", false);
+        body.putObject("audio").put("content", AsrRequestBodies.AUDIO_PLACEHOLDER);
+        return body;
     }
     
     /**
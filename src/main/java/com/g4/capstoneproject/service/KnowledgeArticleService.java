@@ -2,6 +2,7 @@ package com.g4.capstoneproject.service;
 
 import com.g4.capstoneproject.dto.response.KnowledgeArticleDetailResponse;
 import com.g4.capstoneproject.dto.response.KnowledgeArticleResponse;
+import com.g4.capstoneproject.dto.response.KnowledgeTagCountResponse;
 import com.g4.capstoneproject.entity.KnowledgeArticle;
 import com.g4.capstoneproject.entity.KnowledgeArticle.ArticleStatus;
 import com.g4.capstoneproject.entity.KnowledgeCategory;
@@ -9,19 +10,29 @@ import com.g4.capstoneproject.entity.User;
 import com.g4.capstoneproject.repository.KnowledgeArticleRepository;
 import com.g4.capstoneproject.repository.KnowledgeCategoryRepository;
 import com.g4.capstoneproject.repository.UserRepository;
+import com.g4.capstoneproject.service.CacheInvalidator.ArticleState;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
 import org.springframework.cache.annotation.Cacheable;
+import org.springframework.context.event.EventListener;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.support.PageableExecutionUtils;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.BooleanSupplier;
+import java.util.function.Function;
+import java.util.regex.Pattern;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
 @RequiredArgsConstructor
@@ -31,6 +42,63 @@ public class KnowledgeArticleService {
     private final KnowledgeArticleRepository articleRepository;
     private final KnowledgeCategoryRepository categoryRepository;
     private final UserRepository userRepository;
+    private final ArticleViewCounter viewCounter;
+    private final CacheInvalidator cacheInvalidator;
+
+    private static final Pattern NON_WORD = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+    /**
+     * search_vector + vi_unaccent (migration V20261023) exist, null until checked
+     * Without them search falls back to unranked LIKE on title/content
+     */
+    private volatile Boolean fullTextSupported;
+
+    /**
+     * knowledge_article_tags + knowledge_article_related (migration V20261024) exist, null until checked
+     * Without them tags are read from the comma-separated tags column and related articles
+     * are matched by LIKE; the related-articles graph is not maintained
+     */
+    private volatile Boolean tagTablesSupported;
+
+    /**
+     * Checked once at startup; a migration applied later needs a restart
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void detectSchemaSupport() {
+        fullTextSupported = detect("search_vector / vi_unaccent", "V20261023",
+                "article search falls back to unranked LIKE", articleRepository::hasFullTextSupport);
+        tagTablesSupported = detect("knowledge_article_tags / knowledge_article_related", "V20261024",
+                "tags and related articles fall back to the tags column", articleRepository::hasTagTableSupport);
+    }
+
+    private boolean detect(String objects, String migration, String fallback,
+            BooleanSupplier check) {
+        boolean supported;
+        try {
+            supported = check.getAsBoolean();
+        } catch (Exception e) {
+            log.warn("Could not check {} support: {}", objects, e.getMessage());
+            supported = false;
+        }
+        if (!supported) {
+            log.warn("{} missing (migration {} not applied): {}", objects, migration, fallback);
+        }
+        return supported;
+    }
+
+    private boolean fullTextSupported() {
+        if (fullTextSupported == null) {
+            detectSchemaSupport();
+        }
+        return fullTextSupported;
+    }
+
+    private boolean tagTablesSupported() {
+        if (tagTablesSupported == null) {
+            detectSchemaSupport();
+        }
+        return tagTablesSupported;
+    }
 
     /**
      * Get all articles with pagination
@@ -119,43 +187,91 @@ public class KnowledgeArticleService {
     /**
      * Search articles by keyword
      */
+    @Transactional(readOnly = true)
     public Page<KnowledgeArticleResponse> searchArticles(
             String keyword, ArticleStatus status, Pageable pageable) {
-        return articleRepository.searchByKeyword(keyword, status, pageable)
-                .map(KnowledgeArticleResponse::fromEntity);
+        return search(keyword, status, null, pageable).map(SearchHit::toResponse);
     }
 
     /**
      * Search articles by keyword and category
      */
+    @Transactional(readOnly = true)
     public Page<KnowledgeArticleResponse> searchArticlesByCategory(
             Long categoryId, String keyword, ArticleStatus status, Pageable pageable) {
-        return articleRepository.searchByCategoryAndKeyword(categoryId, keyword, status, pageable)
-                .map(KnowledgeArticleResponse::fromEntity);
+        return search(keyword, status, categoryId, pageable).map(SearchHit::toResponse);
+    }
+
+    /**
+     * Full-text search (search_vector) with relevance ranking and highlighted snippets
+     * Matching ignores Vietnamese diacritics; the last word is matched as a prefix
+     * so search-as-you-type keeps working. The pageable sort is ignored (ranked by score).
+     * Without the full-text migration: LIKE on title/content, newest first, no score or snippet
+     *
+     * @param status     null = any status
+     * @param categoryId null = any category
+     */
+    @Transactional(readOnly = true)
+    public Page<SearchHit> search(String keyword, ArticleStatus status, Long categoryId, Pageable pageable) {
+        String query = toTsQuery(keyword);
+        if (query.isEmpty()) {
+            return Page.empty(pageable);
+        }
+        if (!fullTextSupported()) {
+            String pattern = "%" + UserSearchService.escapeLike(keyword.trim().toLowerCase(Locale.ROOT)) + "%";
+            return articleRepository.searchByKeyword(pattern, status, categoryId,
+                            PageRequest.of(pageable.getPageNumber(), pageable.getPageSize()))
+                    .map(article -> new SearchHit(article, null, null));
+        }
+        String statusFilter = status != null ? status.name() : "";
+        Long categoryFilter = categoryId != null ? categoryId : 0L;
+
+        List<KnowledgeArticleRepository.ArticleSearchHit> hits = articleRepository.searchRanked(
+                query, statusFilter, categoryFilter, pageable.getPageSize(), pageable.getOffset());
+        Map<Long, KnowledgeArticle> articles = hits.isEmpty() ? Map.of() : articleRepository
+                .findAllByIdWithDetails(hits.stream().map(KnowledgeArticleRepository.ArticleSearchHit::getId).toList())
+                .stream()
+                .collect(Collectors.toMap(KnowledgeArticle::getId, Function.identity()));
+        List<SearchHit> content = hits.stream()
+                .filter(hit -> articles.containsKey(hit.getId()))
+                .map(hit -> new SearchHit(articles.get(hit.getId()), hit.getScore(), hit.getSnippet()))
+                .toList();
+
+        return PageableExecutionUtils.getPage(content, pageable,
+                () -> articleRepository.countSearchRanked(query, statusFilter, categoryFilter));
     }
 
     /**
      * Search articles by tag
      */
     public Page<KnowledgeArticleResponse> searchByTag(String tag, Pageable pageable) {
-        return articleRepository.findByTag(tag, ArticleStatus.PUBLISHED, pageable)
+        String normalized = tag == null ? "" : tag.trim().toLowerCase(Locale.ROOT);
+        if (!tagTablesSupported()) {
+            return articleRepository.findByTagLike("%" + UserSearchService.escapeLike(normalized) + "%",
+                            ArticleStatus.PUBLISHED, pageable)
+                    .map(KnowledgeArticleResponse::fromEntity);
+        }
+        return articleRepository.findByTag(normalized, ArticleStatus.PUBLISHED.name(), pageable)
                 .map(KnowledgeArticleResponse::fromEntity);
     }
 
     /**
      * Get article by ID (with view increment)
+     * Views are buffered in ArticleViewCounter and written back in batches,
+     * so reading an article does not write to the database
      */
-    @Transactional
+    @Transactional(readOnly = true)
     public KnowledgeArticleDetailResponse getArticleById(Long id, boolean incrementView) {
         KnowledgeArticle article = articleRepository.findById(id)
                 .orElseThrow(() -> new IllegalArgumentException("Article not found"));
 
         if (incrementView && article.isPublished()) {
-            articleRepository.incrementViews(id);
-            article.incrementViews();
+            viewCounter.record(id);
         }
 
-        return KnowledgeArticleDetailResponse.fromEntity(article);
+        KnowledgeArticleDetailResponse response = KnowledgeArticleDetailResponse.fromEntity(article);
+        response.setViews(viewCounter.currentViews(id, article.getViews()));
+        return response;
     }
 
     /**
@@ -167,9 +283,8 @@ public class KnowledgeArticleService {
 
     /**
      * Create new article
-     * Clears all article caches on create
+     * Clears the article lists the new article joins
      */
-    @CacheEvict(value = "knowledgeArticles", allEntries = true)
     @Transactional
     public KnowledgeArticleDetailResponse createArticle(
             String title,
@@ -210,7 +325,9 @@ public class KnowledgeArticleService {
             article.setPublishedAt(LocalDateTime.now());
         }
 
-        KnowledgeArticle saved = articleRepository.save(article);
+        KnowledgeArticle saved = articleRepository.saveAndFlush(article);
+        refreshRelatedGraph(saved.getId());
+        cacheInvalidator.articleChanged(saved.getId(), null, ArticleState.of(saved), relatedIds(saved.getId()));
         log.info("Created article: {} (ID: {}) by {}", saved.getTitle(), saved.getId(), author.getFullName());
 
         return KnowledgeArticleDetailResponse.fromEntity(saved);
@@ -218,9 +335,8 @@ public class KnowledgeArticleService {
 
     /**
      * Update article
-     * Clears all article caches on update
+     * Clears the cached lists showing the article, and the lists it joins or leaves
      */
-    @CacheEvict(value = "knowledgeArticles", allEntries = true)
     @Transactional
     public KnowledgeArticleDetailResponse updateArticle(
             Long id,
@@ -234,6 +350,7 @@ public class KnowledgeArticleService {
             Boolean featured) {
         KnowledgeArticle article = articleRepository.findById(id)
                 .orElseThrow(() -> new IllegalArgumentException("Article not found"));
+        ArticleState before = ArticleState.of(article);
 
         User updatedBy = userRepository.findById(updatedById)
                 .orElseThrow(() -> new IllegalArgumentException("User not found"));
@@ -277,7 +394,9 @@ public class KnowledgeArticleService {
 
         article.setUpdatedBy(updatedBy);
 
-        KnowledgeArticle updated = articleRepository.save(article);
+        KnowledgeArticle updated = articleRepository.saveAndFlush(article);
+        refreshRelatedGraph(updated.getId());
+        cacheInvalidator.articleChanged(id, before, ArticleState.of(updated), relatedIds(id));
         log.info("Updated article: {} (ID: {}) by {}", updated.getTitle(), updated.getId(), updatedBy.getFullName());
 
         return KnowledgeArticleDetailResponse.fromEntity(updated);
@@ -285,23 +404,24 @@ public class KnowledgeArticleService {
 
     /**
      * Delete article (hard delete)
-     * Clears all article caches on delete
+     * Clears the cached lists showing the article, and the lists it leaves
      */
-    @CacheEvict(value = "knowledgeArticles", allEntries = true)
     @Transactional
     public void deleteArticle(Long id) {
         KnowledgeArticle article = articleRepository.findById(id)
                 .orElseThrow(() -> new IllegalArgumentException("Article not found"));
 
+        ArticleState before = ArticleState.of(article);
         articleRepository.delete(article);
+        // Related edges are removed by ON DELETE CASCADE, neighbours' lists contain the article
+        cacheInvalidator.articleChanged(id, before, null, List.of());
         log.info("Deleted article: {} (ID: {})", article.getTitle(), article.getId());
     }
 
     /**
      * Publish article
-     * Clears all article caches when publishing
+     * Clears the cached lists showing the article, and the published lists
      */
-    @CacheEvict(value = "knowledgeArticles", allEntries = true)
     @Transactional
     public KnowledgeArticleDetailResponse publishArticle(Long id, Long userId) {
         KnowledgeArticle article = articleRepository.findById(id)
@@ -310,10 +430,13 @@ public class KnowledgeArticleService {
         User user = userRepository.findById(userId)
                 .orElseThrow(() -> new IllegalArgumentException("User not found"));
 
+        ArticleState before = ArticleState.of(article);
         article.publish();
         article.setUpdatedBy(user);
 
         KnowledgeArticle published = articleRepository.save(article);
+        // The article now shows up in its neighbours' related lists
+        cacheInvalidator.articleChanged(id, before, ArticleState.of(published), relatedIds(id));
         log.info("Published article: {} (ID: {})", published.getTitle(), published.getId());
 
         return KnowledgeArticleDetailResponse.fromEntity(published);
@@ -321,9 +444,8 @@ public class KnowledgeArticleService {
 
     /**
      * Archive article
-     * Clears all article caches when archiving
+     * Clears the cached lists showing the article, and the published lists
      */
-    @CacheEvict(value = "knowledgeArticles", allEntries = true)
     @Transactional
     public KnowledgeArticleDetailResponse archiveArticle(Long id, Long userId) {
         KnowledgeArticle article = articleRepository.findById(id)
@@ -332,10 +454,12 @@ public class KnowledgeArticleService {
         User user = userRepository.findById(userId)
                 .orElseThrow(() -> new IllegalArgumentException("User not found"));
 
+        ArticleState before = ArticleState.of(article);
         article.archive();
         article.setUpdatedBy(user);
 
         KnowledgeArticle archived = articleRepository.save(article);
+        cacheInvalidator.articleChanged(id, before, ArticleState.of(archived), List.of());
         log.info("Archived article: {} (ID: {})", archived.getTitle(), archived.getId());
 
         return KnowledgeArticleDetailResponse.fromEntity(archived);
@@ -343,17 +467,18 @@ public class KnowledgeArticleService {
 
     /**
      * Toggle featured status
-     * Clears all article caches when changing featured status
+     * Clears the cached lists showing the article, and the featured lists
      */
-    @CacheEvict(value = "knowledgeArticles", allEntries = true)
     @Transactional
     public KnowledgeArticleDetailResponse toggleFeatured(Long id) {
         KnowledgeArticle article = articleRepository.findById(id)
                 .orElseThrow(() -> new IllegalArgumentException("Article not found"));
 
+        ArticleState before = ArticleState.of(article);
         article.setFeatured(!article.getFeatured());
 
         KnowledgeArticle updated = articleRepository.save(article);
+        cacheInvalidator.articleChanged(id, before, ArticleState.of(updated), List.of());
         log.info("Toggled featured status for article {} to {}", id, updated.getFeatured());
 
         return KnowledgeArticleDetailResponse.fromEntity(updated);
@@ -361,40 +486,131 @@ public class KnowledgeArticleService {
 
     /**
      * Get all unique tags
+     * Cached for 15 minutes
      */
+    @Cacheable(value = "knowledgeArticles", key = "'tags'")
     public List<String> getAllTags() {
-        try {
-            return articleRepository.findAllTags();
-        } catch (Exception e) {
-            // Fallback to alternative method if JSON_TABLE not supported
-            log.warn("JSON_TABLE not supported, using alternative tag extraction method");
-            return articleRepository.findAllTagsAlternative();
+        if (!tagTablesSupported()) {
+            return articleRepository.findTagColumns(null).stream()
+                    .flatMap(KnowledgeArticleService::splitTags)
+                    .distinct()
+                    .sorted()
+                    .toList();
         }
+        return articleRepository.findAllTags();
     }
 
     /**
-     * Get related articles by tags
+     * Tag cloud: published article count per tag, most used first
+     * Cached for 15 minutes
      */
+    @Cacheable(value = "knowledgeArticles", key = "'tag-cloud'")
+    public List<KnowledgeTagCountResponse> getTagCloud() {
+        if (!tagTablesSupported()) {
+            return articleRepository.findTagColumns(ArticleStatus.PUBLISHED).stream()
+                    .flatMap(tags -> splitTags(tags).distinct())
+                    .collect(Collectors.groupingBy(Function.identity(), Collectors.counting()))
+                    .entrySet().stream()
+                    .sorted(Map.Entry.<String, Long>comparingByValue().reversed()
+                            .thenComparing(Map.Entry.comparingByKey()))
+                    .map(entry -> new KnowledgeTagCountResponse(entry.getKey(), entry.getValue()))
+                    .toList();
+        }
+        return articleRepository.findPublishedTagCounts().stream()
+                .map(row -> new KnowledgeTagCountResponse(row.getTag(), row.getCount()))
+                .toList();
+    }
+
+    /**
+     * Get related articles from the precomputed related-articles graph
+     * Cached for 15 minutes
+     */
+    @Cacheable(value = "knowledgeArticles", key = "'related-' + #articleId + '-' + #limit")
+    @Transactional(readOnly = true)
     public List<KnowledgeArticleResponse> getRelatedArticles(Long articleId, int limit) {
+        if (!tagTablesSupported()) {
+            return relatedByTagsColumn(articleId, limit);
+        }
+        if (!articleRepository.existsById(articleId)) {
+            throw new IllegalArgumentException("Article not found");
+        }
+
+        List<Long> ids = articleRepository.findRelatedIds(articleId, limit);
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        Map<Long, KnowledgeArticle> articles = articleRepository.findAllByIdWithDetails(ids).stream()
+                .collect(Collectors.toMap(KnowledgeArticle::getId, Function.identity()));
+        return ids.stream()
+                .filter(articles::containsKey)
+                .map(id -> KnowledgeArticleResponse.fromEntity(articles.get(id)))
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Related articles sharing one of the first three tags, most viewed first
+     * (used until the related-articles graph exists)
+     */
+    private List<KnowledgeArticleResponse> relatedByTagsColumn(Long articleId, int limit) {
         KnowledgeArticle article = articleRepository.findById(articleId)
                 .orElseThrow(() -> new IllegalArgumentException("Article not found"));
 
-        String[] tags = article.getTagsArray();
-        if (tags.length == 0) {
+        List<String> tags = splitTags(article.getTags()).limit(3).toList();
+        if (tags.isEmpty()) {
             return List.of();
         }
+        // Missing tags repeat the first one; an empty tag would match every article
+        String tag1 = tags.get(0);
+        String tag2 = tags.size() > 1 ? tags.get(1) : tag1;
+        String tag3 = tags.size() > 2 ? tags.get(2) : tag1;
 
-        String tag1 = tags.length > 0 ? tags[0] : "";
-        String tag2 = tags.length > 1 ? tags[1] : "";
-        String tag3 = tags.length > 2 ? tags[2] : "";
-
-        Pageable pageable = PageRequest.of(0, limit);
-        return articleRepository.findRelatedByTags(articleId, tag1, tag2, tag3, pageable)
+        return articleRepository.findRelatedByTags(articleId, tag1, tag2, tag3, PageRequest.of(0, limit))
                 .stream()
                 .map(KnowledgeArticleResponse::fromEntity)
                 .collect(Collectors.toList());
     }
 
+    /**
+     * Hook for write paths outside this service (e.g. the doctor knowledge API):
+     * recompute the article's related-articles edges and clear article caches
+     * (the previous state is unknown here, so every article list that may change is cleared)
+     * Tags are synced into knowledge_article_tags by a database trigger on save;
+     * for a deleted article the edges are already gone (ON DELETE CASCADE)
+     */
+    @Transactional
+    public void onArticleChanged(Long articleId) {
+        refreshRelatedGraph(articleId);
+        cacheInvalidator.articleChanged(articleId, relatedIds(articleId));
+    }
+
+    /**
+     * Recompute related-articles edges of one article, in both directions
+     * Must run after the article row is flushed so the tag trigger has fired
+     */
+    private void refreshRelatedGraph(Long articleId) {
+        if (!tagTablesSupported()) {
+            return;
+        }
+        articleRepository.deleteRelatedEdges(articleId);
+        int edges = articleRepository.insertRelatedEdges(articleId);
+        if (edges > 0) {
+            articleRepository.insertReverseRelatedEdges(articleId);
+        }
+        log.debug("Related-articles graph refreshed for article {}: {} edges", articleId, edges);
+    }
+
+    /**
+     * All neighbours of an article in the related-articles graph; their cached
+     * related lists may change when the article's edges are recomputed
+     * null without the graph: neighbours are unknown, so every related list is cleared
+     */
+    private List<Long> relatedIds(Long articleId) {
+        if (!tagTablesSupported()) {
+            return null;
+        }
+        return articleRepository.findNeighbourIds(articleId);
+    }
+
     /**
      * Get articles by author
      */
@@ -415,6 +631,49 @@ public class KnowledgeArticleService {
         return new ArticleStatistics(totalCount, publishedCount, draftCount, archivedCount);
     }
 
+    /**
+     * Tags of a comma-separated tags column, trimmed and lower-cased like knowledge_article_tags
+     */
+    private static Stream<String> splitTags(String tags) {
+        if (tags == null) {
+            return Stream.empty();
+        }
+        return Arrays.stream(tags.split(","))
+                .map(tag -> tag.trim().toLowerCase(Locale.ROOT))
+                .filter(tag -> !tag.isEmpty());
+    }
+
+    /**
+     * Build a to_tsquery expression: words AND-ed, the last one as a prefix
+     * Only letters and digits are kept so user input cannot break the query syntax
+     */
+    static String toTsQuery(String keyword) {
+        if (keyword == null) {
+            return "";
+        }
+        List<String> words = Arrays.stream(NON_WORD.split(keyword))
+                .filter(word -> !word.isEmpty())
+                .toList();
+        if (words.isEmpty()) {
+            return "";
+        }
+        return String.join(" & ", words) + ":*";
+    }
+
+    @lombok.Getter
+    @lombok.AllArgsConstructor
+    public static class SearchHit {
+        private KnowledgeArticle article;
+        private Double score;
+        private String snippet; // Excerpt with <mark> around matched words
+
+        public KnowledgeArticleResponse toResponse() {
+            KnowledgeArticleResponse response = KnowledgeArticleResponse.fromEntity(article);
+            response.setSnippet(snippet);
+            return response;
+        }
+    }
+
     @lombok.Data
     @lombok.AllArgsConstructor
     public static class ArticleStatistics {
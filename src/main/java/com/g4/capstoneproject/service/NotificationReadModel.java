@@ -0,0 +1,179 @@
+package com.g4.capstoneproject.service;
+
+import com.g4.capstoneproject.dto.NotificationDTO;
+import com.g4.capstoneproject.repository.NotificationRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Read model cho dropdown thông báo (unread-count, recent, unread)
+ *
+ * - unreadCounts: số thông báo chưa đọc theo user
+ * - recent: notification.cache.recent-size thông báo mới nhất theo user
+ *
+ * NotificationService cập nhật write-through sau khi transaction commit, nên các
+ * endpoint trên chỉ chạm database khi user chưa có trong cache. Cache nằm trong
+ * từng node; expire-after-write giới hạn thời gian lệch khi chạy nhiều node.
+ */
+@Component
+@RequiredArgsConstructor
+public class NotificationReadModel {
+
+    private final NotificationRepository notificationRepository;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${notification.cache.recent-size:20}")
+    private int recentSize;
+
+    @Value("${notification.cache.max-users:10000}")
+    private long maxUsers;
+
+    @Value("${notification.cache.expire-minutes:5}")
+    private long expireMinutes;
+
+    private Cache<Long, Long> unreadCounts;
+    private Cache<Long, List<NotificationDTO>> recent;
+
+    @PostConstruct
+    void init() {
+        unreadCounts = Caffeine.newBuilder()
+                .maximumSize(maxUsers)
+                .expireAfterWrite(expireMinutes, TimeUnit.MINUTES)
+                .recordStats()
+                .build();
+        recent = Caffeine.newBuilder()
+                .maximumSize(maxUsers)
+                .expireAfterWrite(expireMinutes, TimeUnit.MINUTES)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, unreadCounts, "notificationUnreadCounts");
+        CaffeineCacheMetrics.monitor(meterRegistry, recent, "notificationRecent");
+    }
+
+    /**
+     * Số thông báo chưa đọc của user
+     */
+    public long unreadCount(Long userId) {
+        return unreadCounts.get(userId, notificationRepository::countByUserIdAndIsReadFalse);
+    }
+
+    /**
+     * Thông báo mới nhất của user
+     *
+     * @return empty nếu limit vượt quá số phần tử được cache (caller đọc database)
+     */
+    public Optional<List<NotificationDTO>> recent(Long userId, int limit) {
+        if (limit > recentSize) {
+            return Optional.empty();
+        }
+        List<NotificationDTO> cached = recentList(userId);
+        return Optional.of(copy(cached.subList(0, Math.min(limit, cached.size()))));
+    }
+
+    /**
+     * Thông báo chưa đọc của user, lấy từ danh sách recent
+     *
+     * @return empty nếu có thông báo chưa đọc nằm ngoài danh sách recent (caller đọc database)
+     */
+    public Optional<List<NotificationDTO>> unread(Long userId) {
+        long count = unreadCount(userId);
+        if (count > recentSize) {
+            return Optional.empty();
+        }
+        List<NotificationDTO> unread = recentList(userId).stream()
+                .filter(dto -> !Boolean.TRUE.equals(dto.getIsRead()))
+                .toList();
+        return unread.size() == count ? Optional.of(copy(unread)) : Optional.empty();
+    }
+
+    /**
+     * Thông báo mới được tạo
+     */
+    public void onCreated(Long userId, NotificationDTO notification) {
+        if (!Boolean.TRUE.equals(notification.getIsRead())) {
+            unreadCounts.asMap().computeIfPresent(userId, (id, count) -> count + 1);
+        }
+        recent.asMap().computeIfPresent(userId, (id, list) -> {
+            List<NotificationDTO> updated = new ArrayList<>(Math.min(list.size() + 1, recentSize));
+            updated.add(notification);
+            updated.addAll(list.subList(0, Math.min(list.size(), recentSize - 1)));
+            return List.copyOf(updated);
+        });
+    }
+
+    /**
+     * Một thông báo được đánh dấu đã đọc
+     */
+    public void onRead(Long userId, Long notificationId, boolean wasUnread) {
+        if (wasUnread) {
+            unreadCounts.asMap().computeIfPresent(userId, (id, count) -> Math.max(0, count - 1));
+        }
+        recent.asMap().computeIfPresent(userId, (id, list) -> list.stream()
+                .map(dto -> dto.getId().equals(notificationId) ? markedRead(dto) : dto)
+                .toList());
+    }
+
+    /**
+     * Tất cả thông báo của user được đánh dấu đã đọc
+     */
+    public void onAllRead(Long userId) {
+        unreadCounts.asMap().computeIfPresent(userId, (id, count) -> 0L);
+        recent.asMap().computeIfPresent(userId, (id, list) -> list.stream()
+                .map(dto -> Boolean.TRUE.equals(dto.getIsRead()) ? dto : markedRead(dto))
+                .toList());
+    }
+
+    /**
+     * Thông báo bị xóa
+     * Danh sách recent bị bỏ vì không biết phần tử kế tiếp để lấp chỗ trống
+     */
+    public void onDeleted(Long userId, boolean wasUnread) {
+        if (wasUnread) {
+            unreadCounts.asMap().computeIfPresent(userId, (id, count) -> Math.max(0, count - 1));
+        }
+        recent.invalidate(userId);
+    }
+
+    /**
+     * Xóa toàn bộ cache (sau các thao tác hàng loạt như dọn thông báo cũ)
+     */
+    public void invalidateAll() {
+        unreadCounts.invalidateAll();
+        recent.invalidateAll();
+    }
+
+    private List<NotificationDTO> recentList(Long userId) {
+        return recent.get(userId, id -> notificationRepository
+                .findRecentByUserId(id, PageRequest.of(0, recentSize))
+                .stream()
+                .map(NotificationDTO::fromEntity)
+                .toList());
+    }
+
+    private static NotificationDTO markedRead(NotificationDTO dto) {
+        NotificationDTO read = NotificationDTO.copyOf(dto);
+        read.setIsRead(true);
+        read.setReadAt(LocalDateTime.now());
+        return read;
+    }
+
+    /**
+     * Phần tử trong cache được dùng chung, trả về bản sao với timeAgo tính lại
+     */
+    private static List<NotificationDTO> copy(List<NotificationDTO> list) {
+        return list.stream().map(NotificationDTO::copyOf).toList();
+    }
+}
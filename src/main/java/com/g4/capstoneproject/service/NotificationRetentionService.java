@@ -0,0 +1,269 @@
+package com.g4.capstoneproject.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.g4.capstoneproject.entity.Notification;
+import com.g4.capstoneproject.repository.NotificationRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.env.Environment;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Dọn thông báo hết hạn theo chính sách lưu trữ của từng NotificationType
+ *
+ * - Thời hạn: notification.retention.days.{type} (vd: days.system=30), mặc định
+ *   notification.retention.default-days; giá trị <= 0 nghĩa là giữ vĩnh viễn
+ * - Xóa theo lô batch-size dòng, duyệt keyset (createdAt, id), mỗi lô một transaction
+ *   ngắn và nghỉ batch-pause-ms giữa các lô để không giữ lock lâu hay dồn WAL
+ * - Tùy chọn archive-dir: ghi các dòng sắp xóa ra file .jsonl.gz trước khi xóa
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class NotificationRetentionService {
+
+    private static final LocalDateTime KEYSET_START = LocalDateTime.of(1970, 1, 1, 0, 0);
+    private static final DateTimeFormatter ARCHIVE_SUFFIX = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss");
+
+    private final NotificationRepository notificationRepository;
+    private final NotificationReadModel readModel;
+    private final MeterRegistry meterRegistry;
+    private final Environment environment;
+
+    @Value("${notification.retention.enabled:true}")
+    private boolean enabled;
+
+    @Value("${notification.retention.default-days:90}")
+    private int defaultDays;
+
+    @Value("${notification.retention.batch-size:1000}")
+    private int batchSize;
+
+    @Value("${notification.retention.batch-pause-ms:200}")
+    private long batchPauseMs;
+
+    @Value("${notification.retention.archive-dir:}")
+    private String archiveDir;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    /**
+     * Số dòng đã xóa trong lượt chạy hiện tại (0 khi không chạy)
+     */
+    private final AtomicLong runProgress = new AtomicLong();
+
+    @PostConstruct
+    void registerMetrics() {
+        Gauge.builder("notification.retention.progress", runProgress, AtomicLong::get)
+                .description("Notifications deleted so far by the running retention pass")
+                .register(meterRegistry);
+    }
+
+    @Scheduled(cron = "${notification.retention.cron:0 30 3 * * *}")
+    public void purgeBySchedule() {
+        if (!enabled) {
+            return;
+        }
+
+        try {
+            purgeExpired();
+        } catch (Exception ex) {
+            log.error("Notification retention failed: {}", ex.getMessage(), ex);
+        }
+    }
+
+    /**
+     * Xóa thông báo hết hạn của mọi loại theo chính sách cấu hình
+     *
+     * @return Số thông báo đã xóa
+     */
+    public long purgeExpired() {
+        LocalDateTime now = LocalDateTime.now();
+        return runExclusive(() -> {
+            long deleted = 0;
+            for (Notification.NotificationType type : Notification.NotificationType.values()) {
+                int days = retentionDays(type);
+                if (days > 0) {
+                    deleted += purge(type, now.minusDays(days));
+                }
+            }
+            return deleted;
+        });
+    }
+
+    /**
+     * Xóa thông báo mọi loại tạo trước mốc thời gian (bỏ qua chính sách theo loại)
+     *
+     * @return Số thông báo đã xóa
+     */
+    public long purgeOlderThan(LocalDateTime before) {
+        return runExclusive(() -> {
+            long deleted = 0;
+            for (Notification.NotificationType type : Notification.NotificationType.values()) {
+                deleted += purge(type, before);
+            }
+            return deleted;
+        });
+    }
+
+    /**
+     * Thời hạn lưu (ngày) của một loại thông báo
+     */
+    public int retentionDays(Notification.NotificationType type) {
+        return environment.getProperty("notification.retention.days." + type.name().toLowerCase(),
+                Integer.class, defaultDays);
+    }
+
+    private long runExclusive(PurgeRun run) {
+        if (!running.compareAndSet(false, true)) {
+            log.info("Notification retention already running, skipped");
+            return 0;
+        }
+        Timer.Sample sample = Timer.start(meterRegistry);
+        runProgress.set(0);
+        long deleted = 0;
+        try {
+            deleted = run.execute();
+            log.info("Notification retention finished: {} notifications deleted", deleted);
+            return deleted;
+        } finally {
+            sample.stop(meterRegistry.timer("notification.retention.run"));
+            runProgress.set(0);
+            running.set(false);
+            if (deleted > 0) {
+                // Số chưa đọc / danh sách recent có thể đã đổi
+                readModel.invalidateAll();
+            }
+        }
+    }
+
+    /**
+     * Xóa theo lô các thông báo của một loại tạo trước mốc before
+     * Dừng ở loại này (không xóa tiếp) nếu ghi archive lỗi
+     */
+    private long purge(Notification.NotificationType type, LocalDateTime before) {
+        LocalDateTime afterCreatedAt = KEYSET_START;
+        Long afterId = 0L;
+        long deleted = 0;
+        int batches = 0;
+        BufferedWriter archive = null;
+
+        try {
+            while (true) {
+                List<Notification> batch = notificationRepository.findExpiredBatch(
+                        type, before, afterCreatedAt, afterId, PageRequest.of(0, batchSize));
+                if (batch.isEmpty()) {
+                    break;
+                }
+                if (!archiveDir.isBlank()) {
+                    if (archive == null) {
+                        archive = openArchive(type);
+                    }
+                    writeArchive(archive, batch);
+                }
+
+                Notification last = batch.get(batch.size() - 1);
+                afterCreatedAt = last.getCreatedAt();
+                afterId = last.getId();
+
+                int count = notificationRepository.deleteByIdIn(batch.stream().map(Notification::getId).toList());
+                deleted += count;
+                batches++;
+                runProgress.addAndGet(count);
+                meterRegistry.counter("notification.retention.deleted", "type", type.name()).increment(count);
+                if (batches % 50 == 0) {
+                    log.info("Notification retention {}: {} deleted so far ({} batches)", type, deleted, batches);
+                }
+
+                if (batch.size() < batchSize) {
+                    break;
+                }
+                Thread.sleep(batchPauseMs);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            log.warn("Notification retention {} interrupted after {} deleted", type, deleted);
+        } catch (IOException e) {
+            log.error("Notification archive for {} failed, stopped after {} deleted: {}", type, deleted, e.getMessage());
+        } finally {
+            closeArchive(archive);
+        }
+
+        if (deleted > 0) {
+            log.info("Notification retention {}: deleted {} created before {} in {} batches",
+                    type, deleted, before, batches);
+        }
+        return deleted;
+    }
+
+    private BufferedWriter openArchive(Notification.NotificationType type) throws IOException {
+        Path dir = Path.of(archiveDir);
+        Files.createDirectories(dir);
+        Path file = dir.resolve("notifications-" + type.name().toLowerCase() + "-"
+                + LocalDateTime.now().format(ARCHIVE_SUFFIX) + ".jsonl.gz");
+        log.info("Archiving expired {} notifications to {}", type, file);
+        return new BufferedWriter(new OutputStreamWriter(
+                new GZIPOutputStream(Files.newOutputStream(file), true), StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Mỗi thông báo một dòng JSON; flush trước khi xóa để dữ liệu đã nằm trên đĩa
+     */
+    private void writeArchive(BufferedWriter archive, List<Notification> batch) throws IOException {
+        for (Notification n : batch) {
+            Map<String, Object> row = new LinkedHashMap<>();
+            row.put("id", n.getId());
+            row.put("userId", n.getUser() != null ? n.getUser().getId() : null);
+            row.put("notificationType", n.getNotificationType().name());
+            row.put("title", n.getTitle());
+            row.put("content", n.getContent());
+            row.put("referenceId", n.getReferenceId());
+            row.put("referenceType", n.getReferenceType());
+            row.put("isRead", n.getIsRead());
+            row.put("createdAt", n.getCreatedAt() != null ? n.getCreatedAt().toString() : null);
+            row.put("readAt", n.getReadAt() != null ? n.getReadAt().toString() : null);
+            archive.write(objectMapper.writeValueAsString(row));
+            archive.newLine();
+        }
+        archive.flush();
+    }
+
+    private void closeArchive(BufferedWriter archive) {
+        if (archive == null) {
+            return;
+        }
+        try {
+            archive.close();
+        } catch (IOException e) {
+            log.warn("Failed to close notification archive: {}", e.getMessage());
+        }
+    }
+
+    @FunctionalInterface
+    private interface PurgeRun {
+        long execute();
+    }
+}
@@ -1,12 +1,19 @@
 package com.g4.capstoneproject.service;
 
+import com.g4.capstoneproject.dto.NotificationDTO;
+import com.g4.capstoneproject.dto.NotificationPushMessage;
 import com.g4.capstoneproject.entity.Notification;
 import com.g4.capstoneproject.entity.User;
 import com.g4.capstoneproject.repository.NotificationRepository;
+import com.g4.capstoneproject.repository.UserRepository;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
@@ -15,13 +22,26 @@ import java.util.Optional;
 
 /**
  * Service quản lý Notifications
+ * Mọi thay đổi (tạo, đọc, xóa) được áp vào NotificationReadModel rồi đẩy tới
+ * /user/queue/notifications của chủ sở hữu sau khi transaction commit,
+ * kèm số thông báo chưa đọc hiện tại
  */
+@Slf4j
 @Service
 @RequiredArgsConstructor
 @Transactional
 public class NotificationService {
 
+    /**
+     * Destination theo user, client subscribe /user/queue/notifications
+     */
+    public static final String USER_DESTINATION = "/queue/notifications";
+
     private final NotificationRepository notificationRepository;
+    private final UserRepository userRepository;
+    private final NotificationReadModel readModel;
+    private final NotificationRetentionService retentionService;
+    private final SimpMessagingTemplate messagingTemplate;
 
     /**
      * Lấy danh sách notifications của user (paginated)
@@ -47,20 +67,43 @@ public class NotificationService {
         return notificationRepository.findByUserIdAndIsReadFalseOrderByCreatedAtDesc(userId);
     }
 
+    /**
+     * Danh sách notifications chưa đọc (DTO), ưu tiên đọc từ read model
+     * Các hàm đọc read model dùng SUPPORTS: cache hit không mở transaction/connection
+     */
+    @Transactional(propagation = Propagation.SUPPORTS, readOnly = true)
+    public List<NotificationDTO> getUnreadNotificationDTOs(Long userId) {
+        return readModel.unread(userId).orElseGet(() -> getUnreadNotifications(userId).stream()
+                .map(NotificationDTO::fromEntity)
+                .toList());
+    }
+
+    /**
+     * Notifications mới nhất cho dropdown, ưu tiên đọc từ read model
+     */
+    @Transactional(propagation = Propagation.SUPPORTS, readOnly = true)
+    public List<NotificationDTO> getRecentNotifications(Long userId, int limit) {
+        return readModel.recent(userId, limit).orElseGet(() -> notificationRepository
+                .findRecentByUserId(userId, PageRequest.of(0, limit))
+                .stream()
+                .map(NotificationDTO::fromEntity)
+                .toList());
+    }
+
     /**
      * Đếm số notifications chưa đọc
      */
-    @Transactional(readOnly = true)
+    @Transactional(propagation = Propagation.SUPPORTS, readOnly = true)
     public long getUnreadCount(User user) {
-        return notificationRepository.countByUserIdAndIsReadFalse(user.getId());
+        return readModel.unreadCount(user.getId());
     }
 
     /**
      * Đếm số notifications chưa đọc theo userId
      */
-    @Transactional(readOnly = true)
+    @Transactional(propagation = Propagation.SUPPORTS, readOnly = true)
     public long getUnreadCountByUserId(Long userId) {
-        return notificationRepository.countByUserIdAndIsReadFalse(userId);
+        return readModel.unreadCount(userId);
     }
 
     /**
@@ -82,9 +125,12 @@ public class NotificationService {
             Notification notification = notificationOpt.get();
             // Check ownership
             if (notification.getUser().getId().equals(user.getId())) {
+                boolean wasUnread = !Boolean.TRUE.equals(notification.getIsRead());
                 notification.setIsRead(true);
                 notification.setReadAt(LocalDateTime.now());
                 notificationRepository.save(notification);
+                publish(user, NotificationPushMessage.Event.READ, null, notificationId,
+                        () -> readModel.onRead(user.getId(), notificationId, wasUnread));
                 return true;
             }
         }
@@ -98,6 +144,8 @@ public class NotificationService {
      */
     public void markAllAsRead(User user) {
         notificationRepository.markAllAsRead(user.getId());
+        publish(user, NotificationPushMessage.Event.READ_ALL, null, null,
+                () -> readModel.onAllRead(user.getId()));
     }
 
     /**
@@ -105,6 +153,9 @@ public class NotificationService {
      */
     public void markAllAsReadByUserId(Long userId) {
         notificationRepository.markAllAsRead(userId);
+        userRepository.findById(userId)
+                .ifPresent(user -> publish(user, NotificationPushMessage.Event.READ_ALL, null, null,
+                        () -> readModel.onAllRead(userId)));
     }
 
     /**
@@ -116,7 +167,10 @@ public class NotificationService {
             Notification notification = notificationOpt.get();
             // Check ownership
             if (notification.getUser().getId().equals(user.getId())) {
+                boolean wasUnread = !Boolean.TRUE.equals(notification.getIsRead());
                 notificationRepository.delete(notification);
+                publish(user, NotificationPushMessage.Event.DELETED, null, notificationId,
+                        () -> readModel.onDeleted(user.getId(), wasUnread));
                 return true;
             }
         }
@@ -144,22 +198,70 @@ public class NotificationService {
                 .isRead(false)
                 .build();
         
-        return notificationRepository.save(notification);
+        return createNotification(notification);
     }
 
     /**
      * Tạo notification với builder pattern
      */
     public Notification createNotification(Notification notification) {
-        return notificationRepository.save(notification);
+        Notification saved = notificationRepository.save(notification);
+        publish(saved.getUser(), NotificationPushMessage.Event.CREATED, saved, saved.getId(), null);
+        return saved;
+    }
+
+    /**
+     * Cập nhật read model rồi đẩy sự kiện tới các session WebSocket của user,
+     * sau khi transaction commit
+     *
+     * @param readModelUpdate Thay đổi áp vào read model; null với CREATED (dùng DTO của thông báo mới)
+     */
+    private void publish(User user, NotificationPushMessage.Event event,
+                         Notification notification, Long notificationId, Runnable readModelUpdate) {
+        if (user == null) {
+            return;
+        }
+        Long userId = user.getId();
+        String principal = principalName(user);
+        // Chuyển sang DTO ngay trong transaction, tránh lazy loading sau commit
+        NotificationDTO dto = notification != null ? NotificationDTO.fromEntity(notification) : null;
+        Runnable update = readModelUpdate != null ? readModelUpdate : () -> readModel.onCreated(userId, dto);
+
+        Runnable send = () -> {
+            update.run();
+            try {
+                NotificationPushMessage message = NotificationPushMessage.builder()
+                        .event(event)
+                        .notification(dto)
+                        .notificationId(notificationId)
+                        .unreadCount(readModel.unreadCount(userId))
+                        .timestamp(System.currentTimeMillis())
+                        .build();
+                messagingTemplate.convertAndSendToUser(principal, USER_DESTINATION, message);
+            } catch (Exception e) {
+                // Client vẫn đồng bộ được qua polling fallback
+                log.warn("Failed to push notification event {} to user {}: {}", event, userId, e.getMessage());
+            }
+        };
+
+        TransactionCallbacks.afterCommit(send);
+    }
+
+    /**
+     * Tên principal của WebSocket session, trùng với CustomUserDetails.getUsername()
+     */
+    private static String principalName(User user) {
+        return user.getEmail() != null ? user.getEmail() : user.getPhoneNumber();
     }
 
     /**
      * Xóa notifications cũ hơn số ngày chỉ định
+     * Xóa theo lô qua NotificationRetentionService, mỗi lô một transaction riêng
      */
-    public void deleteOldNotifications(int daysOld) {
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public long deleteOldNotifications(int daysOld) {
         LocalDateTime beforeDate = LocalDateTime.now().minusDays(daysOld);
-        notificationRepository.deleteOldNotifications(beforeDate);
+        return retentionService.purgeOlderThan(beforeDate);
     }
 
     /**
@@ -5,6 +5,8 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.InputStreamSource;
 import org.springframework.stereotype.Service;
 
 import java.io.*;
@@ -46,11 +48,25 @@ public class OpenAIASRService {
      * @throws IOException Nếu có lỗi khi gọi API
      */
     public String transcribe(byte[] audioBytes, String filename) throws IOException {
+        return transcribe(new ByteArrayResource(audioBytes), audioBytes.length, filename);
+    }
+    
+    /**
+     * Transcribe audio từ stream (MultipartFile, S3...) sử dụng OpenAI Whisper API
+     * Audio được copy thẳng từ stream vào connection, không giữ bản copy trong heap
+     * 
+     * @param audio Nguồn audio
+     * @param audioLength Kích thước audio (byte), -1 nếu không biết
+     * @param filename Tên file gốc
+     * @return Transcript text
+     * @throws IOException Nếu có lỗi khi gọi API
+     */
+    public String transcribe(InputStreamSource audio, long audioLength, String filename) throws IOException {
         if (apiKey == null || apiKey.isEmpty()) {
             throw new IllegalStateException("OpenAI API key chưa được cấu hình. Vui lòng thêm openai.api.key vào application.properties");
         }
         
-        logger.info("Bắt đầu transcribe audio với OpenAI Whisper: {} bytes, filename: {}", audioBytes.length, filename);
+        logger.info("Bắt đầu transcribe audio với OpenAI Whisper: {} bytes, filename: {}", audioLength, filename);
         
         String boundary = "----WebKitFormBoundary" + System.currentTimeMillis();
         
@@ -64,6 +80,8 @@ public class OpenAIASRService {
             conn.setReadTimeout(TIMEOUT_MS);
             conn.setRequestProperty("Authorization", "Bearer " + apiKey);
             conn.setRequestProperty("Content-Type", "multipart/form-data; boundary=" + boundary);
+            // Mặc định HttpURLConnection buffer toàn bộ body để tính Content-Length
+            conn.setChunkedStreamingMode(0);
             
             try (OutputStream os = conn.getOutputStream();
                  PrintWriter writer = new PrintWriter(new OutputStreamWriter(os, StandardCharsets.UTF_8), true)) {
@@ -73,7 +91,9 @@ public class OpenAIASRService {
                 writer.append("Content-Disposition: form-data; name=\"file\"; filename=\"").append(filename).append("\"\r\n");
                 writer.append("Content-Type: audio/webm\r\n\r\n");
                 writer.flush();
-                os.write(audioBytes);
+                try (InputStream audioStream = audio.getInputStream()) {
+                    audioStream.transferTo(os);
+                }
                 os.flush();
                 writer.append("\r\n");
                 
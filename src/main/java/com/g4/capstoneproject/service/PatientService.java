@@ -1,5 +1,6 @@
 package com.g4.capstoneproject.service;
 
+import com.g4.capstoneproject.dto.user.PatientSummary;
 import com.g4.capstoneproject.entity.User;
 import com.g4.capstoneproject.repository.UserRepository;
 import lombok.RequiredArgsConstructor;
@@ -7,6 +8,7 @@ import org.springframework.cache.annotation.Cacheable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.EnumSet;
 import java.util.List;
 import java.util.Optional;
 
@@ -19,25 +21,26 @@ import java.util.Optional;
 public class PatientService {
 
     private final UserRepository userRepository;
+    private final UserSearchService userSearchService;
 
     // ========== Patient CRUD Operations ==========
 
     /**
      * Get all patients
-     * Cached for 30 minutes to reduce database load
+     * Cached for 30 minutes to reduce database load (as immutable summaries, not entities)
      */
     @Cacheable(value = "patients", key = "'all'")
-    public List<User> getAllPatients() {
-        return userRepository.findByRole(User.UserRole.PATIENT);
+    public List<PatientSummary> getAllPatients() {
+        return userRepository.findPatientSummaries();
     }
 
     /**
      * Get all active patients
-     * Cached for 30 minutes to reduce database load
+     * Cached for 30 minutes to reduce database load (as immutable summaries, not entities)
      */
     @Cacheable(value = "patients", key = "'active'")
-    public List<User> getAllActivePatients() {
-        return userRepository.findByRoleAndIsActiveTrue(User.UserRole.PATIENT);
+    public List<PatientSummary> getAllActivePatients() {
+        return userRepository.findActivePatientSummaries();
     }
 
     /**
@@ -54,9 +57,8 @@ public class PatientService {
      * Cached for 30 minutes
      */
     @Cacheable(value = "patients", key = "#patientId")
-    public Optional<User> getPatientById(Long patientId) {
-        return userRepository.findById(patientId)
-                .filter(user -> user.getRole() == User.UserRole.PATIENT);
+    public Optional<PatientSummary> getPatientById(Long patientId) {
+        return userRepository.findPatientSummaryById(patientId);
     }
 
     /**
@@ -72,8 +74,8 @@ public class PatientService {
      * Cached for 30 minutes
      */
     @Cacheable(value = "patients", key = "'doctor-' + #doctorId")
-    public List<User> getPatientsByDoctorId(Long doctorId) {
-        return userRepository.findPatientsByDoctorId(doctorId);
+    public List<PatientSummary> getPatientsByDoctorId(Long doctorId) {
+        return userRepository.findPatientSummariesByDoctorId(doctorId);
     }
 
     /**
@@ -84,13 +86,15 @@ public class PatientService {
     }
 
     /**
-     * Search patients by keyword
+     * Search patients by keyword, at most limit results (empty keyword = all active patients)
      */
-    public List<User> searchPatients(String keyword) {
+    public List<PatientSummary> searchPatients(String keyword, int limit) {
         if (keyword == null || keyword.trim().isEmpty()) {
             return getAllActivePatients();
         }
-        return userRepository.searchPatients(keyword.trim());
+        return userSearchService.search(keyword, EnumSet.of(User.UserRole.PATIENT), limit).stream()
+                .map(PatientSummary::from)
+                .toList();
     }
 
     /**
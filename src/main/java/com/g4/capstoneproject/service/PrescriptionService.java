@@ -2,6 +2,7 @@ package com.g4.capstoneproject.service;
 
 import com.g4.capstoneproject.dto.PrescriptionRequest;
 import com.g4.capstoneproject.dto.Precription.PrescriptionCreateRequest;
+import com.g4.capstoneproject.dto.Precription.PrescriptionSummary;
 import com.g4.capstoneproject.entity.Prescription;
 import com.g4.capstoneproject.entity.PrescriptionDetail;
 import com.g4.capstoneproject.entity.User;
@@ -9,9 +10,7 @@ import com.g4.capstoneproject.repository.PrescriptionRepository;
 import com.g4.capstoneproject.repository.PrescriptionDetailRepository;
 import com.g4.capstoneproject.repository.UserRepository;
 import lombok.RequiredArgsConstructor;
-import org.springframework.cache.annotation.CacheEvict;
 import org.springframework.cache.annotation.Cacheable;
-import org.springframework.cache.annotation.Caching;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -30,6 +29,7 @@ public class PrescriptionService {
     private final PrescriptionRepository prescriptionRepository;
     private final PrescriptionDetailRepository prescriptionDetailRepository;
     private final UserRepository userRepository;
+    private final CacheInvalidator cacheInvalidator;
 
     /**
      * Lấy tất cả đơn thuốc
@@ -41,9 +41,8 @@ public class PrescriptionService {
 
     /**
      * Lấy đơn thuốc theo ID (trả về Prescription object, không phải Optional)
-     * Cached for 10 minutes
+     * Không cache: entity được dùng tiếp để kiểm tra quyền và cập nhật
      */
-    @Cacheable(value = "prescriptions", key = "#id")
     @Transactional(readOnly = true)
     public Prescription getPrescriptionById(Long id) {
         return prescriptionRepository.findById(id).orElse(null);
@@ -59,22 +58,22 @@ public class PrescriptionService {
 
     /**
      * Lấy đơn thuốc theo bệnh nhân
-     * Cached for 10 minutes
+     * Cached for 10 minutes (as immutable summaries, not entities)
      */
     @Cacheable(value = "prescriptions", key = "'patient-' + #patientId")
     @Transactional(readOnly = true)
-    public List<Prescription> getPrescriptionsByPatientId(Long patientId) {
-        return prescriptionRepository.findByPatientId(patientId);
+    public List<PrescriptionSummary> getPrescriptionsByPatientId(Long patientId) {
+        return prescriptionRepository.findSummariesByPatientId(patientId);
     }
 
     /**
      * Lấy đơn thuốc theo bác sĩ
-     * Cached for 10 minutes
+     * Cached for 10 minutes (as immutable summaries, not entities)
      */
     @Cacheable(value = "prescriptions", key = "'doctor-' + #doctorId")
     @Transactional(readOnly = true)
-    public List<Prescription> getPrescriptionsByDoctorId(Long doctorId) {
-        return prescriptionRepository.findByDoctorId(doctorId);
+    public List<PrescriptionSummary> getPrescriptionsByDoctorId(Long doctorId) {
+        return prescriptionRepository.findSummariesByDoctorId(doctorId);
     }
 
     /**
@@ -89,22 +88,16 @@ public class PrescriptionService {
      * Tạo đơn thuốc mới
      * Evicts cache for patient and doctor
      */
-    @Caching(evict = {
-            @CacheEvict(value = "prescriptions", key = "'patient-' + #prescription.patient.id"),
-            @CacheEvict(value = "prescriptions", key = "'doctor-' + #prescription.doctor.id")
-    })
     public Prescription createPrescription(Prescription prescription) {
-        return prescriptionRepository.save(prescription);
+        Prescription saved = prescriptionRepository.save(prescription);
+        evictCaches(saved);
+        return saved;
     }
 
     /**
      * Cập nhật đơn thuốc
-     * Evicts specific prescription and related patient/doctor caches
+     * Evicts the patient/doctor prescription lists
      */
-    @Caching(evict = {
-            @CacheEvict(value = "prescriptions", key = "#id"),
-            @CacheEvict(value = "prescriptions", allEntries = true, condition = "#result != null")
-    })
     public Prescription updatePrescription(Long id, Prescription updatedPrescription) {
         return prescriptionRepository.findById(id)
                 .map(existing -> {
@@ -112,22 +105,33 @@ public class PrescriptionService {
                     existing.setNotes(updatedPrescription.getNotes());
                     existing.setStatus(updatedPrescription.getStatus());
                     existing.setPrescriptionDate(updatedPrescription.getPrescriptionDate());
-                    return prescriptionRepository.save(existing);
+                    Prescription saved = prescriptionRepository.save(existing);
+                    evictCaches(saved);
+                    return saved;
                 })
                 .orElse(null);
     }
 
     /**
      * Xóa đơn thuốc
-     * Clears all prescription caches
+     * Evicts the patient/doctor prescription lists
      */
-    @CacheEvict(value = "prescriptions", allEntries = true)
     public boolean deletePrescription(Long id) {
-        if (prescriptionRepository.existsById(id)) {
-            prescriptionRepository.deleteById(id);
-            return true;
-        }
-        return false;
+        return prescriptionRepository.findById(id)
+                .map(existing -> {
+                    prescriptionRepository.delete(existing);
+                    evictCaches(existing);
+                    return true;
+                })
+                .orElse(false);
+    }
+
+    private void evictCaches(Prescription prescription) {
+        cacheInvalidator.prescriptionChanged(idOf(prescription.getPatient()), idOf(prescription.getDoctor()));
+    }
+
+    private static Long idOf(User user) {
+        return user != null ? user.getId() : null;
     }
 
     /**
@@ -254,6 +258,7 @@ public class PrescriptionService {
             prescription = prescriptionRepository.save(prescription);
         }
 
+        evictCaches(prescription);
         return prescription;
     }
 
@@ -299,6 +304,7 @@ public class PrescriptionService {
             prescriptionDetailRepository.save(detail);
         }
 
+        evictCaches(prescription);
         return prescription;
     }
 
@@ -339,6 +345,8 @@ public class PrescriptionService {
             prescriptionDetailRepository.save(detail);
         }
 
-        return prescriptionRepository.save(existingPrescription);
+        Prescription saved = prescriptionRepository.save(existingPrescription);
+        evictCaches(saved);
+        return saved;
     }
 }
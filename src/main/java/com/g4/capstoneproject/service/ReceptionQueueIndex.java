@@ -0,0 +1,342 @@
+package com.g4.capstoneproject.service;
+
+import com.g4.capstoneproject.entity.Ticket;
+import com.g4.capstoneproject.repository.TicketRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Index hàng đợi tiếp đón trong bộ nhớ
+ * Giữ các ticket của hàng đợi chính (OPEN, chưa retry) theo thứ tự
+ * priority (URGENT > HIGH > MEDIUM > LOW) rồi createdAt, cho phép đọc
+ * vị trí, kích thước và đầu hàng đợi trong O(log n) thay vì quét bảng tickets.
+ * Được nạp khi khởi động và đồng bộ bởi TicketService sau khi mỗi thay đổi commit.
+ *
+ * Index chỉ thấy thay đổi của JVM hiện tại. Khi websocket.broker.mode=relay (nhiều node),
+ * index trong bộ nhớ bị tắt và mọi truy vấn đọc thẳng từ database để các node luôn nhất quán.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class ReceptionQueueIndex {
+
+    /**
+     * Thứ tự giống TicketService.getQueuedTickets(), thêm id để phá hòa
+     */
+    private static final Comparator<QueueEntry> QUEUE_ORDER = Comparator
+            .comparing(QueueEntry::priority, Comparator.reverseOrder())
+            .thenComparing(QueueEntry::createdAt, Comparator.nullsLast(Comparator.naturalOrder()))
+            .thenComparing(QueueEntry::ticketId);
+
+    private final TicketRepository ticketRepository;
+
+    @Value("${websocket.broker.mode:simple}")
+    private String brokerMode;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<Long, QueueEntry> entries = new HashMap<>();
+    private Node root;
+
+    /**
+     * Một phần tử trong hàng đợi
+     * Ticket cũ chưa có priority (NULL) được xếp như MEDIUM
+     */
+    public record QueueEntry(Long ticketId, Ticket.Priority priority, LocalDateTime createdAt) {
+        public QueueEntry {
+            if (priority == null) {
+                priority = Ticket.Priority.MEDIUM;
+            }
+        }
+    }
+
+    /**
+     * Nạp index từ database khi ứng dụng sẵn sàng
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void seedOnStartup() {
+        rebuild();
+    }
+
+    /**
+     * Dựng lại toàn bộ index từ database (dùng khi khởi động hoặc khôi phục)
+     * Chạy trong transaction riêng để chỉ đọc dữ liệu đã commit (TicketService cũng chỉ sync sau commit)
+     * Đọc database và thay index trong cùng write lock: sync/evict chạy đồng thời sẽ chờ
+     * và được áp dụng sau khi nạp xong, thay vì bị dữ liệu vừa đọc ghi đè
+     */
+    @Transactional(readOnly = true, propagation = Propagation.REQUIRES_NEW)
+    public int rebuild() {
+        if (databaseBacked()) {
+            return (int) ticketRepository.countMainQueue();
+        }
+        lock.writeLock().lock();
+        try {
+            List<Object[]> rows = ticketRepository.findMainQueueEntries();
+            entries.clear();
+            root = null;
+            for (Object[] row : rows) {
+                insert(new QueueEntry((Long) row[0], (Ticket.Priority) row[1], (LocalDateTime) row[2]));
+            }
+            log.info("Reception queue index rebuilt with {} tickets", entries.size());
+            return entries.size();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Đồng bộ trạng thái của một ticket vào index
+     * Ticket thuộc hàng đợi chính khi status = OPEN và retryCount rỗng hoặc bằng 0
+     */
+    public void sync(Ticket ticket) {
+        if (ticket == null || ticket.getId() == null) {
+            return;
+        }
+        if (databaseBacked()) {
+            return;
+        }
+        boolean queued = ticket.getStatus() == Ticket.Status.OPEN
+                && (ticket.getRetryCount() == null || ticket.getRetryCount() == 0);
+
+        lock.writeLock().lock();
+        try {
+            remove(ticket.getId());
+            if (queued) {
+                insert(new QueueEntry(ticket.getId(), ticket.getPriority(), ticket.getCreatedAt()));
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Xóa ticket khỏi index
+     */
+    public void evict(Long ticketId) {
+        if (databaseBacked()) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            remove(ticketId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Vị trí (1-based) của ticket trong hàng đợi, null nếu không có
+     */
+    public Integer positionOf(Long ticketId) {
+        if (databaseBacked()) {
+            return ticketRepository.isInMainQueue(ticketId)
+                    ? (int) ticketRepository.countMainQueueAhead(ticketId) + 1 : null;
+        }
+        lock.readLock().lock();
+        try {
+            QueueEntry entry = entries.get(ticketId);
+            return entry != null ? rank(entry) + 1 : null;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Số ticket trong hàng đợi
+     */
+    public int size() {
+        if (databaseBacked()) {
+            return (int) ticketRepository.countMainQueue();
+        }
+        lock.readLock().lock();
+        try {
+            return entries.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Ticket ở đầu hàng đợi, null nếu hàng đợi rỗng
+     */
+    public QueueEntry head() {
+        if (databaseBacked()) {
+            return ticketRepository.findMainQueueRows(PageRequest.of(0, 1)).stream()
+                    .findFirst()
+                    .map(row -> new QueueEntry(row.getId(), row.getPriority(), row.getCreatedAt()))
+                    .orElse(null);
+        }
+        lock.readLock().lock();
+        try {
+            Node node = root;
+            if (node == null) {
+                return null;
+            }
+            while (node.left != null) {
+                node = node.left;
+            }
+            return node.entry;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Danh sách ticket ID theo thứ tự hàng đợi
+     */
+    public List<Long> orderedTicketIds() {
+        if (databaseBacked()) {
+            return ticketRepository.findMainQueueIds(Pageable.unpaged());
+        }
+        lock.readLock().lock();
+        try {
+            List<Long> ids = new ArrayList<>(entries.size());
+            collect(root, ids);
+            return ids;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Nhiều node dùng chung broker relay: mỗi node chỉ thấy thay đổi của chính nó nên đọc từ database
+     */
+    private boolean databaseBacked() {
+        return "relay".equalsIgnoreCase(brokerMode);
+    }
+
+    // ==================== ORDER-STATISTIC TREAP ====================
+
+    /**
+     * Node của treap, lưu kích thước cây con để tính rank trong O(log n)
+     */
+    private static final class Node {
+        private final QueueEntry entry;
+        private final int heapPriority = ThreadLocalRandom.current().nextInt();
+        private Node left;
+        private Node right;
+        private int size = 1;
+
+        private Node(QueueEntry entry) {
+            this.entry = entry;
+        }
+    }
+
+    private void insert(QueueEntry entry) {
+        entries.put(entry.ticketId(), entry);
+        Node[] parts = split(root, entry);
+        root = merge(merge(parts[0], new Node(entry)), parts[1]);
+    }
+
+    private void remove(Long ticketId) {
+        QueueEntry entry = entries.remove(ticketId);
+        if (entry != null) {
+            root = delete(root, entry);
+        }
+    }
+
+    private int rank(QueueEntry entry) {
+        int rank = 0;
+        Node node = root;
+        while (node != null) {
+            int cmp = QUEUE_ORDER.compare(entry, node.entry);
+            if (cmp <= 0) {
+                if (cmp == 0) {
+                    return rank + size(node.left);
+                }
+                node = node.left;
+            } else {
+                rank += size(node.left) + 1;
+                node = node.right;
+            }
+        }
+        return rank;
+    }
+
+    /**
+     * Tách cây thành [phần tử < entry, phần tử >= entry]
+     */
+    private static Node[] split(Node node, QueueEntry entry) {
+        if (node == null) {
+            return new Node[] { null, null };
+        }
+        if (QUEUE_ORDER.compare(node.entry, entry) < 0) {
+            Node[] parts = split(node.right, entry);
+            node.right = parts[0];
+            update(node);
+            return new Node[] { node, parts[1] };
+        }
+        Node[] parts = split(node.left, entry);
+        node.left = parts[1];
+        update(node);
+        return new Node[] { parts[0], node };
+    }
+
+    private static Node merge(Node left, Node right) {
+        if (left == null) {
+            return right;
+        }
+        if (right == null) {
+            return left;
+        }
+        if (left.heapPriority > right.heapPriority) {
+            left.right = merge(left.right, right);
+            update(left);
+            return left;
+        }
+        right.left = merge(left, right.left);
+        update(right);
+        return right;
+    }
+
+    private static Node delete(Node node, QueueEntry entry) {
+        if (node == null) {
+            return null;
+        }
+        int cmp = QUEUE_ORDER.compare(entry, node.entry);
+        if (cmp == 0) {
+            return merge(node.left, node.right);
+        }
+        if (cmp < 0) {
+            node.left = delete(node.left, entry);
+        } else {
+            node.right = delete(node.right, entry);
+        }
+        update(node);
+        return node;
+    }
+
+    private static void collect(Node node, List<Long> ids) {
+        if (node == null) {
+            return;
+        }
+        collect(node.left, ids);
+        ids.add(node.entry.ticketId());
+        collect(node.right, ids);
+    }
+
+    private static int size(Node node) {
+        return node != null ? node.size : 0;
+    }
+
+    private static void update(Node node) {
+        node.size = 1 + size(node.left) + size(node.right);
+    }
+}
@@ -0,0 +1,71 @@
+package com.g4.capstoneproject.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Đối soát định kỳ bảng recording_objects với folder voice/ trên S3
+ * - Bổ sung file có trên S3 nhưng chưa được index (file cũ, upload ngoài ứng dụng)
+ * - Xóa khỏi index các key không còn trên S3
+ * Chạy lần đầu sau khi khởi động một khoảng ngắn để backfill dữ liệu sẵn có.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class RecordingIndexReconciler {
+
+    private static final String RECORDING_PREFIX = "voice/";
+
+    private final S3Service s3Service;
+    private final RecordingIndexService recordingIndexService;
+
+    @Value("${recording.index.reconcile-enabled:true}")
+    private boolean reconcileEnabled;
+
+    @Scheduled(initialDelayString = "${recording.index.reconcile-initial-delay-ms:30000}",
+               fixedDelayString = "${recording.index.reconcile-interval-ms:21600000}")
+    public void reconcileBySchedule() {
+        if (!reconcileEnabled) {
+            return;
+        }
+
+        try {
+            reconcile();
+        } catch (Exception ex) {
+            log.error("Recording index reconciliation failed: {}", ex.getMessage(), ex);
+        }
+    }
+
+    /**
+     * Quét S3 một lượt và đồng bộ index
+     */
+    public void reconcile() {
+        // Snapshot trước khi quét: key được index trong lúc quét không bị coi là đã mất
+        Set<String> missing = new HashSet<>(recordingIndexService.findAllKeys());
+        Set<String> indexed = new HashSet<>(missing);
+        AtomicInteger scanned = new AtomicInteger();
+        AtomicInteger added = new AtomicInteger();
+
+        s3Service.forEachObject(RECORDING_PREFIX, object -> {
+            if (object.key().endsWith("/")) {
+                return;
+            }
+            scanned.incrementAndGet();
+            missing.remove(object.key());
+            if (!indexed.contains(object.key())) {
+                recordingIndexService.recordFromKey(object.key(), object.size(), object.lastModified());
+                added.incrementAndGet();
+            }
+        });
+
+        int removed = missing.isEmpty() ? 0 : recordingIndexService.removeAll(missing);
+        log.info("Recording index reconciled: scanned={}, added={}, removed={}", scanned.get(), added.get(), removed);
+    }
+}
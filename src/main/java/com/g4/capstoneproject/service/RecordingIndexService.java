@@ -0,0 +1,148 @@
+package com.g4.capstoneproject.service;
+
+import com.g4.capstoneproject.entity.RecordingObject;
+import com.g4.capstoneproject.repository.RecordingObjectRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Index metadata file ghi âm trên S3 (bảng recording_objects)
+ * S3Service ghi vào index sau mỗi lần upload/xóa; RecordingIndexReconciler
+ * đối soát định kỳ với S3 để bổ sung file cũ và loại file đã mất.
+ *
+ * Quy ước key:
+ * - voice/calls/{callId}/{type}_{timestamp}.webm  (web call)
+ * - voice/stringee/{yyyyMMdd}/{HHmmss}_{callId}.mp3  (Stringee)
+ * - voice/{userId}/...  (cấu trúc cũ theo user)
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class RecordingIndexService {
+
+    private static final int DELETE_CHUNK_SIZE = 500;
+
+    private final RecordingObjectRepository recordingObjectRepository;
+
+    /**
+     * Ghi (hoặc cập nhật) một file vào index
+     */
+    public void record(String s3Key, String userId, String callId, String recordingType,
+                       String contentType, Long sizeBytes, Instant lastModified) {
+        RecordingObject object = recordingObjectRepository.findByS3Key(s3Key)
+                .orElseGet(() -> RecordingObject.builder().s3Key(s3Key).build());
+        object.setFilename(filenameOf(s3Key));
+        object.setUserId(userId != null ? userId : object.getUserId());
+        object.setCallId(callId != null ? callId : object.getCallId());
+        object.setRecordingType(recordingType != null ? recordingType : object.getRecordingType());
+        object.setContentType(contentType != null ? contentType : object.getContentType());
+        object.setSizeBytes(sizeBytes);
+        object.setLastModified(lastModified != null ? lastModified : Instant.now());
+        try {
+            recordingObjectRepository.save(object);
+        } catch (DataIntegrityViolationException e) {
+            // Đã được ghi đồng thời (upload và đối soát cùng lúc)
+            log.debug("Recording {} already indexed", s3Key);
+        }
+    }
+
+    /**
+     * Ghi file vào index, suy ra user/call/type từ cấu trúc key (dùng khi đối soát)
+     */
+    public void recordFromKey(String s3Key, Long sizeBytes, Instant lastModified) {
+        String[] parts = s3Key.split("/");
+        String filename = filenameOf(s3Key);
+        String baseName = filename.contains(".") ? filename.substring(0, filename.lastIndexOf('.')) : filename;
+        String userId = null;
+        String callId = null;
+        String recordingType = null;
+
+        if (parts.length >= 4 && "calls".equals(parts[1])) {
+            callId = parts[2];
+            recordingType = baseName.contains("_") ? baseName.substring(0, baseName.indexOf('_')) : null;
+        } else if (parts.length >= 4 && "stringee".equals(parts[1])) {
+            callId = baseName.contains("_") ? baseName.substring(baseName.indexOf('_') + 1) : null;
+            recordingType = "stringee";
+        } else if (parts.length >= 3) {
+            userId = parts[1];
+        }
+        record(s3Key, userId, callId, recordingType, null, sizeBytes, lastModified);
+    }
+
+    /**
+     * Xóa file khỏi index
+     */
+    public void remove(String s3Key) {
+        recordingObjectRepository.deleteByS3Key(s3Key);
+    }
+
+    /**
+     * Xóa nhiều file khỏi index (theo lô)
+     */
+    public int removeAll(Collection<String> s3Keys) {
+        List<String> keys = new ArrayList<>(s3Keys);
+        int removed = 0;
+        for (int i = 0; i < keys.size(); i += DELETE_CHUNK_SIZE) {
+            removed += recordingObjectRepository.deleteByS3KeyIn(keys.subList(i, Math.min(i + DELETE_CHUNK_SIZE, keys.size())));
+        }
+        return removed;
+    }
+
+    /**
+     * Tìm S3 key theo tên file
+     */
+    public Optional<String> findKeyByFilename(String filename) {
+        return recordingObjectRepository.findFirstByFilenameOrderByLastModifiedDesc(filename)
+                .map(RecordingObject::getS3Key);
+    }
+
+    /**
+     * Recordings mới nhất
+     */
+    public List<RecordingObject> findLatest(int limit) {
+        return recordingObjectRepository.findAllByOrderByLastModifiedDesc(PageRequest.of(0, limit));
+    }
+
+    /**
+     * Recordings trong folder của user (voice/{userId}/...), mới nhất trước
+     * File web call (voice/calls/...) cũng gắn userId nhưng không thuộc folder này
+     */
+    public List<RecordingObject> findByUser(String userId, int limit) {
+        return recordingObjectRepository.findByUserIdAndS3KeyStartingWithOrderByLastModifiedDesc(
+                userId, "voice/" + userId + "/", PageRequest.of(0, limit));
+    }
+
+    /**
+     * Recordings của một cuộc gọi
+     */
+    public List<RecordingObject> findByCall(String callId) {
+        return recordingObjectRepository.findByCallIdOrderByLastModifiedAsc(callId);
+    }
+
+    /**
+     * Recordings trong khoảng thời gian [from, to), mới nhất trước
+     */
+    public List<RecordingObject> findBetween(Instant from, Instant to, int limit) {
+        return recordingObjectRepository.findByLastModifiedRange(from, to, PageRequest.of(0, limit));
+    }
+
+    /**
+     * Toàn bộ key đã index
+     */
+    public List<String> findAllKeys() {
+        return recordingObjectRepository.findAllKeys();
+    }
+
+    private static String filenameOf(String s3Key) {
+        return s3Key.substring(s3Key.lastIndexOf('/') + 1);
+    }
+}
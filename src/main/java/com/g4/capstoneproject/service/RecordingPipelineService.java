@@ -0,0 +1,324 @@
+package com.g4.capstoneproject.service;
+
+import com.g4.capstoneproject.entity.RecordingJob;
+import com.g4.capstoneproject.entity.WebCallLog;
+import com.g4.capstoneproject.repository.RecordingJobRepository;
+import com.g4.capstoneproject.repository.WebCallLogRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.TransientDataAccessException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Pipeline xử lý file ghi âm từ webhook Stringee
+ *
+ * Webhook chỉ ghi một RecordingJob (PENDING) rồi trả về ngay. Job được lưu trong
+ * database nên không mất khi restart; unique call_id chặn xử lý trùng khi Stringee
+ * gửi lại webhook. Worker trên recordingExecutor chạy các stage:
+ * 1. store: tải file từ Stringee và stream thẳng lên S3
+ * 2. persist: cập nhật WebCallLog (S3 key, pre-signed URL)
+ * 3. transcribe (tùy chọn): đưa file vào TranscriptionJobService ở mức BACKFILL
+ *
+ * Backpressure: dispatcher chỉ nhận thêm job khi số job đang chạy/chờ trong executor
+ * còn dưới concurrency + queue-capacity, phần còn lại nằm ở trạng thái PENDING trong DB.
+ *
+ * Job đã claim được heartbeat định kỳ; job PROCESSING không được heartbeat quá
+ * stale-after-minutes (node chết) được trả về hàng đợi, hoặc FAILED nếu hết lượt thử.
+ */
+@Slf4j
+@Service
+public class RecordingPipelineService {
+
+    private static final String STAGE_TIMER = "recording.pipeline.stage";
+    private static final long PRESIGNED_URL_SECONDS = 7 * 24 * 3600;
+    private static final String STALE_ERROR = "Worker stopped while processing and no attempts are left";
+
+    private final RecordingJobRepository jobRepository;
+    private final WebCallLogRepository webCallLogRepository;
+    private final S3Service s3Service;
+    private final TranscriptionJobService transcriptionJobService;
+    private final ThreadPoolTaskExecutor executor;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${recording.pipeline.max-attempts:5}")
+    private int maxAttempts;
+
+    @Value("${recording.pipeline.retry-backoff-seconds:30}")
+    private long retryBackoffSeconds;
+
+    @Value("${recording.pipeline.stale-after-minutes:30}")
+    private long staleAfterMinutes;
+
+    @Value("${recording.pipeline.transcribe-enabled:false}")
+    private boolean transcribeEnabled;
+
+    /**
+     * Số job tối đa được giữ trong executor (đang chạy + đang chờ)
+     */
+    private final int capacity;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicLong pendingJobs = new AtomicLong();
+
+    /**
+     * ID các job node này đã claim và chưa xử lý xong (để heartbeat)
+     */
+    private final Set<Long> running = ConcurrentHashMap.newKeySet();
+
+    public RecordingPipelineService(RecordingJobRepository jobRepository,
+                                    WebCallLogRepository webCallLogRepository,
+                                    S3Service s3Service,
+                                    TranscriptionJobService transcriptionJobService,
+                                    @Qualifier("recordingExecutor") ThreadPoolTaskExecutor executor,
+                                    MeterRegistry meterRegistry,
+                                    @Value("${recording.pipeline.concurrency:4}") int concurrency,
+                                    @Value("${recording.pipeline.queue-capacity:20}") int queueCapacity) {
+        this.jobRepository = jobRepository;
+        this.webCallLogRepository = webCallLogRepository;
+        this.s3Service = s3Service;
+        this.transcriptionJobService = transcriptionJobService;
+        this.executor = executor;
+        this.meterRegistry = meterRegistry;
+        this.capacity = concurrency + queueCapacity;
+
+        Gauge.builder("recording.pipeline.queue.depth", pendingJobs, AtomicLong::get)
+                .description("Recording jobs waiting in the database")
+                .register(meterRegistry);
+        Gauge.builder("recording.pipeline.in.flight", inFlight, AtomicInteger::get)
+                .description("Recording jobs running or queued in the executor")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Ghi nhận file ghi âm mới từ webhook
+     *
+     * @return true nếu tạo job mới, false nếu call_id đã có job (webhook gửi lại)
+     */
+    public boolean enqueue(String callId, String recordingUrl) {
+        if (jobRepository.findByCallId(callId).isPresent()) {
+            log.info("Recording job for call {} already exists, ignoring duplicate webhook", callId);
+            meterRegistry.counter("recording.pipeline.jobs", "result", "duplicate").increment();
+            return false;
+        }
+        try {
+            jobRepository.saveAndFlush(RecordingJob.builder()
+                    .callId(callId)
+                    .recordingUrl(recordingUrl)
+                    .build());
+        } catch (DataIntegrityViolationException e) {
+            // Hai webhook cùng call_id đến đồng thời
+            log.info("Recording job for call {} created concurrently, ignoring duplicate webhook", callId);
+            meterRegistry.counter("recording.pipeline.jobs", "result", "duplicate").increment();
+            return false;
+        }
+        pendingJobs.incrementAndGet();
+        meterRegistry.counter("recording.pipeline.jobs", "result", "enqueued").increment();
+        log.info("Queued recording job for call {}", callId);
+        return true;
+    }
+
+    /**
+     * Lấy các job đến hạn và giao cho executor, trong giới hạn capacity
+     * Chu kỳ cấu hình qua recording.pipeline.poll-interval-ms
+     */
+    @Scheduled(fixedDelayString = "${recording.pipeline.poll-interval-ms:1000}")
+    public void dispatchDueJobs() {
+        pendingJobs.set(jobRepository.countByStatus(RecordingJob.Status.PENDING));
+
+        int free = capacity - inFlight.get();
+        if (free <= 0) {
+            return;
+        }
+        LocalDateTime now = LocalDateTime.now();
+        List<Long> ids = jobRepository.findDueJobIds(now, PageRequest.of(0, free));
+        for (Long id : ids) {
+            // Claim có điều kiện để nhiều node không xử lý trùng một job
+            if (jobRepository.claim(id, now) == 0) {
+                continue;
+            }
+            inFlight.incrementAndGet();
+            running.add(id);
+            try {
+                executor.execute(() -> {
+                    try {
+                        process(id);
+                    } finally {
+                        running.remove(id);
+                        inFlight.decrementAndGet();
+                    }
+                });
+            } catch (TaskRejectedException e) {
+                running.remove(id);
+                inFlight.decrementAndGet();
+                jobRepository.findById(id).ifPresent(job -> {
+                    job.setStatus(RecordingJob.Status.PENDING);
+                    job.setAttempts(job.getAttempts() - 1);
+                    jobRepository.save(job);
+                });
+                log.warn("Recording executor saturated, job {} returned to queue", id);
+                break;
+            }
+        }
+    }
+
+    /**
+     * Cập nhật updatedAt của các job đang chạy trên node này, để stage dài (tải file lớn)
+     * không bị releaseStaleJobs coi là treo
+     * Chu kỳ recording.pipeline.heartbeat-interval-ms, phải nhỏ hơn nhiều so với stale-after-minutes
+     */
+    @Scheduled(fixedDelayString = "${recording.pipeline.heartbeat-interval-ms:60000}")
+    public void heartbeatRunningJobs() {
+        if (running.isEmpty()) {
+            return;
+        }
+        jobRepository.heartbeat(List.copyOf(running), LocalDateTime.now());
+    }
+
+    /**
+     * Trả các job PROCESSING bị bỏ dở (node dừng giữa chừng) về hàng đợi,
+     * job đã dùng hết max-attempts thì đánh dấu FAILED thay vì chạy lại mãi
+     */
+    @Scheduled(fixedDelayString = "${recording.pipeline.stale-check-interval-ms:60000}")
+    public void releaseStaleJobs() {
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime staleBefore = now.minusMinutes(staleAfterMinutes);
+        int failed = jobRepository.failStale(staleBefore, maxAttempts, STALE_ERROR, now);
+        if (failed > 0) {
+            meterRegistry.counter("recording.pipeline.jobs", "result", "failed").increment(failed);
+            log.error("❌ {} stale recording jobs failed after {} attempts", failed, maxAttempts);
+        }
+        int released = jobRepository.releaseStale(staleBefore, maxAttempts, now);
+        if (released > 0) {
+            log.warn("Released {} stale recording jobs back to the queue", released);
+        }
+    }
+
+    /**
+     * Chạy các stage của một job đã được claim
+     */
+    void process(Long jobId) {
+        RecordingJob job = jobRepository.findById(jobId).orElse(null);
+        if (job == null) {
+            return;
+        }
+        try {
+            if (job.getS3Key() == null) {
+                String s3Key = timed("store",
+                        () -> s3Service.uploadFileFromUrl(job.getRecordingUrl(), job.getCallId(), "audio/mpeg"));
+                job.setS3Key(s3Key);
+                jobRepository.save(job);
+            }
+
+            timed("persist", () -> persistCallRecord(job));
+
+            if (transcribeEnabled) {
+                try {
+                    transcriptionJobService.submit(job.getS3Key(), TranscriptionJobService.Priority.BACKFILL);
+                } catch (IllegalStateException e) {
+                    // Transcript không bắt buộc, không làm hỏng job
+                    log.warn("Transcription not queued for call {}: {}", job.getCallId(), e.getMessage());
+                }
+            }
+
+            job.setStatus(RecordingJob.Status.COMPLETED);
+            job.setLastError(null);
+            jobRepository.save(job);
+            meterRegistry.counter("recording.pipeline.jobs", "result", "completed").increment();
+            log.info("✅ Recording job for call {} completed: {}", job.getCallId(), job.getS3Key());
+        } catch (Exception e) {
+            handleFailure(job, e);
+        }
+    }
+
+    /**
+     * Gắn file ghi âm vào WebCallLog tương ứng (nếu là cuộc gọi web-to-web)
+     */
+    private WebCallLog persistCallRecord(RecordingJob job) {
+        WebCallLog callLog = webCallLogRepository.findByStringeeCallId(job.getCallId()).orElse(null);
+        if (callLog == null) {
+            log.debug("No web call log for call {}, recording kept on job only", job.getCallId());
+            return null;
+        }
+        callLog.setRecordingS3Key(job.getS3Key());
+        callLog.setRecordingUrl(s3Service.generatePresignedUrlUncached(job.getS3Key(), PRESIGNED_URL_SECONDS));
+        callLog.setRecordingUrlExpiry(LocalDateTime.now().plusSeconds(PRESIGNED_URL_SECONDS));
+        callLog.setHasRecording(true);
+        return webCallLogRepository.save(callLog);
+    }
+
+    /**
+     * Đặt lịch thử lại với backoff lũy thừa, hoặc đánh dấu FAILED khi hết lượt
+     * Lỗi không thể thử lại (HTTP 4xx trừ 429, lỗi không phải I/O) đánh dấu FAILED ngay
+     */
+    private void handleFailure(RecordingJob job, Exception e) {
+        String error = e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName();
+        job.setLastError(error.length() > 1000 ? error.substring(0, 1000) : error);
+        if (!isRetryable(e)) {
+            job.setStatus(RecordingJob.Status.FAILED);
+            meterRegistry.counter("recording.pipeline.jobs", "result", "failed").increment();
+            log.error("❌ Recording job for call {} failed with a non-retryable error: {}",
+                    job.getCallId(), error, e);
+        } else if (job.getAttempts() >= maxAttempts) {
+            job.setStatus(RecordingJob.Status.FAILED);
+            meterRegistry.counter("recording.pipeline.jobs", "result", "failed").increment();
+            log.error("❌ Recording job for call {} failed after {} attempts: {}",
+                    job.getCallId(), job.getAttempts(), error, e);
+        } else {
+            long delay = retryBackoffSeconds << Math.min(job.getAttempts() - 1, 10);
+            job.setStatus(RecordingJob.Status.PENDING);
+            job.setNextAttemptAt(LocalDateTime.now().plusSeconds(delay));
+            meterRegistry.counter("recording.pipeline.jobs", "result", "retried").increment();
+            log.warn("Recording job for call {} failed (attempt {}), retrying in {}s: {}",
+                    job.getCallId(), job.getAttempts(), delay, error);
+        }
+        jobRepository.save(job);
+    }
+
+    /**
+     * Chỉ thử lại lỗi tạm thời: lỗi I/O (kể cả database tạm mất kết nối), HTTP 5xx và 429
+     */
+    static boolean isRetryable(Exception e) {
+        if (e instanceof S3Service.HttpDownloadException http) {
+            return http.isRetryable();
+        }
+        return e instanceof IOException
+                || e instanceof UncheckedIOException
+                || e instanceof TransientDataAccessException;
+    }
+
+    private <T> T timed(String stage, StageCall<T> call) throws Exception {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        String outcome = "success";
+        try {
+            return call.run();
+        } catch (Exception e) {
+            outcome = "failure";
+            throw e;
+        } finally {
+            sample.stop(meterRegistry.timer(STAGE_TIMER, "stage", stage, "outcome", outcome));
+        }
+    }
+
+    @FunctionalInterface
+    private interface StageCall<T> {
+        T run() throws Exception;
+    }
+}
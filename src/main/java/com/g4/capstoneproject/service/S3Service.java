@@ -1,15 +1,26 @@
 package com.g4.capstoneproject.service;
 
+import com.g4.capstoneproject.entity.RecordingObject;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
+import software.amazon.awssdk.core.ResponseInputStream;
+import software.amazon.awssdk.core.async.AsyncRequestBody;
+import software.amazon.awssdk.core.async.BlockingInputStreamAsyncRequestBody;
 import software.amazon.awssdk.core.sync.RequestBody;
 import software.amazon.awssdk.services.s3.S3Client;
 import software.amazon.awssdk.services.s3.model.DeleteObjectRequest;
 import software.amazon.awssdk.services.s3.model.GetObjectRequest;
+import software.amazon.awssdk.services.s3.model.GetObjectResponse;
 import software.amazon.awssdk.services.s3.model.ListObjectsV2Request;
 import software.amazon.awssdk.services.s3.model.ListObjectsV2Response;
 import software.amazon.awssdk.services.s3.model.PutObjectRequest;
@@ -18,13 +29,18 @@ import software.amazon.awssdk.services.s3.model.S3Exception;
 import software.amazon.awssdk.services.s3.presigner.S3Presigner;
 import software.amazon.awssdk.services.s3.presigner.model.GetObjectPresignRequest;
 import software.amazon.awssdk.services.s3.presigner.model.PresignedGetObjectRequest;
+import software.amazon.awssdk.transfer.s3.S3TransferManager;
+import software.amazon.awssdk.transfer.s3.model.Upload;
+import software.amazon.awssdk.transfer.s3.model.UploadRequest;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.UncheckedIOException;
 import java.net.HttpURLConnection;
 import java.net.URI;
 import java.net.URL;
 import java.time.Duration;
+import java.time.Instant;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
@@ -32,6 +48,8 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.CompletionException;
+import java.util.function.Consumer;
 
 /**
  * Service xu ly upload/download file tu AWS S3
@@ -68,12 +86,47 @@ public class S3Service {
     @Autowired
     private S3Presigner s3Presigner;
 
+    @Autowired
+    private S3TransferManager s3TransferManager;
+
+    @Autowired
+    private RecordingIndexService recordingIndexService;
+
     @Value("${aws.s3.bucketName}")
     private String bucketName;
 
     @Value("${aws.s3.presignedUrlDuration:3600}")
     private long presignedUrlDuration; // Mac dinh 1 gio (3600 giay)
 
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${aws.s3.presignedUrlCache.maxSize:10000}")
+    private long presignedUrlCacheMaxSize;
+
+    // URL cache chi duoc dung lai khi con it nhat ty le nay cua thoi han
+    @Value("${aws.s3.presignedUrlCache.minRemainingRatio:0.5}")
+    private double presignedUrlMinRemainingRatio;
+
+    /**
+     * Cache pre-signed URL theo (key, duration)
+     * Moi entry het han khi thoi han con lai cua URL xuong duoi minRemainingRatio
+     */
+    private Cache<String, CachedPresignedUrl> presignedUrlCache;
+
+    private record CachedPresignedUrl(String url, Duration reuseFor) {
+    }
+
+    @PostConstruct
+    void initPresignedUrlCache() {
+        presignedUrlCache = Caffeine.newBuilder()
+                .maximumSize(presignedUrlCacheMaxSize)
+                .expireAfter(Expiry.creating((String key, CachedPresignedUrl value) -> value.reuseFor()))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, presignedUrlCache, "presignedUrls");
+    }
+
     /**
      * Upload file len S3 va tra ve key cua file
      * Bao gom validation kich thuoc file truoc khi upload
@@ -241,6 +294,7 @@ public class S3Service {
             s3Client.putObject(putOb, RequestBody.fromInputStream(file.getInputStream(), file.getSize()));
 
             logger.info("Upload recording thanh cong: {}", s3Key);
+            indexRecording(s3Key, userId, callId, recordingType.toLowerCase(), putOb.contentType(), file.getSize());
             // Tra ve key cua file
             return s3Key;
         } catch (S3Exception e) {
@@ -251,11 +305,28 @@ public class S3Service {
 
     /**
      * Tạo Pre-signed URL để truy cập file trong thời gian giới hạn
+     * URL được cache theo (fileKey, duration) và dùng lại khi còn đủ thời hạn,
+     * tránh ký lại mỗi lần render và giữ URL ổn định để trình duyệt cache được file
      * @param fileKey Key của file trong S3
      * @param durationInSeconds Thời gian URL có hiệu lực (giây)
-     * @return Pre-signed URL có thời hạn
+     * @return Pre-signed URL, còn hiệu lực ít nhất minRemainingRatio * durationInSeconds
      */
     public String generatePresignedUrl(String fileKey, long durationInSeconds) {
+        return presignedUrlCache.get(fileKey + "|" + durationInSeconds, k -> {
+            long reuseSeconds = (long) (durationInSeconds * (1 - presignedUrlMinRemainingRatio));
+            return new CachedPresignedUrl(generatePresignedUrlUncached(fileKey, durationInSeconds),
+                    Duration.ofSeconds(Math.max(reuseSeconds, 0)));
+        }).url();
+    }
+
+    /**
+     * Ký mới Pre-signed URL (không qua cache)
+     * Dùng khi lưu URL kèm thời điểm hết hạn (vd. WebCallLog.recordingUrlExpiry)
+     * @param fileKey Key của file trong S3
+     * @param durationInSeconds Thời gian URL có hiệu lực (giây)
+     * @return Pre-signed URL có hiệu lực đủ durationInSeconds
+     */
+    public String generatePresignedUrlUncached(String fileKey, long durationInSeconds) {
         GetObjectRequest getObjectRequest = GetObjectRequest.builder()
                 .bucket(bucketName)
                 .key(fileKey)
@@ -283,10 +354,11 @@ public class S3Service {
      * Download file tu URL (Stringee recording) va upload len S3 vao folder voice/stringee/
      * 
      * Cac toi uu:
-     * - Retry mechanism: Tu dong thu lai MAX_DOWNLOAD_RETRIES lan khi gap loi mang
+     * - Streaming: Du lieu HTTP duoc day thang vao multipart upload cua S3TransferManager,
+     *   khong doc ca file vao heap (bo nho chi phu thuoc kich thuoc part)
+     * - Validation: Kiem tra MAX_FILE_SIZE theo Content-Length va trong khi doc
+     * - Retry: Khi ket noi bi ngat giua chung, mo lai voi header Range de tai tiep tu byte da doc
      * - Timeout: Connect timeout 30s, Read timeout 60s
-     * - Validation: Kiem tra file size truoc khi upload
-     * - Streaming: Su dung buffer 8KB de doc file
      * 
      * Cau truc: voice/stringee/{yyyyMMdd}/{timestamp}_{callId}.mp3
      * 
@@ -307,127 +379,232 @@ public class S3Service {
         // Cau truc: voice/stringee/{yyyyMMdd}/{HHmmss}_{callId}.mp3
         String fileName = "voice/stringee/" + date + "/" + timestamp + "_" + callId + fileExtension;
 
-        // Download file voi retry mechanism
-        byte[] fileBytes = downloadFileWithRetry(fileUrl, MAX_DOWNLOAD_RETRIES);
+        try (ResumableDownloadStream source = new ResumableDownloadStream(fileUrl, MAX_DOWNLOAD_RETRIES, MAX_FILE_SIZE)) {
+            long contentLength = source.getContentLength();
 
-        // Kiem tra file co du lieu khong
-        if (fileBytes.length == 0) {
-            throw new IOException("File tai xuong tu URL trong rong: " + fileUrl);
-        }
-        
-        // Kiem tra kich thuoc file
-        if (fileBytes.length > MAX_FILE_SIZE) {
-            throw new IOException("File vuot qua gioi han " + (MAX_FILE_SIZE / 1024 / 1024) + "MB");
-        }
-        
-        logger.info("Download thanh cong: {} bytes", fileBytes.length);
+            // Kiem tra file co du lieu khong va kich thuoc truoc khi bat dau upload
+            if (contentLength == 0) {
+                throw new IOException("File tai xuong tu URL trong rong: " + fileUrl);
+            }
+            if (contentLength > MAX_FILE_SIZE) {
+                throw new IOException("File vuot qua gioi han " + (MAX_FILE_SIZE / 1024 / 1024) + "MB");
+            }
 
-        try {
-            // Tao request upload len S3
             PutObjectRequest putOb = PutObjectRequest.builder()
                     .bucket(bucketName)
                     .key(fileName)
                     .contentType(contentType != null ? contentType : "audio/mpeg")
-                    .contentLength((long) fileBytes.length)
                     .build();
 
-            // Upload len S3 voi kich thuoc chinh xac
-            s3Client.putObject(putOb, RequestBody.fromBytes(fileBytes));
-            
-            logger.info("Upload thanh cong len S3: {}", fileName);
+            // Content-Length khong xac dinh -> multipart voi do dai khong biet truoc
+            BlockingInputStreamAsyncRequestBody body =
+                    AsyncRequestBody.forBlockingInputStream(contentLength > 0 ? contentLength : null);
+            Upload upload = s3TransferManager.upload(UploadRequest.builder()
+                    .putObjectRequest(putOb)
+                    .requestBody(body)
+                    .build());
+
+            long uploadedBytes;
+            try {
+                uploadedBytes = body.writeInputStream(source);
+                upload.completionFuture().join();
+            } catch (UncheckedIOException e) {
+                upload.completionFuture().cancel(true);
+                throw e.getCause();
+            } catch (CompletionException e) {
+                Throwable cause = e.getCause() != null ? e.getCause() : e;
+                logger.error("Loi S3 khi upload {}: {}", fileName, cause.getMessage());
+                throw new IOException("Loi upload file len S3: " + cause.getMessage(), cause);
+            } catch (RuntimeException e) {
+                upload.completionFuture().cancel(true);
+                throw e;
+            }
+
+            // Content-Length khong xac dinh va file rong: xoa object rong vua tao
+            if (uploadedBytes == 0) {
+                deleteFile(fileName);
+                throw new IOException("File tai xuong tu URL trong rong: " + fileUrl);
+            }
+
+            logger.info("Upload thanh cong len S3: {} ({} bytes)", fileName, uploadedBytes);
+            indexRecording(fileName, null, callId, "stringee", putOb.contentType(), uploadedBytes);
             return fileName;
-        } catch (S3Exception e) {
-            logger.error("Loi S3 khi upload {}: {}", fileName, e.getMessage());
-            throw new IOException("Loi upload file len S3: " + e.getMessage(), e);
         }
     }
-    
+
     /**
-     * Download file tu URL voi retry mechanism
-     * Tu dong thu lai khi gap loi mang tam thoi
-     * 
-     * @param fileUrl URL can download
-     * @param maxRetries So lan thu lai toi da
-     * @return Noi dung file dang byte array
-     * @throws IOException Neu that bai sau tat ca cac lan thu
+     * InputStream doc truc tiep tu HTTP connection (khong buffer ca file)
+     * - Dem so byte da doc va nem loi ngay khi vuot qua maxBytes
+     * - Khi ket noi loi hoac bi ngat truoc khi het Content-Length, mo lai voi
+     *   header "Range: bytes={position}-" de tai tiep; neu server khong ho tro Range
+     *   (tra ve 200) thi bo qua cac byte da doc
+     * - Chi retry loi I/O, 5xx va 429; cac loi 4xx khac nem ngay
      */
-    private byte[] downloadFileWithRetry(String fileUrl, int maxRetries) throws IOException {
-        IOException lastException = null;
-        
-        for (int attempt = 1; attempt <= maxRetries; attempt++) {
+    private static final class ResumableDownloadStream extends InputStream {
+
+        private final String fileUrl;
+        private final int maxRetries;
+        private final long maxBytes;
+
+        private HttpURLConnection connection;
+        private InputStream current;
+        private long contentLength = -1;
+        private long position;
+        private int retries;
+
+        private ResumableDownloadStream(String fileUrl, int maxRetries, long maxBytes) throws IOException {
+            this.fileUrl = fileUrl;
+            this.maxRetries = maxRetries;
+            this.maxBytes = maxBytes;
             try {
-                logger.debug("Download attempt {}/{}: {}", attempt, maxRetries, fileUrl);
-                return downloadFile(fileUrl);
+                open();
             } catch (IOException e) {
-                lastException = e;
-                logger.warn("Download attempt {} failed: {}", attempt, e.getMessage());
-                
-                // Chi retry neu khong phai loi 4xx (client error)
-                if (e.getMessage().contains("HTTP 4")) {
-                    throw e; // Khong retry cho loi 4xx
+                reopen(e);
+            }
+        }
+
+        /**
+         * Kich thuoc file theo Content-Length, -1 neu server khong tra ve
+         */
+        private long getContentLength() {
+            return contentLength;
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] single = new byte[1];
+            int n = read(single, 0, 1);
+            return n == -1 ? -1 : single[0] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            while (true) {
+                int n;
+                try {
+                    n = current.read(buffer, offset, length);
+                } catch (IOException e) {
+                    reopen(e);
+                    continue;
                 }
-                
-                // Cho 1 giay truoc khi retry
-                if (attempt < maxRetries) {
-                    try {
-                        Thread.sleep(1000 * attempt); // Exponential backoff
-                    } catch (InterruptedException ie) {
-                        Thread.currentThread().interrupt();
-                        throw new IOException("Download bi gian doan", ie);
+
+                if (n == -1 && contentLength > 0 && position < contentLength) {
+                    // Ket noi bi ngat truoc khi doc du file
+                    reopen(new IOException("Connection closed at byte " + position + "/" + contentLength));
+                    continue;
+                }
+                if (n > 0) {
+                    position += n;
+                    if (position > maxBytes) {
+                        throw new IOException("File vuot qua gioi han " + (maxBytes / 1024 / 1024) + "MB");
                     }
                 }
+                return n;
             }
         }
-        
-        String errorMsg = lastException != null ? lastException.getMessage() : "Unknown error";
-        throw new IOException("Download that bai sau " + maxRetries + " lan thu: " + errorMsg, lastException);
-    }
-    
-    /**
-     * Download file tu URL voi timeout
-     * 
-     * @param fileUrl URL can download
-     * @return Noi dung file dang byte array
-     * @throws IOException Neu download that bai
-     */
-    private byte[] downloadFile(String fileUrl) throws IOException {
-        URL url = URI.create(fileUrl).toURL();
-        HttpURLConnection connection = (HttpURLConnection) url.openConnection();
-        
-        try {
-            // Cau hinh timeout
-            connection.setConnectTimeout(HTTP_CONNECT_TIMEOUT);
-            connection.setReadTimeout(HTTP_READ_TIMEOUT);
-            connection.setRequestMethod("GET");
-            
-            // Kiem tra response code
-            int responseCode = connection.getResponseCode();
-            if (responseCode != HttpURLConnection.HTTP_OK) {
-                throw new IOException("HTTP " + responseCode + ": " + connection.getResponseMessage());
+
+        @Override
+        public void close() {
+            closeCurrent();
+        }
+
+        private void open() throws IOException {
+            URL url = URI.create(fileUrl).toURL();
+            HttpURLConnection conn = (HttpURLConnection) url.openConnection();
+            conn.setConnectTimeout(HTTP_CONNECT_TIMEOUT);
+            conn.setReadTimeout(HTTP_READ_TIMEOUT);
+            conn.setRequestMethod("GET");
+            if (position > 0) {
+                conn.setRequestProperty("Range", "bytes=" + position + "-");
             }
-            
-            // Doc file vao byte array
-            try (InputStream inputStream = connection.getInputStream();
-                 java.io.ByteArrayOutputStream outputStream = new java.io.ByteArrayOutputStream()) {
-                
-                byte[] buffer = new byte[8192];
-                int bytesRead;
-                long totalBytes = 0;
-                
-                while ((bytesRead = inputStream.read(buffer)) != -1) {
-                    outputStream.write(buffer, 0, bytesRead);
-                    totalBytes += bytesRead;
-                    
-                    // Kiem tra kich thuoc trong khi download
-                    if (totalBytes > MAX_FILE_SIZE) {
-                        throw new IOException("File vuot qua gioi han " + (MAX_FILE_SIZE / 1024 / 1024) + "MB");
-                    }
+
+            int responseCode = conn.getResponseCode();
+            if (responseCode == HttpURLConnection.HTTP_PARTIAL && position > 0) {
+                current = conn.getInputStream();
+            } else if (responseCode == HttpURLConnection.HTTP_OK) {
+                current = conn.getInputStream();
+                if (position == 0) {
+                    contentLength = conn.getContentLengthLong();
+                } else {
+                    // Server khong ho tro Range: bo qua phan da upload
+                    current.skipNBytes(position);
                 }
-                
-                return outputStream.toByteArray();
+            } else {
+                String message = conn.getResponseMessage();
+                conn.disconnect();
+                throw new HttpDownloadException(responseCode, message);
+            }
+            connection = conn;
+        }
+
+        private void reopen(IOException cause) throws IOException {
+            while (true) {
+                // Chi retry loi I/O, 5xx va 429 (rate limit)
+                if (cause instanceof HttpDownloadException http && !http.isRetryable()) {
+                    throw cause;
+                }
+                if (++retries > maxRetries) {
+                    throw new IOException("Download that bai sau " + maxRetries + " lan thu: " + cause.getMessage(), cause);
+                }
+                logger.warn("Download {} loi tai byte {} ({}), thu lai lan {}/{}",
+                        fileUrl, position, cause.getMessage(), retries, maxRetries);
+
+                closeCurrent();
+                try {
+                    Thread.sleep(1000L * retries); // Backoff tang dan
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException("Download bi gian doan", ie);
+                }
+
+                try {
+                    open();
+                    return;
+                } catch (IOException e) {
+                    cause = e;
+                }
+            }
+        }
+
+        private void closeCurrent() {
+            if (current != null) {
+                try {
+                    current.close();
+                } catch (IOException ignored) {
+                    // Ket noi da loi, bo qua
+                }
+                current = null;
+            }
+            if (connection != null) {
+                connection.disconnect();
+                connection = null;
             }
-        } finally {
-            connection.disconnect();
+        }
+    }
+
+    /**
+     * Loi HTTP khi download file, giu lai status code de phan biet loi co the thu lai
+     */
+    public static final class HttpDownloadException extends IOException {
+
+        private static final long serialVersionUID = 1L;
+
+        private final int statusCode;
+
+        public HttpDownloadException(int statusCode, String message) {
+            super("HTTP " + statusCode + ": " + message);
+            this.statusCode = statusCode;
+        }
+
+        public int getStatusCode() {
+            return statusCode;
+        }
+
+        /**
+         * 5xx va 429 la loi tam thoi; cac loi 4xx khac (404, 403...) thu lai cung khong thanh cong
+         */
+        public boolean isRetryable() {
+            return statusCode >= 500 || statusCode == 429;
         }
     }
 
@@ -565,119 +742,135 @@ public class S3Service {
                     .build();
             
             s3Client.deleteObject(deleteRequest);
+            evictPresignedUrls(fileKey);
         } catch (Exception e) {
             throw new RuntimeException("Lỗi khi xóa file: " + e.getMessage(), e);
         }
     }
 
     /**
-     * Lay danh sach tat ca cac file recordings trong folder voice/
-     * Ho tro pagination de tranh load qua nhieu file mot luc
+     * Lay danh sach 1000 recordings moi nhat trong folder voice/
+     * Doc tu index recording_objects thay vi listObjectsV2
      * @return Danh sach cac recordings voi thong tin chi tiet
      */
     public List<Map<String, Object>> listRecordings() {
-        List<Map<String, Object>> recordings = new ArrayList<>();
-        
         try {
-            ListObjectsV2Request listRequest = ListObjectsV2Request.builder()
-                    .bucket(bucketName)
-                    .prefix("voice/")
-                    .maxKeys(1000) // Gioi han so luong file tra ve
-                    .build();
-            
-            ListObjectsV2Response listResponse = s3Client.listObjectsV2(listRequest);
-            
-            for (S3Object s3Object : listResponse.contents()) {
-                // Bo qua folder
-                if (s3Object.key().endsWith("/")) {
-                    continue;
+            List<Map<String, Object>> recordings = new ArrayList<>();
+            for (RecordingObject object : recordingIndexService.findLatest(1000)) {
+                Map<String, Object> recordingInfo = toRecordingInfo(object);
+                if (object.getUserId() != null) {
+                    recordingInfo.put("userId", object.getUserId());
                 }
-                
-                Map<String, Object> recordingInfo = new HashMap<>();
-                recordingInfo.put("key", s3Object.key());
-                recordingInfo.put("filename", s3Object.key().substring(s3Object.key().lastIndexOf("/") + 1));
-                recordingInfo.put("size", s3Object.size());
-                recordingInfo.put("lastModified", s3Object.lastModified().toString());
-                recordingInfo.put("url", generatePresignedUrl(s3Object.key(), 7 * 24 * 3600));
-                
-                // Parse userId tu path neu co (voice/{userId}/...)
-                String[] parts = s3Object.key().split("/");
-                if (parts.length >= 2 && !parts[1].equals("stringee")) {
-                    recordingInfo.put("userId", parts[1]);
-                }
-                
                 recordings.add(recordingInfo);
             }
-            
-            // Sap xep theo thoi gian moi nhat
-            recordings.sort((a, b) -> {
-                String dateA = (String) a.get("lastModified");
-                String dateB = (String) b.get("lastModified");
-                return dateB.compareTo(dateA);
-            });
-            
+            return recordings;
         } catch (Exception e) {
             throw new RuntimeException("Loi khi lay danh sach recordings: " + e.getMessage(), e);
         }
-        
-        return recordings;
     }
 
     /**
-     * Lay danh sach recordings cua mot user cu the
-     * Cau truc folder: voice/{userId}/...
+     * Lay danh sach recordings cua mot user cu the (toi da 500, moi nhat truoc)
+     * Doc tu index recording_objects thay vi listObjectsV2
      * @param userId ID cua user
      * @return Danh sach recordings cua user
      */
     public List<Map<String, Object>> listUserRecordings(String userId) {
-        List<Map<String, Object>> recordings = new ArrayList<>();
-        
         try {
-            String prefix = "voice/" + userId + "/";
-            ListObjectsV2Request listRequest = ListObjectsV2Request.builder()
-                    .bucket(bucketName)
-                    .prefix(prefix)
-                    .maxKeys(500)
-                    .build();
-            
-            ListObjectsV2Response listResponse = s3Client.listObjectsV2(listRequest);
-            
-            for (S3Object s3Object : listResponse.contents()) {
-                if (s3Object.key().endsWith("/")) {
-                    continue;
-                }
-                
-                Map<String, Object> recordingInfo = new HashMap<>();
-                recordingInfo.put("key", s3Object.key());
-                recordingInfo.put("filename", s3Object.key().substring(s3Object.key().lastIndexOf("/") + 1));
-                recordingInfo.put("size", s3Object.size());
-                recordingInfo.put("lastModified", s3Object.lastModified().toString());
-                recordingInfo.put("url", generatePresignedUrl(s3Object.key(), 7 * 24 * 3600));
+            List<Map<String, Object>> recordings = new ArrayList<>();
+            for (RecordingObject object : recordingIndexService.findByUser(userId, 500)) {
+                Map<String, Object> recordingInfo = toRecordingInfo(object);
                 recordingInfo.put("userId", userId);
-                
+
                 // Parse ngay tu path (voice/{userId}/{yyyyMMdd}/...)
-                String[] parts = s3Object.key().split("/");
-                if (parts.length >= 3) {
+                String[] parts = object.getS3Key().split("/");
+                if (parts.length >= 4) {
                     recordingInfo.put("date", parts[2]);
                 }
-                
+
                 recordings.add(recordingInfo);
             }
-            
-            // Sap xep theo thoi gian moi nhat
-            recordings.sort((a, b) -> {
-                String dateA = (String) a.get("lastModified");
-                String dateB = (String) b.get("lastModified");
-                return dateB.compareTo(dateA);
-            });
-            
+            return recordings;
         } catch (Exception e) {
             throw new RuntimeException("Loi khi lay danh sach recordings cua user: " + e.getMessage(), e);
         }
-        
+    }
+
+    /**
+     * Lay danh sach recordings cua mot cuoc goi (caller, receiver, combined...)
+     * @param callId ID cua cuoc goi
+     * @return Danh sach recordings theo thu tu upload
+     */
+    public List<Map<String, Object>> listCallRecordings(String callId) {
+        List<Map<String, Object>> recordings = new ArrayList<>();
+        for (RecordingObject object : recordingIndexService.findByCall(callId)) {
+            Map<String, Object> recordingInfo = toRecordingInfo(object);
+            recordingInfo.put("callId", callId);
+            recordingInfo.put("recordingType", object.getRecordingType());
+            recordings.add(recordingInfo);
+        }
         return recordings;
     }
 
+    /**
+     * Lay danh sach recordings trong khoang thoi gian [from, to), moi nhat truoc
+     * @param from Thoi diem bat dau (bao gom)
+     * @param to Thoi diem ket thuc (khong bao gom)
+     * @param limit So luong toi da
+     * @return Danh sach recordings
+     */
+    public List<Map<String, Object>> listRecordingsBetween(Instant from, Instant to, int limit) {
+        List<Map<String, Object>> recordings = new ArrayList<>();
+        for (RecordingObject object : recordingIndexService.findBetween(from, to, limit)) {
+            recordings.add(toRecordingInfo(object));
+        }
+        return recordings;
+    }
+
+    /**
+     * Duyet tat ca object trong S3 theo prefix (tu dong phan trang)
+     * Chi dung cho tac vu nen nhu doi soat index
+     * @param prefix Prefix can duyet
+     * @param consumer Xu ly tung object
+     */
+    public void forEachObject(String prefix, Consumer<S3Object> consumer) {
+        ListObjectsV2Request listRequest = ListObjectsV2Request.builder()
+                .bucket(bucketName)
+                .prefix(prefix)
+                .build();
+        s3Client.listObjectsV2Paginator(listRequest).contents().forEach(consumer);
+    }
+
+    /**
+     * Bo cac URL da cache cua file (moi duration) sau khi file bi xoa
+     */
+    private void evictPresignedUrls(String fileKey) {
+        String prefix = fileKey + "|";
+        presignedUrlCache.asMap().keySet().removeIf(key -> key.startsWith(prefix));
+    }
+
+    private Map<String, Object> toRecordingInfo(RecordingObject object) {
+        Map<String, Object> recordingInfo = new HashMap<>();
+        recordingInfo.put("key", object.getS3Key());
+        recordingInfo.put("filename", object.getFilename());
+        recordingInfo.put("size", object.getSizeBytes());
+        recordingInfo.put("lastModified", object.getLastModified().toString());
+        recordingInfo.put("url", generatePresignedUrl(object.getS3Key(), 7 * 24 * 3600));
+        return recordingInfo;
+    }
+
+    /**
+     * Ghi file vua upload vao index; loi index khong lam hong upload (doi soat se bo sung)
+     */
+    private void indexRecording(String s3Key, String userId, String callId, String recordingType,
+                                String contentType, long sizeBytes) {
+        try {
+            recordingIndexService.record(s3Key, userId, callId, recordingType, contentType, sizeBytes, Instant.now());
+        } catch (Exception e) {
+            logger.warn("Khong ghi duoc index cho recording {}: {}", s3Key, e.getMessage());
+        }
+    }
+
     /**
      * Kiem tra file co ton tai trong S3 khong
      * @param fileKey Key cua file
@@ -725,6 +918,24 @@ public class S3Service {
         }
     }
 
+    /**
+     * Mở stream đọc file từ S3, dùng khi cần chuyển tiếp file lớn mà không nạp vào heap
+     * Caller phải đóng stream; kích thước file lấy qua response().contentLength()
+     * @param fileKey Key của file trong S3
+     * @throws IOException Nếu có lỗi khi mở file
+     */
+    public ResponseInputStream<GetObjectResponse> openFileStream(String fileKey) throws IOException {
+        try {
+            return s3Client.getObject(GetObjectRequest.builder()
+                    .bucket(bucketName)
+                    .key(fileKey)
+                    .build());
+        } catch (S3Exception e) {
+            logger.error("S3 error opening file {}: {}", fileKey, e.getMessage());
+            throw new IOException("Lỗi đọc file từ S3: " + e.getMessage(), e);
+        }
+    }
+
     /**
      * Upload text content lên S3 dưới dạng file .txt
      * @param content Nội dung text cần upload
@@ -793,59 +1004,22 @@ public class S3Service {
     }
 
     /**
-     * Tìm file recording trên S3 theo filename pattern
-     * Do file được lưu với format: voice/{userId}/{date}/{filename}
-     * Cần tìm đúng key từ filename
+     * Tìm file recording theo tên file
+     * Tra cứu index recording_objects thay vì quét toàn bộ folder voice/
      * 
      * @param filename Tên file cần tìm (vd: call_user_3_to_user_1_xxx.webm)
      * @return Full S3 key nếu tìm thấy, null nếu không
      */
     public String findRecordingKeyByFilename(String filename) {
-        try {
-            logger.info("Searching for recording file: {}", filename);
-            
-            // List all objects trong folder voice/
-            ListObjectsV2Request listRequest = ListObjectsV2Request.builder()
-                    .bucket(bucketName)
-                    .prefix("voice/")
-                    .build();
-            
-            ListObjectsV2Response response = s3Client.listObjectsV2(listRequest);
-            
-            for (S3Object object : response.contents()) {
-                String key = object.key();
-                // Check nếu key kết thúc bằng filename
-                if (key.endsWith(filename) || key.endsWith("/" + filename)) {
-                    logger.info("Found recording key: {}", key);
-                    return key;
-                }
-            }
-            
-            // Nếu có nhiều trang, tiếp tục tìm
-            while (response.isTruncated()) {
-                listRequest = ListObjectsV2Request.builder()
-                        .bucket(bucketName)
-                        .prefix("voice/")
-                        .continuationToken(response.nextContinuationToken())
-                        .build();
-                response = s3Client.listObjectsV2(listRequest);
-                
-                for (S3Object object : response.contents()) {
-                    String key = object.key();
-                    if (key.endsWith(filename) || key.endsWith("/" + filename)) {
-                        logger.info("Found recording key: {}", key);
-                        return key;
-                    }
-                }
-            }
-            
+        logger.info("Searching for recording file: {}", filename);
+        String name = filename.contains("/") ? filename.substring(filename.lastIndexOf("/") + 1) : filename;
+        String key = recordingIndexService.findKeyByFilename(name).orElse(null);
+        if (key == null) {
             logger.warn("Recording file not found: {}", filename);
-            return null;
-            
-        } catch (S3Exception e) {
-            logger.error("S3 error searching for file {}: {}", filename, e.getMessage());
-            return null;
+        } else {
+            logger.info("Found recording key: {}", key);
         }
+        return key;
     }
 
     /**
@@ -863,6 +1037,10 @@ public class S3Service {
                     .build();
             
             s3Client.deleteObject(deleteRequest);
+            evictPresignedUrls(fileKey);
+            if (fileKey.startsWith("voice/")) {
+                recordingIndexService.remove(fileKey);
+            }
             
             logger.info("File deleted successfully: {}", fileKey);
             
@@ -2,18 +2,28 @@ package com.g4.capstoneproject.service;
 
 import com.g4.capstoneproject.controller.QueueWebSocketController;
 import com.g4.capstoneproject.dto.QueueUpdateMessage;
+import com.g4.capstoneproject.dto.Ticket.TicketQueueRow;
+import com.g4.capstoneproject.dto.Ticket.TicketQueueStats;
 import com.g4.capstoneproject.entity.Ticket;
 import com.g4.capstoneproject.entity.TicketMessage;
 import com.g4.capstoneproject.entity.User;
 import com.g4.capstoneproject.repository.TicketRepository;
 import com.g4.capstoneproject.repository.TicketMessageRepository;
 import lombok.RequiredArgsConstructor;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
-import java.util.Comparator;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 /**
@@ -25,8 +35,11 @@ import java.util.stream.Collectors;
 @Transactional
 public class TicketService {
 
+    public static final int MAX_QUEUE_PAGE_SIZE = 100;
+
     private final TicketRepository ticketRepository;
     private final TicketMessageRepository ticketMessageRepository;
+    private final ReceptionQueueIndex queueIndex;
     private QueueWebSocketController webSocketController;
 
     /**
@@ -81,7 +94,7 @@ public class TicketService {
      * Tạo ticket mới
      */
     public Ticket createTicket(Ticket ticket) {
-        return ticketRepository.save(ticket);
+        return syncQueueIndex(ticketRepository.save(ticket));
     }
 
     /**
@@ -94,7 +107,7 @@ public class TicketService {
                     existing.setDescription(updatedTicket.getDescription());
                     existing.setStatus(updatedTicket.getStatus());
                     existing.setPriority(updatedTicket.getPriority());
-                    return ticketRepository.save(existing);
+                    return syncQueueIndex(ticketRepository.save(existing));
                 })
                 .orElse(null);
     }
@@ -115,7 +128,7 @@ public class TicketService {
                         }
                     }
 
-                    return ticketRepository.save(ticket);
+                    return syncQueueIndex(ticketRepository.save(ticket));
                 })
                 .orElse(null);
     }
@@ -125,17 +138,26 @@ public class TicketService {
      */
     @Transactional(readOnly = true)
     public long getOpenCount() {
-        return ticketRepository.findByStatus(Ticket.Status.OPEN).size();
+        return ticketRepository.countByStatus(Ticket.Status.OPEN);
     }
 
     @Transactional(readOnly = true)
     public long getInProgressCount() {
-        return ticketRepository.findByStatus(Ticket.Status.IN_PROGRESS).size();
+        return ticketRepository.countByStatus(Ticket.Status.IN_PROGRESS);
     }
 
     @Transactional(readOnly = true)
     public long getHighPriorityCount() {
-        return ticketRepository.findByPriority(Ticket.Priority.HIGH).size();
+        return ticketRepository.countByPriority(Ticket.Priority.HIGH);
+    }
+
+    /**
+     * Thống kê hàng đợi (tổng, open, in progress, high priority, queue, retry)
+     * Tính bằng một câu aggregate, không load entity
+     */
+    @Transactional(readOnly = true)
+    public TicketQueueStats getQueueStatistics() {
+        return ticketRepository.getQueueStats();
     }
 
     /**
@@ -167,66 +189,150 @@ public class TicketService {
 
     // ==================== QUEUE MANAGEMENT METHODS ====================
 
+    /**
+     * Nạp snapshot hàng đợi WebSocket từ database khi khởi động
+     * Client kết nối trước khi có batch đầu tiên vẫn nhận được hàng đợi hiện tại
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional(readOnly = true)
+    public void seedQueueSnapshot() {
+        if (webSocketController != null) {
+            webSocketController.resetSnapshot(getQueueSnapshot());
+        }
+    }
+
+    /**
+     * Hàng đợi chính (theo thứ tự ưu tiên, có vị trí) và hàng đợi retry dưới dạng ADD message
+     */
+    @Transactional(readOnly = true)
+    public List<QueueUpdateMessage> getQueueSnapshot() {
+        List<QueueUpdateMessage> tickets = new ArrayList<>();
+        List<TicketQueueRow> queue = ticketRepository.findMainQueueRows(Pageable.unpaged()).getContent();
+        for (int i = 0; i < queue.size(); i++) {
+            tickets.add(toQueueMessage(queue.get(i), QueueUpdateMessage.QueueType.QUEUE, i + 1));
+        }
+        ticketRepository.findRetryQueueRows(Pageable.unpaged()).getContent()
+                .forEach(row -> tickets.add(toQueueMessage(row, QueueUpdateMessage.QueueType.RETRY, null)));
+        return tickets;
+    }
+
+    private static QueueUpdateMessage toQueueMessage(TicketQueueRow row, QueueUpdateMessage.QueueType queueType,
+            Integer position) {
+        QueueUpdateMessage message = QueueUpdateMessage.added(
+                row.getId().toString(),
+                queueType,
+                row.getPatientName() != null ? row.getPatientName() : "Unknown",
+                row.getPriority() != null ? row.getPriority().toString() : null,
+                position);
+        message.setStatus(row.getStatus() != null ? row.getStatus().toString() : null);
+        message.setRetryCount(row.getRetryCount());
+        return message;
+    }
+
+    /**
+     * Đồng bộ ticket vào ReceptionQueueIndex sau khi transaction commit
+     * Index chỉ chứa dữ liệu đã commit: người đọc không thấy vị trí chưa commit, rollback không
+     * cần dựng lại, và rebuild chạy đồng thời (đọc database) không làm mất ticket
+     */
+    private Ticket syncQueueIndex(Ticket ticket) {
+        TransactionCallbacks.afterCommit(() -> queueIndex.sync(ticket));
+        return ticket;
+    }
+
     /**
      * Get all tickets in main queue (OPEN status, not retrying)
      * Ordered by priority (HIGH > MEDIUM > LOW) and creation time
      */
     @Transactional(readOnly = true)
     public List<Ticket> getQueuedTickets() {
-        return ticketRepository.findByStatus(Ticket.Status.OPEN)
+        List<Long> orderedIds = queueIndex.orderedTicketIds();
+        Map<Long, Ticket> ticketsById = ticketRepository.findAllById(orderedIds)
                 .stream()
-                .filter(t -> t.getRetryCount() == null || t.getRetryCount() == 0)
-                .sorted(Comparator
-                        .comparing(Ticket::getPriority, Comparator.reverseOrder())
-                        .thenComparing(Ticket::getCreatedAt))
+                .collect(Collectors.toMap(Ticket::getId, Function.identity()));
+        return orderedIds.stream()
+                .map(ticketsById::get)
+                .filter(Objects::nonNull)
                 .collect(Collectors.toList());
     }
 
+    /**
+     * Get the ticket at the head of the main queue, or null if the queue is empty
+     */
+    @Transactional(readOnly = true)
+    public Ticket getQueueHead() {
+        ReceptionQueueIndex.QueueEntry head = queueIndex.head();
+        return head != null ? ticketRepository.findById(head.ticketId()).orElse(null) : null;
+    }
+
+    /**
+     * Rebuild the in-memory queue index from the database (recovery path)
+     */
+    public int rebuildQueueIndex() {
+        return queueIndex.rebuild();
+    }
+
     /**
      * Get all tickets in retry queue (has retry_count > 0)
      * Ordered by next retry time
      */
     @Transactional(readOnly = true)
     public List<Ticket> getRetryTickets() {
-        return ticketRepository.findAll()
-                .stream()
-                .filter(t -> t.getRetryCount() != null && t.getRetryCount() > 0)
-                .filter(t -> t.getStatus() == Ticket.Status.OPEN)
-                .sorted(Comparator.comparing(Ticket::getUpdatedAt).reversed())
-                .collect(Collectors.toList());
+        return ticketRepository.findRetryQueue();
     }
 
     /**
-     * Get queue position for a ticket (1-based index)
+     * Page of the main queue as lightweight rows
+     * Page size is clamped to 1..{@value #MAX_QUEUE_PAGE_SIZE}
+     */
+    @Transactional(readOnly = true)
+    public Page<TicketQueueRow> getQueueRows(int page, int size) {
+        return ticketRepository.findMainQueueRows(queuePage(page, size));
+    }
+
+    /**
+     * Page of the retry queue as lightweight rows
+     * Page size is clamped to 1..{@value #MAX_QUEUE_PAGE_SIZE}
      */
     @Transactional(readOnly = true)
+    public Page<TicketQueueRow> getRetryQueueRows(int page, int size) {
+        return ticketRepository.findRetryQueueRows(queuePage(page, size));
+    }
+
+    private static Pageable queuePage(int page, int size) {
+        return PageRequest.of(Math.max(0, page), Math.max(1, Math.min(size, MAX_QUEUE_PAGE_SIZE)));
+    }
+
+    /**
+     * Get queue position for a ticket (1-based index)
+     * Returns null if the ticket is not queued or the id is not a number
+     */
     public Integer getQueuePosition(String ticketId) {
-        List<Ticket> queue = getQueuedTickets();
-        for (int i = 0; i < queue.size(); i++) {
-            if (queue.get(i).getId().toString().equals(ticketId)) {
-                return i + 1; // 1-based position
-            }
+        if (ticketId == null) {
+            return null;
+        }
+        try {
+            return queueIndex.positionOf(Long.parseLong(ticketId.trim()));
+        } catch (NumberFormatException e) {
+            return null;
         }
-        return null;
     }
 
     /**
      * Create ticket with WebSocket notification
      */
     public Ticket createTicketWithNotification(Ticket ticket) {
-        Ticket created = ticketRepository.save(ticket);
+        Ticket created = syncQueueIndex(ticketRepository.save(ticket));
 
-        // Broadcast to WebSocket subscribers
+        // Broadcast to WebSocket subscribers after commit, once the index holds the ticket
         if (webSocketController != null) {
-            Integer position = getQueuePosition(created.getId().toString());
             String patientName = created.getCreatedBy() != null ? created.getCreatedBy().getFullName() : "Unknown";
-
-            webSocketController.broadcastTicketAdded(
+            String priority = created.getPriority().toString();
+            TransactionCallbacks.afterCommit(() -> webSocketController.broadcastTicketAdded(
                     created.getId().toString(),
                     QueueUpdateMessage.QueueType.QUEUE,
                     patientName,
-                    created.getPriority().toString(),
-                    position);
+                    priority,
+                    getQueuePosition(created.getId().toString())));
         }
 
         return created;
@@ -239,7 +345,7 @@ public class TicketService {
         return ticketRepository.findById(Long.parseLong(ticketId))
                 .map(ticket -> {
                     ticket.setStatus(newStatus);
-                    Ticket updated = ticketRepository.save(ticket);
+                    Ticket updated = syncQueueIndex(ticketRepository.save(ticket));
 
                     // Broadcast status change
                     if (webSocketController != null) {
@@ -250,13 +356,13 @@ public class TicketService {
                                     && ticket.getRetryCount() > 0) ? QueueUpdateMessage.QueueType.RETRY
                                             : QueueUpdateMessage.QueueType.QUEUE;
 
-                            Integer position = getQueuePosition(ticketId);
-                            webSocketController.broadcastTicketUpdated(
+                            Integer retryCount = ticket.getRetryCount();
+                            TransactionCallbacks.afterCommit(() -> webSocketController.broadcastTicketUpdated(
                                     ticketId,
                                     queueType,
                                     newStatus.toString(),
-                                    ticket.getRetryCount(),
-                                    position);
+                                    retryCount,
+                                    getQueuePosition(ticketId)));
                         }
                     }
 
@@ -272,7 +378,7 @@ public class TicketService {
         return ticketRepository.findById(Long.parseLong(ticketId))
                 .map(ticket -> {
                     ticket.setStatus(Ticket.Status.IN_PROGRESS);
-                    Ticket updated = ticketRepository.save(ticket);
+                    Ticket updated = syncQueueIndex(ticketRepository.save(ticket));
 
                     // Broadcast call notification
                     if (webSocketController != null) {
@@ -297,7 +403,7 @@ public class TicketService {
                     ticket.setRetryCount(retryCount + 1);
                     ticket.setStatus(Ticket.Status.OPEN);
 
-                    Ticket updated = ticketRepository.save(ticket);
+                    Ticket updated = syncQueueIndex(ticketRepository.save(ticket));
 
                     // Broadcast move to retry
                     if (webSocketController != null) {
@@ -331,7 +437,7 @@ public class TicketService {
                     // Keep retry count for history
                     ticket.setStatus(Ticket.Status.OPEN);
 
-                    Ticket updated = ticketRepository.save(ticket);
+                    Ticket updated = syncQueueIndex(ticketRepository.save(ticket));
 
                     // Broadcast move to main queue
                     if (webSocketController != null) {
@@ -343,13 +449,13 @@ public class TicketService {
                         // Add to main queue
                         String patientName = ticket.getCreatedBy() != null ? ticket.getCreatedBy().getFullName()
                                 : "Unknown";
-                        Integer position = getQueuePosition(ticketId);
-                        webSocketController.broadcastTicketAdded(
+                        String priority = ticket.getPriority().toString();
+                        TransactionCallbacks.afterCommit(() -> webSocketController.broadcastTicketAdded(
                                 ticketId,
                                 QueueUpdateMessage.QueueType.QUEUE,
                                 patientName,
-                                ticket.getPriority().toString(),
-                                position);
+                                priority,
+                                getQueuePosition(ticketId)));
                     }
 
                     return updated;
@@ -360,9 +466,8 @@ public class TicketService {
     /**
      * Get total queue count
      */
-    @Transactional(readOnly = true)
     public long getQueueCount() {
-        return getQueuedTickets().size();
+        return queueIndex.size();
     }
 
     /**
@@ -370,14 +475,14 @@ public class TicketService {
      */
     @Transactional(readOnly = true)
     public long getRetryCount() {
-        return getRetryTickets().size();
+        return ticketRepository.countRetryQueue();
     }
 
     /**
      * Update existing ticket (full object)
      */
     public Ticket updateTicket(Ticket ticket) {
-        return ticketRepository.save(ticket);
+        return syncQueueIndex(ticketRepository.save(ticket));
     }
 
     /**
@@ -388,5 +493,6 @@ public class TicketService {
         ticketMessageRepository.deleteByTicketId(id);
         // Then delete the ticket
         ticketRepository.deleteById(id);
+        TransactionCallbacks.afterCommit(() -> queueIndex.evict(id));
     }
 }
@@ -0,0 +1,31 @@
+package com.g4.capstoneproject.service;
+
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Hook chạy sau khi transaction hiện tại commit
+ * Dùng chung cho các side effect ngoài database (cache, index trong bộ nhớ, WebSocket...)
+ */
+public final class TransactionCallbacks {
+
+    private TransactionCallbacks() {
+    }
+
+    /**
+     * Chạy action sau khi transaction hiện tại commit (chạy ngay nếu không có transaction)
+     * Các action đăng ký trong cùng transaction chạy theo thứ tự đăng ký; rollback thì bỏ qua
+     */
+    public static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+}
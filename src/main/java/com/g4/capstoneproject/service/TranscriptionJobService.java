@@ -0,0 +1,326 @@
+package com.g4.capstoneproject.service;
+
+import com.g4.capstoneproject.dto.TranscriptionJobDTO;
+import com.g4.capstoneproject.entity.WebCallLog;
+import com.g4.capstoneproject.repository.WebCallLogRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import software.amazon.awssdk.core.ResponseInputStream;
+import software.amazon.awssdk.services.s3.model.GetObjectResponse;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Hàng đợi job chuyển giọng nói thành văn bản (Whisper ASR)
+ *
+ * - submit() trả về ngay với jobId, client theo dõi qua getJob()
+ * - Một số worker cố định (transcription.workers) chạy trên virtual thread,
+ *   giới hạn số request đồng thời tới ASR service
+ * - Hai mức ưu tiên: INTERACTIVE (người dùng đang chờ) luôn được lấy trước BACKFILL
+ * - Cùng một recording key chỉ có một job đang chờ/chạy; submit lại trả về job đó
+ * - Kết quả lưu lên S3 (transcripts/{filename}.txt) và WebCallLog.transcriptText
+ *
+ * Trạng thái job chỉ nằm trong bộ nhớ của node đã nhận job: job đang chờ bị mất khi
+ * restart và node khác không thấy jobId. Transcript đã xong thì bền vững (S3 + WebCallLog),
+ * nên client gặp job EXPIRED/không tìm thấy chỉ cần đọc transcript hoặc submit lại
+ * (submit lại dùng transcript có sẵn trên S3, không gọi ASR).
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class TranscriptionJobService {
+
+    private final S3Service s3Service;
+    private final WhisperASRService whisperASRService;
+    private final WebCallLogRepository webCallLogRepository;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${transcription.workers:2}")
+    private int workerCount;
+
+    @Value("${transcription.queue-capacity:200}")
+    private int queueCapacity;
+
+    @Value("${transcription.job-retention-minutes:60}")
+    private long jobRetentionMinutes;
+
+    @Value("${asr.service.default-language:vi}")
+    private String language;
+
+    // Job chưa xong không hết hạn (Caffeine giới hạn thời hạn ở ~150 năm)
+    private static final Duration FOREVER = Duration.ofDays(365 * 100);
+
+    private final PriorityBlockingQueue<Job> queue = new PriorityBlockingQueue<>();
+    private final Map<String, Job> activeByRecordingKey = new ConcurrentHashMap<>();
+    private final AtomicLong sequence = new AtomicLong();
+    private final List<Thread> workers = new ArrayList<>();
+    private volatile boolean running;
+
+    /**
+     * Job đã submit. Job đang chờ/chạy không hết hạn; job đã xong được giữ
+     * job-retention-minutes để client lấy kết quả
+     */
+    private Cache<String, Job> jobs;
+
+    /**
+     * Job đã hết hạn (jobId -> recordingKey), để trả về EXPIRED thay vì không tìm thấy
+     */
+    private Cache<String, String> expiredJobs;
+
+    /**
+     * Mức ưu tiên của job
+     */
+    public enum Priority {
+        INTERACTIVE,
+        BACKFILL
+    }
+
+    /**
+     * Trạng thái job
+     */
+    public enum Status {
+        QUEUED,
+        RUNNING,
+        COMPLETED,
+        FAILED,
+        EXPIRED
+    }
+
+    @PostConstruct
+    void start() {
+        Duration retention = Duration.ofMinutes(jobRetentionMinutes);
+        expiredJobs = Caffeine.newBuilder()
+                .maximumSize(10_000)
+                .expireAfterWrite(retention.multipliedBy(24))
+                .build();
+        jobs = Caffeine.newBuilder()
+                .expireAfter(Expiry.<String, Job>writing((id, job) -> job.isFinished() ? retention : FOREVER))
+                .removalListener((String id, Job job, RemovalCause cause) -> {
+                    if (cause == RemovalCause.EXPIRED && job != null) {
+                        expiredJobs.put(id, job.recordingKey);
+                    }
+                })
+                .build();
+        Gauge.builder("transcription.queue.depth", queue, PriorityBlockingQueue::size)
+                .description("Transcription jobs waiting for a worker")
+                .register(meterRegistry);
+
+        running = true;
+        for (int i = 0; i < workerCount; i++) {
+            workers.add(Thread.ofVirtual().name("transcription-" + i).start(this::workLoop));
+        }
+        log.info("Started {} transcription workers (queue capacity {})", workerCount, queueCapacity);
+    }
+
+    @PreDestroy
+    void stop() {
+        running = false;
+        workers.forEach(Thread::interrupt);
+    }
+
+    /**
+     * Đưa recording vào hàng đợi transcription
+     * Nếu recording đang có job chờ/chạy thì trả về job đó (job BACKFILL đang chờ
+     * được nâng lên INTERACTIVE khi có yêu cầu INTERACTIVE)
+     *
+     * @throws IllegalStateException khi hàng đợi đã đầy
+     */
+    public TranscriptionJobDTO submit(String recordingKey, Priority priority) {
+        Job[] created = new Job[1];
+        Job job = activeByRecordingKey.compute(recordingKey, (key, existing) -> {
+            if (existing != null) {
+                if (priority == Priority.INTERACTIVE && existing.priority == Priority.BACKFILL
+                        && queue.remove(existing)) {
+                    existing.priority = Priority.INTERACTIVE;
+                    queue.add(existing);
+                }
+                return existing;
+            }
+            if (queue.size() >= queueCapacity) {
+                throw new IllegalStateException("Hàng đợi transcription đã đầy, vui lòng thử lại sau");
+            }
+            created[0] = new Job(key, priority, sequence.incrementAndGet());
+            return created[0];
+        });
+
+        if (created[0] != null) {
+            jobs.put(job.id, job);
+            queue.add(job);
+            meterRegistry.counter("transcription.jobs", "priority", priority.name(), "result", "submitted").increment();
+            log.info("Queued transcription job {} for {} ({})", job.id, recordingKey, priority);
+        } else {
+            log.debug("Transcription for {} already in progress as job {}", recordingKey, job.id);
+        }
+        return toDTO(job);
+    }
+
+    /**
+     * Trạng thái job theo ID
+     * Job đã xong và quá job-retention-minutes trả về status EXPIRED (kèm transcriptKey);
+     * rỗng nếu jobId không do node này tạo hoặc đã quá hạn lưu vết
+     */
+    public Optional<TranscriptionJobDTO> getJob(String jobId) {
+        Job job = jobs.getIfPresent(jobId);
+        if (job != null) {
+            return Optional.of(toDTO(job));
+        }
+        return Optional.ofNullable(expiredJobs.getIfPresent(jobId))
+                .map(recordingKey -> TranscriptionJobDTO.builder()
+                        .jobId(jobId)
+                        .recordingKey(recordingKey)
+                        .transcriptKey(transcriptKeyOf(recordingKey))
+                        .status(Status.EXPIRED.name())
+                        .build());
+    }
+
+    /**
+     * Key transcript trên S3 của một recording: transcripts/{filename}.txt
+     */
+    public static String transcriptKeyOf(String recordingKey) {
+        return "transcripts/" + recordingKey.substring(recordingKey.lastIndexOf("/") + 1)
+                .replaceAll("\\.(webm|mp3|wav|ogg|m4a)$", ".txt");
+    }
+
+    private void workLoop() {
+        while (running) {
+            Job job;
+            try {
+                job = queue.take();
+            } catch (InterruptedException e) {
+                return;
+            }
+            run(job);
+        }
+    }
+
+    private void run(Job job) {
+        job.status = Status.RUNNING;
+        job.startedAt = LocalDateTime.now();
+        Timer.Sample sample = Timer.start(meterRegistry);
+        String outcome = "success";
+        try {
+            String transcriptKey = transcriptKeyOf(job.recordingKey);
+            String transcript;
+            if (s3Service.doesFileExist(transcriptKey)) {
+                transcript = s3Service.downloadTextContent(transcriptKey);
+                job.cached = true;
+            } else {
+                String audioFilename = job.recordingKey.substring(job.recordingKey.lastIndexOf("/") + 1);
+                // Stream audio từ S3 thẳng sang ASR service, không nạp cả file vào heap
+                try (ResponseInputStream<GetObjectResponse> audio = s3Service.openFileStream(job.recordingKey)) {
+                    long audioLength = audio.response().contentLength();
+                    log.info("Transcribing {} bytes ({}) for job {}", audioLength, audioFilename, job.id);
+                    transcript = whisperASRService.transcribeStream(() -> audio, audioLength, audioFilename, language);
+                }
+                if (transcript == null || transcript.isBlank()) {
+                    throw new IOException("ASR service không trả về nội dung");
+                }
+                s3Service.uploadTextContent(transcript, transcriptKey);
+            }
+            saveToCallLog(job.recordingKey, transcript);
+
+            job.transcript = transcript;
+            job.status = Status.COMPLETED;
+            log.info("Transcription job {} completed (cached: {})", job.id, job.cached);
+        } catch (Exception e) {
+            outcome = "failure";
+            job.error = e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName();
+            job.status = Status.FAILED;
+            log.error("❌ Transcription job {} for {} failed: {}", job.id, job.recordingKey, job.error);
+        } finally {
+            job.completedAt = LocalDateTime.now();
+            sample.stop(meterRegistry.timer("transcription.job", "priority", job.priority.name(), "outcome", outcome));
+            activeByRecordingKey.remove(job.recordingKey, job);
+            // Ghi lại để bắt đầu tính thời gian giữ kết quả
+            jobs.put(job.id, job);
+        }
+    }
+
+    /**
+     * Ghi transcript vào WebCallLog có recording này
+     * File combined luôn ghi đè; file caller/receiver chỉ ghi khi cuộc gọi chưa có transcript
+     */
+    private void saveToCallLog(String recordingKey, String transcript) {
+        for (WebCallLog call : webCallLogRepository.findByAnyRecordingKey(recordingKey)) {
+            if (recordingKey.equals(call.getRecordingS3Key()) || call.getTranscriptText() == null) {
+                call.setTranscriptText(transcript);
+                webCallLogRepository.save(call);
+            }
+        }
+    }
+
+    private TranscriptionJobDTO toDTO(Job job) {
+        Integer position = null;
+        if (job.status == Status.QUEUED) {
+            position = (int) queue.stream().filter(other -> other.compareTo(job) < 0).count();
+        }
+        return TranscriptionJobDTO.builder()
+                .jobId(job.id)
+                .recordingKey(job.recordingKey)
+                .transcriptKey(transcriptKeyOf(job.recordingKey))
+                .priority(job.priority.name())
+                .status(job.status.name())
+                .transcript(job.transcript)
+                .cached(job.cached)
+                .error(job.error)
+                .queuePosition(position)
+                .submittedAt(job.submittedAt)
+                .startedAt(job.startedAt)
+                .completedAt(job.completedAt)
+                .build();
+    }
+
+    /**
+     * Job trong hàng đợi, sắp theo priority rồi thứ tự submit
+     */
+    private static final class Job implements Comparable<Job> {
+        private final String id = UUID.randomUUID().toString();
+        private final String recordingKey;
+        private final long sequence;
+        private final LocalDateTime submittedAt = LocalDateTime.now();
+        private volatile Priority priority;
+        private volatile Status status = Status.QUEUED;
+        private volatile String transcript;
+        private volatile boolean cached;
+        private volatile String error;
+        private volatile LocalDateTime startedAt;
+        private volatile LocalDateTime completedAt;
+
+        private Job(String recordingKey, Priority priority, long sequence) {
+            this.recordingKey = recordingKey;
+            this.priority = priority;
+            this.sequence = sequence;
+        }
+
+        private boolean isFinished() {
+            return status == Status.COMPLETED || status == Status.FAILED;
+        }
+
+        @Override
+        public int compareTo(Job other) {
+            int byPriority = priority.compareTo(other.priority);
+            return byPriority != 0 ? byPriority : Long.compare(sequence, other.sequence);
+        }
+    }
+}
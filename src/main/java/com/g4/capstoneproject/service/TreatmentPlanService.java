@@ -1,11 +1,12 @@
 package com.g4.capstoneproject.service;
 
+import com.g4.capstoneproject.dto.TreatmentPlanSummary;
 import com.g4.capstoneproject.entity.TreatmentPlan;
 import com.g4.capstoneproject.entity.TreatmentPlanItem;
+import com.g4.capstoneproject.entity.User;
 import com.g4.capstoneproject.repository.TreatmentPlanRepository;
 import com.g4.capstoneproject.repository.TreatmentPlanItemRepository;
 import lombok.RequiredArgsConstructor;
-import org.springframework.cache.annotation.CacheEvict;
 import org.springframework.cache.annotation.Cacheable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -24,6 +25,7 @@ public class TreatmentPlanService {
 
     private final TreatmentPlanRepository treatmentPlanRepository;
     private final TreatmentPlanItemRepository treatmentPlanItemRepository;
+    private final CacheInvalidator cacheInvalidator;
 
     /**
      * Lấy tất cả treatment plan
@@ -35,9 +37,8 @@ public class TreatmentPlanService {
 
     /**
      * Lấy treatment plan theo ID
-     * Cached for 30 minutes
+     * Không cache: entity được dùng tiếp để kiểm tra quyền và cập nhật
      */
-    @Cacheable(value = "treatmentPlans", key = "#id")
     @Transactional(readOnly = true)
     public Optional<TreatmentPlan> getTreatmentPlanById(Long id) {
         return treatmentPlanRepository.findById(id);
@@ -45,22 +46,22 @@ public class TreatmentPlanService {
 
     /**
      * Lấy treatment plan theo bệnh nhân
-     * Cached for 30 minutes
+     * Cached for 30 minutes (as immutable summaries, not entities)
      */
     @Cacheable(value = "treatmentPlans", key = "'patient-' + #patientId")
     @Transactional(readOnly = true)
-    public List<TreatmentPlan> getTreatmentPlansByPatientId(Long patientId) {
-        return treatmentPlanRepository.findByPatientId(patientId);
+    public List<TreatmentPlanSummary> getTreatmentPlansByPatientId(Long patientId) {
+        return treatmentPlanRepository.findSummariesByPatientId(patientId);
     }
 
     /**
      * Lấy treatment plan theo bác sĩ
-     * Cached for 30 minutes
+     * Cached for 30 minutes (as immutable summaries, not entities)
      */
     @Cacheable(value = "treatmentPlans", key = "'doctor-' + #doctorId")
     @Transactional(readOnly = true)
-    public List<TreatmentPlan> getTreatmentPlansByDoctorId(Long doctorId) {
-        return treatmentPlanRepository.findByDoctorId(doctorId);
+    public List<TreatmentPlanSummary> getTreatmentPlansByDoctorId(Long doctorId) {
+        return treatmentPlanRepository.findSummariesByDoctorId(doctorId);
     }
 
     /**
@@ -81,37 +82,50 @@ public class TreatmentPlanService {
 
     /**
      * Tạo treatment plan mới
-     * Clears treatment plan caches
+     * Evicts cache for patient and doctor
      */
-    @CacheEvict(value = "treatmentPlans", allEntries = true)
     public TreatmentPlan createTreatmentPlan(TreatmentPlan plan) {
-        return treatmentPlanRepository.save(plan);
+        TreatmentPlan saved = treatmentPlanRepository.save(plan);
+        evictCaches(saved);
+        return saved;
     }
 
     /**
      * Cập nhật treatment plan
-     * Clears treatment plan caches
+     * Evicts the patient/doctor treatment plan lists
      */
-    @CacheEvict(value = "treatmentPlans", allEntries = true)
     public TreatmentPlan updateTreatmentPlan(Long id, TreatmentPlan updatedPlan) {
         return treatmentPlanRepository.findById(id)
                 .map(existing -> {
                     existing.setDiagnosis(updatedPlan.getDiagnosis());
                     existing.setStatus(updatedPlan.getStatus());
-                    return treatmentPlanRepository.save(existing);
+                    TreatmentPlan saved = treatmentPlanRepository.save(existing);
+                    evictCaches(saved);
+                    return saved;
                 })
                 .orElse(null);
     }
 
     /**
      * Xóa treatment plan
+     * Evicts the patient/doctor treatment plan lists
      */
     public boolean deleteTreatmentPlan(Long id) {
-        if (treatmentPlanRepository.existsById(id)) {
-            treatmentPlanRepository.deleteById(id);
-            return true;
-        }
-        return false;
+        return treatmentPlanRepository.findById(id)
+                .map(existing -> {
+                    treatmentPlanRepository.delete(existing);
+                    evictCaches(existing);
+                    return true;
+                })
+                .orElse(false);
+    }
+
+    private void evictCaches(TreatmentPlan plan) {
+        cacheInvalidator.treatmentPlanChanged(idOf(plan.getPatient()), idOf(plan.getDoctor()));
+    }
+
+    private static Long idOf(User user) {
+        return user != null ? user.getId() : null;
     }
 
     /**
@@ -134,12 +148,15 @@ public class TreatmentPlanService {
 
     /**
      * Thêm item vào treatment plan
+     * Evicts the patient/doctor treatment plan lists (summaries carry the item count)
      */
     public TreatmentPlanItem addItem(Long planId, TreatmentPlanItem item) {
         return treatmentPlanRepository.findById(planId)
                 .map(plan -> {
                     item.setTreatmentPlan(plan);
-                    return treatmentPlanItemRepository.save(item);
+                    TreatmentPlanItem saved = treatmentPlanItemRepository.save(item);
+                    evictCaches(plan);
+                    return saved;
                 })
                 .orElse(null);
     }
@@ -8,12 +8,12 @@ import com.g4.capstoneproject.entity.UserInfo;
 import com.g4.capstoneproject.repository.GoogleFormSyncRecordRepository;
 import com.g4.capstoneproject.repository.UserInfoRepository;
 import com.g4.capstoneproject.repository.UserRepository;
+import com.g4.capstoneproject.security.PrincipalInvalidator;
 import jakarta.persistence.EntityNotFoundException;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.poi.ss.usermodel.*;
 import org.apache.poi.xssf.usermodel.XSSFWorkbook;
-import org.springframework.cache.annotation.CacheEvict;
 import org.springframework.cache.annotation.Cacheable;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
@@ -44,6 +44,9 @@ public class UserManagementService {
     private final PasswordEncoder passwordEncoder;
     private final S3Service s3Service;
     private final GoogleFormSyncRecordRepository googleFormSyncRecordRepository;
+    private final UserSearchService userSearchService;
+    private final PrincipalInvalidator principalInvalidator;
+    private final CacheInvalidator cacheInvalidator;
 
     private static final Pattern PHONE_PATTERN = Pattern.compile("^(0[3|5|7|8|9])+([0-9]{8})$");
     private static final Pattern EMAIL_PATTERN = Pattern.compile("^[A-Za-z0-9+_.-]+@(.+)$");
@@ -103,13 +106,13 @@ public class UserManagementService {
     }
 
     /**
-     * Tìm kiếm người dùng
+     * Tìm kiếm người dùng, tối đa limit kết quả (keyword rỗng = toàn bộ người dùng)
      */
-    public List<UserResponse> searchUsers(String keyword) {
+    public List<UserResponse> searchUsers(String keyword, int limit) {
         if (keyword == null || keyword.trim().isEmpty()) {
             return getAllUsers();
         }
-        return userRepository.searchUsers(keyword.trim()).stream()
+        return userSearchService.search(keyword, limit).stream()
                 .map(this::toUserResponse)
                 .toList();
     }
@@ -128,7 +131,6 @@ public class UserManagementService {
      * Tạo người dùng mới
      */
     @Transactional
-    @CacheEvict(value = { "users", "patients" }, allEntries = true)
     public UserResponse createUser(UserCreateRequest request) {
         // Validate email/phone unique
         validateUniqueConstraints(request.getEmail(), request.getPhone(), null);
@@ -168,6 +170,8 @@ public class UserManagementService {
         userInfoRepository.save(userInfo);
         user.setUserInfo(userInfo);
 
+        cacheInvalidator.usersAdded(List.of(user.getId()), user.getRole() == UserRole.PATIENT);
+
         log.info("Created new user: {} ({})", user.getId(), request.getFullName());
 
         return toUserResponse(user);
@@ -177,13 +181,14 @@ public class UserManagementService {
      * Cập nhật người dùng
      */
     @Transactional
-    @CacheEvict(value = { "users", "patients" }, allEntries = true)
     public UserResponse updateUser(Long userId, UserUpdateRequest request) {
         User user = userRepository.findByIdWithUserInfo(userId)
                 .orElseThrow(() -> new EntityNotFoundException("Không tìm thấy người dùng với ID: " + userId));
 
         // Validate email/phone unique (exclude current user)
         validateUniqueConstraints(request.getEmail(), request.getPhone(), userId);
+        UserRole previousRole = user.getRole();
+        Boolean previousActive = user.getIsActive();
 
         // Update User fields
         if (request.getEmail() != null) {
@@ -223,6 +228,11 @@ public class UserManagementService {
 
         userInfoRepository.save(userInfo);
         user = userRepository.save(user);
+        principalInvalidator.invalidate(userId);
+        // Thống kê tài khoản chỉ phụ thuộc role và trạng thái
+        boolean statsChanged = previousRole != user.getRole() || !Objects.equals(previousActive, user.getIsActive());
+        cacheInvalidator.userChanged(userId,
+                previousRole == UserRole.PATIENT || user.getRole() == UserRole.PATIENT, statsChanged);
 
         log.info("Updated user: {}", userId);
 
@@ -233,13 +243,14 @@ public class UserManagementService {
      * Xóa người dùng (soft delete - set isActive = false)
      */
     @Transactional
-    @CacheEvict(value = { "users", "patients" }, allEntries = true)
     public void deleteUser(Long userId) {
         User user = userRepository.findById(userId)
                 .orElseThrow(() -> new EntityNotFoundException("Không tìm thấy người dùng với ID: " + userId));
 
         user.setIsActive(false);
         userRepository.save(user);
+        principalInvalidator.invalidate(userId);
+        cacheInvalidator.userChanged(userId, user.getRole() == UserRole.PATIENT, true);
 
         log.info("Soft deleted user: {}", userId);
     }
@@ -248,13 +259,14 @@ public class UserManagementService {
      * Khôi phục người dùng đã xóa
      */
     @Transactional
-    @CacheEvict(value = { "users", "patients" }, allEntries = true)
     public UserResponse restoreUser(Long userId) {
         User user = userRepository.findById(userId)
                 .orElseThrow(() -> new EntityNotFoundException("Không tìm thấy người dùng với ID: " + userId));
 
         user.setIsActive(true);
         user = userRepository.save(user);
+        principalInvalidator.invalidate(userId);
+        cacheInvalidator.userChanged(userId, user.getRole() == UserRole.PATIENT, true);
 
         log.info("Restored user: {}", userId);
 
@@ -334,7 +346,6 @@ public class UserManagementService {
      * Import người dùng từ file Excel
      */
     @Transactional
-    @CacheEvict(value = { "users", "patients" }, allEntries = true)
     public UserImportResult importUsersFromExcel(MultipartFile file) throws IOException {
         UserImportResult result = UserImportResult.builder().build();
 
@@ -0,0 +1,273 @@
+package com.g4.capstoneproject.service;
+
+import com.g4.capstoneproject.dto.user.UserSearchRow;
+import com.g4.capstoneproject.entity.User;
+import com.g4.capstoneproject.repository.UserRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.regex.Pattern;
+
+/**
+ * Prefix index trong bộ nhớ cho autocomplete người dùng
+ *
+ * - Khóa: từng từ của họ tên (bỏ dấu, chữ thường), email và số điện thoại
+ * - Thay đổi user (CacheInvalidator gọi {@link #userChanged} sau commit) chỉ nạp lại dòng của user
+ *   đó và cập nhật tại chỗ; dòng không đổi (vd. chỉ đổi mật khẩu) không chạm tới index
+ * - Dựng lại toàn bộ theo chu kỳ user.search.prefix-index.refresh-ms để bù các thay đổi ghi thẳng
+ *   vào database (hoặc từ node khác)
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class UserSearchIndex {
+
+    private static final Pattern COMBINING_MARKS = Pattern.compile("\\p{M}+");
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    private final UserRepository userRepository;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${user.search.prefix-index.enabled:true}")
+    private boolean enabled;
+
+    /**
+     * Index hiện tại, null khi chưa dựng xong lần đầu
+     */
+    private volatile Index index;
+
+    /**
+     * Khóa cho các thao tác ghi (cập nhật một user, thay index sau khi dựng lại)
+     */
+    private final Object writeLock = new Object();
+
+    /**
+     * User thay đổi trong lúc đang dựng lại toàn bộ, null khi không dựng (giữ writeLock khi truy cập)
+     */
+    private Set<Long> changedDuringRebuild;
+
+    @PostConstruct
+    void registerMetrics() {
+        Gauge.builder("user.search.prefix-index.size", this, searchIndex -> {
+                    Index current = searchIndex.index;
+                    return current != null ? current.entries.size() : 0;
+                })
+                .description("Users held in the autocomplete prefix index")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Nạp lại dòng của một user vừa được thêm/sửa (gọi sau commit), xóa khỏi index nếu không còn
+     * Lỗi đọc database được bỏ qua: lần dựng lại theo chu kỳ sẽ sửa
+     */
+    public void userChanged(Long userId) {
+        if (!enabled || userId == null) {
+            return;
+        }
+        synchronized (writeLock) {
+            if (changedDuringRebuild != null) {
+                changedDuringRebuild.add(userId);
+            }
+            Index current = index;
+            if (current == null) {
+                return;
+            }
+            try {
+                reload(current, userId);
+            } catch (Exception e) {
+                log.warn("User prefix index update failed for user {}: {}", userId, e.getMessage());
+            }
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${user.search.prefix-index.refresh-ms:300000}")
+    public void rebuild() {
+        if (!enabled) {
+            return;
+        }
+        synchronized (writeLock) {
+            changedDuringRebuild = new HashSet<>();
+        }
+
+        Timer.Sample sample = Timer.start(meterRegistry);
+        try {
+            Index built = Index.build(userRepository.findAllSearchRows());
+            synchronized (writeLock) {
+                // Thay đổi commit trong lúc đọc có thể chưa có trong kết quả
+                for (Long userId : changedDuringRebuild) {
+                    reload(built, userId);
+                }
+                index = built;
+            }
+            log.debug("User prefix index rebuilt: {} users, {} keys", built.entries.size(), built.keys.size());
+        } catch (Exception e) {
+            // Giữ bản cũ, lần dựng sau thử lại
+            log.warn("User prefix index rebuild failed: {}", e.getMessage());
+        } finally {
+            synchronized (writeLock) {
+                changedDuringRebuild = null;
+            }
+            sample.stop(meterRegistry.timer("user.search.prefix-index.rebuild"));
+        }
+    }
+
+    private void reload(Index target, Long userId) {
+        userRepository.findSearchRowById(userId)
+                .ifPresentOrElse(target::put, () -> target.remove(userId));
+    }
+
+    /**
+     * Gợi ý người dùng đang hoạt động có từ bắt đầu bằng từng từ trong query
+     *
+     * @param role Chỉ lấy vai trò này, null = mọi vai trò
+     * @return empty nếu index tắt hoặc chưa dựng xong (caller đọc database)
+     */
+    public Optional<List<UserSearchRow>> suggest(String query, User.UserRole role, int limit) {
+        Index current = index;
+        if (!enabled || current == null) {
+            return Optional.empty();
+        }
+        return Optional.of(current.suggest(tokens(query), role, limit));
+    }
+
+    /**
+     * Chuẩn hóa giống user_search_text() trong database: bỏ dấu, đ -> d, chữ thường
+     */
+    static String normalize(String text) {
+        if (text == null) {
+            return "";
+        }
+        String stripped = COMBINING_MARKS.matcher(Normalizer.normalize(text, Normalizer.Form.NFD)).replaceAll("");
+        return stripped.replace('đ', 'd').replace('Đ', 'D').toLowerCase(Locale.ROOT).trim();
+    }
+
+    private static String[] tokens(String text) {
+        String normalized = normalize(text);
+        return normalized.isEmpty() ? new String[0] : WHITESPACE.split(normalized);
+    }
+
+    /**
+     * Index có thể cập nhật tại chỗ: user id -> dòng và các từ của nó, khóa -> user id, sắp theo khóa
+     * Ghi tuần tự (writeLock hoặc index chưa công bố), đọc không khóa
+     */
+    private static final class Index {
+
+        private final Map<Long, Entry> entries = new ConcurrentHashMap<>();
+        private final ConcurrentNavigableMap<String, Set<Long>> keys = new ConcurrentSkipListMap<>();
+
+        private record Entry(UserSearchRow row, String[] words) {
+        }
+
+        static Index build(List<UserSearchRow> rows) {
+            Index built = new Index();
+            rows.forEach(built::put);
+            return built;
+        }
+
+        void put(UserSearchRow row) {
+            Entry previous = entries.get(row.getId());
+            if (previous != null && previous.row().equals(row)) {
+                return;
+            }
+            remove(row.getId());
+
+            Entry entry = new Entry(row, words(row));
+            entries.put(row.getId(), entry);
+            for (String word : entry.words()) {
+                keys.computeIfAbsent(word, key -> ConcurrentHashMap.newKeySet()).add(row.getId());
+            }
+        }
+
+        void remove(Long userId) {
+            Entry previous = entries.remove(userId);
+            if (previous == null) {
+                return;
+            }
+            for (String word : previous.words()) {
+                keys.computeIfPresent(word, (key, userIds) -> {
+                    userIds.remove(userId);
+                    return userIds.isEmpty() ? null : userIds;
+                });
+            }
+        }
+
+        private static String[] words(UserSearchRow row) {
+            List<String> words = new ArrayList<>(Arrays.asList(tokens(row.getFullName())));
+            if (row.getEmail() != null) {
+                words.add(row.getEmail().toLowerCase(Locale.ROOT));
+            }
+            if (row.getPhone() != null) {
+                words.add(row.getPhone());
+            }
+            return words.toArray(new String[0]);
+        }
+
+        List<UserSearchRow> suggest(String[] queryTokens, User.UserRole role, int limit) {
+            if (queryTokens.length == 0 || limit <= 0) {
+                return List.of();
+            }
+            // Duyệt theo từ dài nhất (chọn lọc nhất), các từ còn lại kiểm tra trên từng dòng
+            String lookup = queryTokens[0];
+            for (String token : queryTokens) {
+                if (token.length() > lookup.length()) {
+                    lookup = token;
+                }
+            }
+
+            Map<Long, UserSearchRow> matched = new LinkedHashMap<>();
+            for (Set<Long> userIds : keys.subMap(lookup, true, lookup + Character.MAX_VALUE, false).values()) {
+                for (Long userId : userIds) {
+                    Entry entry = entries.get(userId);
+                    if (entry == null || matched.containsKey(userId) || !accepts(entry, queryTokens, role)) {
+                        continue;
+                    }
+                    matched.put(userId, entry.row());
+                    if (matched.size() >= limit) {
+                        return List.copyOf(matched.values());
+                    }
+                }
+            }
+            return List.copyOf(matched.values());
+        }
+
+        private static boolean accepts(Entry entry, String[] queryTokens, User.UserRole role) {
+            UserSearchRow row = entry.row();
+            if (!Boolean.TRUE.equals(row.getIsActive()) || (role != null && row.getRole() != role)) {
+                return false;
+            }
+            for (String token : queryTokens) {
+                boolean found = false;
+                for (String word : entry.words()) {
+                    if (word.startsWith(token)) {
+                        found = true;
+                        break;
+                    }
+                }
+                if (!found) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
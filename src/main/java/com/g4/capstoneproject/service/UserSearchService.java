@@ -0,0 +1,166 @@
+package com.g4.capstoneproject.service;
+
+import com.g4.capstoneproject.dto.user.UserSearchRow;
+import com.g4.capstoneproject.entity.User;
+import com.g4.capstoneproject.repository.UserRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Tìm kiếm người dùng theo họ tên, email, số điện thoại
+ *
+ * - search: trên database, cột users.search_text (bỏ dấu) + index trigram, có xếp hạng và giới hạn;
+ *   khi database chưa chạy migration V20261022 thì rơi về LIKE trên họ tên/email/số điện thoại
+ *   (phân biệt dấu, sắp theo id)
+ * - suggest: autocomplete từ UserSearchIndex trong bộ nhớ, rơi về database khi index chưa sẵn sàng
+ * - Số kết quả luôn bị chặn bởi user.search.max-results (xem {@link #limitFor})
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class UserSearchService {
+
+    /**
+     * Header trả về giới hạn kết quả đã áp dụng cho API tìm kiếm
+     */
+    public static final String RESULT_LIMIT_HEADER = "X-Result-Limit";
+
+    private static final Set<Boolean> ANY_STATUS = Set.of(true, false);
+
+    private final UserRepository userRepository;
+    private final UserSearchIndex searchIndex;
+
+    @Value("${user.search.max-results:50}")
+    private int maxResults;
+
+    /**
+     * Database có hỗ trợ search_text hay không, null khi chưa kiểm tra
+     */
+    private volatile Boolean searchTextSupported;
+
+    /**
+     * Kiểm tra một lần khi khởi động; chạy migration sau đó thì cần khởi động lại
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void detectSearchTextSupport() {
+        boolean supported;
+        try {
+            supported = userRepository.hasSearchTextSupport();
+        } catch (Exception e) {
+            log.warn("Could not check users.search_text support: {}", e.getMessage());
+            supported = false;
+        }
+        if (!supported) {
+            log.warn("users.search_text / f_unaccent / pg_trgm missing (migration V20261022 not applied): "
+                    + "user search falls back to unranked LIKE");
+        }
+        searchTextSupported = supported;
+    }
+
+    /**
+     * Số kết quả thực tế cho một yêu cầu: mặc định và tối đa là user.search.max-results
+     */
+    public int limitFor(Integer requested) {
+        return requested == null ? maxResults : Math.min(Math.max(requested, 1), maxResults);
+    }
+
+    /**
+     * Tìm người dùng thuộc các vai trò cho trước, kèm thông tin cá nhân
+     *
+     * @param limit Số kết quả tối đa (bị chặn bởi user.search.max-results)
+     * @return Danh sách theo thứ hạng, rỗng nếu keyword rỗng
+     */
+    @Transactional(readOnly = true)
+    public List<User> search(String keyword, Collection<User.UserRole> roles, int limit) {
+        if (keyword == null || keyword.isBlank() || roles.isEmpty()) {
+            return List.of();
+        }
+        int capped = limitFor(limit);
+        if (searchTextSupported == null) {
+            detectSearchTextSupport();
+        }
+        if (!searchTextSupported) {
+            return userRepository.findAccounts(roles, ANY_STATUS,
+                    "%" + escapeLike(keyword.trim().toLowerCase(Locale.ROOT)) + "%",
+                    PageRequest.of(0, capped, Sort.by("id"))).getContent();
+        }
+
+        List<Long> ids = userRepository.searchRankedIds(
+                roles.stream().map(Enum::name).toList(),
+                escapeLike(keyword.trim()),
+                capped);
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+
+        Map<Long, Integer> rank = new HashMap<>();
+        for (int i = 0; i < ids.size(); i++) {
+            rank.put(ids.get(i), i);
+        }
+        return userRepository.findAllByIdWithUserInfo(ids).stream()
+                .sorted(Comparator.comparing(user -> rank.get(user.getId())))
+                .toList();
+    }
+
+    /**
+     * Tìm người dùng mọi vai trò
+     */
+    @Transactional(readOnly = true)
+    public List<User> search(String keyword, int limit) {
+        return search(keyword, EnumSet.allOf(User.UserRole.class), limit);
+    }
+
+    /**
+     * Gợi ý autocomplete cho người dùng đang hoạt động
+     *
+     * @param role Chỉ lấy vai trò này, null = mọi vai trò
+     */
+    @Transactional(readOnly = true)
+    public List<UserSearchRow> suggest(String query, User.UserRole role, int limit) {
+        if (query == null || query.isBlank()) {
+            return List.of();
+        }
+        int capped = limitFor(limit);
+        return searchIndex.suggest(query, role, capped)
+                .orElseGet(() -> search(query, role != null ? EnumSet.of(role) : EnumSet.allOf(User.UserRole.class), capped)
+                        .stream()
+                        .filter(user -> Boolean.TRUE.equals(user.getIsActive()))
+                        .map(UserSearchService::toRow)
+                        .toList());
+    }
+
+    private static UserSearchRow toRow(User user) {
+        return UserSearchRow.builder()
+                .id(user.getId())
+                .fullName(user.getFullName())
+                .email(user.getEmail())
+                .phone(user.getPhoneNumber())
+                .role(user.getRole())
+                .isActive(user.getIsActive())
+                .build();
+    }
+
+    /**
+     * Escape ký tự đặc biệt của LIKE (escape mặc định của PostgreSQL là \)
+     * Dùng chung cho các truy vấn LIKE khác trong package (vd. roster của bác sĩ)
+     */
+    static String escapeLike(String keyword) {
+        return keyword.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+}
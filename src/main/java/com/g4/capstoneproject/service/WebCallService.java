@@ -285,17 +285,17 @@ public class WebCallService {
         if (call.getHasRecording() && (call.getRecordingUrlExpiry() == null || call.getRecordingUrlExpiry().isBefore(LocalDateTime.now()))) {
             // Refresh combined recording URL
             if (call.getRecordingS3Key() != null) {
-                String newUrl = s3Service.generatePresignedUrl(call.getRecordingS3Key(), 7 * 24 * 3600);
+                String newUrl = s3Service.generatePresignedUrlUncached(call.getRecordingS3Key(), 7 * 24 * 3600);
                 call.setRecordingUrl(newUrl);
             }
             // Refresh caller recording URL
             if (call.getRecordingCallerS3Key() != null) {
-                String newUrl = s3Service.generatePresignedUrl(call.getRecordingCallerS3Key(), 7 * 24 * 3600);
+                String newUrl = s3Service.generatePresignedUrlUncached(call.getRecordingCallerS3Key(), 7 * 24 * 3600);
                 call.setRecordingCallerUrl(newUrl);
             }
             // Refresh receiver recording URL
             if (call.getRecordingReceiverS3Key() != null) {
-                String newUrl = s3Service.generatePresignedUrl(call.getRecordingReceiverS3Key(), 7 * 24 * 3600);
+                String newUrl = s3Service.generatePresignedUrlUncached(call.getRecordingReceiverS3Key(), 7 * 24 * 3600);
                 call.setRecordingReceiverUrl(newUrl);
             }
             call.setRecordingUrlExpiry(LocalDateTime.now().plusDays(7));
@@ -4,7 +4,9 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.InputStreamSource;
 import org.springframework.http.*;
+import org.springframework.http.client.SimpleClientHttpRequestFactory;
 import org.springframework.stereotype.Service;
 import org.springframework.util.LinkedMultiValueMap;
 import org.springframework.util.MultiValueMap;
@@ -34,13 +36,17 @@ public class WhisperASRService {
     @Value("${asr.service.default-language:vi}")
     private String defaultLanguage;
     
-    @Value("${asr.service.timeout:60000}")
-    private int timeout;
-    
     private final RestTemplate restTemplate;
     
-    public WhisperASRService() {
-        this.restTemplate = new RestTemplate();
+    public WhisperASRService(@Value("${asr.service.timeout:60000}") int timeout,
+                             @Value("${asr.service.upload-chunk-size:65536}") int uploadChunkSize) {
+        // Body multipart không có Content-Length nên được gửi chunked thẳng ra connection (không buffer);
+        // chunk lớn hơn mặc định 4KB giảm số lần ghi khi stream file audio lớn
+        SimpleClientHttpRequestFactory requestFactory = new SimpleClientHttpRequestFactory();
+        requestFactory.setChunkSize(uploadChunkSize);
+        requestFactory.setConnectTimeout(timeout);
+        requestFactory.setReadTimeout(timeout);
+        this.restTemplate = new RestTemplate(requestFactory);
     }
     
     /**
@@ -77,12 +83,9 @@ public class WhisperASRService {
             headers.setContentType(MediaType.MULTIPART_FORM_DATA);
             
             MultiValueMap<String, Object> body = new LinkedMultiValueMap<>();
-            body.add("file", new ByteArrayResource(audioFile.getBytes()) {
-                @Override
-                public String getFilename() {
-                    return audioFile.getOriginalFilename();
-                }
-            });
+            // Part file đọc thẳng từ stream của MultipartFile, không copy vào byte[]
+            body.add("file", AsrRequestBodies.multipartFile(
+                audioFile, audioFile.getOriginalFilename(), audioFile.getSize()));
             
             if (language != null && !language.isEmpty()) {
                 body.add("language", language);
@@ -139,12 +142,9 @@ public class WhisperASRService {
             headers.setContentType(MediaType.MULTIPART_FORM_DATA);
             
             MultiValueMap<String, Object> body = new LinkedMultiValueMap<>();
-            body.add("file", new ByteArrayResource(audioFile.getBytes()) {
-                @Override
-                public String getFilename() {
-                    return audioFile.getOriginalFilename();
-                }
-            });
+            // Part file đọc thẳng từ stream của MultipartFile, không copy vào byte[]
+            body.add("file", AsrRequestBodies.multipartFile(
+                audioFile, audioFile.getOriginalFilename(), audioFile.getSize()));
             
             if (language != null) {
                 body.add("language", language);
@@ -181,6 +181,19 @@ public class WhisperASRService {
      * @return Transcript text
      */
     public String transcribeBytes(byte[] audioBytes, String filename, String language) {
+        return transcribeStream(new ByteArrayResource(audioBytes), audioBytes.length, filename, language);
+    }
+    
+    /**
+     * Transcribe audio từ stream (S3, file tạm...), audio được gửi dần lên ASR service
+     * 
+     * @param audio Nguồn audio
+     * @param contentLength Kích thước audio (byte), -1 nếu không biết
+     * @param filename Tên file (để xác định format)
+     * @param language Mã ngôn ngữ
+     * @return Transcript text
+     */
+    public String transcribeStream(InputStreamSource audio, long contentLength, String filename, String language) {
         if (!asrEnabled) {
             return "";
         }
@@ -190,12 +203,8 @@ public class WhisperASRService {
             headers.setContentType(MediaType.MULTIPART_FORM_DATA);
             
             MultiValueMap<String, Object> body = new LinkedMultiValueMap<>();
-            body.add("file", new ByteArrayResource(audioBytes) {
-                @Override
-                public String getFilename() {
-                    return filename != null ? filename : "audio.webm";
-                }
-            });
+            body.add("file", AsrRequestBodies.multipartFile(
+                audio, filename != null ? filename : "audio.webm", contentLength));
             
             if (language != null) {
                 body.add("language", language);
@@ -22,7 +22,9 @@
   const CONFIG = {
     maxNotifications: 10, // Max notifications to show in dropdown
     autoCloseDelay: 300, // Delay before closing dropdown (ms)
-    pollInterval: 60000, // Fallback polling interval if WebSocket fails (ms)
+    pollInterval: 60000, // Fallback polling interval while WebSocket is down (ms)
+    reconnectDelay: 5000, // Initial WebSocket reconnect delay (ms)
+    maxReconnectDelay: 60000, // Upper bound for reconnect backoff (ms)
   };
 
   // Notification type icons and colors
@@ -417,9 +419,13 @@
   // ============================================================================
 
   let stompClient = null;
+  let pollTimer = null;
+  let reconnectDelay = CONFIG.reconnectDelay;
 
   /**
    * Initialize WebSocket connection for real-time notifications
+   * Server pushes every change with the current unread count,
+   * polling only runs while the connection is down
    */
   function initWebSocket() {
     // Check if SockJS and Stomp are available
@@ -442,15 +448,24 @@
         {},
         () => {
           console.log('WebSocket connected for notifications');
+          reconnectDelay = CONFIG.reconnectDelay;
+          stopPolling();
 
           // Subscribe to user-specific notifications
           stompClient.subscribe('/user/queue/notifications', (message) => {
             handleWebSocketNotification(JSON.parse(message.body));
           });
+
+          // Resync once in case events were missed while disconnected
+          loadUnreadCount();
+          if (state.hasLoaded) {
+            loadNotifications();
+          }
         },
         (error) => {
-          console.error('WebSocket connection error:', error);
+          console.warn('WebSocket connection lost:', error);
           startPolling();
+          scheduleReconnect();
         }
       );
     } catch (error) {
@@ -460,27 +475,67 @@
   }
 
   /**
-   * Handle WebSocket notification
+   * Reconnect with exponential backoff
    */
-  function handleWebSocketNotification(notification) {
-    // Add to local state
-    state.notifications.unshift(notification);
+  function scheduleReconnect() {
+    setTimeout(initWebSocket, reconnectDelay);
+    reconnectDelay = Math.min(reconnectDelay * 2, CONFIG.maxReconnectDelay);
+  }
 
-    // Limit to max notifications
-    if (state.notifications.length > CONFIG.maxNotifications) {
-      state.notifications.pop();
+  /**
+   * Handle WebSocket notification event
+   * Payload: { event, notification, notificationId, unreadCount, timestamp }
+   */
+  function handleWebSocketNotification(message) {
+    switch (message.event) {
+      case 'CREATED':
+        handleNewNotification(message.notification);
+        break;
+      case 'READ': {
+        const notification = state.notifications.find(
+          (n) => n.id === message.notificationId
+        );
+        if (notification) {
+          notification.isRead = true;
+        }
+        break;
+      }
+      case 'READ_ALL':
+        state.notifications.forEach((n) => (n.isRead = true));
+        break;
+      case 'DELETED':
+        state.notifications = state.notifications.filter(
+          (n) => n.id !== message.notificationId
+        );
+        break;
+      default:
+        break;
     }
 
-    // Update unread count
-    if (!notification.isRead) {
-      state.unreadCount++;
-      updateBadgeCount(state.unreadCount);
+    // Server-maintained counter, authoritative across tabs
+    if (typeof message.unreadCount === 'number') {
+      updateBadgeCount(message.unreadCount);
     }
 
     // Re-render if dropdown is open
     if (state.isOpen) {
       renderNotifications();
     }
+  }
+
+  /**
+   * Add a newly created notification to the dropdown
+   */
+  function handleNewNotification(notification) {
+    if (!notification) return;
+
+    // Add to local state
+    state.notifications.unshift(notification);
+
+    // Limit to max notifications
+    if (state.notifications.length > CONFIG.maxNotifications) {
+      state.notifications.pop();
+    }
 
     // Show toast notification
     if (window.showToast) {
@@ -489,16 +544,27 @@
   }
 
   /**
-   * Start polling for notifications (fallback)
+   * Start polling for notifications (fallback while WebSocket is down)
    */
   function startPolling() {
-    setInterval(() => {
+    if (pollTimer) return;
+    pollTimer = setInterval(() => {
       if (!state.isOpen) {
         loadUnreadCount();
       }
     }, CONFIG.pollInterval);
   }
 
+  /**
+   * Stop fallback polling once WebSocket is connected
+   */
+  function stopPolling() {
+    if (pollTimer) {
+      clearInterval(pollTimer);
+      pollTimer = null;
+    }
+  }
+
   // ============================================================================
   // Event Listeners
   // ============================================================================
@@ -6,6 +6,7 @@
 // WebSocket connection state
 let stompClient = null;
 let reconnectAttempts = 0;
+const lastSequences = {}; // Sequence of the last applied queue batch, per server node
 const MAX_RECONNECT_ATTEMPTS = 10;
 const RECONNECT_DELAY = 3000;
 
@@ -156,6 +157,7 @@ function onConnected() {
     updateConnectionStatus(true);
 
     stompClient.subscribe("/topic/queue", onMessageReceived);
+    requestSnapshot();
     showNotification("Đã kết nối real-time", "success");
 }
 
@@ -176,12 +178,66 @@ function onError(error) {
 }
 
 /**
- * Handle incoming WebSocket messages
+ * Load the current queue snapshot (late subscribe / resync after a missed batch)
+ */
+function requestSnapshot() {
+    const subscription = stompClient.subscribe("/app/queue/snapshot", (payload) => {
+        const snapshot = JSON.parse(payload.body);
+        lastSequences[snapshot.source] = snapshot.sequence;
+        renderSnapshot(snapshot.tickets || []);
+        subscription.unsubscribe();
+    });
+}
+
+/**
+ * Replace the rendered queue rows with the snapshot
+ * Rows missing from the snapshot (removed while disconnected) are dropped
+ */
+function renderSnapshot(tickets) {
+    const containers = {
+        QUEUE: document.getElementById("mainQueueList"),
+        RETRY: document.getElementById("retryQueueList"),
+    };
+    Object.values(containers).forEach((container) => {
+        if (container) {
+            container.querySelectorAll("[data-ticket-id]").forEach((card) => card.remove());
+        }
+    });
+
+    tickets.forEach((ticket) => {
+        const container = containers[ticket.queueType === "RETRY" ? "RETRY" : "QUEUE"];
+        if (container) {
+            container.appendChild(createTicketCard(ticket));
+        }
+    });
+    updateQueueCounters();
+}
+
+/**
+ * Handle incoming WebSocket messages (one batch of queue updates per tick)
  */
 function onMessageReceived(payload) {
-    const message = JSON.parse(payload.body);
-    console.log("Received message:", message);
+    const batch = JSON.parse(payload.body);
+    const lastSequence = lastSequences[batch.source];
+
+    if (lastSequence !== undefined) {
+        if (batch.sequence <= lastSequence) {
+            return; // Already reflected in the snapshot
+        }
+        if (batch.sequence > lastSequence + 1) {
+            console.warn(`Missed queue batches (${lastSequence} -> ${batch.sequence}), resyncing`);
+            requestSnapshot();
+        }
+    }
+    lastSequences[batch.source] = batch.sequence;
+
+    (batch.updates || []).forEach(applyQueueUpdate);
+}
 
+/**
+ * Apply a single queue update
+ */
+function applyQueueUpdate(message) {
     switch (message.action) {
         case "ADD":
             handleTicketAdded(message);
@@ -241,6 +297,8 @@ function handleTicketRemoved(message) {
 
     const ticketCard = document.querySelector(`[data-ticket-id="${message.ticketId}"]`);
     if (ticketCard) {
+        // Detach the id now so an ADD later in the same batch is not skipped
+        ticketCard.removeAttribute("data-ticket-id");
         ticketCard.classList.add("animate-fade-out");
         setTimeout(() => {
             ticketCard.remove();
@@ -0,0 +1,51 @@
+package com.g4.capstoneproject.config;
+
+import com.github.benmanes.caffeine.cache.Policy;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.caffeine.CaffeineCache;
+import org.springframework.cache.support.SimpleCacheManager;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.core.io.support.PropertiesLoaderUtils;
+import org.springframework.mock.env.MockEnvironment;
+
+import java.util.List;
+import java.util.Properties;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CacheConfigTest {
+
+    @Test
+    void everyDeclaredCacheHasSpecInApplicationProperties() throws Exception {
+        Properties properties = PropertiesLoaderUtils.loadProperties(new ClassPathResource("application.properties"));
+        MockEnvironment environment = new MockEnvironment();
+        properties.forEach((key, value) -> environment.setProperty((String) key, (String) value));
+
+        SimpleCacheManager cacheManager = (SimpleCacheManager) new CacheConfig().cacheManager(environment);
+        cacheManager.afterPropertiesSet();
+
+        assertThat(cacheManager.getCacheNames()).containsExactlyInAnyOrderElementsOf(CacheConfig.CACHE_NAMES);
+        Policy.Eviction<Object, Object> eviction = ((CaffeineCache) cacheManager.getCache("doctors"))
+                .getNativeCache().policy().eviction().orElseThrow();
+        assertThat(eviction.getMaximum()).isEqualTo(1000);
+    }
+
+    @Test
+    void missingSpecFailsStartup() {
+        MockEnvironment environment = new MockEnvironment();
+        CacheConfig.CACHE_NAMES.stream().skip(1)
+                .forEach(name -> environment.setProperty("cache.spec." + name, "maximumSize=10"));
+
+        assertThatThrownBy(() -> new CacheConfig().cacheManager(environment))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("cache.spec." + CacheConfig.CACHE_NAMES.get(0));
+    }
+
+    @Test
+    void weightIsElementCountOfCollections() {
+        assertThat(CacheConfig.weigh("k", List.of(1, 2, 3))).isEqualTo(3);
+        assertThat(CacheConfig.weigh("k", List.of())).isEqualTo(1);
+        assertThat(CacheConfig.weigh("k", "value")).isEqualTo(1);
+    }
+}
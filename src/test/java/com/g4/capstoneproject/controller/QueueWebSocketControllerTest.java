@@ -0,0 +1,127 @@
+package com.g4.capstoneproject.controller;
+
+import com.g4.capstoneproject.dto.QueueBatchMessage;
+import com.g4.capstoneproject.dto.QueueSnapshotMessage;
+import com.g4.capstoneproject.dto.QueueUpdateMessage;
+import com.g4.capstoneproject.dto.QueueUpdateMessage.Action;
+import com.g4.capstoneproject.dto.QueueUpdateMessage.QueueType;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+class QueueWebSocketControllerTest {
+
+    private SimpMessagingTemplate messagingTemplate;
+    private QueueWebSocketController controller;
+
+    @BeforeEach
+    void setUp() {
+        messagingTemplate = mock(SimpMessagingTemplate.class);
+        controller = new QueueWebSocketController(messagingTemplate);
+    }
+
+    @Test
+    void newerDeltaReplacesOlderOneOfSameTicketQueueAndAction() {
+        controller.broadcastTicketUpdated("1", QueueType.QUEUE, "OPEN", 0, 3);
+        controller.broadcastTicketUpdated("1", QueueType.QUEUE, "OPEN", 0, 2);
+        controller.broadcastTicketUpdated("2", QueueType.QUEUE, "OPEN", 0, 1);
+
+        QueueBatchMessage batch = flush();
+
+        assertThat(batch.getSequence()).isEqualTo(1L);
+        assertThat(batch.getUpdates()).extracting(QueueUpdateMessage::getTicketId).containsExactly("1", "2");
+        assertThat(batch.getUpdates().get(0).getQueuePosition()).isEqualTo(2);
+    }
+
+    @Test
+    void completeDropsPendingDeltasOfTicketInEveryQueue() {
+        controller.broadcastTicketAdded("1", QueueType.RETRY, "An", "HIGH", null);
+        controller.broadcastTicketUpdated("1", QueueType.RETRY, "OPEN", 1, null);
+        controller.broadcastTicketAdded("2", QueueType.QUEUE, "Binh", "LOW", 1);
+        controller.broadcastTicketCompleted("1");
+
+        QueueBatchMessage batch = flush();
+
+        assertThat(batch.getUpdates())
+                .extracting(QueueUpdateMessage::getTicketId, QueueUpdateMessage::getAction)
+                .containsExactly(
+                        tuple("2", Action.ADD),
+                        tuple("1", Action.COMPLETE));
+    }
+
+    @Test
+    void removeDropsPendingDeltasOfTicketButKeepsLaterAdd() {
+        // Retry -> main -> retry within one tick
+        controller.broadcastTicketRemoved("1", QueueType.RETRY);
+        controller.broadcastTicketAdded("1", QueueType.QUEUE, "An", "HIGH", 1);
+        controller.broadcastTicketRemoved("1", QueueType.QUEUE);
+        controller.broadcastTicketAdded("1", QueueType.RETRY, "An", "HIGH", null);
+
+        QueueBatchMessage batch = flush();
+
+        assertThat(batch.getUpdates())
+                .extracting(QueueUpdateMessage::getAction, QueueUpdateMessage::getQueueType)
+                .containsExactly(
+                        tuple(Action.REMOVE, QueueType.QUEUE),
+                        tuple(Action.ADD, QueueType.RETRY));
+    }
+
+    @Test
+    void emptyTickPublishesNothing() {
+        controller.flushPendingUpdates();
+
+        verify(messagingTemplate, never()).convertAndSend(any(String.class), any(Object.class));
+    }
+
+    @Test
+    void snapshotIsSeededAndFollowsBatches() {
+        controller.resetSnapshot(List.of(
+                QueueUpdateMessage.added("1", QueueType.QUEUE, "An", "HIGH", 1),
+                QueueUpdateMessage.added("2", QueueType.QUEUE, "Binh", "LOW", 2)));
+
+        controller.broadcastTicketUpdated("2", QueueType.QUEUE, "OPEN", 0, 1);
+        controller.broadcastTicketCompleted("1");
+        controller.broadcastTicketAdded("3", QueueType.RETRY, "Chi", "MEDIUM", null);
+        flush();
+
+        QueueSnapshotMessage snapshot = controller.getQueueSnapshot();
+        assertThat(snapshot.getSequence()).isEqualTo(1L);
+        assertThat(snapshot.getTickets()).extracting(QueueUpdateMessage::getTicketId).containsExactly("2", "3");
+        QueueUpdateMessage second = snapshot.getTickets().get(0);
+        assertThat(second.getAction()).isEqualTo(Action.ADD);
+        assertThat(second.getPatientName()).isEqualTo("Binh");
+        assertThat(second.getQueuePosition()).isEqualTo(1);
+    }
+
+    @Test
+    void removeOfCoalescedMoveClearsSnapshotEntry() {
+        controller.resetSnapshot(List.of(QueueUpdateMessage.added("1", QueueType.QUEUE, "An", "HIGH", 1)));
+
+        // Main -> retry -> removed: only REMOVE(RETRY) survives coalescing
+        controller.broadcastTicketRemoved("1", QueueType.QUEUE);
+        controller.broadcastTicketAdded("1", QueueType.RETRY, "An", "HIGH", null);
+        controller.broadcastTicketRemoved("1", QueueType.RETRY);
+        flush();
+
+        assertThat(controller.getQueueSnapshot().getTickets()).isEmpty();
+    }
+
+    private QueueBatchMessage flush() {
+        controller.flushPendingUpdates();
+        ArgumentCaptor<QueueBatchMessage> captor = ArgumentCaptor.forClass(QueueBatchMessage.class);
+        verify(messagingTemplate, times(1)).convertAndSend(eq("/topic/queue"), captor.capture());
+        return captor.getValue();
+    }
+}
@@ -0,0 +1,93 @@
+package com.g4.capstoneproject.security;
+
+import com.g4.capstoneproject.entity.User;
+import com.g4.capstoneproject.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class PrincipalInvalidatorTest {
+
+    private UserRepository userRepository;
+    private PrincipalInvalidator invalidator;
+
+    @BeforeEach
+    void setUp() {
+        userRepository = mock(UserRepository.class);
+        invalidator = new PrincipalInvalidator(userRepository);
+        ReflectionTestUtils.setField(invalidator, "checkIntervalMs", 60_000L);
+        ReflectionTestUtils.setField(invalidator, "cacheSize", 100L);
+        invalidator.init();
+    }
+
+    @Test
+    void neverChangedUserIsNotStaleAndIsLoadedOnce() {
+        when(userRepository.findSecurityVersion(1L)).thenReturn(Optional.empty());
+        CustomUserDetails principal = principal(1L, 0L);
+
+        assertThat(invalidator.isStale(principal)).isFalse();
+        assertThat(invalidator.isStale(principal)).isFalse();
+
+        verify(userRepository, times(1)).findSecurityVersion(1L);
+    }
+
+    @Test
+    void versionIncrementedByAnotherNodeMakesOlderPrincipalStale() {
+        when(userRepository.findSecurityVersion(1L)).thenReturn(Optional.of(3L));
+
+        assertThat(invalidator.isStale(principal(1L, 2L))).isTrue();
+    }
+
+    @Test
+    void principalLoadedWithCurrentVersionIsNotStale() {
+        when(userRepository.findSecurityVersion(1L)).thenReturn(Optional.of(3L));
+
+        assertThat(invalidator.isStale(principal(1L, 3L))).isFalse();
+    }
+
+    @Test
+    void invalidateIncrementsSharedVersionAndRereadsItLocallyAtOnce() {
+        when(userRepository.findSecurityVersion(1L)).thenReturn(Optional.of(0L));
+        CustomUserDetails principal = principal(1L, 0L);
+        assertThat(invalidator.isStale(principal)).isFalse();
+
+        when(userRepository.findSecurityVersion(1L)).thenReturn(Optional.of(1L));
+        invalidator.invalidate(1L);
+
+        verify(userRepository).incrementSecurityVersion(1L);
+        assertThat(invalidator.isStale(principal)).isTrue();
+        assertThat(invalidator.isStale(principal(1L, 1L))).isFalse();
+        verify(userRepository, times(2)).findSecurityVersion(1L);
+    }
+
+    @Test
+    void failedStoreStillInvalidatesThisNode() {
+        when(userRepository.incrementSecurityVersion(1L)).thenThrow(new IllegalStateException("db down"));
+        CustomUserDetails principal = principal(1L, 0L);
+
+        invalidator.invalidate(1L);
+
+        assertThat(invalidator.isStale(principal)).isTrue();
+    }
+
+    @Test
+    void invalidateIgnoresNullUser() {
+        invalidator.invalidate(null);
+
+        verify(userRepository, times(0)).incrementSecurityVersion(any());
+    }
+
+    private static CustomUserDetails principal(Long id, long securityVersion) {
+        return new CustomUserDetails(id, "u" + id + "@mail.com", null, null, User.UserRole.PATIENT, "User", true,
+                securityVersion);
+    }
+}
@@ -0,0 +1,154 @@
+package com.g4.capstoneproject.service;
+
+import com.g4.capstoneproject.dto.doctor.DoctorPatientPage;
+import com.g4.capstoneproject.dto.doctor.DoctorPatientRow;
+import com.g4.capstoneproject.entity.TreatmentPlan;
+import com.g4.capstoneproject.repository.TreatmentPlanRepository;
+import com.g4.capstoneproject.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.EnumSet;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+class DoctorPatientRosterServiceTest {
+
+    private static final Long DOCTOR_ID = 9L;
+    private static final LocalDateTime T0 = LocalDateTime.of(2026, 3, 1, 10, 0);
+
+    private TreatmentPlanRepository treatmentPlanRepository;
+    private UserRepository userRepository;
+    private DoctorPatientRosterService service;
+
+    @BeforeEach
+    void setUp() {
+        treatmentPlanRepository = mock(TreatmentPlanRepository.class);
+        userRepository = mock(UserRepository.class);
+        service = new DoctorPatientRosterService(treatmentPlanRepository, userRepository);
+    }
+
+    @Test
+    void recentPageFetchesOneExtraRowAndEncodesLastRowAsCursor() {
+        when(treatmentPlanRepository.findRosterPageByRecent(eq(DOCTOR_ID), anyCollection(), eq(""),
+                any(LocalDateTime.class), eq(Long.MAX_VALUE), any(Pageable.class)))
+                .thenReturn(List.of(row(1L, 30L, T0), row(2L, 20L, T0.minusHours(1)), row(3L, 10L, T0.minusHours(2))));
+
+        DoctorPatientPage page = service.getPage(DOCTOR_ID, null, 2, null, null, DoctorPatientRosterService.Sort.RECENT);
+
+        assertThat(page.getItems()).extracting(DoctorPatientRow::getId).containsExactly(1L, 2L);
+        assertThat(page.isHasMore()).isTrue();
+        assertThat(decode(page.getNextCursor())).isEqualTo("20|" + T0.minusHours(1));
+    }
+
+    @Test
+    void recentCursorSeeksAfterLastRow() {
+        String cursor = encode("20|" + T0.minusHours(1));
+        when(treatmentPlanRepository.findRosterPageByRecent(eq(DOCTOR_ID), anyCollection(), eq(""),
+                eq(T0.minusHours(1)), eq(20L), any(Pageable.class)))
+                .thenReturn(List.of(row(3L, 10L, T0.minusHours(2))));
+
+        DoctorPatientPage page = service.getPage(DOCTOR_ID, cursor, 2, null, null, DoctorPatientRosterService.Sort.RECENT);
+
+        assertThat(page.getItems()).extracting(DoctorPatientRow::getId).containsExactly(3L);
+        assertThat(page.isHasMore()).isFalse();
+        assertThat(page.getNextCursor()).isNull();
+    }
+
+    @Test
+    void nameCursorSeeksAfterNameAndPatientId() {
+        String cursor = encode("5|Nguyen Van A");
+        when(treatmentPlanRepository.findRosterPageByName(eq(DOCTOR_ID), anyCollection(), eq("%an%"),
+                eq("Nguyen Van A"), eq(5L), any(Pageable.class)))
+                .thenReturn(List.of());
+
+        DoctorPatientPage page = service.getPage(DOCTOR_ID, cursor, 20, " An ",
+                TreatmentPlan.PlanStatus.ACTIVE, DoctorPatientRosterService.Sort.NAME);
+
+        assertThat(page.getItems()).isEmpty();
+        verify(treatmentPlanRepository).findRosterPageByName(eq(DOCTOR_ID), eq(EnumSet.of(TreatmentPlan.PlanStatus.ACTIVE)),
+                eq("%an%"), eq("Nguyen Van A"), eq(5L), any(Pageable.class));
+    }
+
+    @Test
+    void keywordWildcardsAreEscaped() {
+        when(treatmentPlanRepository.findRosterPageByName(eq(DOCTOR_ID), anyCollection(), anyString(),
+                anyString(), anyLong(), any(Pageable.class)))
+                .thenReturn(List.of());
+
+        service.getPage(DOCTOR_ID, null, 20, "50%_a", null, DoctorPatientRosterService.Sort.NAME);
+
+        verify(treatmentPlanRepository).findRosterPageByName(eq(DOCTOR_ID), anyCollection(),
+                eq("%50\\%\\_a%"), anyString(), anyLong(), any(Pageable.class));
+    }
+
+    @Test
+    void malformedCursorIsRejectedBeforeQuerying() {
+        for (String cursor : List.of("not base64!", encode("no-separator"), encode("abc|" + T0), encode("7|yesterday"))) {
+            assertThatThrownBy(() -> service.getPage(DOCTOR_ID, cursor, 20, null, null,
+                    DoctorPatientRosterService.Sort.RECENT))
+                    .isInstanceOf(IllegalArgumentException.class)
+                    .hasMessage("Cursor không hợp lệ");
+        }
+        verifyNoInteractions(treatmentPlanRepository);
+    }
+
+    @Test
+    void getAllWithoutPlansReturnsCappedActivePatients() {
+        when(treatmentPlanRepository.findRosterByDoctorId(DOCTOR_ID)).thenReturn(List.of());
+        List<DoctorPatientRow> patients = List.of(new DoctorPatientRow(5L, "A", "a@x", "090", T0, T0));
+        when(userRepository.findActivePatientRows(any(Pageable.class))).thenReturn(patients);
+
+        assertThat(service.getAll(DOCTOR_ID)).isEqualTo(patients);
+        verify(userRepository).findActivePatientRows(PageRequest.of(0, DoctorPatientRosterService.MAX_PAGE_SIZE));
+    }
+
+    @Test
+    void getAllWithPlansDoesNotLoadOtherPatients() {
+        List<DoctorPatientRow> rows = List.of(row(1L, 30L, T0));
+        when(treatmentPlanRepository.findRosterByDoctorId(DOCTOR_ID)).thenReturn(rows);
+
+        assertThat(service.getAll(DOCTOR_ID)).isEqualTo(rows);
+        verifyNoInteractions(userRepository);
+    }
+
+    @Test
+    void pageSizeIsClamped() {
+        when(treatmentPlanRepository.findRosterPageByName(anyLong(), anyCollection(), anyString(), anyString(),
+                anyLong(), any(Pageable.class))).thenReturn(List.of());
+
+        service.getPage(DOCTOR_ID, null, 10_000, null, null, DoctorPatientRosterService.Sort.NAME);
+
+        verify(treatmentPlanRepository).findRosterPageByName(anyLong(), anyCollection(), anyString(), anyString(),
+                anyLong(), eq(PageRequest.of(0, DoctorPatientRosterService.MAX_PAGE_SIZE + 1)));
+    }
+
+    private static DoctorPatientRow row(Long patientId, Long planId, LocalDateTime lastUpdated) {
+        return new DoctorPatientRow(patientId, "Patient " + patientId, "p" + patientId + "@mail.com", "090",
+                planId, "N/A", TreatmentPlan.PlanStatus.ACTIVE, null, null, lastUpdated, lastUpdated);
+    }
+
+    private static String encode(String raw) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String decode(String cursor) {
+        return new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+    }
+}
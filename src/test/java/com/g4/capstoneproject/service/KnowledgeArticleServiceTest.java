@@ -0,0 +1,111 @@
+package com.g4.capstoneproject.service;
+
+import com.g4.capstoneproject.dto.response.KnowledgeTagCountResponse;
+import com.g4.capstoneproject.entity.KnowledgeArticle;
+import com.g4.capstoneproject.entity.KnowledgeArticle.ArticleStatus;
+import com.g4.capstoneproject.repository.KnowledgeArticleRepository;
+import com.g4.capstoneproject.repository.KnowledgeCategoryRepository;
+import com.g4.capstoneproject.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class KnowledgeArticleServiceTest {
+
+    private KnowledgeArticleRepository articleRepository;
+    private CacheInvalidator cacheInvalidator;
+    private KnowledgeArticleService service;
+
+    @BeforeEach
+    void setUp() {
+        articleRepository = mock(KnowledgeArticleRepository.class);
+        cacheInvalidator = mock(CacheInvalidator.class);
+        service = new KnowledgeArticleService(articleRepository, mock(KnowledgeCategoryRepository.class),
+                mock(UserRepository.class), mock(ArticleViewCounter.class), cacheInvalidator);
+    }
+
+    @Test
+    void searchFallsBackToLikeWhenFullTextIsMissing() {
+        when(articleRepository.hasFullTextSupport()).thenReturn(false);
+        KnowledgeArticle article = KnowledgeArticle.builder().id(3L).title("Sâu răng").build();
+        Page<KnowledgeArticle> page = new PageImpl<>(List.of(article));
+        when(articleRepository.searchByKeyword(anyString(), any(), any(), any())).thenReturn(page);
+
+        Page<KnowledgeArticleService.SearchHit> hits = service.search(" 100%_Răng ", ArticleStatus.PUBLISHED, 5L,
+                PageRequest.of(1, 10));
+        service.search("răng", null, null, PageRequest.of(0, 10));
+
+        assertThat(hits.getContent()).extracting(KnowledgeArticleService.SearchHit::getArticle).containsExactly(article);
+        assertThat(hits.getContent().get(0).getSnippet()).isNull();
+        verify(articleRepository).searchByKeyword("%100\\%\\_răng%", ArticleStatus.PUBLISHED, 5L, PageRequest.of(1, 10));
+        verify(articleRepository, never()).searchRanked(anyString(), anyString(), anyLong(), anyInt(), anyLong());
+        // Chỉ kiểm tra database một lần
+        verify(articleRepository, times(1)).hasFullTextSupport();
+    }
+
+    @Test
+    void tagsComeFromTagsColumnWhenTagTablesAreMissing() {
+        when(articleRepository.hasTagTableSupport()).thenReturn(false);
+        when(articleRepository.findTagColumns(isNull())).thenReturn(List.of("Nha chu, niềng răng", "nha chu,,Tẩy trắng"));
+        when(articleRepository.findTagColumns(ArticleStatus.PUBLISHED)).thenReturn(List.of("nha chu, Nha Chu", "nha chu,tẩy trắng"));
+
+        assertThat(service.getAllTags()).containsExactly("nha chu", "niềng răng", "tẩy trắng");
+        assertThat(service.getTagCloud()).extracting(KnowledgeTagCountResponse::getTag, KnowledgeTagCountResponse::getCount)
+                .containsExactly(tuple("nha chu", 2L), tuple("tẩy trắng", 1L));
+        verify(articleRepository, never()).findAllTags();
+        verify(articleRepository, never()).findPublishedTagCounts();
+    }
+
+    @Test
+    void relatedGraphIsSkippedWhenTagTablesAreMissing() {
+        when(articleRepository.hasTagTableSupport()).thenReturn(false);
+        KnowledgeArticle article = KnowledgeArticle.builder().id(1L).tags("Nha chu").build();
+        when(articleRepository.findById(1L)).thenReturn(Optional.of(article));
+        when(articleRepository.findRelatedByTags(anyLong(), anyString(), anyString(), anyString(), any()))
+                .thenReturn(List.of());
+
+        service.onArticleChanged(1L);
+        service.getRelatedArticles(1L, 5);
+
+        verify(articleRepository, never()).deleteRelatedEdges(anyLong());
+        verify(articleRepository, never()).insertRelatedEdges(anyLong());
+        verify(articleRepository, never()).findNeighbourIds(anyLong());
+        // Không có đồ thị: không biết bài lân cận nên mọi danh sách related bị xóa
+        verify(cacheInvalidator).articleChanged(eq(1L), isNull());
+        // Tag thiếu lặp lại tag đầu, tag rỗng sẽ khớp mọi bài viết
+        verify(articleRepository).findRelatedByTags(1L, "nha chu", "nha chu", "nha chu", PageRequest.of(0, 5));
+    }
+
+    @Test
+    void relatedGraphIsRefreshedWhenTagTablesExist() {
+        when(articleRepository.hasTagTableSupport()).thenReturn(true);
+        when(articleRepository.insertRelatedEdges(1L)).thenReturn(2);
+        when(articleRepository.findNeighbourIds(1L)).thenReturn(Arrays.asList(2L, 3L));
+
+        service.onArticleChanged(1L);
+
+        verify(articleRepository).deleteRelatedEdges(1L);
+        verify(articleRepository).insertReverseRelatedEdges(1L);
+        verify(cacheInvalidator).articleChanged(1L, List.of(2L, 3L));
+    }
+}
@@ -0,0 +1,230 @@
+package com.g4.capstoneproject.service;
+
+import com.g4.capstoneproject.entity.Ticket;
+import com.g4.capstoneproject.entity.Ticket.Priority;
+import com.g4.capstoneproject.repository.TicketRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ReceptionQueueIndexTest {
+
+    private static final LocalDateTime T0 = LocalDateTime.of(2026, 1, 1, 8, 0);
+
+    private TicketRepository ticketRepository;
+    private ReceptionQueueIndex index;
+
+    @BeforeEach
+    void setUp() {
+        ticketRepository = mock(TicketRepository.class);
+        index = new ReceptionQueueIndex(ticketRepository);
+    }
+
+    @Test
+    void ordersByPriorityThenCreatedAt() {
+        index.sync(ticket(1L, Priority.LOW, T0));
+        index.sync(ticket(2L, Priority.URGENT, T0.plusMinutes(5)));
+        index.sync(ticket(3L, Priority.HIGH, T0.plusMinutes(1)));
+        index.sync(ticket(4L, Priority.MEDIUM, T0));
+        index.sync(ticket(5L, Priority.HIGH, T0));
+
+        assertThat(index.orderedTicketIds()).containsExactly(2L, 5L, 3L, 4L, 1L);
+        assertThat(index.size()).isEqualTo(5);
+        assertThat(index.head().ticketId()).isEqualTo(2L);
+        assertThat(index.positionOf(2L)).isEqualTo(1);
+        assertThat(index.positionOf(3L)).isEqualTo(3);
+        assertThat(index.positionOf(1L)).isEqualTo(5);
+    }
+
+    @Test
+    void tiesAreBrokenByTicketIdAndNullCreatedAtGoesLast() {
+        index.sync(ticket(30L, Priority.HIGH, T0));
+        index.sync(ticket(10L, Priority.HIGH, T0));
+        index.sync(ticket(20L, Priority.HIGH, null));
+        index.sync(ticket(15L, Priority.HIGH, T0));
+
+        assertThat(index.orderedTicketIds()).containsExactly(10L, 15L, 30L, 20L);
+        assertThat(index.positionOf(15L)).isEqualTo(2);
+        assertThat(index.positionOf(20L)).isEqualTo(4);
+    }
+
+    @Test
+    void removeAndLeaveQueueUpdatePositions() {
+        index.sync(ticket(1L, Priority.MEDIUM, T0));
+        index.sync(ticket(2L, Priority.MEDIUM, T0.plusMinutes(1)));
+        index.sync(ticket(3L, Priority.MEDIUM, T0.plusMinutes(2)));
+
+        index.evict(1L);
+        assertThat(index.positionOf(1L)).isNull();
+        assertThat(index.positionOf(3L)).isEqualTo(2);
+
+        // Assigned or retried tickets leave the main queue
+        Ticket assigned = ticket(2L, Priority.MEDIUM, T0.plusMinutes(1));
+        assigned.setStatus(Ticket.Status.ASSIGNED);
+        index.sync(assigned);
+        Ticket retried = ticket(3L, Priority.MEDIUM, T0.plusMinutes(2));
+        retried.setRetryCount(1);
+        index.sync(retried);
+
+        assertThat(index.size()).isZero();
+        assertThat(index.head()).isNull();
+        assertThat(index.orderedTicketIds()).isEmpty();
+    }
+
+    @Test
+    void resyncMovesTicketWhenPriorityChanges() {
+        index.sync(ticket(1L, Priority.HIGH, T0));
+        index.sync(ticket(2L, Priority.LOW, T0));
+
+        index.sync(ticket(2L, Priority.URGENT, T0));
+
+        assertThat(index.orderedTicketIds()).containsExactly(2L, 1L);
+        assertThat(index.size()).isEqualTo(2);
+    }
+
+    @Test
+    void evictOfUnknownTicketIsIgnored() {
+        index.sync(ticket(1L, Priority.HIGH, T0));
+        index.evict(99L);
+
+        assertThat(index.orderedTicketIds()).containsExactly(1L);
+    }
+
+    @Test
+    void rebuildReplacesIndexAndRanksFromDatabase() {
+        index.sync(ticket(99L, Priority.URGENT, T0));
+        when(ticketRepository.findMainQueueEntries()).thenReturn(List.of(
+                row(1L, Priority.LOW, T0),
+                row(2L, Priority.HIGH, T0.plusMinutes(3)),
+                row(3L, Priority.HIGH, T0.plusMinutes(1))));
+
+        assertThat(index.rebuild()).isEqualTo(3);
+
+        assertThat(index.positionOf(99L)).isNull();
+        assertThat(index.orderedTicketIds()).containsExactly(3L, 2L, 1L);
+        assertThat(index.positionOf(2L)).isEqualTo(2);
+
+        // Changes after the rebuild apply on top of the loaded state
+        index.sync(ticket(4L, Priority.URGENT, T0.plusMinutes(10)));
+        assertThat(index.positionOf(4L)).isEqualTo(1);
+        assertThat(index.positionOf(1L)).isEqualTo(4);
+    }
+
+    @Test
+    void rebuildRanksNullPriorityAsMedium() {
+        when(ticketRepository.findMainQueueEntries()).thenReturn(List.of(
+                row(1L, Priority.LOW, T0),
+                row(2L, null, T0.plusMinutes(1)),
+                row(3L, Priority.HIGH, T0.plusMinutes(2))));
+
+        assertThat(index.rebuild()).isEqualTo(3);
+
+        assertThat(index.orderedTicketIds()).containsExactly(3L, 2L, 1L);
+    }
+
+    @Test
+    void relayModeReadsPositionsFromDatabase() {
+        ReflectionTestUtils.setField(index, "brokerMode", "relay");
+        when(ticketRepository.isInMainQueue(7L)).thenReturn(true);
+        when(ticketRepository.countMainQueueAhead(7L)).thenReturn(2L);
+        when(ticketRepository.countMainQueue()).thenReturn(5L);
+
+        // Local changes are not kept: another node may have changed the queue since
+        index.sync(ticket(1L, Priority.URGENT, T0));
+
+        assertThat(index.positionOf(7L)).isEqualTo(3);
+        assertThat(index.positionOf(1L)).isNull();
+        assertThat(index.size()).isEqualTo(5);
+    }
+
+    @Test
+    void relayModeRanksNullPriorityLikeTheIndex() {
+        // Relay mode orders by TicketRepository.PRIORITY_RANK / ME_PRIORITY_RANK in SQL;
+        // the in-memory index orders by QueueEntry. A NULL priority must get the same rank in both.
+        for (String rankExpression : List.of(TicketRepository.PRIORITY_RANK, TicketRepository.ME_PRIORITY_RANK)) {
+            assertThat(sqlRank(rankExpression, null)).isEqualTo(sqlRank(rankExpression, Priority.MEDIUM));
+
+            List<Priority> bySql = new ArrayList<>(List.of(Priority.values()));
+            bySql.sort(Comparator.comparingInt(priority -> sqlRank(rankExpression, priority)));
+            List<Priority> byIndex = new ArrayList<>(List.of(Priority.values()));
+            byIndex.sort(Comparator.reverseOrder());
+            assertThat(bySql).isEqualTo(byIndex);
+        }
+
+        index.sync(ticket(1L, Priority.LOW, T0));
+        index.sync(ticket(2L, null, T0.plusMinutes(1)));
+        index.sync(ticket(3L, Priority.MEDIUM, T0.plusMinutes(2)));
+        assertThat(index.orderedTicketIds()).containsExactly(2L, 3L, 1L);
+    }
+
+    @Test
+    void positionsMatchSortedOrderForRandomOperations() {
+        Random random = new Random(42);
+        Priority[] priorities = Priority.values();
+        List<ReceptionQueueIndex.QueueEntry> expected = new ArrayList<>();
+
+        for (int i = 0; i < 2000; i++) {
+            long id = random.nextInt(300) + 1;
+            expected.removeIf(entry -> entry.ticketId() == id);
+            if (random.nextInt(4) == 0) {
+                index.evict(id);
+                continue;
+            }
+            Priority priority = priorities[random.nextInt(priorities.length)];
+            LocalDateTime createdAt = T0.plusMinutes(random.nextInt(50));
+            index.sync(ticket(id, priority, createdAt));
+            expected.add(new ReceptionQueueIndex.QueueEntry(id, priority, createdAt));
+        }
+
+        expected.sort(Comparator
+                .comparing(ReceptionQueueIndex.QueueEntry::priority, Comparator.reverseOrder())
+                .thenComparing(ReceptionQueueIndex.QueueEntry::createdAt)
+                .thenComparing(ReceptionQueueIndex.QueueEntry::ticketId));
+        List<Long> expectedIds = expected.stream().map(ReceptionQueueIndex.QueueEntry::ticketId).toList();
+
+        assertThat(index.orderedTicketIds()).isEqualTo(expectedIds);
+        for (int i = 0; i < expectedIds.size(); i++) {
+            assertThat(index.positionOf(expectedIds.get(i))).isEqualTo(i + 1);
+        }
+    }
+
+    private static Ticket ticket(Long id, Priority priority, LocalDateTime createdAt) {
+        return Ticket.builder()
+                .id(id)
+                .priority(priority)
+                .status(Ticket.Status.OPEN)
+                .createdAt(createdAt)
+                .build();
+    }
+
+    /**
+     * Giá trị của biểu thức "CASE x.priority WHEN 'A' THEN n ... ELSE m END" cho một priority
+     */
+    private static int sqlRank(String caseExpression, Priority priority) {
+        Matcher when = Pattern.compile("WHEN '(\\w+)' THEN (\\d+)").matcher(caseExpression);
+        while (when.find()) {
+            if (priority != null && priority.name().equals(when.group(1))) {
+                return Integer.parseInt(when.group(2));
+            }
+        }
+        Matcher otherwise = Pattern.compile("ELSE (\\d+) END").matcher(caseExpression);
+        assertThat(otherwise.find()).isTrue();
+        return Integer.parseInt(otherwise.group(1));
+    }
+
+    private static Object[] row(Long id, Priority priority, LocalDateTime createdAt) {
+        return new Object[] { id, priority, createdAt };
+    }
+}
@@ -0,0 +1,107 @@
+package com.g4.capstoneproject.service;
+
+import com.g4.capstoneproject.entity.Ticket;
+import com.g4.capstoneproject.entity.Ticket.Priority;
+import com.g4.capstoneproject.repository.TicketMessageRepository;
+import com.g4.capstoneproject.repository.TicketRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class TicketServiceTest {
+
+    private static final LocalDateTime T0 = LocalDateTime.of(2026, 1, 1, 8, 0);
+
+    private TicketRepository ticketRepository;
+    private ReceptionQueueIndex queueIndex;
+    private TicketService ticketService;
+
+    @BeforeEach
+    void setUp() {
+        ticketRepository = mock(TicketRepository.class);
+        queueIndex = new ReceptionQueueIndex(ticketRepository);
+        ticketService = new TicketService(ticketRepository, mock(TicketMessageRepository.class), queueIndex);
+        when(ticketRepository.save(any(Ticket.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        TransactionSynchronizationManager.initSynchronization();
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void syncIsDeferredUntilCommit() {
+        ticketService.updateTicket(ticket(1L, Priority.HIGH, T0));
+
+        assertThat(ticketService.getQueuePosition("1")).isNull();
+        complete(TransactionSynchronization.STATUS_COMMITTED);
+
+        assertThat(ticketService.getQueuePosition("1")).isEqualTo(1);
+    }
+
+    @Test
+    void rebuildDuringPendingSyncDoesNotLoseTicket() {
+        when(ticketRepository.findMainQueueEntries()).thenReturn(List.<Object[]>of(
+                new Object[] { 2L, Priority.LOW, T0 }));
+        ticketService.updateTicket(ticket(1L, Priority.HIGH, T0));
+
+        // Another thread rebuilds while this transaction has not committed: the database
+        // it reads does not contain ticket 1 yet
+        queueIndex.rebuild();
+        assertThat(queueIndex.orderedTicketIds()).containsExactly(2L);
+
+        complete(TransactionSynchronization.STATUS_COMMITTED);
+
+        assertThat(queueIndex.orderedTicketIds()).containsExactly(1L, 2L);
+        assertThat(queueIndex.size()).isEqualTo(2);
+    }
+
+    @Test
+    void rolledBackChangeNeverReachesIndex() {
+        ticketService.updateTicket(ticket(1L, Priority.HIGH, T0));
+        ticketService.deleteTicket(1L);
+
+        complete(TransactionSynchronization.STATUS_ROLLED_BACK);
+
+        assertThat(queueIndex.size()).isZero();
+        assertThat(queueIndex.positionOf(1L)).isNull();
+    }
+
+    /**
+     * Chạy các hook đã đăng ký như khi transaction kết thúc
+     */
+    private static void complete(int status) {
+        List<TransactionSynchronization> synchronizations =
+                new ArrayList<>(TransactionSynchronizationManager.getSynchronizations());
+        TransactionSynchronizationManager.clearSynchronization();
+        for (TransactionSynchronization synchronization : synchronizations) {
+            if (status == TransactionSynchronization.STATUS_COMMITTED) {
+                synchronization.afterCommit();
+            }
+            synchronization.afterCompletion(status);
+        }
+    }
+
+    private static Ticket ticket(Long id, Priority priority, LocalDateTime createdAt) {
+        return Ticket.builder()
+                .id(id)
+                .priority(priority)
+                .status(Ticket.Status.OPEN)
+                .createdAt(createdAt)
+                .build();
+    }
+}
@@ -0,0 +1,180 @@
+package com.g4.capstoneproject.service;
+
+import com.g4.capstoneproject.dto.user.UserSearchRow;
+import com.g4.capstoneproject.entity.User.UserRole;
+import com.g4.capstoneproject.repository.UserRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class UserSearchIndexTest {
+
+    private UserRepository userRepository;
+    private UserSearchIndex index;
+
+    @BeforeEach
+    void setUp() {
+        userRepository = mock(UserRepository.class);
+        index = new UserSearchIndex(userRepository, new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(index, "enabled", true);
+    }
+
+    @Test
+    void isEmptyUntilFirstBuild() {
+        assertThat(index.suggest("an", null, 10)).isEmpty();
+    }
+
+    @Test
+    void matchesWordPrefixesWithoutDiacritics() {
+        build(row(1L, "Nguyễn Văn An", "an.nguyen@mail.com", "0901111111", UserRole.PATIENT, true),
+                row(2L, "Trần Thị Bình", "binh@mail.com", "0902222222", UserRole.PATIENT, true),
+                row(3L, "Đỗ Anh", "do.anh@mail.com", "0903333333", UserRole.DOCTOR, true));
+
+        assertThat(ids("nguyen", null, 10)).containsExactly(1L);
+        assertThat(ids("BÌNH", null, 10)).containsExactly(2L);
+        assertThat(ids("do", null, 10)).containsExactly(3L);
+        assertThat(ids("an", null, 10)).containsExactlyInAnyOrder(1L, 3L);
+        // Chỉ khớp đầu từ, không khớp giữa từ
+        assertThat(ids("inh", null, 10)).isEmpty();
+    }
+
+    @Test
+    void everyQueryTokenMustMatchSomeWord() {
+        build(row(1L, "Nguyễn Văn An", null, null, UserRole.PATIENT, true),
+                row(2L, "Nguyễn Thị Bình", null, null, UserRole.PATIENT, true));
+
+        assertThat(ids("ng bi", null, 10)).containsExactly(2L);
+        assertThat(ids("nguyen van", null, 10)).containsExactly(1L);
+        assertThat(ids("nguyen xuan", null, 10)).isEmpty();
+    }
+
+    @Test
+    void matchesEmailAndPhonePrefixes() {
+        build(row(1L, "An", "an.nguyen@mail.com", "0901111111", UserRole.PATIENT, true));
+
+        assertThat(ids("AN.NG", null, 10)).containsExactly(1L);
+        assertThat(ids("0901", null, 10)).containsExactly(1L);
+        assertThat(ids("1111", null, 10)).isEmpty();
+    }
+
+    @Test
+    void filtersByRoleAndSkipsInactiveUsers() {
+        build(row(1L, "An Patient", null, null, UserRole.PATIENT, true),
+                row(2L, "An Doctor", null, null, UserRole.DOCTOR, true),
+                row(3L, "An Locked", null, null, UserRole.PATIENT, false));
+
+        assertThat(ids("an", UserRole.PATIENT, 10)).containsExactly(1L);
+        assertThat(ids("an", null, 10)).containsExactlyInAnyOrder(1L, 2L);
+    }
+
+    @Test
+    void stopsAtLimit() {
+        build(row(1L, "An A", null, null, UserRole.PATIENT, true),
+                row(2L, "An B", null, null, UserRole.PATIENT, true),
+                row(3L, "An C", null, null, UserRole.PATIENT, true));
+
+        assertThat(ids("an", null, 2)).hasSize(2);
+        assertThat(ids("   ", null, 10)).isEmpty();
+    }
+
+    @Test
+    void userChangedUpdatesOnlyThatRow() {
+        build(row(1L, "An", null, null, UserRole.PATIENT, true),
+                row(2L, "Bình", null, null, UserRole.PATIENT, true));
+
+        when(userRepository.findSearchRowById(1L)).thenReturn(Optional.of(
+                row(1L, "Cường", null, null, UserRole.PATIENT, true)));
+        index.userChanged(1L);
+
+        verify(userRepository, times(1)).findAllSearchRows();
+        assertThat(ids("an", null, 10)).isEmpty();
+        assertThat(ids("cuong", null, 10)).containsExactly(1L);
+        assertThat(ids("binh", null, 10)).containsExactly(2L);
+    }
+
+    @Test
+    void userChangedAddsNewUsersAndDropsMissingOnes() {
+        build(row(1L, "An", null, null, UserRole.PATIENT, true));
+
+        when(userRepository.findSearchRowById(2L)).thenReturn(Optional.of(
+                row(2L, "An Mới", null, null, UserRole.PATIENT, true)));
+        when(userRepository.findSearchRowById(1L)).thenReturn(Optional.empty());
+        index.userChanged(2L);
+        index.userChanged(1L);
+
+        assertThat(ids("an", null, 10)).containsExactly(2L);
+    }
+
+    @Test
+    void userChangedFollowsStatusAndRole() {
+        build(row(1L, "An", null, null, UserRole.PATIENT, true));
+
+        when(userRepository.findSearchRowById(1L)).thenReturn(Optional.of(
+                row(1L, "An", null, null, UserRole.DOCTOR, false)));
+        index.userChanged(1L);
+        assertThat(ids("an", null, 10)).isEmpty();
+
+        when(userRepository.findSearchRowById(1L)).thenReturn(Optional.of(
+                row(1L, "An", null, null, UserRole.DOCTOR, true)));
+        index.userChanged(1L);
+        assertThat(ids("an", UserRole.PATIENT, 10)).isEmpty();
+        assertThat(ids("an", UserRole.DOCTOR, 10)).containsExactly(1L);
+    }
+
+    @Test
+    void failedUpdateKeepsPreviousRow() {
+        build(row(1L, "An", null, null, UserRole.PATIENT, true));
+        when(userRepository.findSearchRowById(1L)).thenThrow(new IllegalStateException("db down"));
+
+        index.userChanged(1L);
+
+        assertThat(ids("an", null, 10)).containsExactly(1L);
+    }
+
+    @Test
+    void failedRebuildKeepsPreviousIndex() {
+        build(row(1L, "An", null, null, UserRole.PATIENT, true));
+        when(userRepository.findAllSearchRows()).thenThrow(new IllegalStateException("db down"));
+
+        index.rebuild();
+
+        assertThat(ids("an", null, 10)).containsExactly(1L);
+    }
+
+    @Test
+    void disabledIndexNeverLoads() {
+        ReflectionTestUtils.setField(index, "enabled", false);
+
+        index.userChanged(1L);
+        index.rebuild();
+
+        verify(userRepository, never()).findAllSearchRows();
+        verify(userRepository, never()).findSearchRowById(1L);
+        assertThat(index.suggest("an", null, 10)).isEmpty();
+    }
+
+    private void build(UserSearchRow... rows) {
+        when(userRepository.findAllSearchRows()).thenReturn(List.of(rows));
+        index.rebuild();
+    }
+
+    private List<Long> ids(String query, UserRole role, int limit) {
+        return index.suggest(query, role, limit).orElseThrow().stream().map(UserSearchRow::getId).toList();
+    }
+
+    private static UserSearchRow row(Long id, String fullName, String email, String phone, UserRole role,
+            boolean active) {
+        return new UserSearchRow(id, fullName, email, phone, role, active);
+    }
+}
@@ -0,0 +1,86 @@
+package com.g4.capstoneproject.service;
+
+import com.g4.capstoneproject.entity.User;
+import com.g4.capstoneproject.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.EnumSet;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class UserSearchServiceTest {
+
+    private UserRepository userRepository;
+    private UserSearchService service;
+
+    @BeforeEach
+    void setUp() {
+        userRepository = mock(UserRepository.class);
+        service = new UserSearchService(userRepository, mock(UserSearchIndex.class));
+        ReflectionTestUtils.setField(service, "maxResults", 50);
+    }
+
+    @Test
+    void limitDefaultsToAndIsCappedByMaxResults() {
+        assertThat(service.limitFor(null)).isEqualTo(50);
+        assertThat(service.limitFor(10)).isEqualTo(10);
+        assertThat(service.limitFor(500)).isEqualTo(50);
+        assertThat(service.limitFor(0)).isEqualTo(1);
+    }
+
+    @Test
+    void usesRankedSearchWhenSearchTextExists() {
+        when(userRepository.hasSearchTextSupport()).thenReturn(true);
+        when(userRepository.searchRankedIds(anyCollection(), anyString(), anyInt())).thenReturn(List.of());
+
+        service.search("an", EnumSet.of(User.UserRole.PATIENT), 500);
+
+        verify(userRepository).searchRankedIds(List.of("PATIENT"), "an", 50);
+        verify(userRepository, never()).findAccounts(anyCollection(), anyCollection(), anyString(), any());
+    }
+
+    @Test
+    void fallsBackToLikeWhenMigrationIsMissing() {
+        when(userRepository.hasSearchTextSupport()).thenReturn(false);
+        User user = User.builder().id(7L).build();
+        Page<User> page = new PageImpl<>(List.of(user));
+        when(userRepository.findAccounts(anyCollection(), anyCollection(), anyString(), any())).thenReturn(page);
+
+        List<User> result = service.search(" Nguyen_A ", EnumSet.of(User.UserRole.PATIENT), 20);
+        service.search("an", EnumSet.of(User.UserRole.PATIENT), 20);
+
+        assertThat(result).containsExactly(user);
+        verify(userRepository, never()).searchRankedIds(anyCollection(), anyString(), anyInt());
+        verify(userRepository).findAccounts(eq(EnumSet.of(User.UserRole.PATIENT)), anyCollection(),
+                eq("%nguyen\\_a%"), eq(PageRequest.of(0, 20, Sort.by("id"))));
+        // Chỉ kiểm tra database một lần
+        verify(userRepository, times(1)).hasSearchTextSupport();
+    }
+
+    @Test
+    void failedSupportCheckMeansFallback() {
+        when(userRepository.hasSearchTextSupport()).thenThrow(new IllegalStateException("no pg_catalog"));
+        when(userRepository.findAccounts(anyCollection(), anyCollection(), anyString(), any()))
+                .thenReturn(new PageImpl<>(List.of()));
+
+        assertThat(service.search("an", 10)).isEmpty();
+        verify(userRepository, never()).searchRankedIds(anyCollection(), anyString(), anyInt());
+    }
+}